@@ -90,6 +90,18 @@ public abstract class AbstractShortestPathAlgorithm {
 
     public abstract Edge getPredecessorIncoming(Node node);
 
+    /**
+     * Returns the distance from the source to <code>node</code>, or
+     * <code>Double.POSITIVE_INFINITY</code> if it can't be reached.
+     *
+     * @param node the node to get the distance to
+     * @return the distance to <code>node</code>
+     */
+    public double getDistance(Node node) {
+        Double d = distances.get(node);
+        return d != null ? d : Double.POSITIVE_INFINITY;
+    }
+
     public HashMap<Node, Double> getDistances() {
         return distances;
     }
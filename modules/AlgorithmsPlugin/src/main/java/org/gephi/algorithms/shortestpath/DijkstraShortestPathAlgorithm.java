@@ -41,86 +41,269 @@
  */
 package org.gephi.algorithms.shortestpath;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
 import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.Node;
 
 /**
+ * Dijkstra's shortest path algorithm, for graphs with non-negative weights.
+ * Directed edges are only followed from their source to their target, and
+ * undirected edges in both directions, so the algorithm works on directed,
+ * undirected and mixed graphs. Use {@link #hasNegativeWeight(Graph)} to
+ * check whether {@link BellmanFordShortestPathAlgorithm} is needed instead.
+ * <p>
+ * Nodes are indexed by store id and the unsettled nodes are kept in an
+ * {@link IndexedDaryHeap}. When a target is set, the search stops as soon as
+ * the target is settled, and can optionally search from both ends at once.
+ * In that case only the distances of the target and of the nodes on its path
+ * are exact.
  *
  * @author Mathieu Bastian
  */
 public class DijkstraShortestPathAlgorithm extends AbstractShortestPathAlgorithm {
 
     protected final Graph graph;
-    protected final HashMap<Node, Edge> predecessors;
+    protected Node targetNode;
+    protected boolean bidirectional;
+    //Arrays indexed by store id
+    private Node[] nodes;
+    private double[] forwardDistances;
+    private Edge[] forwardEdges;
+    private boolean[] forwardSettled;
+    private boolean distancesFilled;
+    //Best path found by the bidirectional search, going through meeting
+    private double best;
+    private int meeting;
 
     public DijkstraShortestPathAlgorithm(Graph graph, Node sourceNode) {
         super(sourceNode);
         this.graph = graph;
-        predecessors = new HashMap<Node, Edge>();
     }
 
     @Override
     public void compute() {
-
         graph.readLock();
-        Set<Node> unsettledNodes = new HashSet<Node>();
-        Set<Node> settledNodes = new HashSet<Node>();
+        try {
+            //Initialize
+            Node[] graphNodes = graph.getNodes().toArray();
+            int capacity = 0;
+            for (Node node : graphNodes) {
+                capacity = Math.max(capacity, node.getStoreId() + 1);
+            }
+            nodes = new Node[capacity];
+            for (Node node : graphNodes) {
+                nodes[node.getStoreId()] = node;
+            }
+            forwardDistances = newDistances(capacity);
+            forwardEdges = new Edge[capacity];
+            forwardSettled = new boolean[capacity];
+            distances.clear();
+            distancesFilled = false;
+            maxDistance = 0;
 
-        //Initialize
-        for (Node node : graph.getNodes()) {
-            distances.put(node, Double.POSITIVE_INFINITY);
+            int source = indexOf(sourceNode);
+            if (source == -1) {
+                return;
+            }
+            int target = targetNode != null ? indexOf(targetNode) : -1;
+            if (targetNode != null && target == -1) {
+                return;
+            }
+            if (bidirectional && target != -1) {
+                computeBidirectional(source, target);
+            } else {
+                computeForward(source, target);
+            }
+        } finally {
+            graph.readUnlock();
         }
-        distances.put(sourceNode, 0d);
-        unsettledNodes.add(sourceNode);
-
-        while (!unsettledNodes.isEmpty()) {
-
-            // find node with smallest distance value
-            Double minDistance = Double.POSITIVE_INFINITY;
-            Node minDistanceNode = null;
-            for (Node k : unsettledNodes) {
-                Double dist = distances.get(k);
-                if (minDistanceNode == null) {
-                    minDistanceNode = k;
-                }
+    }
 
-                if (dist.compareTo(minDistance) < 0) {
-                    minDistance = dist;
-                    minDistanceNode = k;
-                }
+    private void computeForward(int source, int target) {
+        IndexedDaryHeap heap = new IndexedDaryHeap(nodes.length);
+        forwardDistances[source] = 0;
+        heap.offer(source, 0);
+
+        while (!heap.isEmpty()) {
+            int index = heap.poll();
+            forwardSettled[index] = true;
+            maxDistance = Math.max(maxDistance, forwardDistances[index]);
+            if (index == target) {
+                break;
+            }
+            relaxEdges(index, true, heap, forwardDistances, forwardEdges, forwardSettled, null);
+        }
+    }
+
+    private void computeBidirectional(int source, int target) {
+        int capacity = nodes.length;
+        double[] backwardDistances = newDistances(capacity);
+        Edge[] backwardEdges = new Edge[capacity];
+        boolean[] backwardSettled = new boolean[capacity];
+        IndexedDaryHeap forwardHeap = new IndexedDaryHeap(capacity);
+        IndexedDaryHeap backwardHeap = new IndexedDaryHeap(capacity);
+        forwardDistances[source] = 0;
+        forwardHeap.offer(source, 0);
+        backwardDistances[target] = 0;
+        backwardHeap.offer(target, 0);
+
+        best = source == target ? 0 : Double.POSITIVE_INFINITY;
+        meeting = source == target ? source : -1;
+
+        while (!forwardHeap.isEmpty() && !backwardHeap.isEmpty()) {
+            if (forwardHeap.peekPriority() + backwardHeap.peekPriority() >= best) {
+                break;
+            }
+            //Expand the smallest frontier
+            boolean forward = forwardHeap.size() <= backwardHeap.size();
+            int index = forward ? forwardHeap.poll() : backwardHeap.poll();
+            if (forward) {
+                forwardSettled[index] = true;
+                relaxEdges(index, true, forwardHeap, forwardDistances, forwardEdges, forwardSettled, backwardDistances);
+            } else {
+                backwardSettled[index] = true;
+                relaxEdges(index, false, backwardHeap, backwardDistances, backwardEdges, backwardSettled, forwardDistances);
+            }
+        }
+        if (meeting == -1) {
+            return;
+        }
+
+        //Use the meeting point closest to the target, in case the two halves
+        //of the path share nodes through zero-weight edges
+        boolean[] onForwardPath = new boolean[capacity];
+        for (int i = meeting; i != source; i = opposite(i, forwardEdges[i])) {
+            onForwardPath[i] = true;
+        }
+        onForwardPath[source] = true;
+        for (int i = meeting; i != target; i = opposite(i, backwardEdges[i])) {
+            if (onForwardPath[i]) {
+                meeting = i;
             }
-            unsettledNodes.remove(minDistanceNode);
-            settledNodes.add(minDistanceNode);
-
-            for (Edge edge : graph.getEdges(minDistanceNode)) {
-                Node neighbor = graph.getOpposite(minDistanceNode, edge);
-                if (!settledNodes.contains(neighbor)) {
-                    double dist = getShortestDistance(minDistanceNode) + edgeWeight(edge);
-                    if (getShortestDistance(neighbor) > dist) {
-
-                        distances.put(neighbor, dist);
-                        predecessors.put(neighbor, edge);
-                        unsettledNodes.add(neighbor);
-                        maxDistance = Math.max(maxDistance, dist);
+        }
+        if (onForwardPath[target]) {
+            meeting = target;
+        }
+
+        //Continue the forward path with the backward path
+        for (int i = meeting; i != target;) {
+            Edge edge = backwardEdges[i];
+            int next = opposite(i, edge);
+            forwardEdges[next] = edge;
+            forwardDistances[next] = forwardDistances[i] + edgeWeight(edge);
+            i = next;
+        }
+        maxDistance = forwardDistances[target];
+    }
+
+    /**
+     * Relaxes the edges leaving <code>index</code> in the forward search, or
+     * entering it in the backward search.
+     */
+    private void relaxEdges(int index, boolean forward, IndexedDaryHeap heap, double[] dist, Edge[] edges, boolean[] settled, double[] otherDist) {
+        Node node = nodes[index];
+        double nodeDistance = dist[index];
+        for (Edge edge : graph.getEdges(node)) {
+            if (edge.isDirected() && (forward ? edge.getSource() : edge.getTarget()) != node) {
+                continue;
+            }
+            int neighbor = graph.getOpposite(node, edge).getStoreId();
+            if (!settled[neighbor]) {
+                double d = nodeDistance + edgeWeight(edge);
+                if (d < dist[neighbor]) {
+                    dist[neighbor] = d;
+                    edges[neighbor] = edge;
+                    heap.offer(neighbor, d);
+                    if (otherDist != null && d + otherDist[neighbor] < best) {
+                        best = d + otherDist[neighbor];
+                        meeting = neighbor;
                     }
                 }
             }
         }
+    }
+
+    /**
+     * Returns <code>true</code> if an edge of <code>graph</code> has a negative
+     * weight. Dijkstra's algorithm doesn't support such graphs.
+     *
+     * @param graph the graph to check
+     * @return <code>true</code> if a weight is negative
+     */
+    public static boolean hasNegativeWeight(Graph graph) {
+        for (Edge edge : graph.getEdges().toArray()) {
+            if (edge.getWeight() < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int opposite(int index, Edge edge) {
+        return graph.getOpposite(nodes[index], edge).getStoreId();
+    }
 
-        graph.readUnlock();
+    private int indexOf(Node node) {
+        int index = node.getStoreId();
+        if (nodes != null && index >= 0 && index < nodes.length && nodes[index] == node) {
+            return index;
+        }
+        return -1;
     }
 
-    private double getShortestDistance(Node destination) {
-        Double d = distances.get(destination);
-        if (d == null) {
-            return Double.POSITIVE_INFINITY;
-        } else {
-            return d;
+    private static double[] newDistances(int capacity) {
+        double[] dist = new double[capacity];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        return dist;
+    }
+
+    /**
+     * Sets the node the search stops at, or <code>null</code> to compute the
+     * distances to all nodes.
+     *
+     * @param targetNode the target node, or <code>null</code>
+     */
+    public void setTargetNode(Node targetNode) {
+        this.targetNode = targetNode;
+    }
+
+    public Node getTargetNode() {
+        return targetNode;
+    }
+
+    /**
+     * Sets whether the search runs from both the source and the target. Only
+     * used when a target node is set.
+     *
+     * @param bidirectional <code>true</code> to search from both ends
+     */
+    public void setBidirectional(boolean bidirectional) {
+        this.bidirectional = bidirectional;
+    }
+
+    public boolean isBidirectional() {
+        return bidirectional;
+    }
+
+    @Override
+    public double getDistance(Node node) {
+        int index = indexOf(node);
+        return index != -1 ? forwardDistances[index] : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public HashMap<Node, Double> getDistances() {
+        if (!distancesFilled && nodes != null) {
+            for (Node node : nodes) {
+                if (node != null) {
+                    distances.put(node, forwardDistances[node.getStoreId()]);
+                }
+            }
+            distancesFilled = true;
         }
+        return distances;
     }
 
     @Override
@@ -130,7 +313,7 @@ public class DijkstraShortestPathAlgorithm extends AbstractShortestPathAlgorithm
 
     @Override
     public Node getPredecessor(Node node) {
-        Edge edge = predecessors.get(node);
+        Edge edge = getPredecessorIncoming(node);
         if (edge != null) {
             if (edge.getSource() != node) {
                 return edge.getSource();
@@ -143,6 +326,7 @@ public class DijkstraShortestPathAlgorithm extends AbstractShortestPathAlgorithm
 
     @Override
     public Edge getPredecessorIncoming(Node node) {
-        return predecessors.get(node);
+        int index = indexOf(node);
+        return index != -1 ? forwardEdges[index] : null;
     }
 }
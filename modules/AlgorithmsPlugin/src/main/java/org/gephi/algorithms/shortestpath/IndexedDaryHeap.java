@@ -0,0 +1,211 @@
+/*
+ Copyright 2008-2010 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.algorithms.shortestpath;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Indexed d-ary min-heap of integer keys with <code>double</code> priorities.
+ * <p>
+ * Keys are between zero and the capacity given at construction, typically
+ * node store ids. The position of each key in the heap is kept in an array so
+ * the priority of a queued key can be decreased in logarithmic time, which is
+ * what Dijkstra's algorithm needs.
+ *
+ * @author Gephi Consortium
+ */
+public class IndexedDaryHeap {
+
+    public static final int DEFAULT_ARITY = 4;
+    private final int arity;
+    private final int[] heap;
+    private final int[] positions;
+    private final double[] priorities;
+    private int size;
+
+    public IndexedDaryHeap(int capacity) {
+        this(DEFAULT_ARITY, capacity);
+    }
+
+    public IndexedDaryHeap(int arity, int capacity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Arity must be at least 2");
+        }
+        this.arity = arity;
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.priorities = new double[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int key) {
+        return positions[key] != -1;
+    }
+
+    /**
+     * Inserts <code>key</code>, or updates its priority if it is already
+     * queued and <code>priority</code> is smaller.
+     *
+     * @param key the key, smaller than the capacity
+     * @param priority the priority, smaller is first
+     * @return <code>true</code> if the key has been inserted or its priority
+     * decreased
+     */
+    public boolean offer(int key, double priority) {
+        int pos = positions[key];
+        if (pos == -1) {
+            pos = size++;
+            heap[pos] = key;
+            positions[key] = pos;
+        } else if (priority >= priorities[key]) {
+            return false;
+        }
+        priorities[key] = priority;
+        siftUp(pos);
+        return true;
+    }
+
+    /**
+     * Returns the key with the smallest priority, without removing it.
+     *
+     * @return the first key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+
+    /**
+     * Returns the smallest priority, or <code>Double.POSITIVE_INFINITY</code>
+     * if the heap is empty.
+     *
+     * @return the smallest priority
+     */
+    public double peekPriority() {
+        return size == 0 ? Double.POSITIVE_INFINITY : priorities[heap[0]];
+    }
+
+    /**
+     * Removes and returns the key with the smallest priority.
+     *
+     * @return the first key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int poll() {
+        int first = peek();
+        positions[first] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return first;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int pos) {
+        int key = heap[pos];
+        double priority = priorities[key];
+        while (pos > 0) {
+            int parentPos = (pos - 1) / arity;
+            int parent = heap[parentPos];
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            heap[pos] = parent;
+            positions[parent] = pos;
+            pos = parentPos;
+        }
+        heap[pos] = key;
+        positions[key] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int key = heap[pos];
+        double priority = priorities[key];
+        while (true) {
+            int firstChild = pos * arity + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int lastChild = Math.min(firstChild + arity, size);
+            int minPos = firstChild;
+            double minPriority = priorities[heap[firstChild]];
+            for (int c = firstChild + 1; c < lastChild; c++) {
+                double p = priorities[heap[c]];
+                if (p < minPriority) {
+                    minPos = c;
+                    minPriority = p;
+                }
+            }
+            if (minPriority >= priority) {
+                break;
+            }
+            int child = heap[minPos];
+            heap[pos] = child;
+            positions[child] = pos;
+            pos = minPos;
+        }
+        heap[pos] = key;
+        positions[key] = pos;
+    }
+}
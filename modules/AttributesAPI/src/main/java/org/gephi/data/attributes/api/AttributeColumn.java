@@ -133,4 +133,17 @@ public interface AttributeColumn {
      * @return Table for the column
      */
     public AttributeTable getTable();
+
+    /**
+     * Returns the version of the values of this column. The version is
+     * incremented each time a value of this column changes in a row, before
+     * the matching event is fired, including for computed columns that don't
+     * fire events.
+     * <p>
+     * Compare versions to know synchronously if values have changed, as
+     * attribute events are delivered later on the event thread.
+     *
+     * @return  the current version of the values of this column
+     */
+    public int getValueVersion();
 }
@@ -189,6 +189,16 @@ public interface AttributeTable {
      */
     public boolean hasColumn(String title);
 
+    /**
+     * Returns the version of the values of this table. The version is
+     * incremented each time a value changes in any column of this table, and
+     * when a column is added, removed or replaced.
+     *
+     * @return              the current version of the values of this table
+     * @see AttributeColumn#getValueVersion()
+     */
+    public int getValueVersion();
+
     /**
      * Merge this table with the given <code>table</code> given. New columns from
      * <code>table</code> are added to this table. 
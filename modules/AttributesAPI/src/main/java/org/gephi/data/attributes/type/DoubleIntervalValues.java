@@ -0,0 +1,224 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Gephi Consortium
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.data.attributes.type;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import org.gephi.data.attributes.api.Estimator;
+
+/**
+ * Values of a {@link DynamicDouble} or {@link DynamicFloat} copied in a
+ * <code>double[]</code>, in the order of the intervals, with prefix sums and
+ * min/max sparse tables so that estimators run in constant time over the
+ * overlapping range.
+ * <p>
+ * Only available when the interval index is ordered, so that overlapping
+ * intervals are contiguous, and all values are finite. Prefix sums are
+ * compensated to keep the error close to a direct summation. Sparse tables
+ * take <i>O</i>(<i>n</i> lg <i>n</i>) space and are only built for large
+ * values, smaller ones are scanned.
+ *
+ * @author Gephi Consortium
+ */
+final class DoubleIntervalValues {
+
+	static final DoubleIntervalValues UNSUPPORTED = new DoubleIntervalValues();
+	private static final int SPARSE_TABLE_MIN_SIZE = 64;
+	private final StaticIntervalTree<? extends Number> tree;
+	private final double[] values;
+	//Prefix sums and their compensations, sums[i] is the sum of values[0..i)
+	private final double[] sums;
+	private final double[] errors;
+	//mins[k][i] is the minimum of values[i..i + 2^k), same for maxs
+	private final double[][] mins;
+	private final double[][] maxs;
+
+	private DoubleIntervalValues() {
+		tree = null;
+		values = sums = errors = null;
+		mins = maxs = null;
+	}
+
+	private DoubleIntervalValues(StaticIntervalTree<? extends Number> tree, double[] values) {
+		this.tree = tree;
+		this.values = values;
+		int n = values.length;
+
+		sums = new double[n + 1];
+		errors = new double[n + 1];
+		double sum = 0.0;
+		double error = 0.0;
+		for (int i = 0; i < n; i++) {
+			double v = values[i];
+			double t = sum + v;
+			if (Math.abs(sum) >= Math.abs(v))
+				error += (sum - t) + v;
+			else error += (v - t) + sum;
+			sum = t;
+			sums[i + 1] = sum;
+			errors[i + 1] = error;
+		}
+
+		if (n >= SPARSE_TABLE_MIN_SIZE) {
+			int levels = 32 - Integer.numberOfLeadingZeros(n);
+			mins = new double[levels][];
+			maxs = new double[levels][];
+			mins[0] = values;
+			maxs[0] = values;
+			for (int k = 1; k < levels; k++) {
+				int half = 1 << (k - 1);
+				int size = n - (1 << k) + 1;
+				double[] min = new double[size];
+				double[] max = new double[size];
+				for (int i = 0; i < size; i++) {
+					min[i] = Math.min(mins[k - 1][i], mins[k - 1][i + half]);
+					max[i] = Math.max(maxs[k - 1][i], maxs[k - 1][i + half]);
+				}
+				mins[k] = min;
+				maxs[k] = max;
+			}
+		} else {
+			mins = null;
+			maxs = null;
+		}
+	}
+
+	/**
+	 * Copies the values of <code>tree</code>, or returns {@link #UNSUPPORTED}
+	 * if the tree isn't ordered or a value is null or not finite.
+	 *
+	 * @param tree the interval index of a dynamic value
+	 * @return the primitive values or {@link #UNSUPPORTED}
+	 */
+	static DoubleIntervalValues build(StaticIntervalTree<? extends Number> tree) {
+		if (!tree.isOrdered())
+			return UNSUPPORTED;
+		double[] values = new double[tree.size()];
+		for (int i = 0; i < values.length; i++) {
+			Number value = tree.get(i).getValue();
+			if (value == null)
+				return UNSUPPORTED;
+			values[i] = value.doubleValue();
+			if (Double.isNaN(values[i]) || Double.isInfinite(values[i]))
+				return UNSUPPORTED;
+		}
+		return new DoubleIntervalValues(tree, values);
+	}
+
+	boolean isSupported() {
+		return this != UNSUPPORTED;
+	}
+
+	/**
+	 * Returns <code>true</code> if the estimator can be computed from the
+	 * primitive values.
+	 */
+	static boolean isSupported(Estimator estimator) {
+		return estimator != Estimator.MODE;
+	}
+
+	/**
+	 * Estimates the values overlapping with <code>interval</code>, as
+	 * {@link DynamicDouble#getValue(Interval, Estimator)}.
+	 *
+	 * @param interval the interval
+	 * @param estimator a supported estimator
+	 * @return the estimated value or <code>null</code> if no value overlaps
+	 */
+	Double estimate(Interval interval, Estimator estimator) {
+		int from = tree.firstOverlap(interval.getLow(), interval.isLowExcluded());
+		int to = tree.endOverlap(interval.getHigh(), interval.isHighExcluded());
+		if (from >= to)
+			return null;
+		int count = to - from;
+
+		switch (estimator) {
+			case AVERAGE:
+				if (count == 1)
+					return values[from];
+				return new BigDecimal(sum(from, to)).divide(BigDecimal.valueOf((long) count), 10, RoundingMode.HALF_EVEN).doubleValue();
+			case MEDIAN:
+				int middle = from + count / 2;
+				if (count % 2 == 1)
+					return values[middle];
+				return new BigDecimal(values[middle - 1]).add(new BigDecimal(values[middle])).divide(new BigDecimal(2)).doubleValue();
+			case SUM:
+				return sum(from, to);
+			case MIN:
+				return min(from, to);
+			case MAX:
+				return max(from, to);
+			case FIRST:
+				return values[from];
+			case LAST:
+				return values[to - 1];
+			default:
+				throw new IllegalArgumentException("Unknown estimator.");
+		}
+	}
+
+	private double sum(int from, int to) {
+		return (sums[to] - sums[from]) + (errors[to] - errors[from]);
+	}
+
+	private double min(int from, int to) {
+		if (mins == null) {
+			double min = values[from];
+			for (int i = from + 1; i < to; i++)
+				min = Math.min(min, values[i]);
+			return min;
+		}
+		int k = 31 - Integer.numberOfLeadingZeros(to - from);
+		return Math.min(mins[k][from], mins[k][to - (1 << k)]);
+	}
+
+	private double max(int from, int to) {
+		if (maxs == null) {
+			double max = values[from];
+			for (int i = from + 1; i < to; i++)
+				max = Math.max(max, values[i]);
+			return max;
+		}
+		int k = 31 - Integer.numberOfLeadingZeros(to - from);
+		return Math.max(maxs[k][from], maxs[k][to - (1 << k)]);
+	}
+}
@@ -53,6 +53,8 @@ import org.gephi.data.attributes.api.Estimator;
  * @author Cezary Bartosiak
  */
 public final class DynamicByte extends DynamicType<Byte> {
+	private volatile LongIntervalValues primitiveValues;
+
 	/**
 	 * Constructs a new {@code DynamicType} instance with no intervals.
 	 */
@@ -145,6 +147,16 @@ public final class DynamicByte extends DynamicType<Byte> {
 
 	@Override
 	public Byte getValue(Interval interval, Estimator estimator) {
+		if (LongIntervalValues.isSupported(estimator)) {
+			LongIntervalValues primitives = getPrimitiveValues();
+			if (primitives.isSupported()) {
+				Long value = primitives.estimate(interval, estimator);
+				if (value == null)
+					return null;
+				return value.byteValue();
+			}
+		}
+
 		List<Byte> values = getValues(interval);
 		if (values.isEmpty())
 			return null;
@@ -209,6 +221,18 @@ public final class DynamicByte extends DynamicType<Byte> {
 		}
 	}
 
+	/*
+	 * Values copied in primitive arrays, built on the first estimation.
+	 */
+	private LongIntervalValues getPrimitiveValues() {
+		LongIntervalValues values = primitiveValues;
+		if (values == null) {
+			values = LongIntervalValues.build(intervalTree);
+			primitiveValues = values;
+		}
+		return values;
+	}
+
 	@Override
 	public Class getUnderlyingType() {
 		return Byte.class;
@@ -54,6 +54,8 @@ import org.gephi.data.attributes.api.Estimator;
  * @author Cezary Bartosiak
  */
 public final class DynamicDouble extends DynamicType<Double> {
+	private volatile DoubleIntervalValues primitiveValues;
+
 	/**
 	 * Constructs a new {@code DynamicType} instance with no intervals.
 	 */
@@ -146,6 +148,12 @@ public final class DynamicDouble extends DynamicType<Double> {
 
 	@Override
 	public Double getValue(Interval interval, Estimator estimator) {
+		if (DoubleIntervalValues.isSupported(estimator)) {
+			DoubleIntervalValues primitives = getPrimitiveValues();
+			if (primitives.isSupported())
+				return primitives.estimate(interval, estimator);
+		}
+
 		List<Double> values = getValues(interval);
 		if (values.isEmpty())
 			return null;
@@ -208,6 +216,18 @@ public final class DynamicDouble extends DynamicType<Double> {
 		}
 	}
 
+	/*
+	 * Values copied in primitive arrays, built on the first estimation.
+	 */
+	private DoubleIntervalValues getPrimitiveValues() {
+		DoubleIntervalValues values = primitiveValues;
+		if (values == null) {
+			values = DoubleIntervalValues.build(intervalTree);
+			primitiveValues = values;
+		}
+		return values;
+	}
+
 	@Override
 	public Class getUnderlyingType() {
 		return Double.class;
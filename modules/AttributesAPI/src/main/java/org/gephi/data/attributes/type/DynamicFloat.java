@@ -54,6 +54,8 @@ import org.gephi.data.attributes.api.Estimator;
  * @author Cezary Bartosiak
  */
 public final class DynamicFloat extends DynamicType<Float> {
+	private volatile DoubleIntervalValues primitiveValues;
+
 	/**
 	 * Constructs a new {@code DynamicType} instance with no intervals.
 	 */
@@ -146,6 +148,16 @@ public final class DynamicFloat extends DynamicType<Float> {
 
 	@Override
 	public Float getValue(Interval interval, Estimator estimator) {
+		if (DoubleIntervalValues.isSupported(estimator)) {
+			DoubleIntervalValues primitives = getPrimitiveValues();
+			if (primitives.isSupported()) {
+				Double value = primitives.estimate(interval, estimator);
+				if (value == null)
+					return null;
+				return value.floatValue();
+			}
+		}
+
 		List<Float> values = getValues(interval);
 		if (values.isEmpty())
 			return null;
@@ -208,6 +220,18 @@ public final class DynamicFloat extends DynamicType<Float> {
 		}
 	}
 
+	/*
+	 * Values copied in primitive arrays, built on the first estimation.
+	 */
+	private DoubleIntervalValues getPrimitiveValues() {
+		DoubleIntervalValues values = primitiveValues;
+		if (values == null) {
+			values = DoubleIntervalValues.build(intervalTree);
+			primitiveValues = values;
+		}
+		return values;
+	}
+
 	@Override
 	public Class getUnderlyingType() {
 		return Float.class;
@@ -53,6 +53,8 @@ import org.gephi.data.attributes.api.Estimator;
  * @author Cezary Bartosiak
  */
 public final class DynamicLong extends DynamicType<Long> {
+	private volatile LongIntervalValues primitiveValues;
+
 	/**
 	 * Constructs a new {@code DynamicType} instance with no intervals.
 	 */
@@ -145,6 +147,12 @@ public final class DynamicLong extends DynamicType<Long> {
 
 	@Override
 	public Long getValue(Interval interval, Estimator estimator) {
+		if (LongIntervalValues.isSupported(estimator)) {
+			LongIntervalValues primitives = getPrimitiveValues();
+			if (primitives.isSupported())
+				return primitives.estimate(interval, estimator);
+		}
+
 		List<Long> values = getValues(interval);
 		if (values.isEmpty())
 			return null;
@@ -209,6 +217,18 @@ public final class DynamicLong extends DynamicType<Long> {
 		}
 	}
 
+	/*
+	 * Values copied in primitive arrays, built on the first estimation.
+	 */
+	private LongIntervalValues getPrimitiveValues() {
+		LongIntervalValues values = primitiveValues;
+		if (values == null) {
+			values = LongIntervalValues.build(intervalTree);
+			primitiveValues = values;
+		}
+		return values;
+	}
+
 	@Override
 	public Class getUnderlyingType() {
 		return Long.class;
@@ -42,25 +42,28 @@ Portions Copyrighted 2011 Gephi Consortium.
 package org.gephi.data.attributes.type;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import org.gephi.data.attributes.api.Estimator;
 
 /**
  * A special type which provides methods of getting/setting values of any time
- * interval. It is internally implemented using Interval Tree for efficiency.
+ * interval. It is internally implemented using a {@link StaticIntervalTree}
+ * for efficiency, instances are immutable.
  *
  * @author Cezary Bartosiak
  * 
  * @param <T> type of data
  */
 public abstract class DynamicType<T> {
-	protected IntervalTree<T> intervalTree;
+	protected final StaticIntervalTree<T> intervalTree;
 
 	/**
 	 * Constructs a new {@code DynamicType} instance with no intervals.
 	 */
 	public DynamicType() {
-		intervalTree = new IntervalTree<T>();
+		intervalTree = StaticIntervalTree.empty();
 	}
 
 	/**
@@ -70,9 +73,7 @@ public abstract class DynamicType<T> {
 	 * @param in interval to add (could be null)
 	 */
 	public DynamicType(Interval<T> in) {
-		this();
-		if (in != null)
-			intervalTree.insert(in);
+		intervalTree = build(null, asList(in), null);
 	}
 
 	/**
@@ -82,10 +83,7 @@ public abstract class DynamicType<T> {
 	 * @param in intervals to add (could be null)
 	 */
 	public DynamicType(List<Interval<T>> in) {
-		this();
-		if (in != null)
-			for (Interval<T> interval : in)
-				intervalTree.insert(interval);
+		intervalTree = build(null, in, null);
 	}
 
 	/**
@@ -95,9 +93,7 @@ public abstract class DynamicType<T> {
 	 *               instance is created)
 	 */
 	public DynamicType(DynamicType<T> source) {
-		if (source == null)
-			intervalTree = new IntervalTree<T>();
-		else intervalTree = new IntervalTree<T>(source.intervalTree);
+		intervalTree = build(source, null, null);
 	}
 
 	/**
@@ -109,9 +105,7 @@ public abstract class DynamicType<T> {
 	 * @param in     interval to add (could be null)
 	 */
 	public DynamicType(DynamicType<T> source, Interval<T> in) {
-		this(source);
-		if (in != null)
-			intervalTree.insert(in);
+		intervalTree = build(source, asList(in), null);
 	}
 
 	/**
@@ -125,11 +119,7 @@ public abstract class DynamicType<T> {
 	 * @param out    interval to remove (could be null)
 	 */
 	public DynamicType(DynamicType<T> source, Interval<T> in, Interval<T> out) {
-		this(source);
-		if (out != null)
-			intervalTree.delete(out);
-		if (in != null)
-			intervalTree.insert(in);
+		intervalTree = build(source, asList(in), asList(out));
 	}
 
 	/**
@@ -141,10 +131,7 @@ public abstract class DynamicType<T> {
 	 * @param in     intervals to add (could be null)
 	 */
 	public DynamicType(DynamicType<T> source, List<Interval<T>> in) {
-		this(source);
-		if (in != null)
-			for (Interval<T> interval : in)
-				intervalTree.insert(interval);
+		intervalTree = build(source, in, null);
 	}
 
 	/**
@@ -159,13 +146,47 @@ public abstract class DynamicType<T> {
 	 * @param out    intervals to remove (could be null)
 	 */
 	public DynamicType(DynamicType<T> source, List<Interval<T>> in, List<Interval<T>> out) {
-		this(source);
-		if (out != null)
-			for (Interval<T> interval : out)
-				intervalTree.delete(interval);
-		if (in != null)
-			for (Interval<T> interval : in)
-				intervalTree.insert(interval);
+		intervalTree = build(source, in, out);
+	}
+
+	/*
+	 * Intervals are immutable, so the index of the source can be shared when
+	 * nothing is added or removed. Otherwise the intervals are edited as a
+	 * list and the new index is built at once.
+	 */
+	private static <T> StaticIntervalTree<T> build(DynamicType<T> source,
+			List<Interval<T>> in, List<Interval<T>> out) {
+		boolean hasIn  = in != null && !in.isEmpty();
+		boolean hasOut = out != null && !out.isEmpty();
+		if (source != null && !hasIn && !hasOut)
+			return source.intervalTree;
+		if (source == null && !hasIn)
+			return StaticIntervalTree.empty();
+
+		List<Interval<T>> intervals = source != null
+				? source.intervalTree.getIntervals() : new ArrayList<Interval<T>>();
+		if (hasOut)
+			for (Iterator<Interval<T>> itr = intervals.iterator(); itr.hasNext();) {
+				Interval<T> interval = itr.next();
+				for (Interval<T> o : out)
+					if (o != null && interval.compareTo(o) == 0) {
+						itr.remove();
+						break;
+					}
+			}
+		if (hasIn)
+			for (Interval<T> interval : in) {
+				if (interval == null)
+					throw new NullPointerException("Interval cannot be null.");
+				intervals.add(interval);
+			}
+		return new StaticIntervalTree<T>(intervals);
+	}
+
+	private static <T> List<Interval<T>> asList(Interval<T> interval) {
+		if (interval == null)
+			return null;
+		return Collections.singletonList(interval);
 	}
 
 	/**
@@ -237,7 +258,7 @@ public abstract class DynamicType<T> {
 						"The left endpoint of the interval must be less than " +
 						"the right endpoint.");
 
-		return intervalTree.overlapsWith(new Interval(low, high));
+		return intervalTree.overlapsWith(low, high, false, false);
 	}
 
 	/**
@@ -432,7 +453,7 @@ public abstract class DynamicType<T> {
 	 * @throws IllegalArgumentException if {@code low} > {@code high}.
 	 */
 	public List<Interval<T>> getIntervals(double low, double high) {
-		return intervalTree.search(low, high);
+		return getIntervals(new Interval(low, high));
 	}
 
 	/**
@@ -0,0 +1,211 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Gephi Consortium
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.data.attributes.type;
+
+import java.math.BigInteger;
+import org.gephi.data.attributes.api.Estimator;
+
+/**
+ * Values of a {@link DynamicLong}, {@link DynamicInteger},
+ * {@link DynamicShort} or {@link DynamicByte} copied in a <code>long[]</code>,
+ * in the order of the intervals, with prefix sums and min/max sparse tables so
+ * that estimators run in constant time over the overlapping range.
+ * <p>
+ * Only available when the interval index is ordered, so that overlapping
+ * intervals are contiguous, no value is null and prefix sums stay within
+ * half the <code>long</code> range, so that range sums are exact. Sparse
+ * tables are only built for large values, smaller ones are scanned.
+ *
+ * @author Gephi Consortium
+ */
+final class LongIntervalValues {
+
+	static final LongIntervalValues UNSUPPORTED = new LongIntervalValues();
+	private static final int SPARSE_TABLE_MIN_SIZE = 64;
+	private static final long MAX_PREFIX_SUM = Long.MAX_VALUE / 2;
+	private final StaticIntervalTree<? extends Number> tree;
+	private final long[] values;
+	//Prefix sums, sums[i] is the sum of values[0..i)
+	private final long[] sums;
+	//mins[k][i] is the minimum of values[i..i + 2^k), same for maxs
+	private final long[][] mins;
+	private final long[][] maxs;
+
+	private LongIntervalValues() {
+		tree = null;
+		values = sums = null;
+		mins = maxs = null;
+	}
+
+	private LongIntervalValues(StaticIntervalTree<? extends Number> tree, long[] values, long[] sums) {
+		this.tree = tree;
+		this.values = values;
+		this.sums = sums;
+		int n = values.length;
+
+		if (n >= SPARSE_TABLE_MIN_SIZE) {
+			int levels = 32 - Integer.numberOfLeadingZeros(n);
+			mins = new long[levels][];
+			maxs = new long[levels][];
+			mins[0] = values;
+			maxs[0] = values;
+			for (int k = 1; k < levels; k++) {
+				int half = 1 << (k - 1);
+				int size = n - (1 << k) + 1;
+				long[] min = new long[size];
+				long[] max = new long[size];
+				for (int i = 0; i < size; i++) {
+					min[i] = Math.min(mins[k - 1][i], mins[k - 1][i + half]);
+					max[i] = Math.max(maxs[k - 1][i], maxs[k - 1][i + half]);
+				}
+				mins[k] = min;
+				maxs[k] = max;
+			}
+		} else {
+			mins = null;
+			maxs = null;
+		}
+	}
+
+	/**
+	 * Copies the values of <code>tree</code>, or returns {@link #UNSUPPORTED}
+	 * if the tree isn't ordered, a value is null or the sum overflows.
+	 *
+	 * @param tree the interval index of a dynamic value
+	 * @return the primitive values or {@link #UNSUPPORTED}
+	 */
+	static LongIntervalValues build(StaticIntervalTree<? extends Number> tree) {
+		if (!tree.isOrdered())
+			return UNSUPPORTED;
+		int n = tree.size();
+		long[] values = new long[n];
+		long[] sums = new long[n + 1];
+		for (int i = 0; i < n; i++) {
+			Number value = tree.get(i).getValue();
+			if (value == null)
+				return UNSUPPORTED;
+			long v = value.longValue();
+			long sum = sums[i] + v;
+			//Bounded prefix sums keep the difference of any two exact
+			if (((sums[i] ^ sum) & (v ^ sum)) < 0 || sum > MAX_PREFIX_SUM || sum < -MAX_PREFIX_SUM)
+				return UNSUPPORTED;
+			values[i] = v;
+			sums[i + 1] = sum;
+		}
+		return new LongIntervalValues(tree, values, sums);
+	}
+
+	boolean isSupported() {
+		return this != UNSUPPORTED;
+	}
+
+	/**
+	 * Returns <code>true</code> if the estimator can be computed from the
+	 * primitive values.
+	 */
+	static boolean isSupported(Estimator estimator) {
+		return estimator != Estimator.MODE;
+	}
+
+	/**
+	 * Estimates the values overlapping with <code>interval</code>, as
+	 * {@link DynamicLong#getValue(Interval, Estimator)}. Narrower types cast
+	 * the result, like their <code>intValue()</code> conversions.
+	 *
+	 * @param interval the interval
+	 * @param estimator a supported estimator
+	 * @return the estimated value or <code>null</code> if no value overlaps
+	 */
+	Long estimate(Interval interval, Estimator estimator) {
+		int from = tree.firstOverlap(interval.getLow(), interval.isLowExcluded());
+		int to = tree.endOverlap(interval.getHigh(), interval.isHighExcluded());
+		if (from >= to)
+			return null;
+		int count = to - from;
+
+		switch (estimator) {
+			case AVERAGE:
+				if (count == 1)
+					return values[from];
+				return (sums[to] - sums[from]) / count;
+			case MEDIAN:
+				int middle = from + count / 2;
+				if (count % 2 == 1)
+					return values[middle];
+				return BigInteger.valueOf(values[middle - 1]).add(BigInteger.valueOf(values[middle])).divide(BigInteger.valueOf(2)).longValue();
+			case SUM:
+				return sums[to] - sums[from];
+			case MIN:
+				return min(from, to);
+			case MAX:
+				return max(from, to);
+			case FIRST:
+				return values[from];
+			case LAST:
+				return values[to - 1];
+			default:
+				throw new IllegalArgumentException("Unknown estimator.");
+		}
+	}
+
+	private long min(int from, int to) {
+		if (mins == null) {
+			long min = values[from];
+			for (int i = from + 1; i < to; i++)
+				min = Math.min(min, values[i]);
+			return min;
+		}
+		int k = 31 - Integer.numberOfLeadingZeros(to - from);
+		return Math.min(mins[k][from], mins[k][to - (1 << k)]);
+	}
+
+	private long max(int from, int to) {
+		if (maxs == null) {
+			long max = values[from];
+			for (int i = from + 1; i < to; i++)
+				max = Math.max(max, values[i]);
+			return max;
+		}
+		int k = 31 - Integer.numberOfLeadingZeros(to - from);
+		return Math.max(maxs[k][from], maxs[k][to - (1 << k)]);
+	}
+}
@@ -0,0 +1,513 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Gephi Consortium
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.data.attributes.type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable interval index stored in flat arrays and built at once from a
+ * list of intervals.
+ *
+ * <p>Intervals are sorted by their left endpoint, ties ordered with included
+ * left endpoints first and then by insertion order. The sorted array is
+ * viewed as an implicit balanced search tree, the root of a range being its
+ * middle element, and each position stores the maximum right endpoint of its
+ * subtree. Building takes <i>O</i>(<i>n</i> lg <i>n</i>) time for the sort
+ * and <i>O</i>(<i>n</i>) for the maxima.
+ *
+ * <p>Queries visit the tree like {@link IntervalTree} but return positions in
+ * the sorted array, in increasing order, so results come out ordered by left
+ * endpoint. {@link #search(double, double, boolean, boolean, int[])} and the
+ * {@code overlapsWith} methods don't allocate.
+ *
+ * <p>{@code IntervalTree} remains the structure to use for editing.
+ *
+ * @author Gephi Consortium
+ *
+ * @param <T> type of data
+ */
+public final class StaticIntervalTree<T> {
+
+	private static final Comparator<Interval> LOW_COMPARATOR = new Comparator<Interval>() {
+
+		@Override
+		public int compare(Interval a, Interval b) {
+			int c = Double.compare(a.getLow(), b.getLow());
+			if (c != 0)
+				return c;
+			if (a.isLowExcluded() != b.isLowExcluded())
+				return a.isLowExcluded() ? 1 : -1;
+			return 0;
+		}
+	};
+	private static final StaticIntervalTree EMPTY = new StaticIntervalTree(Collections.emptyList());
+	private final Interval<T>[] intervals;
+	private final double[] lows;
+	private final double[] highs;
+	private final boolean[] lowExcluded;
+	private final boolean[] highExcluded;
+	//Maximum right endpoint of the subtree rooted at each position
+	private final double[] maxHighs;
+	//Right endpoints sorted as well, overlaps are then contiguous
+	private final boolean ordered;
+	//Every interval ending at the rightmost point excludes it
+	private final boolean maxHighExcluded;
+
+	/**
+	 * Builds the index of the given intervals.
+	 *
+	 * @param intervals the intervals to index
+	 *
+	 * @throws NullPointerException if {@code intervals} or one of the
+	 *                              intervals is null.
+	 */
+	public StaticIntervalTree(List<Interval<T>> intervals) {
+		this.intervals = intervals.toArray(new Interval[intervals.size()]);
+		Arrays.sort(this.intervals, LOW_COMPARATOR);
+
+		int n = this.intervals.length;
+		lows = new double[n];
+		highs = new double[n];
+		lowExcluded = new boolean[n];
+		highExcluded = new boolean[n];
+		maxHighs = new double[n];
+		for (int i = 0; i < n; i++) {
+			Interval<T> interval = this.intervals[i];
+			lows[i] = interval.getLow();
+			highs[i] = interval.getHigh();
+			lowExcluded[i] = interval.isLowExcluded();
+			highExcluded[i] = interval.isHighExcluded();
+		}
+		double maxHigh = buildMaxHighs(0, n);
+
+		boolean excluded = true;
+		for (int i = 0; i < n && excluded; i++)
+			excluded = highs[i] != maxHigh || highExcluded[i];
+		maxHighExcluded = excluded;
+
+		boolean sorted = true;
+		for (int i = 1; i < n && sorted; i++)
+			sorted = highs[i - 1] < highs[i] || highs[i - 1] == highs[i]
+					&& (highExcluded[i - 1] || !highExcluded[i]);
+		ordered = sorted;
+	}
+
+	/**
+	 * Returns an empty index.
+	 *
+	 * @param <T> type of data
+	 *
+	 * @return an empty index
+	 */
+	public static <T> StaticIntervalTree<T> empty() {
+		return EMPTY;
+	}
+
+	private double buildMaxHighs(int from, int to) {
+		if (from >= to)
+			return Double.NEGATIVE_INFINITY;
+		int mid = (from + to) >>> 1;
+		double max = Math.max(highs[mid],
+				Math.max(buildMaxHighs(from, mid), buildMaxHighs(mid + 1, to)));
+		maxHighs[mid] = max;
+		return max;
+	}
+
+	/**
+	 * Returns the number of intervals.
+	 *
+	 * @return the number of intervals
+	 */
+	public int size() {
+		return intervals.length;
+	}
+
+	/**
+	 * Indicates if this index contains 0 intervals.
+	 *
+	 * @return {@code true} if this index is empty, {@code false} otherwise.
+	 */
+	public boolean isEmpty() {
+		return intervals.length == 0;
+	}
+
+	/**
+	 * Returns the interval at the given position of the sorted intervals.
+	 *
+	 * @param index the position, between 0 and {@code size() - 1}
+	 *
+	 * @return the interval at {@code index}
+	 */
+	public Interval<T> get(int index) {
+		return intervals[index];
+	}
+
+	public double getLow(int index) {
+		return lows[index];
+	}
+
+	public double getHigh(int index) {
+		return highs[index];
+	}
+
+	/**
+	 * Returns the leftmost point or {@code Double.NEGATIVE_INFINITY} in case
+	 * of no intervals.
+	 *
+	 * @return the leftmost point.
+	 */
+	public double getLow() {
+		if (isEmpty())
+			return Double.NEGATIVE_INFINITY;
+		return lows[0];
+	}
+
+	/**
+	 * Returns the rightmost point or {@code Double.POSITIVE_INFINITY} in case
+	 * of no intervals.
+	 *
+	 * @return the rightmost point.
+	 */
+	public double getHigh() {
+		if (isEmpty())
+			return Double.POSITIVE_INFINITY;
+		return maxHighs[intervals.length >>> 1];
+	}
+
+	/**
+	 * Indicates if the left endpoint of the first interval is excluded.
+	 *
+	 * @return {@code true} if the leftmost point is excluded,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isLowExcluded() {
+		if (isEmpty())
+			return true;
+		return lowExcluded[0];
+	}
+
+	/**
+	 * Indicates if the rightmost point, as returned by {@link #getHigh()}, is
+	 * excluded. It is included as soon as one of the intervals ending there
+	 * includes it, whatever their left endpoints.
+	 *
+	 * @return {@code true} if the rightmost point is excluded,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isHighExcluded() {
+		if (isEmpty())
+			return true;
+		return maxHighExcluded;
+	}
+
+	/**
+	 * Indicates if the right endpoints are in the same order as the left
+	 * endpoints, which is the case when no interval strictly contains another,
+	 * for instance with disjoint intervals. The intervals overlapping with a
+	 * given interval are then a contiguous range of positions, given by
+	 * {@link #firstOverlap(double, boolean)} and
+	 * {@link #endOverlap(double, boolean)}.
+	 *
+	 * @return {@code true} if the right endpoints are sorted
+	 */
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	/**
+	 * Returns the position of the first interval which doesn't end before
+	 * {@code low}. When the index is ordered, it is the first interval
+	 * overlapping with an interval starting at {@code low}.
+	 *
+	 * @param low         the left endpoint
+	 * @param lowExcluded {@code true} if the left endpoint is excluded
+	 *
+	 * @return the first position, {@code size()} if all intervals end before
+	 *
+	 * @throws IllegalStateException if the index isn't ordered
+	 */
+	public int firstOverlap(double low, boolean lowExcluded) {
+		if (!ordered)
+			throw new IllegalStateException("The intervals must be ordered.");
+		int from = 0;
+		int to = intervals.length;
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (isBefore(mid, low, lowExcluded))
+				from = mid + 1;
+			else to = mid;
+		}
+		return from;
+	}
+
+	/**
+	 * Returns the position of the first interval starting after {@code high},
+	 * which is the end of the range of intervals overlapping with an interval
+	 * ending at {@code high}.
+	 *
+	 * @param high         the right endpoint
+	 * @param highExcluded {@code true} if the right endpoint is excluded
+	 *
+	 * @return the end position, {@code size()} if no interval starts after
+	 */
+	public int endOverlap(double high, boolean highExcluded) {
+		int from = 0;
+		int to = intervals.length;
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (isAfter(mid, high, highExcluded))
+				to = mid;
+			else from = mid + 1;
+		}
+		return from;
+	}
+
+	/**
+	 * Returns all intervals, ordered by left endpoint.
+	 *
+	 * @return all intervals
+	 */
+	public List<Interval<T>> getIntervals() {
+		return new ArrayList<Interval<T>>(Arrays.asList(intervals));
+	}
+
+	/**
+	 * Returns all intervals overlapping with a given {@code Interval}, ordered
+	 * by left endpoint.
+	 *
+	 * @param interval an {#code Interval} to be searched for overlaps
+	 *
+	 * @return all intervals overlapping with a given {@code Interval}.
+	 *
+	 * @throws NullPointerException if {@code interval} is null.
+	 */
+	public List<Interval<T>> search(Interval interval) {
+		int[] indices = new int[intervals.length];
+		int count = search(interval.getLow(), interval.getHigh(),
+				interval.isLowExcluded(), interval.isHighExcluded(), indices);
+		List<Interval<T>> overlaps = new ArrayList<Interval<T>>(count);
+		for (int i = 0; i < count; i++)
+			overlaps.add(intervals[indices[i]]);
+		return overlaps;
+	}
+
+	/**
+	 * Finds the intervals overlapping with the given interval and writes
+	 * their positions in {@code result}, in increasing order.
+	 *
+	 * @param low          the left endpoint
+	 * @param high         the right endpoint
+	 * @param lowExcluded  {@code true} if the left endpoint is excluded
+	 * @param highExcluded {@code true} if the right endpoint is excluded
+	 * @param result       the array to fill, at least as long as the number
+	 *                     of matches, {@code size()} in the worst case
+	 *
+	 * @return the number of overlapping intervals
+	 */
+	public int search(double low, double high, boolean lowExcluded,
+			boolean highExcluded, int[] result) {
+		return search(0, intervals.length, low, high, lowExcluded, highExcluded, result, 0);
+	}
+
+	/**
+	 * Finds the intervals containing {@code point} and writes their positions
+	 * in {@code result}, in increasing order.
+	 *
+	 * @param point  the point
+	 * @param result the array to fill
+	 *
+	 * @return the number of intervals containing {@code point}
+	 */
+	public int stab(double point, int[] result) {
+		return search(0, intervals.length, point, point, false, false, result, 0);
+	}
+
+	private int search(int from, int to, double low, double high,
+			boolean lopen, boolean ropen, int[] result, int count) {
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+
+			// Skip subtrees ending before the start of the given interval.
+			if (low > maxHighs[mid])
+				return count;
+
+			// Search left children.
+			count = search(from, mid, low, high, lopen, ropen, result, count);
+
+			// Skip this node and the right children if they start past the
+			// end of the given interval.
+			if (isAfter(mid, high, ropen))
+				return count;
+
+			// Check this node.
+			if (!isBefore(mid, low, lopen))
+				result[count++] = mid;
+
+			// Otherwise, search right children.
+			from = mid + 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Indicates if any interval overlaps with the given time interval.
+	 *
+	 * @param interval a given time interval
+	 *
+	 * @return {@code true} if this index overlaps with {@code interval},
+	 *         {@code false} otherwise.
+	 */
+	public boolean overlapsWith(Interval interval) {
+		return overlapsWith(interval.getLow(), interval.getHigh(),
+				interval.isLowExcluded(), interval.isHighExcluded());
+	}
+
+	/**
+	 * Indicates if any interval overlaps with the given time interval.
+	 *
+	 * @param low          the left endpoint
+	 * @param high         the right endpoint
+	 * @param lowExcluded  {@code true} if the left endpoint is excluded
+	 * @param highExcluded {@code true} if the right endpoint is excluded
+	 *
+	 * @return {@code true} if this index overlaps with the given interval,
+	 *         {@code false} otherwise.
+	 */
+	public boolean overlapsWith(double low, double high, boolean lowExcluded,
+			boolean highExcluded) {
+		return overlapsWith(0, intervals.length, low, high, lowExcluded, highExcluded);
+	}
+
+	private boolean overlapsWith(int from, int to, double low, double high,
+			boolean lopen, boolean ropen) {
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (low > maxHighs[mid])
+				return false;
+			if (overlapsWith(from, mid, low, high, lopen, ropen))
+				return true;
+			if (isAfter(mid, high, ropen))
+				return false;
+			if (!isBefore(mid, low, lopen))
+				return true;
+			from = mid + 1;
+		}
+		return false;
+	}
+
+	/*
+	 * The interval at index ends before the given left endpoint, as
+	 * Interval.compareTo() < 0.
+	 */
+	private boolean isBefore(int index, double low, boolean lopen) {
+		return highs[index] < low
+				|| highs[index] <= low && (highExcluded[index] || lopen);
+	}
+
+	/*
+	 * The interval at index starts after the given right endpoint, as
+	 * Interval.compareTo() > 0.
+	 */
+	private boolean isAfter(int index, double high, boolean ropen) {
+		return high < lows[index]
+				|| high <= lows[index] && (ropen || lowExcluded[index]);
+	}
+
+	/**
+	 * Compares this index with the specified object for equality.
+	 *
+	 * <p>Note that two indexes are equal if they contain the same intervals.
+	 *
+	 * @param obj object to which this index is to be compared
+	 *
+	 * @return {@code true} if and only if the specified {@code Object} is a
+	 *         {@code StaticIntervalTree} which contain the same intervals as
+	 *         this {@code StaticIntervalTree's}.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj != null && obj.getClass().equals(this.getClass()))
+			return Arrays.equals(intervals, ((StaticIntervalTree<T>) obj).intervals);
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.deepHashCode(intervals);
+	}
+
+	/**
+	 * Creates a string representation of all the intervals with their values.
+	 *
+	 * @param timesAsDoubles indicates if times should be shown as doubles or dates
+	 *
+	 * @return a string representation with times as doubles or dates.
+	 */
+	public String toString(boolean timesAsDoubles) {
+		if (intervals.length > 0) {
+			StringBuilder sb = new StringBuilder("<");
+			sb.append(intervals[0].toString(timesAsDoubles));
+			for (int i = 1; i < intervals.length; ++i)
+				sb.append("; ").append(intervals[i].toString(timesAsDoubles));
+			sb.append(">");
+			return sb.toString();
+		}
+		return "<empty>";
+	}
+
+	/**
+	 * Returns a string representation of this index in a format
+	 * {@code <[low, high, value], ..., [low, high, value]>}.
+	 *
+	 * <p>Times are always shown as doubles.</p>
+	 *
+	 * @return a string representation of this index.
+	 */
+	@Override
+	public String toString() {
+		return toString(true);
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.data.attributes.type;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.gephi.data.attributes.api.Estimator;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Checks that {@link DoubleIntervalValues} gives the same estimates as the
+ * list-based code of {@link DynamicDouble#getValue(Interval, Estimator)}.
+ *
+ * @author Gephi Consortium
+ */
+public class DoubleIntervalValuesTest {
+
+    private static final Estimator[] ESTIMATORS = {
+        Estimator.AVERAGE, Estimator.MEDIAN, Estimator.SUM, Estimator.MIN,
+        Estimator.MAX, Estimator.FIRST, Estimator.LAST
+    };
+
+    @Test
+    public void testOrderedIntervals() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 200; trial++) {
+            //Up to 150 intervals, so that the sparse tables are used too
+            DynamicDouble dynamic = new DynamicDouble(orderedIntervals(random, random.nextInt(150)));
+            DoubleIntervalValues primitives = DoubleIntervalValues.build(dynamic.intervalTree);
+            assertTrue(primitives.isSupported());
+
+            for (int q = 0; q < 50; q++) {
+                Interval query = randomQuery(random);
+                List<Double> values = dynamic.getValues(query);
+                for (Estimator estimator : ESTIMATORS) {
+                    Double expected = listEstimate(values, estimator);
+                    assertEstimate(expected, primitives.estimate(query, estimator), estimator);
+                    assertEstimate(expected, dynamic.getValue(query, estimator), estimator);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNestedIntervals() {
+        Random random = new Random(13);
+        for (int trial = 0; trial < 50; trial++) {
+            List<Interval<Double>> intervals = orderedIntervals(random, 2 + random.nextInt(30));
+            double low = intervals.get(0).getLow();
+            double high = intervals.get(intervals.size() - 1).getHigh() + 1;
+            intervals.add(new Interval<Double>(low, high, random.nextDouble()));
+            DynamicDouble dynamic = new DynamicDouble(intervals);
+            assertFalse(dynamic.intervalTree.isOrdered());
+            assertFalse(DoubleIntervalValues.build(dynamic.intervalTree).isSupported());
+
+            for (int q = 0; q < 20; q++) {
+                Interval query = randomQuery(random);
+                List<Double> values = dynamic.getValues(query);
+                for (Estimator estimator : ESTIMATORS) {
+                    assertEquals(listEstimate(values, estimator), dynamic.getValue(query, estimator));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNullValues() {
+        List<Interval<Double>> intervals = new ArrayList<Interval<Double>>();
+        intervals.add(new Interval<Double>(0, 1, false, true, 1.0));
+        intervals.add(new Interval<Double>(1, 2, false, true, null));
+        intervals.add(new Interval<Double>(2, 3, false, true, 3.0));
+        DynamicDouble dynamic = new DynamicDouble(intervals);
+        assertFalse(DoubleIntervalValues.build(dynamic.intervalTree).isSupported());
+
+        Interval all = new Interval(0, 3);
+        assertEquals(Double.valueOf(1.0), dynamic.getValue(all, Estimator.FIRST));
+        assertEquals(Double.valueOf(3.0), dynamic.getValue(all, Estimator.LAST));
+        assertNull(dynamic.getValue(new Interval(1, 1.5), Estimator.FIRST));
+    }
+
+    @Test
+    public void testNonFiniteValues() {
+        List<Interval<Double>> intervals = new ArrayList<Interval<Double>>();
+        intervals.add(new Interval<Double>(0, 1, false, true, 1.0));
+        intervals.add(new Interval<Double>(1, 2, false, true, Double.NaN));
+        DynamicDouble dynamic = new DynamicDouble(intervals);
+        assertFalse(DoubleIntervalValues.build(dynamic.intervalTree).isSupported());
+        assertEquals(Double.valueOf(1.0), dynamic.getValue(new Interval(0, 2), Estimator.FIRST));
+    }
+
+    @Test
+    public void testNoOverlap() {
+        List<Interval<Double>> intervals = new ArrayList<Interval<Double>>();
+        intervals.add(new Interval<Double>(0, 1, false, true, 1.0));
+        intervals.add(new Interval<Double>(2, 3, false, true, 2.0));
+        DynamicDouble dynamic = new DynamicDouble(intervals);
+        for (Estimator estimator : ESTIMATORS) {
+            assertNull(dynamic.getValue(new Interval(1, 1.5), estimator));
+            assertNull(dynamic.getValue(new Interval(5, 6), estimator));
+        }
+    }
+
+    //Disjoint intervals with shared endpoints and exclusions, in time order
+    private static List<Interval<Double>> orderedIntervals(Random random, int size) {
+        List<Interval<Double>> intervals = new ArrayList<Interval<Double>>(size);
+        double t = random.nextInt(5);
+        for (int i = 0; i < size; i++) {
+            double low = t + random.nextInt(2);
+            double high = low + 1 + random.nextInt(3);
+            boolean ropen = random.nextBoolean();
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8));
+            intervals.add(new Interval<Double>(low, high, false, ropen, value));
+            t = ropen ? high : high + 1;
+        }
+        return intervals;
+    }
+
+    private static Interval randomQuery(Random random) {
+        double low = random.nextInt(400) - 10;
+        double high = low + random.nextInt(60);
+        if (low == high) {
+            return new Interval(low, high);
+        }
+        return new Interval(low, high, random.nextBoolean(), random.nextBoolean());
+    }
+
+    //Sums can differ from the exact BigDecimal ones in the last bits
+    private static void assertEstimate(Double expected, Double actual, Estimator estimator) {
+        if (expected == null || actual == null) {
+            assertEquals(estimator.toString(), expected, actual);
+        } else if (estimator == Estimator.SUM || estimator == Estimator.AVERAGE) {
+            double scale = Math.max(1.0, Math.abs(expected.doubleValue()));
+            assertEquals(estimator.toString(), expected.doubleValue(), actual.doubleValue(), scale * 1e-9);
+        } else {
+            assertEquals(estimator.toString(), expected, actual);
+        }
+    }
+
+    //Same as the list-based code of DynamicDouble.getValue()
+    private static Double listEstimate(List<Double> values, Estimator estimator) {
+        if (values.isEmpty()) {
+            return null;
+        }
+        switch (estimator) {
+            case AVERAGE:
+                if (values.size() == 1) {
+                    return values.get(0);
+                }
+                BigDecimal total = new BigDecimal(0);
+                for (Double value : values) {
+                    total = total.add(BigDecimal.valueOf(value));
+                }
+                return total.divide(BigDecimal.valueOf((long) values.size()), 10, RoundingMode.HALF_EVEN).doubleValue();
+            case MEDIAN:
+                if (values.size() % 2 == 1) {
+                    return values.get(values.size() / 2);
+                }
+                return new BigDecimal(values.get(values.size() / 2 - 1)).add(new BigDecimal(values.get(values.size() / 2))).divide(new BigDecimal(2)).doubleValue();
+            case SUM:
+                BigDecimal sum = new BigDecimal(0);
+                for (Double value : values) {
+                    sum = sum.add(new BigDecimal(value));
+                }
+                return sum.doubleValue();
+            case MIN:
+                double min = values.get(0);
+                for (Double value : values) {
+                    min = Math.min(min, value);
+                }
+                return min;
+            case MAX:
+                double max = values.get(0);
+                for (Double value : values) {
+                    max = Math.max(max, value);
+                }
+                return max;
+            case FIRST:
+                return values.get(0);
+            case LAST:
+                return values.get(values.size() - 1);
+            default:
+                throw new IllegalArgumentException("Unknown estimator.");
+        }
+    }
+}
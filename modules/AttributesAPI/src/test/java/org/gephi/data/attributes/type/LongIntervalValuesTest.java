@@ -0,0 +1,271 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.data.attributes.type;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.gephi.data.attributes.api.Estimator;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Checks that {@link LongIntervalValues} gives the same estimates as the
+ * list-based code of {@link DynamicLong#getValue(Interval, Estimator)}.
+ *
+ * @author Gephi Consortium
+ */
+public class LongIntervalValuesTest {
+
+    private static final Estimator[] ESTIMATORS = {
+        Estimator.AVERAGE, Estimator.MEDIAN, Estimator.SUM, Estimator.MIN,
+        Estimator.MAX, Estimator.FIRST, Estimator.LAST
+    };
+
+    @Test
+    public void testOrderedIntervals() {
+        Random random = new Random(17);
+        for (int trial = 0; trial < 200; trial++) {
+            //Up to 150 intervals, so that the sparse tables are used too
+            DynamicLong dynamic = new DynamicLong(orderedIntervals(random, random.nextInt(150), 1L << 40));
+            LongIntervalValues primitives = LongIntervalValues.build(dynamic.intervalTree);
+            assertTrue(primitives.isSupported());
+
+            for (int q = 0; q < 50; q++) {
+                Interval query = randomQuery(random);
+                List<Long> values = dynamic.getValues(query);
+                for (Estimator estimator : ESTIMATORS) {
+                    Long expected = listEstimate(values, estimator);
+                    assertEquals(estimator.toString(), expected, primitives.estimate(query, estimator));
+                    assertEquals(estimator.toString(), expected, dynamic.getValue(query, estimator));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIntegers() {
+        Random random = new Random(19);
+        for (int trial = 0; trial < 50; trial++) {
+            List<Interval<Integer>> intervals = new ArrayList<Interval<Integer>>();
+            for (Interval<Long> interval : orderedIntervals(random, random.nextInt(100), Integer.MAX_VALUE)) {
+                intervals.add(new Interval<Integer>(interval, interval.getValue().intValue()));
+            }
+            DynamicInteger dynamic = new DynamicInteger(intervals);
+            assertTrue(LongIntervalValues.build(dynamic.intervalTree).isSupported());
+
+            for (int q = 0; q < 50; q++) {
+                Interval query = randomQuery(random);
+                List<Long> values = new ArrayList<Long>();
+                for (Integer value : dynamic.getValues(query)) {
+                    values.add(value.longValue());
+                }
+                for (Estimator estimator : ESTIMATORS) {
+                    Long expected = listEstimate(values, estimator);
+                    Integer actual = dynamic.getValue(query, estimator);
+                    assertEquals(estimator.toString(), expected == null ? null : Integer.valueOf(expected.intValue()), actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNestedIntervals() {
+        Random random = new Random(23);
+        for (int trial = 0; trial < 50; trial++) {
+            List<Interval<Long>> intervals = orderedIntervals(random, 2 + random.nextInt(30), 1000);
+            double low = intervals.get(0).getLow();
+            double high = intervals.get(intervals.size() - 1).getHigh() + 1;
+            intervals.add(new Interval<Long>(low, high, (long) random.nextInt(1000)));
+            DynamicLong dynamic = new DynamicLong(intervals);
+            assertFalse(dynamic.intervalTree.isOrdered());
+            assertFalse(LongIntervalValues.build(dynamic.intervalTree).isSupported());
+
+            for (int q = 0; q < 20; q++) {
+                Interval query = randomQuery(random);
+                List<Long> values = dynamic.getValues(query);
+                for (Estimator estimator : ESTIMATORS) {
+                    assertEquals(listEstimate(values, estimator), dynamic.getValue(query, estimator));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNullValues() {
+        List<Interval<Long>> intervals = new ArrayList<Interval<Long>>();
+        intervals.add(new Interval<Long>(0, 1, false, true, 1L));
+        intervals.add(new Interval<Long>(1, 2, false, true, null));
+        intervals.add(new Interval<Long>(2, 3, false, true, 3L));
+        DynamicLong dynamic = new DynamicLong(intervals);
+        assertFalse(LongIntervalValues.build(dynamic.intervalTree).isSupported());
+
+        Interval all = new Interval(0, 3);
+        assertEquals(Long.valueOf(1), dynamic.getValue(all, Estimator.FIRST));
+        assertEquals(Long.valueOf(3), dynamic.getValue(all, Estimator.LAST));
+        assertNull(dynamic.getValue(new Interval(1, 1.5), Estimator.FIRST));
+    }
+
+    @Test
+    public void testOverflow() {
+        long[][] cases = {
+            {Long.MAX_VALUE, 1},
+            {Long.MIN_VALUE, -1},
+            {Long.MAX_VALUE / 2, Long.MAX_VALUE / 2, 10},
+            {Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE},
+            {Long.MAX_VALUE / 2 + 1}
+        };
+        for (long[] values : cases) {
+            List<Interval<Long>> intervals = new ArrayList<Interval<Long>>();
+            for (int i = 0; i < values.length; i++) {
+                intervals.add(new Interval<Long>(i, i + 1, false, true, values[i]));
+            }
+            DynamicLong dynamic = new DynamicLong(intervals);
+            assertFalse(LongIntervalValues.build(dynamic.intervalTree).isSupported());
+
+            for (int low = 0; low < values.length; low++) {
+                for (int high = low; high <= values.length; high++) {
+                    Interval query = new Interval(low, high, false, high > low);
+                    List<Long> list = dynamic.getValues(query);
+                    for (Estimator estimator : ESTIMATORS) {
+                        assertEquals(estimator.toString(), listEstimate(list, estimator), dynamic.getValue(query, estimator));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLargeValuesWithinRange() {
+        //Prefix sums stay within half the long range, differences are exact
+        List<Interval<Long>> intervals = new ArrayList<Interval<Long>>();
+        long[] values = {Long.MAX_VALUE / 4, -(Long.MAX_VALUE / 4), Long.MAX_VALUE / 4, Long.MAX_VALUE / 4};
+        for (int i = 0; i < values.length; i++) {
+            intervals.add(new Interval<Long>(i, i + 1, false, true, values[i]));
+        }
+        DynamicLong dynamic = new DynamicLong(intervals);
+        LongIntervalValues primitives = LongIntervalValues.build(dynamic.intervalTree);
+        assertTrue(primitives.isSupported());
+
+        for (int low = 0; low < values.length; low++) {
+            for (int high = low + 1; high <= values.length; high++) {
+                Interval query = new Interval(low, high, false, true);
+                List<Long> list = dynamic.getValues(query);
+                for (Estimator estimator : ESTIMATORS) {
+                    assertEquals(estimator.toString(), listEstimate(list, estimator), primitives.estimate(query, estimator));
+                }
+            }
+        }
+    }
+
+    //Disjoint intervals with shared endpoints and exclusions, in time order
+    private static List<Interval<Long>> orderedIntervals(Random random, int size, long range) {
+        List<Interval<Long>> intervals = new ArrayList<Interval<Long>>(size);
+        double t = random.nextInt(5);
+        for (int i = 0; i < size; i++) {
+            double low = t + random.nextInt(2);
+            double high = low + 1 + random.nextInt(3);
+            boolean ropen = random.nextBoolean();
+            long value = (long) ((random.nextDouble() * 2 - 1) * range);
+            intervals.add(new Interval<Long>(low, high, false, ropen, value));
+            t = ropen ? high : high + 1;
+        }
+        return intervals;
+    }
+
+    private static Interval randomQuery(Random random) {
+        double low = random.nextInt(400) - 10;
+        double high = low + random.nextInt(60);
+        if (low == high) {
+            return new Interval(low, high);
+        }
+        return new Interval(low, high, random.nextBoolean(), random.nextBoolean());
+    }
+
+    //Same as the list-based code of DynamicLong.getValue()
+    private static Long listEstimate(List<Long> values, Estimator estimator) {
+        if (values.isEmpty()) {
+            return null;
+        }
+        switch (estimator) {
+            case AVERAGE:
+                if (values.size() == 1) {
+                    return values.get(0);
+                }
+                BigInteger total = BigInteger.valueOf(0);
+                for (Long value : values) {
+                    total = total.add(BigInteger.valueOf(value));
+                }
+                return total.divide(BigInteger.valueOf(values.size())).longValue();
+            case MEDIAN:
+                if (values.size() % 2 == 1) {
+                    return values.get(values.size() / 2);
+                }
+                return BigInteger.valueOf(values.get(values.size() / 2 - 1)).add(BigInteger.valueOf(values.get(values.size() / 2))).divide(BigInteger.valueOf(2)).longValue();
+            case SUM:
+                BigInteger sum = BigInteger.valueOf(0);
+                for (Long value : values) {
+                    sum = sum.add(BigInteger.valueOf(value));
+                }
+                return sum.longValue();
+            case MIN:
+                long min = values.get(0);
+                for (Long value : values) {
+                    min = Math.min(min, value);
+                }
+                return min;
+            case MAX:
+                long max = values.get(0);
+                for (Long value : values) {
+                    max = Math.max(max, value);
+                }
+                return max;
+            case FIRST:
+                return values.get(0);
+            case LAST:
+                return values.get(values.size() - 1);
+            default:
+                throw new IllegalArgumentException("Unknown estimator.");
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.data.attributes.type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Checks {@link StaticIntervalTree} against a brute-force scan based on
+ * {@link Interval#compareTo(Interval)}.
+ *
+ * @author Gephi Consortium
+ */
+public class StaticIntervalTreeTest {
+
+    private static final int TRIALS = 500;
+    private static final int QUERIES = 50;
+
+    @Test
+    public void testRandomQueries() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            List<Interval<Integer>> intervals = randomIntervals(random, random.nextInt(40));
+            StaticIntervalTree<Integer> tree = new StaticIntervalTree<Integer>(intervals);
+            assertEquals(intervals.size(), tree.size());
+
+            int[] buffer = new int[intervals.size()];
+            for (int q = 0; q < QUERIES; q++) {
+                Interval<Integer> query = randomInterval(random, -1);
+                List<Interval<Integer>> expected = bruteForce(intervals, query);
+
+                List<Interval<Integer>> found = tree.search(query);
+                assertEquals(query.toString(), sorted(expected), sorted(found));
+                assertOrderedByLow(found);
+
+                int count = tree.search(query.getLow(), query.getHigh(),
+                        query.isLowExcluded(), query.isHighExcluded(), buffer);
+                assertEquals(expected.size(), count);
+                for (int i = 1; i < count; i++) {
+                    assertTrue(buffer[i - 1] < buffer[i]);
+                }
+
+                assertEquals(!expected.isEmpty(), tree.overlapsWith(query));
+
+                double point = query.getLow();
+                Interval<Integer> stabbing = new Interval<Integer>(point, point);
+                count = tree.stab(point, buffer);
+                assertEquals(bruteForce(intervals, stabbing).size(), count);
+            }
+        }
+    }
+
+    @Test
+    public void testOrderedRanges() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            //Disjoint intervals, their right endpoints are sorted as well
+            List<Interval<Integer>> intervals = new ArrayList<Interval<Integer>>();
+            double t = random.nextInt(5);
+            for (int i = random.nextInt(20); i > 0; i--) {
+                double low = t + random.nextInt(3);
+                double high = low + random.nextInt(4);
+                intervals.add(new Interval<Integer>(low, high, random.nextBoolean(),
+                        random.nextBoolean(), i));
+                t = high + 1;
+            }
+            StaticIntervalTree<Integer> tree = new StaticIntervalTree<Integer>(intervals);
+            assertTrue(tree.isOrdered());
+
+            for (int q = 0; q < QUERIES; q++) {
+                Interval<Integer> query = randomInterval(random, -1);
+                List<Interval<Integer>> expected = bruteForce(intervals, query);
+                int from = tree.firstOverlap(query.getLow(), query.isLowExcluded());
+                int to = tree.endOverlap(query.getHigh(), query.isHighExcluded());
+                List<Interval<Integer>> found = new ArrayList<Interval<Integer>>();
+                for (int i = from; i < to; i++) {
+                    found.add(tree.get(i));
+                }
+                assertEquals(query.toString(), sorted(expected), sorted(found));
+            }
+        }
+    }
+
+    @Test
+    public void testEndpoints() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            List<Interval<Integer>> intervals = randomIntervals(random, 1 + random.nextInt(20));
+            StaticIntervalTree<Integer> tree = new StaticIntervalTree<Integer>(intervals);
+
+            double low = Double.POSITIVE_INFINITY;
+            double high = Double.NEGATIVE_INFINITY;
+            for (Interval<Integer> interval : intervals) {
+                low = Math.min(low, interval.getLow());
+                high = Math.max(high, interval.getHigh());
+            }
+            boolean lowExcluded = true;
+            boolean highExcluded = true;
+            for (Interval<Integer> interval : intervals) {
+                if (interval.getLow() == low && !interval.isLowExcluded()) {
+                    lowExcluded = false;
+                }
+                if (interval.getHigh() == high && !interval.isHighExcluded()) {
+                    highExcluded = false;
+                }
+            }
+            assertEquals(low, tree.getLow(), 0);
+            assertEquals(high, tree.getHigh(), 0);
+            assertEquals(lowExcluded, tree.isLowExcluded());
+            assertEquals(highExcluded, tree.isHighExcluded());
+        }
+    }
+
+    @Test
+    public void testSharedLowWithExclusion() {
+        //IntervalTree.search() returns nothing here, it stops at (9, 11],
+        //which starts after the query, and never reaches [9, 10)
+        List<Interval<Integer>> intervals = new ArrayList<Interval<Integer>>();
+        intervals.add(new Interval<Integer>(9, 10, false, true, 0));
+        intervals.add(new Interval<Integer>(9, 11, true, false, 1));
+        intervals.add(new Interval<Integer>(6, 7, true, false, 2));
+        StaticIntervalTree<Integer> tree = new StaticIntervalTree<Integer>(intervals);
+
+        List<Interval<Integer>> found = tree.search(new Interval<Integer>(9, 9));
+        assertEquals(1, found.size());
+        assertEquals(Integer.valueOf(0), found.get(0).getValue());
+        assertTrue(tree.overlapsWith(new Interval<Integer>(9, 9)));
+        assertEquals(1, tree.stab(9, new int[3]));
+    }
+
+    @Test
+    public void testHighExcludedOfNestedIntervals() {
+        //The interval starting last isn't the one ending last
+        List<Interval<Integer>> intervals = new ArrayList<Interval<Integer>>();
+        intervals.add(new Interval<Integer>(0, 10, false, false, 1));
+        intervals.add(new Interval<Integer>(2, 5, false, true, 2));
+        StaticIntervalTree<Integer> tree = new StaticIntervalTree<Integer>(intervals);
+        assertEquals(10, tree.getHigh(), 0);
+        assertFalse(tree.isHighExcluded());
+
+        intervals.set(0, new Interval<Integer>(0, 10, false, true, 1));
+        intervals.set(1, new Interval<Integer>(2, 5, false, false, 2));
+        tree = new StaticIntervalTree<Integer>(intervals);
+        assertTrue(tree.isHighExcluded());
+    }
+
+    @Test
+    public void testEmpty() {
+        StaticIntervalTree<Integer> tree = StaticIntervalTree.empty();
+        assertTrue(tree.isEmpty());
+        assertEquals(Double.NEGATIVE_INFINITY, tree.getLow(), 0);
+        assertEquals(Double.POSITIVE_INFINITY, tree.getHigh(), 0);
+        assertFalse(tree.overlapsWith(new Interval<Integer>(0, 1)));
+        assertTrue(tree.search(new Interval<Integer>(0, 1)).isEmpty());
+    }
+
+    private static List<Interval<Integer>> randomIntervals(Random random, int size) {
+        List<Interval<Integer>> intervals = new ArrayList<Interval<Integer>>(size);
+        for (int i = 0; i < size; i++) {
+            intervals.add(randomInterval(random, i));
+        }
+        return intervals;
+    }
+
+    //Small integer endpoints so that shared endpoints and exclusions matter
+    private static Interval<Integer> randomInterval(Random random, int value) {
+        double low = random.nextInt(30);
+        double high = low + (random.nextInt(4) == 0 ? 0 : random.nextInt(10));
+        boolean lopen = random.nextBoolean();
+        boolean ropen = random.nextBoolean();
+        if (low == high) {
+            lopen = false;
+            ropen = false;
+        }
+        return new Interval<Integer>(low, high, lopen, ropen, value);
+    }
+
+    private static List<Interval<Integer>> bruteForce(List<Interval<Integer>> intervals,
+            Interval<Integer> query) {
+        List<Interval<Integer>> result = new ArrayList<Interval<Integer>>();
+        for (Interval<Integer> interval : intervals) {
+            if (interval.compareTo(query) == 0) {
+                result.add(interval);
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> sorted(List<Interval<Integer>> intervals) {
+        Integer[] values = new Integer[intervals.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = intervals.get(i).getValue();
+        }
+        Arrays.sort(values);
+        return Arrays.asList(values);
+    }
+
+    private static void assertOrderedByLow(List<Interval<Integer>> intervals) {
+        for (int i = 1; i < intervals.size(); i++) {
+            assertTrue(intervals.get(i - 1).getLow() <= intervals.get(i).getLow());
+        }
+    }
+}
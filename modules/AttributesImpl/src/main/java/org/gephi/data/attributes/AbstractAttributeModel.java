@@ -43,14 +43,17 @@ package org.gephi.data.attributes;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import org.gephi.data.attributes.api.AttributeEvent.EventType;
 import org.gephi.data.attributes.api.AttributeListener;
 import org.gephi.data.attributes.api.AttributeModel;
 import org.gephi.data.attributes.api.AttributeRowFactory;
 import org.gephi.data.attributes.api.AttributeTable;
 import org.gephi.data.attributes.api.AttributeType;
+import org.gephi.data.attributes.api.AttributeValue;
 import org.gephi.data.attributes.api.AttributeValueFactory;
 import org.gephi.data.attributes.event.AbstractEvent;
 import org.gephi.data.attributes.event.AttributeEventManager;
+import org.gephi.data.attributes.store.DictionaryEncoder;
 import org.gephi.data.properties.PropertiesColumn;
 import org.gephi.project.api.Workspace;
 import org.openide.util.NbBundle;
@@ -72,6 +75,8 @@ public abstract class AbstractAttributeModel implements AttributeModel {
     private final AttributeFactoryImpl factory;
     //Events
     protected AttributeEventManager eventManager;
+    //Dictionary
+    private final DictionaryEncoder dictionaryEncoder = new DictionaryEncoder();
 
     //Data API
     public AbstractAttributeModel(Workspace workspace) {
@@ -115,6 +120,16 @@ public abstract class AbstractAttributeModel implements AttributeModel {
     public void clear() {
     }
 
+    /**
+     * Returns the dictionary shared by the string column stores of this
+     * model.
+     *
+     * @return the dictionary encoder of this model
+     */
+    public DictionaryEncoder getDictionaryEncoder() {
+        return dictionaryEncoder;
+    }
+
     public AttributeTableImpl getNodeTable() {
         return nodeTable;
     }
@@ -167,6 +182,10 @@ public abstract class AbstractAttributeModel implements AttributeModel {
         eventManager.fireEvent(event);
     }
 
+    public void fireValueEvent(EventType eventType, AttributeTable table, Object object, AttributeValue value) {
+        eventManager.fireValueEvent(eventType, table, object, value);
+    }
+
     public void mergeModel(AttributeModel model) {
         if (model.getNodeTable() != null) {
             nodeTable.mergeTable(model.getNodeTable());
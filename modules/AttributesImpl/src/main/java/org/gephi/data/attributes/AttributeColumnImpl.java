@@ -41,9 +41,11 @@ Portions Copyrighted 2011 Gephi Consortium.
 */
 package org.gephi.data.attributes;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import org.gephi.data.attributes.api.AttributeColumn;
 import org.gephi.data.attributes.api.AttributeOrigin;
 import org.gephi.data.attributes.api.AttributeType;
+import org.gephi.data.attributes.store.ColumnStore;
 import org.gephi.data.attributes.spi.AttributeValueDelegateProvider;
 
 /**
@@ -61,6 +63,8 @@ public class AttributeColumnImpl implements AttributeColumn {
     protected final AttributeOrigin origin;
     protected final AttributeValueImpl defaultValue;
     protected final AttributeValueDelegateProvider attributeValueDelegateProvider;
+    protected final ColumnStore store;
+    private final AtomicInteger valueVersion = new AtomicInteger();
 
     public AttributeColumnImpl(AttributeTableImpl table, int index, String id, String title, AttributeType attributeType, AttributeOrigin origin, Object defaultValue, AttributeValueDelegateProvider attributeValueDelegateProvider) {
         this.table = table;
@@ -71,6 +75,7 @@ public class AttributeColumnImpl implements AttributeColumn {
         this.origin = origin;
         this.attributeValueDelegateProvider = attributeValueDelegateProvider;
         this.defaultValue = new AttributeValueImpl(this, defaultValue);
+        this.store = ColumnStore.create(attributeType, origin, table.getModel().getDictionaryEncoder());
     }
 
     public AttributeTableImpl getTable() {
@@ -105,6 +110,29 @@ public class AttributeColumnImpl implements AttributeColumn {
         return attributeValueDelegateProvider;
     }
 
+    /**
+     * Returns the store holding the values of this column for all rows of the
+     * table, or <code>null</code> if values are kept in rows.
+     *
+     * @return the column store, or <code>null</code>
+     */
+    public ColumnStore getStore() {
+        return store;
+    }
+
+    public int getValueVersion() {
+        return valueVersion.get();
+    }
+
+    /**
+     * Increments the value version of this column and of its table. Called by
+     * rows when a value changes, before events are fired.
+     */
+    void incrementValueVersion() {
+        valueVersion.incrementAndGet();
+        table.incrementValueVersion();
+    }
+
     @Override
     public String toString() {
         return title + " (" + type.toString() + ")";
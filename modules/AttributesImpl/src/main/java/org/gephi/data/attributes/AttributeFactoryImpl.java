@@ -65,28 +65,44 @@ public class AttributeFactoryImpl implements AttributeValueFactory, AttributeRow
     }
 
     public AttributeValue newValue(AttributeColumn column, Object value) {
+        value = convertValue(column, value);
         if (value == null) {
             return new AttributeValueImpl((AttributeColumnImpl) column, null);
         }
-        
+
+        //Strings of stored columns are shared by the dictionary of the store
+        Object managedValue = value;
+        if (!column.getOrigin().equals(AttributeOrigin.PROPERTY) && ((AttributeColumnImpl) column).getStore() == null) {
+            managedValue = model.getManagedValue(value, column.getType());
+        }
+        return new AttributeValueImpl((AttributeColumnImpl) column, managedValue);
+    }
+
+    /**
+     * Converts <code>value</code> to the type of <code>column</code> if
+     * necessary. Delegate columns accept values of any type.
+     *
+     * @param column the column the value is set for
+     * @param value the value to convert
+     * @return the converted value, or <code>null</code> if it can't be parsed
+     */
+    static Object convertValue(AttributeColumn column, Object value) {
+        if (value == null) {
+            return null;
+        }
+
         //If the column is not a delegate (wrong type value allowed), try to convert value to correct type if necessary
-        if(!column.getOrigin().equals(AttributeOrigin.DELEGATE)){
+        if (!column.getOrigin().equals(AttributeOrigin.DELEGATE)) {
             AttributeType targetType = column.getType();
             if (!value.getClass().equals(targetType.getType())) {
                 try {
                     value = targetType.parse(value.toString());//Try to convert to target type
                 } catch (Exception ex) {
-                    return new AttributeValueImpl((AttributeColumnImpl) column, null);//Could not parse
+                    return null;//Could not parse
                 }
             }
         }
-
-        
-        Object managedValue = value;
-        if (!column.getOrigin().equals(AttributeOrigin.PROPERTY)) {
-            managedValue = model.getManagedValue(value, column.getType());
-        }
-        return new AttributeValueImpl((AttributeColumnImpl) column, managedValue);
+        return value;
     }
 
     public AttributeRowImpl newNodeRow(NodeData nodeData) {
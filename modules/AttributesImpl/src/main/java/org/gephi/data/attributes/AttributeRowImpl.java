@@ -47,9 +47,12 @@ import org.gephi.data.attributes.api.AttributeOrigin;
 import org.gephi.data.attributes.api.AttributeRow;
 import org.gephi.data.attributes.api.AttributeType;
 import org.gephi.data.attributes.api.AttributeValue;
-import org.gephi.data.attributes.event.ValueEvent;
+import org.gephi.data.attributes.store.ColumnStore;
 
 /**
+ * Row of an attribute table. Values of columns which have a
+ * {@link ColumnStore} are kept in the store at the row index, other values
+ * are kept in the row as <code>AttributeValueImpl</code> objects.
  *
  * @author Mathieu Bastian
  * @author Cezary Bartosiak
@@ -58,27 +61,32 @@ public class AttributeRowImpl implements AttributeRow {
 
     protected final Object object;
     protected final AttributeTableImpl attributeTable;
+    protected final int rowIndex;
+    //Columns of the table at rowVersion, shared by rows
+    protected AttributeColumnImpl[] columns;
+    //Values of the columns without store, null for stored columns
     protected AttributeValueImpl[] values;
     protected int rowVersion = -1;
 
     public AttributeRowImpl(AttributeTableImpl attributeTable, Object object) {
         this.attributeTable = attributeTable;
         this.object = object;
+        this.rowIndex = attributeTable.addRow(this);
         reset();
     }
 
     public void reset() {
-        rowVersion = attributeTable.getVersion();
-        int attSize = attributeTable.countColumns();
-
-        if (values == null) {
-            values = new AttributeValueImpl[attSize];
+        boolean initial = values == null;
+        if (initial) {
+            rowVersion = attributeTable.getVersion();
+            columns = attributeTable.getColumnsSnapshot();
+            values = new AttributeValueImpl[columns.length];
         } else {
             updateColumns();
         }
 
-        for (int i = 0; i < attSize; i++) {
-            setValue(i, attributeTable.getColumn(i).defaultValue, false);
+        for (int i = 0; i < columns.length; i++) {
+            setValue(i, columns[i].defaultValue, false, !initial);
         }
     }
 
@@ -124,6 +132,16 @@ public class AttributeRowImpl implements AttributeRow {
             throw new NullPointerException("Column is null");
         }
 
+        //Stored columns of this table don't need a value object
+        if (column instanceof AttributeColumnImpl && ((AttributeColumnImpl) column).getStore() != null) {
+            updateColumns();
+            int index = column.getIndex();
+            if (checkIndexRange(index) && columns[index] == column) {
+                setStoredValue(index, AttributeFactoryImpl.convertValue(column, value), null, true);
+                return;
+            }
+        }
+
         AttributeValue attValue = attributeTable.getFactory().newValue(column, value);
         setValue(attValue);
     }
@@ -138,24 +156,53 @@ public class AttributeRowImpl implements AttributeRow {
             value = attributeTable.getFactory().newValue(column, value.getValue());
         }
 
-        setValue(column.getIndex(), (AttributeValueImpl) value, true);
+        updateColumns();
+        setValue(column.getIndex(), (AttributeValueImpl) value, false, true);
     }
 
-    private void setValue(int index, AttributeValueImpl value, boolean doUpdateColumns) {
+    private void setValue(int index, AttributeValueImpl value, boolean doUpdateColumns, boolean hasOldValue) {
         if (doUpdateColumns) {
             updateColumns();
         }
 
+        if (columns[index].getStore() != null) {
+            setStoredValue(index, value.getValue(), value, hasOldValue);
+            return;
+        }
+
         AttributeValueImpl oldValue = this.values[index];
 
         this.values[index] = value;
 
-        if (!(oldValue != null && oldValue.equals(value))
-                && index > 0 && !value.getColumn().getOrigin().equals(AttributeOrigin.COMPUTED)) {    //0 is the index of node id and edge id cols, not useful to send these events
+        boolean changed = !(oldValue != null && oldValue.equals(value));
+        if (changed) {
+            columns[index].incrementValueVersion();
+        }
+        if (changed && index > 0 && !value.getColumn().getOrigin().equals(AttributeOrigin.COMPUTED)) {    //0 is the index of node id and edge id cols, not useful to send these events
             if (oldValue != null) {
-                attributeTable.model.fireAttributeEvent(new ValueEvent(EventType.UNSET_VALUE, attributeTable, object, oldValue));
+                attributeTable.model.fireValueEvent(EventType.UNSET_VALUE, attributeTable, object, oldValue);
             }
-            attributeTable.model.fireAttributeEvent(new ValueEvent(EventType.SET_VALUE, attributeTable, object, value));
+            attributeTable.model.fireValueEvent(EventType.SET_VALUE, attributeTable, object, value);
+        }
+    }
+
+    private void setStoredValue(int index, Object value, AttributeValueImpl attValue, boolean hasOldValue) {
+        AttributeColumnImpl column = columns[index];
+        ColumnStore store = column.getStore();
+        if (index == 0 || column.getOrigin().equals(AttributeOrigin.COMPUTED)) {
+            //No events, no value object
+            store.set(rowIndex, value);
+            column.incrementValueVersion();
+            return;
+        }
+        Object oldValue = hasOldValue ? store.get(rowIndex) : null;
+        store.set(rowIndex, value);
+        if (!(hasOldValue && (oldValue == null ? value == null : oldValue.equals(value)))) {
+            column.incrementValueVersion();
+            if (hasOldValue) {
+                attributeTable.model.fireValueEvent(EventType.UNSET_VALUE, attributeTable, object, new AttributeValueImpl(column, oldValue));
+            }
+            attributeTable.model.fireValueEvent(EventType.SET_VALUE, attributeTable, object, attValue != null ? attValue : new AttributeValueImpl(column, value));
         }
     }
 
@@ -165,11 +212,12 @@ public class AttributeRowImpl implements AttributeRow {
         }
         updateColumns();
         int index = column.getIndex();
-        if (checkIndexRange(index)) {
-            AttributeValue val = values[index];
-            if (val.getColumn() == column) {
-                return val.getValue();
+        if (checkIndexRange(index) && columns[index] == column) {
+            ColumnStore store = columns[index].getStore();
+            if (store != null) {
+                return store.get(rowIndex);
             }
+            return values[index].getValue();
         }
         return null;
     }
@@ -193,16 +241,29 @@ public class AttributeRowImpl implements AttributeRow {
     }
 
     public AttributeValue[] getValues() {
-        return values;
+        updateColumns();
+        AttributeValue[] result = new AttributeValue[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = getAttributeValue(i);
+        }
+        return result;
     }
 
     public AttributeValue getAttributeValueAt(int index) {
         if (checkIndexRange(index)) {
-            return values[index];
+            return getAttributeValue(index);
         }
         return null;
     }
 
+    private AttributeValueImpl getAttributeValue(int index) {
+        ColumnStore store = columns[index].getStore();
+        if (store != null) {
+            return new AttributeValueImpl(columns[index], store.get(rowIndex));
+        }
+        return values[index];
+    }
+
     public int countValues() {
         updateColumns();
         return values.length;
@@ -217,31 +278,44 @@ public class AttributeRowImpl implements AttributeRow {
         return object;
     }
 
+    /**
+     * Returns the index of this row in the column stores of its table.
+     *
+     * @return the row index
+     * @see AttributeTableImpl#getColumnStore(AttributeColumn)
+     */
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
     private void updateColumns() {
         int tableVersion = attributeTable.getVersion();
         if (rowVersion < tableVersion) {
 
             //Need to update
-            AttributeColumnImpl[] columns = attributeTable.getColumns();
+            AttributeColumnImpl[] tableColumns = attributeTable.getColumnsSnapshot();
+            AttributeColumnImpl[] oldColumns = columns;
             AttributeValueImpl[] oldValues = values;
 
-            values = new AttributeValueImpl[columns.length];
+            columns = tableColumns;
+            values = new AttributeValueImpl[tableColumns.length];
 
-            for (int i = 0; i < columns.length; i++) {
-                AttributeColumnImpl tableCol = columns[i];
+            for (int i = 0; i < tableColumns.length; i++) {
+                AttributeColumnImpl tableCol = tableColumns[i];
                 boolean found = false;
                 int j = 0;
-                while (j < oldValues.length) {
-                    AttributeValueImpl val = oldValues[j++];
-                    if (val.getColumn() == tableCol) {
-                        values[i] = val;
+                while (j < oldColumns.length) {
+                    if (oldColumns[j] == tableCol) {
+                        values[i] = oldValues[j];
                         found = true;
                         break;
                     }
+                    j++;
                 }
 
-                if (!found) {
-                    setValue(i, tableCol.defaultValue, false);
+                //The table already wrote the default in the stores of new columns
+                if (!found && tableCol.getStore() == null) {
+                    setValue(i, tableCol.defaultValue, false, false);
                 }
             }
 
@@ -263,6 +337,18 @@ public class AttributeRowImpl implements AttributeRow {
     }
 
     public void setValues(AttributeValueImpl[] values) {
-        this.values = values;
+        AttributeValueImpl[] rowValues = new AttributeValueImpl[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (i < columns.length) {
+                columns[i].incrementValueVersion();
+            }
+            ColumnStore store = i < columns.length ? columns[i].getStore() : null;
+            if (store != null) {
+                store.set(rowIndex, values[i] != null ? values[i].getValue() : null);
+            } else {
+                rowValues[i] = values[i];
+            }
+        }
+        this.values = rowValues;
     }
 }
@@ -41,10 +41,15 @@
  */
 package org.gephi.data.attributes;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.gephi.data.attributes.api.AttributeColumn;
@@ -55,6 +60,7 @@ import org.gephi.data.attributes.api.AttributeType;
 import org.gephi.data.attributes.api.AttributeUtils;
 import org.gephi.data.attributes.event.ColumnEvent;
 import org.gephi.data.attributes.spi.AttributeValueDelegateProvider;
+import org.gephi.data.attributes.store.ColumnStore;
 import org.gephi.data.attributes.type.TypeConvertor;
 import org.gephi.data.properties.PropertiesColumn;
 import org.gephi.graph.api.Attributes;
@@ -78,8 +84,16 @@ public class AttributeTableImpl implements AttributeTable {
     protected final List<AttributeColumnImpl> columns = new ArrayList<AttributeColumnImpl>();
     protected final Map<AttributeColumn, AttributeColumn> columnsSet = new HashMap<AttributeColumn, AttributeColumn>();
     protected final Map<String, AttributeColumnImpl> columnsMap = new HashMap<String, AttributeColumnImpl>();
+    private AttributeColumnImpl[] columnsSnapshot;
+    //Rows
+    private final ReferenceQueue<AttributeRowImpl> rowQueue = new ReferenceQueue<AttributeRowImpl>();
+    private RowReference[] rows = new RowReference[16];
+    private int rowCount;
+    private int[] freeRows = new int[16];
+    private int freeRowsCount;
     //Version
     protected int version = 0;
+    private final AtomicInteger valueVersion = new AtomicInteger();
 
     public AttributeTableImpl(AbstractAttributeModel model, String name) {
         this.name = name;
@@ -94,6 +108,131 @@ public class AttributeTableImpl implements AttributeTable {
         return columns.size();
     }
 
+    /**
+     * Returns the columns of the table. Unlike {@link #getColumns()} the same
+     * array is returned until columns change, so it must not be modified.
+     *
+     * @return the shared array of columns
+     */
+    public synchronized AttributeColumnImpl[] getColumnsSnapshot() {
+        if (columnsSnapshot == null) {
+            columnsSnapshot = getColumns();
+        }
+        return columnsSnapshot;
+    }
+
+    /**
+     * Returns the store of <code>column</code> if its values are kept in a
+     * column store, indexed by {@link AttributeRowImpl#getRowIndex()}.
+     *
+     * @param column a column of this table
+     * @return the column store, or <code>null</code>
+     */
+    public ColumnStore getColumnStore(AttributeColumn column) {
+        AttributeColumn c = getColumn(column);
+        return c != null ? ((AttributeColumnImpl) c).getStore() : null;
+    }
+
+    /**
+     * Allocates the index of a new row in the column stores. Rows are not
+     * released explicitly, indexes of rows which have been garbage collected
+     * are reused.
+     *
+     * @param row the new row
+     * @return the row index
+     */
+    synchronized int addRow(AttributeRowImpl row) {
+        expungeRows();
+        int index = freeRowsCount > 0 ? freeRows[--freeRowsCount] : rowCount++;
+        if (index == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+        }
+        rows[index] = new RowReference(row, index, rowQueue);
+        return index;
+    }
+
+    /**
+     * Clears the cells of garbage collected rows and frees their indexes.
+     */
+    private void expungeRows() {
+        RowReference ref;
+        while ((ref = (RowReference) rowQueue.poll()) != null) {
+            if (rows[ref.index] == ref) {
+                rows[ref.index] = null;
+                for (AttributeColumnImpl column : columns) {
+                    if (column.getStore() != null) {
+                        column.getStore().clear(ref.index);
+                    }
+                }
+                if (freeRowsCount == freeRows.length) {
+                    freeRows = Arrays.copyOf(freeRows, freeRowsCount * 2);
+                }
+                freeRows[freeRowsCount++] = ref.index;
+            }
+        }
+    }
+
+    /**
+     * Returns the upper bound of row indexes, to scan column stores. Some
+     * indexes below may be free, use {@link #getLiveRows()} to skip them.
+     *
+     * @return the number of row indexes in use or free
+     */
+    public synchronized int getRowCount() {
+        expungeRows();
+        return rowCount;
+    }
+
+    /**
+     * Returns the indexes of the rows which are still referenced, below
+     * {@link #getRowCount()}. Cells of other indexes are cleared or about to
+     * be, and must be skipped by scans of the column stores.
+     *
+     * @return a new bitset of row indexes
+     */
+    public synchronized BitSet getLiveRows() {
+        expungeRows();
+        BitSet live = new BitSet(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            if (rows[i] != null && rows[i].get() != null) {
+                live.set(i);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Writes the default value of a new column in its store, for the rows
+     * which exist already. Rows created later write it themselves.
+     */
+    private void fillDefault(AttributeColumnImpl column) {
+        ColumnStore store = column.getStore();
+        Object defaultValue = column.getDefaultValue();
+        if (store == null || defaultValue == null) {
+            return;
+        }
+        expungeRows();
+        for (int i = 0; i < rowCount; i++) {
+            if (rows[i] != null && rows[i].get() != null) {
+                store.set(i, defaultValue);
+            }
+        }
+    }
+
+    /**
+     * Returns the row at <code>index</code>, or <code>null</code> if there
+     * is none.
+     *
+     * @param index the row index
+     * @return the row, or <code>null</code>
+     */
+    public synchronized AttributeRowImpl getRow(int index) {
+        if (index >= 0 && index < rowCount && rows[index] != null) {
+            return rows[index].get();
+        }
+        return null;
+    }
+
     public AttributeColumn addPropertiesColumn(PropertiesColumn propertiesColumn) {
         return addColumn(propertiesColumn.getId(),
                 propertiesColumn.getTitle(),
@@ -148,9 +287,12 @@ public class AttributeTableImpl implements AttributeTable {
             columnsMap.put(title.toLowerCase(), column);
         }
         columnsSet.put(column, column);
+        fillDefault(column);
 
         //Version
         version++;
+        valueVersion.incrementAndGet();
+        columnsSnapshot = null;
 
         model.fireAttributeEvent(
                 new ColumnEvent(AttributeEvent.EventType.ADD_COLUMN, column));
@@ -226,9 +368,19 @@ public class AttributeTableImpl implements AttributeTable {
 
         model.fireAttributeEvent(
                 new ColumnEvent(AttributeEvent.EventType.REMOVE_COLUMN, (AttributeColumnImpl) column));
+        releaseStore((AttributeColumnImpl) column);
 
         //Version
         version++;
+        valueVersion.incrementAndGet();
+        columnsSnapshot = null;
+    }
+
+    private void releaseStore(AttributeColumnImpl column) {
+        ColumnStore store = column.getStore();
+        if (store != null) {
+            store.release();
+        }
     }
 
     public synchronized AttributeColumn replaceColumn(AttributeColumn source, AttributeColumnImpl targetImpl) {
@@ -254,12 +406,16 @@ public class AttributeTableImpl implements AttributeTable {
             columnsMap.put(targetImpl.title.toLowerCase(), targetImpl);
         }
         columnsSet.put(targetImpl, targetImpl);
+        fillDefault(targetImpl);
 
         model.fireAttributeEvent(
                 new ColumnEvent(AttributeEvent.EventType.REPLACE_COLUMN, (AttributeColumnImpl) source));
+        releaseStore((AttributeColumnImpl) source);
 
         //Version
         version++;
+        valueVersion.incrementAndGet();
+        columnsSnapshot = null;
         return targetImpl;
     }
 
@@ -314,6 +470,14 @@ public class AttributeTableImpl implements AttributeTable {
         this.version = version;
     }
 
+    public int getValueVersion() {
+        return valueVersion.get();
+    }
+
+    void incrementValueVersion() {
+        valueVersion.incrementAndGet();
+    }
+
     public String getName() {
         return name;
     }
@@ -346,4 +510,14 @@ public class AttributeTableImpl implements AttributeTable {
             }
         }
     }
+
+    private static class RowReference extends WeakReference<AttributeRowImpl> {
+
+        private final int index;
+
+        public RowReference(AttributeRowImpl row, int index, ReferenceQueue<AttributeRowImpl> queue) {
+            super(row, queue);
+            this.index = index;
+        }
+    }
 }
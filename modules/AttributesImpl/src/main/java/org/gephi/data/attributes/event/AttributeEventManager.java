@@ -42,155 +42,233 @@ Portions Copyrighted 2011 Gephi Consortium.
 package org.gephi.data.attributes.event;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicReference;
 import org.gephi.data.attributes.AbstractAttributeModel;
 import org.gephi.data.attributes.api.AttributeColumn;
 import org.gephi.data.attributes.api.AttributeEvent;
+import org.gephi.data.attributes.api.AttributeEvent.EventType;
 import org.gephi.data.attributes.api.AttributeListener;
+import org.gephi.data.attributes.api.AttributeTable;
 import org.gephi.data.attributes.api.AttributeValue;
 
 /**
+ * Event bus of the attribute model, which coalesces events and dispatches
+ * them on its own thread.
+ * <p>
+ * Value changes are not queued one by one but appended to a batch per column,
+ * made of plain arrays of values and objects. The batch is published after
+ * the flush interval, when it reaches the maximum batch size, when a column
+ * event arrives or when {@link #flush()} is called. Each column of a batch is
+ * published as one <code>SET_VALUE</code> event followed by one
+ * <code>UNSET_VALUE</code> event, so listeners which maintain counts see the
+ * new values before the old ones are removed. Column events keep their order
+ * relative to value changes.
+ * <p>
+ * Producers only hold the batch monitor for the time of an array append, the
+ * dispatch thread swaps the whole batch and calls listeners without it.
  *
  * @author Mathieu Bastian
  */
 public class AttributeEventManager implements Runnable {
 
     //Const
-    private final static long DELAY = 100;
+    public final static long DEFAULT_FLUSH_INTERVAL = 100;
+    public final static int DEFAULT_MAX_BATCH_SIZE = 1 << 16;
     //Architecture
     private final AbstractAttributeModel model;
     private final List<AttributeListener> listeners;
     private final AtomicReference<Thread> thread = new AtomicReference<Thread>();
-    private final LinkedBlockingQueue<AbstractEvent> eventQueue;
     private final Object lock = new Object();
-    private final LinkedList<Integer> rateList = new LinkedList<Integer>();
-    private double avgRate = 1.0;
+    //Batch, guarded by lock
+    private List<Object> batch = new ArrayList<Object>();
+    private final Map<AttributeColumn, ValueBatch> openBatches = new IdentityHashMap<AttributeColumn, ValueBatch>();
+    private ValueBatch lastBatch;
+    private int batchSize;
+    private boolean flushRequested;
+    //Settings
+    private volatile long flushInterval = DEFAULT_FLUSH_INTERVAL;
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
     //Flag
-    private boolean stop;
+    private volatile boolean stop;
 
     public AttributeEventManager(AbstractAttributeModel model) {
         this.model = model;
-        this.eventQueue = new LinkedBlockingQueue<AbstractEvent>();
-        this.listeners = Collections.synchronizedList(new ArrayList<AttributeListener>());
+        this.listeners = new CopyOnWriteArrayList<AttributeListener>();
     }
 
     @Override
     public void run() {
-        int rate = 0;
         while (!stop) {
-            if (rate == (int) avgRate) {
+            List<Object> events;
+            synchronized (lock) {
                 try {
-                    Thread.sleep(DELAY);
-                } catch (InterruptedException ex) {
-                    ex.printStackTrace();
-                }
-                int w = (int) (eventQueue.size() * 0.1f);
-                w = Math.max(1, w);
-                updateRate(w);
-                rate++;
-            }
-            List<Object> eventCompress = null;
-            List<Object> eventCompressObjects = null;
-
-            AbstractEvent precEvt = null;
-            AbstractEvent evt = null;
-            while ((evt = eventQueue.peek()) != null) {
-                if (precEvt != null) {
-                    if ((evt instanceof ValueEvent || evt instanceof ColumnEvent) && precEvt.getEventType().equals(evt.getEventType()) && precEvt.getAttributeTable() == evt.getAttributeTable()) {     //Same type
-                        if (eventCompress == null) {
-                            eventCompress = new ArrayList<Object>();
-                            eventCompress.add(precEvt.getData());
-                        }
-                        if (evt instanceof ValueEvent) {
-                            if (eventCompressObjects == null) {
-                                eventCompressObjects = new ArrayList<Object>();
-                                eventCompressObjects.add(((ValueEvent) precEvt).getObject());
-                            }
-                            eventCompressObjects.add(((ValueEvent) evt).getObject());
-                        }
-
-                        eventCompress.add(evt.getData());
-                    } else {
-                        break;
-                    }
-                }
-                eventQueue.poll();
-                precEvt = evt;
-            }
-
-            if (precEvt != null) {
-                AttributeEvent event = createEvent(precEvt, eventCompress, eventCompressObjects);
-                for (AttributeListener l : listeners.toArray(new AttributeListener[0])) {
-                    l.attributesChanged(event);
-                }
-            }
-            rate++;
-
-            while (eventQueue.isEmpty()) {
-                rate = (int) avgRate;
-                try {
-                    synchronized (lock) {
+                    while (batch.isEmpty() && !stop) {
                         lock.wait();
                     }
+                    //Let the batch grow until the interval is elapsed or a flush is requested
+                    long deadline = System.currentTimeMillis() + flushInterval;
+                    long remaining;
+                    while (!flushRequested && !stop && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                        lock.wait(remaining);
+                    }
                 } catch (InterruptedException e) {
                 }
+                events = batch;
+                batch = new ArrayList<Object>();
+                openBatches.clear();
+                lastBatch = null;
+                batchSize = 0;
+                flushRequested = false;
             }
+            dispatch(events);
         }
     }
 
-    private AttributeEvent createEvent(AbstractEvent event, List<Object> compress, List<Object> compressObjects) {
-        final AttributeEventDataImpl eventData = new AttributeEventDataImpl();
-        final AttributeEventImpl attributeEvent = new AttributeEventImpl(event.getEventType(), event.getAttributeTable(), eventData);
-        if (event instanceof ValueEvent) {
-            AttributeValue[] values;
-            Object[] objects;
-            if (compress != null) {
-                values = compress.toArray(new AttributeValue[0]);
-                objects = compressObjects.toArray();
-            } else {
-                values = new AttributeValue[]{(AttributeValue) event.getData()};
-                objects = new Object[]{((ValueEvent) event).getObject()};
-            }
-            eventData.setValues(values);
-            eventData.setObjects(objects);
-        } else if (event instanceof ColumnEvent) {
-            AttributeColumn[] columns;
-            if (compress != null) {
-                columns = compress.toArray(new AttributeColumn[0]);
+    private void dispatch(List<Object> events) {
+        for (int i = 0; i < events.size(); i++) {
+            Object e = events.get(i);
+            if (e instanceof ValueBatch) {
+                ValueBatch valueBatch = (ValueBatch) e;
+                if (valueBatch.setCount > 0) {
+                    fire(createValueEvent(EventType.SET_VALUE, valueBatch.table, valueBatch.setValues, valueBatch.setObjects, valueBatch.setCount));
+                }
+                if (valueBatch.unsetCount > 0) {
+                    fire(createValueEvent(EventType.UNSET_VALUE, valueBatch.table, valueBatch.unsetValues, valueBatch.unsetObjects, valueBatch.unsetCount));
+                }
             } else {
-                columns = new AttributeColumn[]{(AttributeColumn) event.getData()};
+                //Merge consecutive column events of the same type and table
+                AbstractEvent event = (AbstractEvent) e;
+                List<AttributeColumn> columns = new ArrayList<AttributeColumn>();
+                columns.add((AttributeColumn) event.getData());
+                while (i + 1 < events.size() && events.get(i + 1) instanceof AbstractEvent) {
+                    AbstractEvent next = (AbstractEvent) events.get(i + 1);
+                    if (next.getEventType() != event.getEventType() || next.getAttributeTable() != event.getAttributeTable()) {
+                        break;
+                    }
+                    columns.add((AttributeColumn) next.getData());
+                    i++;
+                }
+                AttributeEventDataImpl eventData = new AttributeEventDataImpl();
+                eventData.setColumns(columns.toArray(new AttributeColumn[0]));
+                fire(new AttributeEventImpl(event.getEventType(), event.getAttributeTable(), eventData));
             }
-            eventData.setColumns(columns);
         }
-        return attributeEvent;
     }
 
-    private double updateRate(int n) {
-        int windowLength = 10;
-        if (rateList.size() == windowLength) {
-            Integer oldest = rateList.poll();
-            avgRate = ((avgRate * windowLength) - oldest) / (windowLength - 1);
+    private AttributeEvent createValueEvent(EventType eventType, AttributeTable table, AttributeValue[] values, Object[] objects, int count) {
+        AttributeEventDataImpl eventData = new AttributeEventDataImpl();
+        eventData.setValues(values.length == count ? values : Arrays.copyOf(values, count));
+        eventData.setObjects(objects.length == count ? objects : Arrays.copyOf(objects, count));
+        return new AttributeEventImpl(eventType, table, eventData);
+    }
+
+    private void fire(AttributeEvent event) {
+        for (AttributeListener l : listeners) {
+            l.attributesChanged(event);
         }
-        avgRate = ((avgRate * rateList.size()) + n) / (rateList.size() + 1);
-        rateList.add(n);
-        return avgRate;
     }
 
     public void stop(boolean stop) {
         this.stop = stop;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
     }
 
     public void fireEvent(AbstractEvent event) {
-        eventQueue.add(event);
+        if (event instanceof ValueEvent) {
+            ValueEvent valueEvent = (ValueEvent) event;
+            fireValueEvent(valueEvent.getEventType(), valueEvent.getAttributeTable(), valueEvent.getObject(), valueEvent.getData());
+            return;
+        }
+        synchronized (lock) {
+            //Column events are batch boundaries, later values go in new batches
+            batch.add(event);
+            openBatches.clear();
+            lastBatch = null;
+            flushRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Records a value change without creating an event object.
+     *
+     * @param eventType <code>SET_VALUE</code> or <code>UNSET_VALUE</code>
+     * @param table the table of the value
+     * @param object the object the value belongs to
+     * @param value the new value, or the old value when unset
+     */
+    public void fireValueEvent(EventType eventType, AttributeTable table, Object object, AttributeValue value) {
+        AttributeColumn column = value.getColumn();
         synchronized (lock) {
+            ValueBatch valueBatch = lastBatch;
+            if (valueBatch == null || valueBatch.column != column) {
+                valueBatch = openBatches.get(column);
+                if (valueBatch == null) {
+                    valueBatch = new ValueBatch(table, column);
+                    openBatches.put(column, valueBatch);
+                    batch.add(valueBatch);
+                }
+                lastBatch = valueBatch;
+            }
+            if (eventType == EventType.UNSET_VALUE) {
+                valueBatch.addUnset(value, object);
+            } else {
+                valueBatch.addSet(value, object);
+            }
+            if (++batchSize == 1) {
+                lock.notifyAll();
+            } else if (batchSize >= maxBatchSize && !flushRequested) {
+                flushRequested = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Publishes the pending events without waiting for the flush interval.
+     */
+    public void flush() {
+        synchronized (lock) {
+            flushRequested = true;
             lock.notifyAll();
         }
     }
 
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Sets the maximum time, in milliseconds, value changes wait before being
+     * published.
+     *
+     * @param flushInterval the interval in milliseconds
+     */
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets the number of value changes after which a batch is published
+     * without waiting for the flush interval.
+     *
+     * @param maxBatchSize the maximum number of values in a batch
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
     public void start() {
         Thread t = new Thread(this);
         t.setDaemon(true);
@@ -213,4 +291,39 @@ public class AttributeEventManager implements Runnable {
     public void removeAttributeListener(AttributeListener listener) {
         listeners.remove(listener);
     }
+
+    private static class ValueBatch {
+
+        private final AttributeTable table;
+        private final AttributeColumn column;
+        private AttributeValue[] setValues = new AttributeValue[8];
+        private Object[] setObjects = new Object[8];
+        private int setCount;
+        private AttributeValue[] unsetValues = new AttributeValue[8];
+        private Object[] unsetObjects = new Object[8];
+        private int unsetCount;
+
+        public ValueBatch(AttributeTable table, AttributeColumn column) {
+            this.table = table;
+            this.column = column;
+        }
+
+        public void addSet(AttributeValue value, Object object) {
+            if (setCount == setValues.length) {
+                setValues = Arrays.copyOf(setValues, setCount * 2);
+                setObjects = Arrays.copyOf(setObjects, setCount * 2);
+            }
+            setValues[setCount] = value;
+            setObjects[setCount++] = object;
+        }
+
+        public void addUnset(AttributeValue value, Object object) {
+            if (unsetCount == unsetValues.length) {
+                unsetValues = Arrays.copyOf(unsetValues, unsetCount * 2);
+                unsetObjects = Arrays.copyOf(unsetObjects, unsetCount * 2);
+            }
+            unsetValues[unsetCount] = value;
+            unsetObjects[unsetCount++] = object;
+        }
+    }
 }
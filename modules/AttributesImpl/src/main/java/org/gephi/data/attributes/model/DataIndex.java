@@ -63,10 +63,15 @@ import org.gephi.data.attributes.type.StringList;
 import org.gephi.data.attributes.type.TimeInterval;
 
 /**
- * The index where values of the current {@link IndexedAttributeManager} are. This index stores the objects
+ * The index where values of the current {@link IndexedAttributeModel} are. This index stores the objects
  * as {@link WeakReference}, so the {@link AttributeRow} may share the objects reference with this index.
  * Moreover when no more objects possess a reference to a value, the {@link WeakReference} system
  * (i.e. Garbage collector) will automatically clean the old references.
+ * <p>
+ * The index is specific to its model and thread-safe. There is one map per supported type, each
+ * guarded by its own monitor. String values of stored columns are shared by the
+ * {@link org.gephi.data.attributes.store.DictionaryEncoder DictionaryEncoder} instead, which also
+ * keeps the entries and memory savings counts.
  *
  * @author Mathieu Bastian
  * @author Martin Škurla
@@ -80,50 +85,50 @@ public class DataIndex {
         FloatList.class,  DoubleList.class,     BooleanList.class, CharacterList.class,
         StringList.class, BigIntegerList.class, BigDecimalList.class};
 
-    @SuppressWarnings("rawtypes")
-    private static Map<Class<?>, WeakHashMap> centralHashMap;
+    private final Map<Class<?>, WeakHashMap<Object, WeakReference<Object>>> centralHashMap;
 
-    @SuppressWarnings("rawtypes")
     public DataIndex() {
-        centralHashMap = new HashMap<Class<?>, WeakHashMap>();
+        centralHashMap = new HashMap<Class<?>, WeakHashMap<Object, WeakReference<Object>>>();
 
         for (Class<?> supportedType : SUPPORTED_TYPES)
-            putInCentralMap(supportedType);
-    }
-
-    private static <T> void putInCentralMap(Class<T> supportedType) {
-        centralHashMap.put(supportedType, new WeakHashMap<T, WeakReference<T>>());
+            centralHashMap.put(supportedType, new WeakHashMap<Object, WeakReference<Object>>());
     }
 
     public int countEntries() {
         int entries = 0;
 
-        for (WeakHashMap<?,?> weakHashMap : centralHashMap.values())
-            entries += weakHashMap.size();
+        for (WeakHashMap<Object, WeakReference<Object>> weakHashMap : centralHashMap.values()) {
+            synchronized (weakHashMap) {
+                entries += weakHashMap.size();
+            }
+        }
 
         return entries;
     }
 
     @SuppressWarnings("unchecked")
     <T> T pushData(T data) {
-        Class<?> classObjectKey = data.getClass();
-        WeakHashMap<T, WeakReference<T>> weakHashMap = centralHashMap.get(classObjectKey);
+        WeakHashMap<Object, WeakReference<Object>> weakHashMap = centralHashMap.get(data.getClass());
 
         if (weakHashMap == null)
             return data;
 
-        WeakReference<T> value = weakHashMap.get(data);
-        if (value == null) {
-            WeakReference<T> weakRef = new WeakReference<T>(data);
-            weakHashMap.put(data, weakRef);
-            return data;
+        synchronized (weakHashMap) {
+            WeakReference<Object> ref = weakHashMap.get(data);
+            Object shared = ref != null ? ref.get() : null;
+            if (shared == null) {
+                weakHashMap.put(data, new WeakReference<Object>(data));
+                return data;
+            }
+            return (T) shared;
         }
-
-        return value.get();
     }
 
     public void clear() {
-        for (WeakHashMap<?,?> weakHashMap : centralHashMap.values())
-            weakHashMap.clear();
+        for (WeakHashMap<Object, WeakReference<Object>> weakHashMap : centralHashMap.values()) {
+            synchronized (weakHashMap) {
+                weakHashMap.clear();
+            }
+        }
     }
 }
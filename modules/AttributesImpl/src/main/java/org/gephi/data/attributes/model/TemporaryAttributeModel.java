@@ -42,8 +42,11 @@ Portions Copyrighted 2011 Gephi Consortium.
 package org.gephi.data.attributes.model;
 
 import org.gephi.data.attributes.AbstractAttributeModel;
+import org.gephi.data.attributes.api.AttributeEvent.EventType;
 import org.gephi.data.attributes.api.AttributeListener;
+import org.gephi.data.attributes.api.AttributeTable;
 import org.gephi.data.attributes.api.AttributeType;
+import org.gephi.data.attributes.api.AttributeValue;
 import org.gephi.data.attributes.event.AbstractEvent;
 import org.gephi.project.api.Workspace;
 
@@ -80,4 +83,8 @@ public class TemporaryAttributeModel extends AbstractAttributeModel {
     @Override
     public void fireAttributeEvent(AbstractEvent event) {
     }
+
+    @Override
+    public void fireValueEvent(EventType eventType, AttributeTable table, Object object, AttributeValue value) {
+    }
 }
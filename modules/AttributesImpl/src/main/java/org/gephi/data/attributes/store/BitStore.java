@@ -0,0 +1,125 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Gephi Consortium
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.data.attributes.store;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bits indexed by row, in blocks of {@link ColumnStore#BLOCK_SIZE} bits.
+ * Updates are atomic, so rows sharing a word can be written concurrently.
+ *
+ * @author Gephi Consortium
+ */
+final class BitStore {
+
+    private volatile AtomicLongArray[] blocks = new AtomicLongArray[0];
+
+    public boolean get(int row) {
+        AtomicLongArray[] b = blocks;
+        int blockIndex = row >>> ColumnStore.BLOCK_SHIFT;
+        if (blockIndex >= b.length || b[blockIndex] == null) {
+            return false;
+        }
+        return (b[blockIndex].get((row & ColumnStore.BLOCK_MASK) >>> 6) & (1L << row)) != 0;
+    }
+
+    public void set(int row, boolean value) {
+        AtomicLongArray[] b = blocks;
+        int blockIndex = row >>> ColumnStore.BLOCK_SHIFT;
+        AtomicLongArray block;
+        if (blockIndex < b.length && b[blockIndex] != null) {
+            block = b[blockIndex];
+        } else if (value) {
+            block = grow(blockIndex);
+        } else {
+            return;
+        }
+        int word = (row & ColumnStore.BLOCK_MASK) >>> 6;
+        long mask = 1L << row;
+        while (true) {
+            long oldBits = block.get(word);
+            long newBits = value ? oldBits | mask : oldBits & ~mask;
+            if (oldBits == newBits || block.compareAndSet(word, oldBits, newBits)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the bits of the first <code>rowCount</code> rows.
+     *
+     * @param rowCount the number of rows
+     * @return a new bitset
+     */
+    public BitSet toBitSet(int rowCount) {
+        BitSet result = new BitSet(rowCount);
+        AtomicLongArray[] b = blocks;
+        for (int i = 0; i < b.length && (i << ColumnStore.BLOCK_SHIFT) < rowCount; i++) {
+            if (b[i] != null) {
+                for (int word = 0; word < b[i].length(); word++) {
+                    int offset = (i << ColumnStore.BLOCK_SHIFT) + (word << 6);
+                    for (long bits = b[i].get(word); bits != 0; bits &= bits - 1) {
+                        int row = offset + Long.numberOfTrailingZeros(bits);
+                        if (row < rowCount) {
+                            result.set(row);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private synchronized AtomicLongArray grow(int blockIndex) {
+        AtomicLongArray[] b = blocks;
+        if (blockIndex >= b.length) {
+            b = Arrays.copyOf(b, Math.max(blockIndex + 1, b.length * 2));
+        }
+        if (b[blockIndex] == null) {
+            b[blockIndex] = new AtomicLongArray(ColumnStore.BLOCK_SIZE >>> 6);
+        }
+        blocks = b;
+        return b[blockIndex];
+    }
+}
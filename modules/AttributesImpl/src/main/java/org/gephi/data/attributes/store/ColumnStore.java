@@ -0,0 +1,181 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Gephi Consortium
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.data.attributes.store;
+
+import java.util.BitSet;
+import org.gephi.data.attributes.api.AttributeOrigin;
+import org.gephi.data.attributes.api.AttributeType;
+
+/**
+ * Columnar storage of the values of an attribute column, indexed by row
+ * index.
+ * <p>
+ * Values of primitive types are kept in primitive arrays instead of one
+ * boxed value object per cell, and strings are encoded with the
+ * {@link DictionaryEncoder} of the model. Arrays
+ * are allocated in blocks of {@link #BLOCK_SIZE} rows, so growing a store
+ * never copies the values and never loses a concurrent write to another row.
+ * <p>
+ * Cells without a value read as <code>null</code>. The table writes the
+ * column default in the cells of existing rows when a column is added, new
+ * rows write it when they are created, and the cells of garbage collected
+ * rows are cleared before their index is reused. Scans of the whole store
+ * should skip the rows which are not live, see
+ * <code>AttributeTableImpl.getLiveRows()</code>.
+ *
+ * @author Gephi Consortium
+ */
+public abstract class ColumnStore {
+
+    public static final int BLOCK_SHIFT = 12;
+    public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    public static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    /**
+     * Returns the value at <code>row</code>, boxed.
+     *
+     * @param row the row index
+     * @return the value, or <code>null</code>
+     */
+    public abstract Object get(int row);
+
+    /**
+     * Sets the value at <code>row</code>. The value must be of the column
+     * type, or <code>null</code>.
+     *
+     * @param row the row index
+     * @param value the value, or <code>null</code>
+     */
+    public abstract void set(int row, Object value);
+
+    public abstract boolean isNull(int row);
+
+    /**
+     * Removes the value at <code>row</code>, which then reads as
+     * <code>null</code>.
+     *
+     * @param row the row index
+     */
+    public abstract void clear(int row);
+
+    /**
+     * Returns the rows among the first <code>rowCount</code> which hold a
+     * value.
+     *
+     * @param rowCount the number of rows
+     * @return a new bitset of row indexes
+     */
+    public BitSet getValueMask(int rowCount) {
+        BitSet result = new BitSet(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            if (!isNull(row)) {
+                result.set(row);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Releases what the store holds outside of itself, such as dictionary
+     * entries. Called when the column is removed, the store must not be used
+     * afterwards.
+     */
+    public void release() {
+    }
+
+    /**
+     * Returns <code>true</code> if values of columns of <code>type</code> and
+     * <code>origin</code> are kept in a column store. Property columns stay
+     * in rows and delegate columns are computed by their provider.
+     *
+     * @param type the column type
+     * @param origin the column origin
+     * @return <code>true</code> if the column has a store
+     */
+    public static boolean isSupported(AttributeType type, AttributeOrigin origin) {
+        if (origin != AttributeOrigin.DATA && origin != AttributeOrigin.COMPUTED) {
+            return false;
+        }
+        switch (type) {
+            case DOUBLE:
+            case FLOAT:
+            case INT:
+            case LONG:
+            case BOOLEAN:
+            case STRING:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Creates the store for a column, or returns <code>null</code> if values
+     * of this type and origin are kept in rows.
+     *
+     * @param type the column type
+     * @param origin the column origin
+     * @param encoder the dictionary of the model, for strings
+     * @return a new store, or <code>null</code>
+     */
+    public static ColumnStore create(AttributeType type, AttributeOrigin origin, DictionaryEncoder encoder) {
+        if (!isSupported(type, origin)) {
+            return null;
+        }
+        switch (type) {
+            case DOUBLE:
+                return new DoubleColumnStore();
+            case FLOAT:
+                return new FloatColumnStore();
+            case INT:
+                return new IntColumnStore();
+            case LONG:
+                return new LongColumnStore();
+            case BOOLEAN:
+                return new BooleanColumnStore();
+            case STRING:
+                return new StringColumnStore(encoder);
+            default:
+                return null;
+        }
+    }
+}
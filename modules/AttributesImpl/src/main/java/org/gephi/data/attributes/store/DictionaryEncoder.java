@@ -0,0 +1,263 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Gephi Consortium
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.data.attributes.store;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe dictionary which assigns an <code>int</code> code to each
+ * distinct value. There is one encoder per attribute model, shared by the
+ * string column stores, so equal values are stored once and can be compared
+ * by code.
+ * <p>
+ * Entries are reference counted: each {@link #encode(Object)} must be matched
+ * by a {@link #release(int)} once the code is no longer stored. An entry is
+ * removed when its count drops to zero and its code may then be reused, so the
+ * dictionary only holds values still present in a column.
+ * <p>
+ * Encoding a value already in the dictionary and releasing a code which is
+ * still referenced don't lock, they only update the count of the entry. The
+ * encoder locks to add an entry or to remove one whose count dropped to zero.
+ * A count never goes up again once it reached zero, so an entry being removed
+ * can't be handed out.
+ *
+ * @author Gephi Consortium
+ */
+public class DictionaryEncoder {
+
+    public static final int NULL_CODE = -1;
+    private final ConcurrentMap<Object, Entry> codes = new ConcurrentHashMap<Object, Entry>();
+    private volatile Entry[] entries = new Entry[64];
+    private final AtomicLong bytesSaved = new AtomicLong();
+    //Guarded by this
+    private int[] freeCodes = new int[16];
+    private int freeCodesCount;
+    private int length;
+
+    /**
+     * Returns the code of <code>value</code>, adding it to the dictionary if
+     * it is new, and increments its reference count.
+     *
+     * @param value the value, or <code>null</code>
+     * @return the code of <code>value</code>, or <code>NULL_CODE</code>
+     */
+    public int encode(Object value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Entry entry = codes.get(value);
+        if (entry != null && entry.acquire()) {
+            bytesSaved.addAndGet(sizeOf(value));
+            return entry.code;
+        }
+        return add(value);
+    }
+
+    private synchronized int add(Object value) {
+        Entry entry = codes.get(value);
+        if (entry != null) {
+            if (entry.acquire()) {
+                bytesSaved.addAndGet(sizeOf(value));
+                return entry.code;
+            }
+            //Released by another thread which didn't remove it yet
+            remove(entry);
+        }
+        int c;
+        if (freeCodesCount > 0) {
+            c = freeCodes[--freeCodesCount];
+        } else {
+            c = length++;
+        }
+        Entry[] e = entries;
+        if (c >= e.length) {
+            e = Arrays.copyOf(e, e.length * 2);
+        }
+        entry = new Entry(c, value);
+        e[c] = entry;
+        entries = e;
+        codes.put(value, entry);
+        return c;
+    }
+
+    /**
+     * Decrements the reference count of <code>code</code>, and removes its
+     * value from the dictionary when it is no longer referenced.
+     *
+     * @param code a code returned by {@link #encode(Object)}, or
+     * <code>NULL_CODE</code>
+     */
+    public void release(int code) {
+        if (code == NULL_CODE) {
+            return;
+        }
+        Entry[] e = entries;
+        Entry entry = code < e.length ? e[code] : null;
+        if (entry != null && entry.release()) {
+            synchronized (this) {
+                remove(entry);
+            }
+        }
+    }
+
+    //Guarded by this, entry.references is zero
+    private void remove(Entry entry) {
+        if (entries[entry.code] != entry) {
+            return;
+        }
+        codes.remove(entry.value, entry);
+        entries[entry.code] = null;
+        if (freeCodesCount == freeCodes.length) {
+            freeCodes = Arrays.copyOf(freeCodes, freeCodesCount * 2);
+        }
+        freeCodes[freeCodesCount++] = entry.code;
+    }
+
+    /**
+     * Returns the code of <code>value</code> without adding it.
+     *
+     * @param value the value
+     * @return the code, or <code>NULL_CODE</code> if <code>value</code> is
+     * <code>null</code> or not in the dictionary
+     */
+    public int getCode(Object value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Entry entry = codes.get(value);
+        return entry != null && entry.references.get() > 0 ? entry.code : NULL_CODE;
+    }
+
+    /**
+     * Returns the value of <code>code</code>.
+     *
+     * @param code a code returned by {@link #encode(Object)} and not released
+     * @return the value, or <code>null</code> for <code>NULL_CODE</code>
+     */
+    public Object decode(int code) {
+        if (code == NULL_CODE) {
+            return null;
+        }
+        Entry entry = entries[code];
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Returns the number of distinct values in the dictionary.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return codes.size();
+    }
+
+    /**
+     * Returns the reference count of <code>code</code>.
+     *
+     * @param code a code returned by {@link #encode(Object)}
+     * @return the number of references, or zero if the code is free
+     */
+    public int getReferenceCount(int code) {
+        Entry[] e = entries;
+        Entry entry = code >= 0 && code < e.length ? e[code] : null;
+        return entry != null ? entry.references.get() : 0;
+    }
+
+    /**
+     * Returns an estimate of the memory saved by storing equal values once,
+     * in bytes. Each encoding of a value already in the dictionary counts.
+     *
+     * @return the estimated number of bytes saved
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    private static long sizeOf(Object value) {
+        if (value instanceof String) {
+            return 40 + 2 * ((String) value).length();
+        }
+        return 24;
+    }
+
+    private static class Entry {
+
+        private final int code;
+        private final Object value;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        Entry(int code, Object value) {
+            this.code = code;
+            this.value = value;
+        }
+
+        //Fails once the count reached zero
+        boolean acquire() {
+            for (;;) {
+                int count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+                if (references.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        //Returns true when the count drops to zero
+        boolean release() {
+            for (;;) {
+                int count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+                if (references.compareAndSet(count, count - 1)) {
+                    return count == 1;
+                }
+            }
+        }
+    }
+}
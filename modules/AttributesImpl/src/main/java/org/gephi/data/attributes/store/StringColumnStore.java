@@ -0,0 +1,143 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Gephi Consortium
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.data.attributes.store;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary-encoded store of <code>String</code> values. Each cell holds the
+ * code of its string in the {@link DictionaryEncoder} of the model, so equal
+ * strings are stored once and can be compared by code.
+ *
+ * @author Gephi Consortium
+ */
+public class StringColumnStore extends ColumnStore {
+
+    private final DictionaryEncoder encoder;
+    private volatile int[][] blocks = new int[0][];
+
+    public StringColumnStore(DictionaryEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * Returns the dictionary code of the value at <code>row</code>, or
+     * {@link DictionaryEncoder#NULL_CODE} for <code>null</code>.
+     *
+     * @param row the row index
+     * @return the code of the value
+     */
+    public int getCode(int row) {
+        int[][] b = blocks;
+        int blockIndex = row >>> BLOCK_SHIFT;
+        if (blockIndex < b.length && b[blockIndex] != null) {
+            return b[blockIndex][row & BLOCK_MASK] - 1;
+        }
+        return DictionaryEncoder.NULL_CODE;
+    }
+
+    public DictionaryEncoder getEncoder() {
+        return encoder;
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return getCode(row) == DictionaryEncoder.NULL_CODE;
+    }
+
+    @Override
+    public String get(int row) {
+        return (String) encoder.decode(getCode(row));
+    }
+
+    @Override
+    public void set(int row, Object value) {
+        int code = encoder.encode((String) value);
+        if (code == DictionaryEncoder.NULL_CODE && (row >>> BLOCK_SHIFT) >= blocks.length) {
+            return;
+        }
+        //Cells hold code + 1, so zero-filled blocks read as null
+        int[] block = block(row);
+        int oldCode = block[row & BLOCK_MASK] - 1;
+        block[row & BLOCK_MASK] = code + 1;
+        encoder.release(oldCode);
+    }
+
+    @Override
+    public void clear(int row) {
+        set(row, null);
+    }
+
+    @Override
+    public synchronized void release() {
+        int[][] b = blocks;
+        blocks = new int[0][];
+        for (int[] block : b) {
+            if (block != null) {
+                for (int cell : block) {
+                    encoder.release(cell - 1);
+                }
+            }
+        }
+    }
+
+    private int[] block(int row) {
+        int[][] b = blocks;
+        int blockIndex = row >>> BLOCK_SHIFT;
+        if (blockIndex < b.length && b[blockIndex] != null) {
+            return b[blockIndex];
+        }
+        return grow(blockIndex);
+    }
+
+    private synchronized int[] grow(int blockIndex) {
+        int[][] b = blocks;
+        if (blockIndex >= b.length) {
+            b = Arrays.copyOf(b, Math.max(blockIndex + 1, b.length * 2));
+        }
+        if (b[blockIndex] == null) {
+            b[blockIndex] = new int[BLOCK_SIZE];
+        }
+        blocks = b;
+        return b[blockIndex];
+    }
+}
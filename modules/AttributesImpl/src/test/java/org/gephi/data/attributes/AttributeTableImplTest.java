@@ -0,0 +1,234 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.data.attributes;
+
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeOrigin;
+import org.gephi.data.attributes.api.AttributeType;
+import org.gephi.data.attributes.model.TemporaryAttributeModel;
+import org.gephi.data.attributes.store.BooleanColumnStore;
+import org.gephi.data.attributes.store.ColumnStore;
+import org.gephi.data.attributes.store.DoubleColumnStore;
+import org.gephi.data.attributes.store.IntColumnStore;
+import org.gephi.data.attributes.store.StringColumnStore;
+import static org.junit.Assert.*;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that values of rows and of column stores agree, including columns
+ * added after rows and row indexes which are reused.
+ *
+ * @author Gephi Consortium
+ */
+public class AttributeTableImplTest {
+
+    private AttributeTableImpl table;
+
+    @Before
+    public void setUp() {
+        table = new TemporaryAttributeModel(null).getNodeTable();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        AttributeColumn doubleCol = table.addColumn("double", AttributeType.DOUBLE);
+        AttributeColumn floatCol = table.addColumn("float", AttributeType.FLOAT);
+        AttributeColumn intCol = table.addColumn("int", AttributeType.INT);
+        AttributeColumn longCol = table.addColumn("long", AttributeType.LONG);
+        AttributeColumn booleanCol = table.addColumn("boolean", AttributeType.BOOLEAN);
+        AttributeColumn stringCol = table.addColumn("string", AttributeType.STRING);
+        AttributeRowImpl row = new AttributeRowImpl(table, "n1");
+
+        Object[] values = {1.5, 2.5f, -3, 4L, true, "a"};
+        AttributeColumn[] columns = {doubleCol, floatCol, intCol, longCol, booleanCol, stringCol};
+        for (int i = 0; i < columns.length; i++) {
+            assertNotNull(table.getColumnStore(columns[i]));
+            row.setValue(columns[i], values[i]);
+        }
+        for (int i = 0; i < columns.length; i++) {
+            assertEquals(values[i], row.getValue(columns[i]));
+            assertEquals(values[i], row.getValue(columns[i].getId()));
+            assertEquals(values[i], row.getAttributeValueAt(columns[i].getIndex()).getValue());
+            assertEquals(values[i], table.getColumnStore(columns[i]).get(row.getRowIndex()));
+        }
+        assertEquals(-3, ((IntColumnStore) table.getColumnStore(intCol)).getInt(row.getRowIndex()));
+        assertTrue(((BooleanColumnStore) table.getColumnStore(booleanCol)).getBoolean(row.getRowIndex()));
+
+        //Overwrite
+        row.setValue(intCol, 7);
+        row.setValue(stringCol, "b");
+        assertEquals(7, row.getValue(intCol));
+        assertEquals("b", row.getValue(stringCol));
+    }
+
+    @Test
+    public void testNullValues() {
+        AttributeColumn nullDefault = table.addColumn("a", AttributeType.DOUBLE);
+        AttributeColumn withDefault = table.addColumn("b", "b", AttributeType.INT, AttributeOrigin.DATA, 5);
+        AttributeColumn stringCol = table.addColumn("c", "c", AttributeType.STRING, AttributeOrigin.DATA, "x");
+        AttributeRowImpl row = new AttributeRowImpl(table, "n1");
+        int index = row.getRowIndex();
+
+        assertNull(row.getValue(nullDefault));
+        assertTrue(table.getColumnStore(nullDefault).isNull(index));
+        assertEquals(5, row.getValue(withDefault));
+        assertFalse(table.getColumnStore(withDefault).isNull(index));
+        assertEquals("x", row.getValue(stringCol));
+
+        //Null replaces the default, it isn't read as zero or as the default
+        row.setValue(withDefault, null);
+        row.setValue(stringCol, null);
+        assertNull(row.getValue(withDefault));
+        assertNull(row.getValue(stringCol));
+        assertTrue(table.getColumnStore(withDefault).isNull(index));
+        assertFalse(table.getColumnStore(withDefault).getValueMask(index + 1).get(index));
+
+        row.setValue(nullDefault, 1.0);
+        row.setValue(nullDefault, null);
+        assertNull(row.getValue(nullDefault));
+
+        //Reset writes the defaults again
+        row.reset();
+        assertEquals(5, row.getValue(withDefault));
+        assertEquals("x", row.getValue(stringCol));
+    }
+
+    @Test
+    public void testColumnAddedAfterRows() {
+        AttributeRowImpl first = new AttributeRowImpl(table, "n1");
+        AttributeRowImpl second = new AttributeRowImpl(table, "n2");
+        AttributeColumn column = table.addColumn("score", "Score", AttributeType.DOUBLE, AttributeOrigin.DATA, 2.5);
+
+        //The store is filled before the rows see the new column
+        DoubleColumnStore store = (DoubleColumnStore) table.getColumnStore(column);
+        double[] array = store.toArray(table.getRowCount());
+        assertEquals(2.5, array[first.getRowIndex()], 0);
+        assertEquals(2.5, array[second.getRowIndex()], 0);
+        assertEquals(Double.valueOf(2.5), store.get(second.getRowIndex()));
+        assertEquals(table.getLiveRows(), store.getValueMask(table.getRowCount()));
+
+        assertEquals(2.5, first.getValue(column));
+        first.setValue(column, 1.0);
+        assertEquals(1.0, first.getValue(column));
+        assertEquals(2.5, second.getValue(column));
+
+        //Without default the cells are null
+        AttributeColumn other = table.addColumn("other", AttributeType.INT);
+        assertTrue(table.getColumnStore(other).isNull(first.getRowIndex()));
+        assertNull(second.getValue(other));
+    }
+
+    @Test
+    public void testRemoveColumn() {
+        AttributeColumn column = table.addColumn("tag", AttributeType.STRING);
+        AttributeColumn kept = table.addColumn("size", AttributeType.INT);
+        AttributeRowImpl row = new AttributeRowImpl(table, "n1");
+        row.setValue(column, "a");
+        row.setValue(kept, 3);
+        int count = row.countValues();
+
+        table.removeColumn(column);
+        assertNull(table.getColumnStore(column));
+        assertNull(row.getValue(column));
+        assertEquals(count - 1, row.countValues());
+        assertEquals(3, row.getValue(kept));
+        assertEquals(3, table.getColumnStore(kept).get(row.getRowIndex()));
+
+        //A new column with the same id doesn't see the old values
+        AttributeColumn added = table.addColumn("tag", AttributeType.STRING);
+        assertNull(row.getValue(added));
+        row.setValue(added, "b");
+        assertEquals("b", row.getValue(added));
+    }
+
+    @Test
+    public void testReplaceColumn() {
+        AttributeColumn column = table.addColumn("weight", AttributeType.INT);
+        AttributeRowImpl row = new AttributeRowImpl(table, "n1");
+        row.setValue(column, 3);
+
+        AttributeColumn replaced = table.replaceColumn(column, "weight", "Weight", AttributeType.LONG, AttributeOrigin.DATA, 7L);
+        assertEquals(column.getIndex(), replaced.getIndex());
+        assertEquals(7L, table.getColumnStore(replaced).get(row.getRowIndex()));
+        assertEquals(7L, row.getValue(replaced));
+        assertNull(row.getValue(column));
+
+        row.setValue(replaced, 8L);
+        assertEquals(8L, row.getValue(replaced));
+    }
+
+    @Test
+    public void testRowIndexReuse() throws InterruptedException {
+        AttributeColumn column = table.addColumn("value", AttributeType.INT);
+        AttributeColumn stringCol = table.addColumn("name", AttributeType.STRING);
+        AttributeRowImpl kept = new AttributeRowImpl(table, "n1");
+        kept.setValue(column, 1);
+        AttributeRowImpl row = new AttributeRowImpl(table, "n2");
+        row.setValue(column, 42);
+        row.setValue(stringCol, "dead");
+        int index = row.getRowIndex();
+        ColumnStore store = table.getColumnStore(column);
+        StringColumnStore stringStore = (StringColumnStore) table.getColumnStore(stringCol);
+        assertEquals(1, stringStore.getEncoder().size());
+        row = null;
+
+        //Wait for the row to be collected and its cells cleared
+        for (int i = 0; i < 100 && (table.getLiveRows().get(index) || !store.isNull(index)); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assume.assumeTrue(!table.getLiveRows().get(index) && store.isNull(index));
+        assertTrue(stringStore.isNull(index));
+        assertEquals(0, stringStore.getEncoder().size());
+        assertFalse(store.getValueMask(table.getRowCount()).get(index));
+        assertEquals(1, store.get(kept.getRowIndex()));
+
+        //The index is reused, without the value of the collected row
+        AttributeRowImpl reused = new AttributeRowImpl(table, "n3");
+        assertEquals(index, reused.getRowIndex());
+        assertNull(reused.getValue(column));
+        assertNull(reused.getValue(stringCol));
+        assertTrue(table.getLiveRows().get(index));
+    }
+}
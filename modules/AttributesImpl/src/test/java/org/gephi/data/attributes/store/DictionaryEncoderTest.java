@@ -0,0 +1,169 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.data.attributes.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Checks the reference counting and code reuse of {@link DictionaryEncoder}.
+ *
+ * @author Gephi Consortium
+ */
+public class DictionaryEncoderTest {
+
+    @Test
+    public void testEncodeDecode() {
+        DictionaryEncoder encoder = new DictionaryEncoder();
+        int a = encoder.encode("a");
+        int b = encoder.encode("b");
+        assertTrue(a != b);
+        assertEquals(a, encoder.encode(new String("a")));
+        assertEquals("a", encoder.decode(a));
+        assertEquals("b", encoder.decode(b));
+        assertEquals(a, encoder.getCode("a"));
+        assertEquals(DictionaryEncoder.NULL_CODE, encoder.getCode("c"));
+        assertEquals(DictionaryEncoder.NULL_CODE, encoder.encode(null));
+        assertNull(encoder.decode(DictionaryEncoder.NULL_CODE));
+        assertEquals(2, encoder.size());
+        assertEquals(42, encoder.getBytesSaved());
+    }
+
+    @Test
+    public void testRelease() {
+        DictionaryEncoder encoder = new DictionaryEncoder();
+        int a = encoder.encode("a");
+        encoder.encode("a");
+        assertEquals(2, encoder.getReferenceCount(a));
+
+        encoder.release(a);
+        assertEquals(1, encoder.getReferenceCount(a));
+        assertEquals("a", encoder.decode(a));
+        assertEquals(1, encoder.size());
+
+        encoder.release(a);
+        assertEquals(0, encoder.getReferenceCount(a));
+        assertEquals(0, encoder.size());
+        assertEquals(DictionaryEncoder.NULL_CODE, encoder.getCode("a"));
+
+        //Extra releases are ignored
+        encoder.release(a);
+        encoder.release(DictionaryEncoder.NULL_CODE);
+        assertEquals(0, encoder.size());
+    }
+
+    @Test
+    public void testCodeReuse() {
+        DictionaryEncoder encoder = new DictionaryEncoder();
+        int a = encoder.encode("a");
+        int b = encoder.encode("b");
+        encoder.release(a);
+
+        int c = encoder.encode("c");
+        assertEquals(a, c);
+        assertEquals("c", encoder.decode(c));
+        assertEquals(1, encoder.getReferenceCount(c));
+
+        //A value encoded again after its release gets a live entry
+        encoder.release(b);
+        int b2 = encoder.encode("b");
+        assertEquals(b, b2);
+        assertEquals(1, encoder.getReferenceCount(b2));
+        assertEquals(2, encoder.size());
+    }
+
+    @Test
+    public void testGrow() {
+        DictionaryEncoder encoder = new DictionaryEncoder();
+        int[] codes = new int[1000];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = encoder.encode("v" + i);
+        }
+        for (int i = 0; i < codes.length; i++) {
+            assertEquals("v" + i, encoder.decode(codes[i]));
+            encoder.release(codes[i]);
+        }
+        assertEquals(0, encoder.size());
+        assertTrue(encoder.encode("w") < codes.length);
+    }
+
+    @Test
+    public void testConcurrentEncodeRelease() throws InterruptedException {
+        final DictionaryEncoder encoder = new DictionaryEncoder();
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 20000; i++) {
+                            String value = "v" + (i % 8);
+                            int code = encoder.encode(value);
+                            if (!value.equals(encoder.decode(code))) {
+                                throw new AssertionError(value + " decoded as " + encoder.decode(code));
+                            }
+                            encoder.release(code);
+                        }
+                    } catch (Throwable ex) {
+                        synchronized (errors) {
+                            errors.add(ex);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(0, encoder.size());
+    }
+}
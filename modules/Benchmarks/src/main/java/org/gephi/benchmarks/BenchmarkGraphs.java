@@ -0,0 +1,123 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.benchmarks;
+
+import java.util.Random;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphController;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.Node;
+import org.gephi.io.generator.plugin.RandomGraph;
+import org.gephi.io.importer.api.Container;
+import org.gephi.io.importer.api.ContainerFactory;
+import org.gephi.io.processor.plugin.DefaultProcessor;
+import org.gephi.project.api.ProjectController;
+import org.gephi.project.api.Workspace;
+import org.openide.util.Lookup;
+
+/**
+ * Generates the benchmark graphs. Graphs are random graphs with a fixed seed,
+ * so the same graph is used for a given size across runs and commits.
+ *
+ * @author Gephi Consortium
+ */
+public final class BenchmarkGraphs {
+
+    public static final long SEED = 42L;
+    /**
+     * Average degree of the generated graphs, whatever the number of nodes.
+     */
+    public static final double AVERAGE_DEGREE = 10.0;
+
+    private BenchmarkGraphs() {
+    }
+
+    /**
+     * Creates a new project with a random graph of <code>nodes</code> nodes
+     * in its workspace, and returns the graph model.
+     *
+     * @param nodes the number of nodes
+     * @return the graph model of the new workspace
+     */
+    public static GraphModel generate(int nodes) {
+        ProjectController pc = Lookup.getDefault().lookup(ProjectController.class);
+        pc.newProject();
+        Workspace workspace = pc.getCurrentWorkspace();
+
+        RandomGraph generator = new RandomGraph();
+        generator.setNumberOfNodes(nodes);
+        generator.setWiringProbability(Math.min(1.0, AVERAGE_DEGREE / Math.max(1, nodes - 1)));
+        generator.setSeed(SEED);
+
+        Container container = Lookup.getDefault().lookup(ContainerFactory.class).newContainer();
+        generator.generate(container.getLoader());
+        container.closeLoader();
+
+        DefaultProcessor processor = new DefaultProcessor();
+        processor.setContainer(container.getUnloader());
+        processor.setWorkspace(workspace);
+        processor.process();
+
+        return Lookup.getDefault().lookup(GraphController.class).getGraphModel(workspace);
+    }
+
+    /**
+     * Places the nodes at random positions, with a fixed seed.
+     *
+     * @param graph the graph to place
+     * @param area the size of the square the nodes are placed in
+     */
+    public static void randomizePositions(Graph graph, float area) {
+        Random random = new Random(SEED);
+        for (Node n : graph.getNodes().toArray()) {
+            n.setX((random.nextFloat() - 0.5f) * area);
+            n.setY((random.nextFloat() - 0.5f) * area);
+        }
+    }
+
+    /**
+     * Closes the project created by {@link #generate(int)}.
+     */
+    public static void close() {
+        Lookup.getDefault().lookup(ProjectController.class).closeCurrentProject();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.gephi.filters.AbstractQueryImpl;
+import org.gephi.filters.api.FilterController;
+import org.gephi.filters.api.Query;
+import org.gephi.filters.api.Range;
+import org.gephi.filters.plugin.graph.DegreeRangeBuilder.DegreeRangeFilter;
+import org.gephi.filters.plugin.graph.KCoreBuilder.KCoreFilter;
+import org.gephi.filters.spi.Filter;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.GraphView;
+import org.gephi.project.api.ProjectController;
+import org.gephi.statistics.plugin.GraphSnapshotCache;
+import org.openide.util.Lookup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of a filter query, from the query to the resulting view. Cached
+ * query results and graph snapshots are cleared before each invocation, so
+ * the filters always run.
+ *
+ * @author Gephi Consortium
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FilterBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int nodes;
+    @Param({"DegreeRange", "KCore"})
+    public String filterName;
+    private GraphModel graphModel;
+    private FilterController filterController;
+    private Query query;
+    private GraphView view;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        graphModel = BenchmarkGraphs.generate(nodes);
+        filterController = Lookup.getDefault().lookup(FilterController.class);
+        Filter filter;
+        if (filterName.equals("KCore")) {
+            KCoreFilter kCoreFilter = new KCoreFilter();
+            kCoreFilter.setK((int) (BenchmarkGraphs.AVERAGE_DEGREE / 2));
+            filter = kCoreFilter;
+        } else {
+            DegreeRangeFilter degreeFilter = new DegreeRangeFilter();
+            degreeFilter.setRange(new Range(5, 15));
+            filter = degreeFilter;
+        }
+        query = filterController.createQuery(filter);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCaches() {
+        for (Query q : query.getDescendantsAndSelf()) {
+            ((AbstractQueryImpl) q).clearCache();
+        }
+        ProjectController pc = Lookup.getDefault().lookup(ProjectController.class);
+        GraphSnapshotCache cache = pc.getCurrentWorkspace().getLookup().lookup(GraphSnapshotCache.class);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    @Benchmark
+    public GraphView filter() {
+        view = filterController.filter(query);
+        return view;
+    }
+
+    @TearDown(Level.Invocation)
+    public void destroyView() {
+        if (view != null) {
+            graphModel.destroyView(view);
+            view = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkGraphs.close();
+    }
+}
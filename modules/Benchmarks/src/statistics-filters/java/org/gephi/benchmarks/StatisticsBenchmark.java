@@ -0,0 +1,121 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.gephi.data.attributes.api.AttributeController;
+import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.project.api.ProjectController;
+import org.gephi.statistics.plugin.GraphDistance;
+import org.gephi.statistics.plugin.GraphSnapshotCache;
+import org.gephi.statistics.plugin.PageRank;
+import org.gephi.statistics.spi.Statistics;
+import org.openide.util.Lookup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wall time of a complete statistics execution, including writing the
+ * attribute columns. The snapshot cache is cleared before each invocation so
+ * that the copy of the graph is measured too.
+ *
+ * @author Gephi Consortium
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StatisticsBenchmark {
+
+    @Param({"1000", "5000", "20000"})
+    public int nodes;
+    @Param({"PageRank", "GraphDistance"})
+    public String statisticsName;
+    private GraphModel graphModel;
+    private AttributeModel attributeModel;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        graphModel = BenchmarkGraphs.generate(nodes);
+        attributeModel = Lookup.getDefault().lookup(AttributeController.class).getModel();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearSnapshots() {
+        ProjectController pc = Lookup.getDefault().lookup(ProjectController.class);
+        GraphSnapshotCache cache = pc.getCurrentWorkspace().getLookup().lookup(GraphSnapshotCache.class);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    @Benchmark
+    public Statistics execute() {
+        Statistics statistics;
+        if (statisticsName.equals("GraphDistance")) {
+            statistics = new GraphDistance();
+        } else {
+            statistics = new PageRank();
+        }
+        statistics.execute(graphModel, attributeModel);
+        return statistics;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkGraphs.close();
+    }
+}
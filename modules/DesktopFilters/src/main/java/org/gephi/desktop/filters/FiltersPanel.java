@@ -45,6 +45,7 @@ import java.awt.BorderLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.Arrays;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
@@ -77,6 +78,7 @@ public class FiltersPanel extends javax.swing.JPanel implements ExplorerManager.
     private FilterPanelPanel filterPanelPanel;
     private QueryExplorer queriesExplorer;
     private QueriesPanel queriesPanel;
+    private JLabel cacheLabel;
 
     public FiltersPanel() {
         initComponents();
@@ -93,6 +95,9 @@ public class FiltersPanel extends javax.swing.JPanel implements ExplorerManager.
         southPanel.add(queriesPanel, BorderLayout.CENTER);
         filterPanelPanel = new FilterPanelPanel();
         filtersUIPanel.add(filterPanelPanel);
+        cacheLabel = new JLabel();
+        cacheLabel.setToolTipText(NbBundle.getMessage(FiltersPanel.class, "FiltersPanel.cacheLabel.toolTipText"));
+        southToolbar.add(cacheLabel);
 
         initEvents();
     }
@@ -239,10 +244,13 @@ public class FiltersPanel extends javax.swing.JPanel implements ExplorerManager.
                     filterButton.setSelected(filterModel.isFiltering());
                     selectButton.setSelected(filterModel.isSelecting());
                     /*autoRefreshButton.setSelected(filterModel.isAutoRefresh());*/
+                    cacheLabel.setText(NbBundle.getMessage(FiltersPanel.class, "FiltersPanel.cacheLabel.text",
+                            filterModel.getCacheHitCount(), filterModel.getCacheMissCount()));
                 } else {
                     filterButton.setSelected(false);
                     selectButton.setSelected(false);
                     /*autoRefreshButton.setSelected(false);*/
+                    cacheLabel.setText("");
                 }
             }
         });
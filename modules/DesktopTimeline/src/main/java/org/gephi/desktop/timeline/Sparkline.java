@@ -44,6 +44,7 @@ package org.gephi.desktop.timeline;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import org.gephi.timeline.api.TimelineChart;
+import org.gephi.timeline.api.TimelineChartSeries;
 import org.gephi.timeline.api.TimelineModel;
 import org.gephi.utils.sparklines.SparklineGraph;
 import org.gephi.utils.sparklines.SparklineParameters;
@@ -71,20 +72,26 @@ public class Sparkline {
             chart = newChart;
 
             if (chart != null) {
-                double minX = chart.getMinX().doubleValue();
-                double maxX = chart.getMaxX().doubleValue();
-                int sparklineWidth = (int) (((maxX - minX) / (max - min)) * width);
+                image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
 
-                parameters = new SparklineParameters(sparklineWidth, height);
-                parameters.setTransparentBackground(true);
-                parameters.setDrawArea(true);
+                //Only the visible part is drawn, with about one point per pixel
+                TimelineChartSeries series = chart.getSeries(min, max, Math.max(2, width));
+                if (series != null && series.getEndX() > series.getX(0)) {
+                    double minX = series.getX(0);
+                    double maxX = series.getEndX();
+                    int sparklineWidth = (int) (((maxX - minX) / (max - min)) * width);
+                    if (sparklineWidth > 0) {
+                        parameters = new SparklineParameters(sparklineWidth, height);
+                        parameters.setTransparentBackground(true);
+                        parameters.setDrawArea(true);
 
-                image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-                int sparklineX = (int) ((minX - min) / (max - min) * width);
-                BufferedImage sparklineImage = draw();
-                Graphics g = image.getGraphics();
-                g.drawImage(sparklineImage, sparklineX, 0, null);
-                g.dispose();
+                        int sparklineX = (int) ((minX - min) / (max - min) * width);
+                        BufferedImage sparklineImage = draw(series);
+                        Graphics g = image.getGraphics();
+                        g.drawImage(sparklineImage, sparklineX, 0, null);
+                        g.dispose();
+                    }
+                }
             } else {
                 return null;
             }
@@ -92,8 +99,18 @@ public class Sparkline {
         return image;
     }
 
-    private BufferedImage draw() {
-        BufferedImage img = SparklineGraph.draw(chart.getX(), chart.getY(), chart.getMinY(), chart.getMaxY(), parameters);
+    private BufferedImage draw(TimelineChartSeries series) {
+        //Max of each point so peaks stay visible, closed at the end of the series
+        int size = series.size();
+        Number[] xs = new Number[size + 1];
+        Number[] ys = new Number[size + 1];
+        for (int i = 0; i < size; i++) {
+            xs[i] = series.getX(i);
+            ys[i] = series.getMaxY(i);
+        }
+        xs[size] = series.getEndX();
+        ys[size] = series.getMaxY(size - 1);
+        BufferedImage img = SparklineGraph.draw(xs, ys, chart.getMinY(), chart.getMaxY(), parameters);
         return img;
     }
 }
@@ -41,6 +41,8 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.dynamic;
 
+import java.util.Arrays;
+import org.gephi.data.attributes.api.AttributeColumn;
 import org.gephi.data.attributes.api.AttributeController;
 import org.gephi.data.attributes.api.AttributeModel;
 import org.gephi.data.attributes.api.Estimator;
@@ -54,6 +56,7 @@ import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphModel;
 import org.gephi.graph.api.GraphView;
+import org.gephi.graph.api.HierarchicalGraph;
 import org.gephi.graph.api.Node;
 import org.openide.util.Lookup;
 
@@ -70,6 +73,13 @@ public final class DynamicGraphImpl implements DynamicGraph {
     private GraphView currentView;
     private double low;
     private double high;
+    //Snapshot indexes, with the versions of the source graph and of the
+    //time interval columns they were built from
+    private IntervalEventIndex<Node> nodeIndex;
+    private IntervalEventIndex<Edge> edgeIndex;
+    private int[] indexVersions;
+    private AttributeColumn nodeIntervalColumn;
+    private AttributeColumn edgeIntervalColumn;
 
     /**
      * Constructs a new {@code DynamicGraph} that wraps a given {@code Graph}.
@@ -286,41 +296,118 @@ public final class DynamicGraphImpl implements DynamicGraph {
 
         graph.writeLock();
 
-        if (attributeModel.getNodeTable().hasColumn(DynamicModel.TIMEINTERVAL_COLUMN)) {
-            for (Node n : graph.getNodes().toArray()) {
-                TimeInterval ti = (TimeInterval) n.getNodeData().getAttributes().getValue(DynamicModel.TIMEINTERVAL_COLUMN);
-                if (ti == null && !vgraph.contains(n)) {
-                    vgraph.addNode(n);
-                } else if (ti != null) {
-                    boolean isInRange = ti.isInRange(interval);
-                    boolean isInGraph = vgraph.contains(n);
-                    if (!isInRange && isInGraph) {
-                        vgraph.removeNode(n);
-                    } else if (isInRange && !isInGraph) {
-                        vgraph.addNode(n);
-                    }
-                }
+        if (isIndexStale()) {
+            buildIndexes(graph);
+            nodeIndex.moveTo(interval);
+            edgeIndex.moveTo(interval);
+
+            //Full pass, the view may differ from any previous window
+            for (int i = 0; i < nodeIndex.size(); i++) {
+                updateNode(graph, vgraph, i);
+            }
+            for (int i = 0; i < edgeIndex.size(); i++) {
+                updateEdge(vgraph, i);
+            }
+        } else {
+            //Only apply the elements entering or leaving the window
+            int nodeChanges = nodeIndex.moveTo(interval);
+            int edgeChanges = edgeIndex.moveTo(interval);
+            for (int i = 0; i < nodeChanges; i++) {
+                updateNode(graph, vgraph, nodeIndex.getChanged(i));
+            }
+            for (int i = 0; i < edgeChanges; i++) {
+                updateEdge(vgraph, edgeIndex.getChanged(i));
             }
         }
-        if (attributeModel.getEdgeTable().hasColumn(DynamicModel.TIMEINTERVAL_COLUMN)) {
-            for (Edge e : graph.getEdges().toArray()) {
-                TimeInterval ti = (TimeInterval) e.getEdgeData().getAttributes().getValue(DynamicModel.TIMEINTERVAL_COLUMN);
-                if (ti == null && !vgraph.contains(e)
+
+        graph.writeUnlock();
+        return vgraph;
+    }
+
+    private void updateNode(Graph graph, Graph vgraph, int slot) {
+        Node n = nodeIndex.getElement(slot);
+        boolean isInRange = nodeIndex.isVisible(slot);
+        boolean isInGraph = vgraph.contains(n);
+        if (!isInRange && isInGraph) {
+            vgraph.removeNode(n);
+        } else if (isInRange && !isInGraph) {
+            vgraph.addNode(n);
+            //Restore the edges removed with the node
+            for (Edge e : graph.getEdges(n).toArray()) {
+                int edgeSlot = edgeIndex.getSlot(e);
+                if (edgeSlot != -1 && edgeIndex.isVisible(edgeSlot) && !vgraph.contains(e)
                         && vgraph.contains(e.getSource()) && vgraph.contains(e.getTarget())) {
                     vgraph.addEdge(e);
-                } else if (ti != null) {
-                    boolean isInRange = ti.isInRange(interval);
-                    boolean isInGraph = vgraph.contains(e);
-                    if (!isInRange && isInGraph) {
-                        vgraph.removeEdge(e);
-                    } else if (isInRange && !isInGraph && vgraph.contains(e.getSource()) && vgraph.contains(e.getTarget())) {
-                        vgraph.addEdge(e);
-                    }
                 }
             }
         }
-        graph.writeUnlock();
-        return vgraph;
+    }
+
+    private void updateEdge(Graph vgraph, int slot) {
+        Edge e = edgeIndex.getElement(slot);
+        boolean isInRange = edgeIndex.isVisible(slot);
+        boolean isInGraph = vgraph.contains(e);
+        if (!isInRange && isInGraph) {
+            vgraph.removeEdge(e);
+        } else if (isInRange && !isInGraph
+                && vgraph.contains(e.getSource()) && vgraph.contains(e.getTarget())) {
+            vgraph.addEdge(e);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if nodes or edges were added to or removed
+     * from the source view, or if a time interval value was set, since the
+     * indexes were built. Versions are updated synchronously by the graph and
+     * the attribute columns, so no change can be missed.
+     */
+    private boolean isIndexStale() {
+        return nodeIndex == null
+                || nodeIntervalColumn != getIntervalColumn(true)
+                || edgeIntervalColumn != getIntervalColumn(false)
+                || !Arrays.equals(indexVersions, getVersions());
+    }
+
+    private AttributeColumn getIntervalColumn(boolean nodes) {
+        if (nodes) {
+            return attributeModel.getNodeTable().getColumn(DynamicModel.TIMEINTERVAL_COLUMN);
+        }
+        return attributeModel.getEdgeTable().getColumn(DynamicModel.TIMEINTERVAL_COLUMN);
+    }
+
+    private int[] getVersions() {
+        HierarchicalGraph hgraph = model.getHierarchicalGraph(sourceView);
+        AttributeColumn nodeColumn = getIntervalColumn(true);
+        AttributeColumn edgeColumn = getIntervalColumn(false);
+        return new int[]{
+                    hgraph.getNodeVersion(),
+                    hgraph.getEdgeVersion(),
+                    nodeColumn != null ? nodeColumn.getValueVersion() : -1,
+                    edgeColumn != null ? edgeColumn.getValueVersion() : -1};
+    }
+
+    private void buildIndexes(Graph graph) {
+        nodeIntervalColumn = getIntervalColumn(true);
+        edgeIntervalColumn = getIntervalColumn(false);
+        indexVersions = getVersions();
+
+        Node[] nodes = graph.getNodes().toArray();
+        TimeInterval[] nodeIntervals = new TimeInterval[nodes.length];
+        if (attributeModel.getNodeTable().hasColumn(DynamicModel.TIMEINTERVAL_COLUMN)) {
+            for (int i = 0; i < nodes.length; i++) {
+                nodeIntervals[i] = (TimeInterval) nodes[i].getNodeData().getAttributes().getValue(DynamicModel.TIMEINTERVAL_COLUMN);
+            }
+        }
+        nodeIndex = new IntervalEventIndex<Node>(nodes, nodeIntervals);
+
+        Edge[] edges = graph.getEdges().toArray();
+        TimeInterval[] edgeIntervals = new TimeInterval[edges.length];
+        if (attributeModel.getEdgeTable().hasColumn(DynamicModel.TIMEINTERVAL_COLUMN)) {
+            for (int i = 0; i < edges.length; i++) {
+                edgeIntervals[i] = (TimeInterval) edges[i].getEdgeData().getAttributes().getValue(DynamicModel.TIMEINTERVAL_COLUMN);
+            }
+        }
+        edgeIndex = new IntervalEventIndex<Edge>(edges, edgeIntervals);
     }
 
     @Override
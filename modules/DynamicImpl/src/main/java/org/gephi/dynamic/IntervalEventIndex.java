@@ -0,0 +1,296 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Gephi Consortium
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.dynamic;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.gephi.data.attributes.type.Interval;
+import org.gephi.data.attributes.type.TimeInterval;
+
+/**
+ * Time-sorted index of the enter and exit events of a set of elements, used to
+ * compute successive snapshots incrementally.
+ * <p>
+ * Each interval of an element produces an enter event at its low bound and an
+ * exit event at its high bound. For a window <code>[low, high]</code>, the
+ * intervals overlapping the window are those which entered before
+ * <code>high</code> minus those which exited before <code>low</code>. Both sets
+ * are prefixes of the sorted event arrays, so the index only keeps two cursors
+ * and a per-element counter of overlapping intervals. Moving to another window
+ * applies the events between the old and new cursors, in either direction, and
+ * reports the elements whose visibility may have changed.
+ * <p>
+ * Elements without time interval are always visible and have no events.
+ *
+ * @author Gephi Consortium
+ */
+final class IntervalEventIndex<E> {
+
+    private final E[] elements;
+    private final Map<E, Integer> slots;
+    private final boolean[] dynamic;
+    private final int[] counts;
+    //Enter events, sorted by time and bound
+    private final double[] enterTimes;
+    private final byte[] enterBounds;
+    private final int[] enterSlots;
+    //Exit events, sorted by time and bound
+    private final double[] exitTimes;
+    private final byte[] exitBounds;
+    private final int[] exitSlots;
+    private int enterCursor;
+    private int exitCursor;
+    //Elements touched by the last move
+    private int[] changed;
+    private int changedCount;
+    private final boolean[] changedFlags;
+
+    /**
+     * Builds the index of <code>elements</code>, whose time intervals are
+     * given at the same positions in <code>intervals</code>. The index is
+     * positioned before any event, call {@link #moveTo(Interval)} to position
+     * it on a window.
+     *
+     * @param elements the elements
+     * @param intervals the time interval of each element, or <code>null</code>
+     */
+    public IntervalEventIndex(E[] elements, TimeInterval[] intervals) {
+        this.elements = elements;
+        int size = elements.length;
+        slots = new HashMap<E, Integer>(size * 2);
+        dynamic = new boolean[size];
+        counts = new int[size];
+        changed = new int[16];
+        changedFlags = new boolean[size];
+
+        int eventCount = 0;
+        for (int i = 0; i < size; i++) {
+            slots.put(elements[i], i);
+            if (intervals[i] != null) {
+                dynamic[i] = true;
+                for (Interval interval : intervals[i].getIntervals()) {
+                    if (!isEmpty(interval)) {
+                        eventCount++;
+                    }
+                }
+            }
+        }
+
+        Event[] enters = new Event[eventCount];
+        Event[] exits = new Event[eventCount];
+        int e = 0;
+        for (int i = 0; i < size; i++) {
+            if (intervals[i] != null) {
+                for (Interval interval : intervals[i].getIntervals()) {
+                    if (!isEmpty(interval)) {
+                        enters[e] = new Event(interval.getLow(), interval.isLowExcluded() ? 1 : 0, i);
+                        exits[e] = new Event(interval.getHigh(), interval.isHighExcluded() ? 0 : 1, i);
+                        e++;
+                    }
+                }
+            }
+        }
+        Arrays.sort(enters);
+        Arrays.sort(exits);
+
+        enterTimes = new double[eventCount];
+        enterBounds = new byte[eventCount];
+        enterSlots = new int[eventCount];
+        exitTimes = new double[eventCount];
+        exitBounds = new byte[eventCount];
+        exitSlots = new int[eventCount];
+        for (int i = 0; i < eventCount; i++) {
+            enterTimes[i] = enters[i].time;
+            enterBounds[i] = enters[i].bound;
+            enterSlots[i] = enters[i].slot;
+            exitTimes[i] = exits[i].time;
+            exitBounds[i] = exits[i].bound;
+            exitSlots[i] = exits[i].slot;
+        }
+    }
+
+    /**
+     * Moves the index to <code>window</code> and returns the number of
+     * elements whose visibility may have changed since the previous position,
+     * which can then be obtained with {@link #getChanged(int)}.
+     *
+     * @param window the new window
+     * @return the number of changed elements
+     */
+    public int moveTo(Interval window) {
+        for (int i = 0; i < changedCount; i++) {
+            changedFlags[changed[i]] = false;
+        }
+        changedCount = 0;
+
+        //An interval entered if it starts before the window's high bound
+        int enter = countBefore(enterTimes, enterBounds, window.getHigh(), window.isHighExcluded() ? 0 : 1);
+        //An interval exited if it ends before the window's low bound
+        int exit = countBefore(exitTimes, exitBounds, window.getLow(), window.isLowExcluded() ? 2 : 1);
+
+        while (enterCursor < enter) {
+            increment(enterSlots[enterCursor++]);
+        }
+        while (enterCursor > enter) {
+            decrement(enterSlots[--enterCursor]);
+        }
+        while (exitCursor < exit) {
+            decrement(exitSlots[exitCursor++]);
+        }
+        while (exitCursor > exit) {
+            increment(exitSlots[--exitCursor]);
+        }
+        return changedCount;
+    }
+
+    /**
+     * Returns the slot of the <code>index</code>-th element touched by the last
+     * call to {@link #moveTo(Interval)}.
+     *
+     * @param index the index, between 0 and the value returned by moveTo
+     * @return the element slot
+     */
+    public int getChanged(int index) {
+        return changed[index];
+    }
+
+    public E getElement(int slot) {
+        return elements[slot];
+    }
+
+    /**
+     * Returns the slot of <code>element</code>, or <code>-1</code> if it
+     * isn't indexed.
+     *
+     * @param element the element
+     * @return the element slot or <code>-1</code>
+     */
+    public int getSlot(E element) {
+        Integer slot = slots.get(element);
+        return slot != null ? slot : -1;
+    }
+
+    public int size() {
+        return elements.length;
+    }
+
+    /**
+     * Returns <code>true</code> if the element at <code>slot</code> has no
+     * time interval or one of its intervals overlaps the current window.
+     *
+     * @param slot the element slot
+     * @return <code>true</code> if the element is in the current window
+     */
+    public boolean isVisible(int slot) {
+        return !dynamic[slot] || counts[slot] > 0;
+    }
+
+    private void increment(int slot) {
+        if (counts[slot]++ == 0) {
+            touch(slot);
+        }
+    }
+
+    private void decrement(int slot) {
+        if (--counts[slot] == 0) {
+            touch(slot);
+        }
+    }
+
+    private void touch(int slot) {
+        if (!changedFlags[slot]) {
+            changedFlags[slot] = true;
+            if (changedCount == changed.length) {
+                changed = Arrays.copyOf(changed, changedCount * 2);
+            }
+            changed[changedCount++] = slot;
+        }
+    }
+
+    /**
+     * Returns the number of events whose (time, bound) key is lower than
+     * (<code>time</code>, <code>bound</code>).
+     */
+    private static int countBefore(double[] times, byte[] bounds, double time, int bound) {
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time || (times[mid] == time && bounds[mid] < bound)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns <code>true</code> for <code>(t, t)</code> intervals, whose exit
+     * event would be applied without their enter event on a <code>[t, t]</code>
+     * window and leave the element's counter negative.
+     */
+    private static boolean isEmpty(Interval interval) {
+        return interval.getLow() == interval.getHigh()
+                && interval.isLowExcluded() && interval.isHighExcluded();
+    }
+
+    private static final class Event implements Comparable<Event> {
+
+        private final double time;
+        private final byte bound;
+        private final int slot;
+
+        public Event(double time, int bound, int slot) {
+            this.time = time;
+            this.bound = (byte) bound;
+            this.slot = slot;
+        }
+
+        @Override
+        public int compareTo(Event o) {
+            int c = Double.compare(time, o.time);
+            return c != 0 ? c : bound - o.bound;
+        }
+    }
+}
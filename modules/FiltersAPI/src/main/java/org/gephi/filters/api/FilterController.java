@@ -181,6 +181,17 @@ public interface FilterController {
 
     public void setAutoRefresh(boolean autoRefresh);
 
+    /**
+     * Sets how long auto-refresh waits after graph changes. The current query
+     * is refreshed once the graph stayed unchanged for <code>delay</code>, or
+     * <code>maxDelay</code> after the first change at the latest. Negative
+     * values are taken as zero.
+     * @param delay         the time the graph has to stay unchanged, in milliseconds
+     * @param maxDelay      the maximum time between the first change and the
+     * refresh, in milliseconds
+     */
+    public void setAutoRefreshDelay(int delay, int maxDelay);
+
     public void setCurrentQuery(Query query);
 
     /**
@@ -90,6 +90,35 @@ public interface FilterModel {
 
     public boolean isAutoRefresh();
 
+    /**
+     * Returns how long, in milliseconds, the graph has to stay unchanged
+     * before the current query is refreshed, when auto-refresh is enabled.
+     * @return          the auto-refresh delay
+     */
+    public int getAutoRefreshDelay();
+
+    /**
+     * Returns the maximum time, in milliseconds, between the first graph
+     * change and the refresh, so a graph which keeps changing still gets
+     * refreshed.
+     * @return          the maximum auto-refresh delay
+     */
+    public int getAutoRefreshMaxDelay();
+
+    /**
+     * Returns the number of sub-queries whose result was reused from the
+     * cache, since the current query was set.
+     * @return          the number of cache hits
+     */
+    public int getCacheHitCount();
+
+    /**
+     * Returns the number of sub-queries which were evaluated again, since the
+     * current query was set.
+     * @return          the number of cache misses
+     */
+    public int getCacheMissCount();
+
     public void addChangeListener(ChangeListener listener);
 
     public void removeChangeListener(ChangeListener listener);
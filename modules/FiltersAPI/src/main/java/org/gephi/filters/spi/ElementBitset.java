@@ -0,0 +1,189 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Gephi Consortium
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+*/
+package org.gephi.filters.spi;
+
+import java.util.BitSet;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+
+/**
+ * Set of nodes and edges kept by a filter, stored as bitsets indexed by node
+ * and edge ids. All sets of a query are subsets of the same complete graph,
+ * returned by {@link #getGraph()}.
+ * <p>
+ * Bitsets let the filter processor evaluate whole queries without creating a
+ * graph view for each filter. Only the final result is materialised.
+ * <p>
+ * The set of a single filter is not pruned: a node filter keeps all edges
+ * and an edge filter keeps all nodes, which is reported by
+ * {@link #isNodeFiltered()} and {@link #isEdgeFiltered()}. Operators combining
+ * such sets can thus behave like <code>Operator.filter(Graph, Filter[])</code>,
+ * for instance a union keeps an edge whose endpoints come from different
+ * node filters. Sets returned by operators are graphs: dangling edges are
+ * removed and both flags are set.
+ *
+ * @author Gephi Consortium
+ * @see BitsetOperator
+ */
+public final class ElementBitset {
+
+    private final HierarchicalGraph graph;
+    private final BitSet nodes;
+    private final BitSet edges;
+    private boolean nodeFiltered;
+    private boolean edgeFiltered;
+
+    /**
+     * Creates an empty set over <code>graph</code>.
+     *
+     * @param graph the complete graph
+     */
+    public ElementBitset(HierarchicalGraph graph) {
+        this(graph, new BitSet(), new BitSet());
+    }
+
+    private ElementBitset(HierarchicalGraph graph, BitSet nodes, BitSet edges) {
+        this.graph = graph;
+        this.nodes = nodes;
+        this.edges = edges;
+    }
+
+    /**
+     * Creates a set with all the nodes, edges and meta edges of
+     * <code>graph</code>.
+     *
+     * @param graph the complete graph
+     * @return a full set
+     */
+    public static ElementBitset full(HierarchicalGraph graph) {
+        ElementBitset set = new ElementBitset(graph);
+        for (Node n : graph.getNodes()) {
+            set.nodes.set(n.getId());
+        }
+        for (Edge e : graph.getEdgesAndMetaEdges()) {
+            set.edges.set(e.getId());
+        }
+        return set;
+    }
+
+    /**
+     * Returns the complete graph the elements are taken from.
+     *
+     * @return the complete graph
+     */
+    public HierarchicalGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the bitset of nodes ids, which can be modified.
+     *
+     * @return the nodes bitset
+     */
+    public BitSet getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the bitset of edges and meta edges ids, which can be modified.
+     *
+     * @return the edges bitset
+     */
+    public BitSet getEdges() {
+        return edges;
+    }
+
+    /**
+     * Returns <code>true</code> if the nodes were selected by a filter, and
+     * <code>false</code> if all nodes are kept because only edges are
+     * filtered.
+     *
+     * @return <code>true</code> if nodes are filtered
+     */
+    public boolean isNodeFiltered() {
+        return nodeFiltered;
+    }
+
+    /**
+     * Returns <code>true</code> if the edges were selected by a filter, and
+     * <code>false</code> if all edges are kept because only nodes are
+     * filtered.
+     *
+     * @return <code>true</code> if edges are filtered
+     */
+    public boolean isEdgeFiltered() {
+        return edgeFiltered;
+    }
+
+    public void setFiltered(boolean nodeFiltered, boolean edgeFiltered) {
+        this.nodeFiltered = nodeFiltered;
+        this.edgeFiltered = edgeFiltered;
+    }
+
+    public boolean contains(Node node) {
+        return nodes.get(node.getId());
+    }
+
+    public boolean contains(Edge edge) {
+        return edges.get(edge.getId());
+    }
+
+    /**
+     * Removes the edges whose source or target is not in the set, as removing
+     * a node from a graph removes its edges.
+     */
+    public void removeDanglingEdges() {
+        for (Edge e : graph.getEdgesAndMetaEdges()) {
+            int id = e.getId();
+            if (edges.get(id) && (!nodes.get(e.getSource().getId()) || !nodes.get(e.getTarget().getId()))) {
+                edges.clear(id);
+            }
+        }
+    }
+
+    public ElementBitset copy() {
+        ElementBitset copy = new ElementBitset(graph, (BitSet) nodes.clone(), (BitSet) edges.clone());
+        copy.setFiltered(nodeFiltered, edgeFiltered);
+        return copy;
+    }
+}
@@ -49,6 +49,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import org.gephi.filters.api.Query;
+import org.gephi.filters.spi.ElementBitset;
 import org.gephi.filters.spi.Filter;
 import org.gephi.filters.spi.Operator;
 import org.gephi.graph.api.Graph;
@@ -62,6 +63,10 @@ public abstract class AbstractQueryImpl implements Query {
     protected List<AbstractQueryImpl> children;
     protected Query parent;
     protected Graph result;
+    //Cache
+    private ElementBitset cachedResult;
+    private Object[] cachedKey;
+    private long cachedStamp;
 
     public AbstractQueryImpl() {
         this.children = new ArrayList<AbstractQueryImpl>();
@@ -116,6 +121,36 @@ public abstract class AbstractQueryImpl implements Query {
         return result;
     }
 
+    /**
+     * Returns a copy of the cached result if it was computed with the same
+     * <code>key</code>, or <code>null</code>.
+     */
+    public synchronized ElementBitset getCachedResult(Object[] key) {
+        if (cachedResult != null && Arrays.equals(cachedKey, key)) {
+            return cachedResult.copy();
+        }
+        return null;
+    }
+
+    public synchronized void setCachedResult(ElementBitset result, Object[] key, long stamp) {
+        this.cachedResult = result.copy();
+        this.cachedKey = key;
+        this.cachedStamp = stamp;
+    }
+
+    /**
+     * Returns the stamp of the cached result, which changes each time the
+     * result is computed again. Parents use it in their own key.
+     */
+    public synchronized long getCachedStamp() {
+        return cachedStamp;
+    }
+
+    public synchronized void clearCache() {
+        cachedResult = null;
+        cachedKey = null;
+    }
+
     public AbstractQueryImpl getRoot() {
         AbstractQueryImpl root = this;
         while (root.getParent() != null) {
@@ -41,23 +41,40 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.filters;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import org.gephi.filters.api.Query;
+import org.gephi.filters.spi.PositionFilter;
 import org.gephi.graph.api.GraphEvent;
 import org.gephi.graph.api.GraphListener;
 import org.gephi.graph.api.GraphModel;
 import org.openide.util.Exceptions;
 
 /**
+ * Refreshes the current query when the main graph changes. Events are
+ * coalesced and the refresh waits until no event came for the debounce
+ * delay, or until the maximum delay is reached under a continuous stream of
+ * events. The thread sleeps while no event is pending.
+ * <p>
+ * Structure changes always refresh the query. Position changes only refresh
+ * queries that contain a {@link PositionFilter}, as other filters don't
+ * depend on positions.
  *
  * @author Mathieu Bastian
  */
 public class FilterAutoRefreshor extends Thread implements GraphListener {
 
-    private static final int TIMER = 1000;
+    private static final int STRUCTURE_CHANGED = 1;
+    private static final int POSITIONS_CHANGED = 2;
     private final GraphModel graphModel;
     private final FilterModelImpl filterModel;
-    private boolean running = true;
-    private AtomicBoolean refresh = new AtomicBoolean(false);
+    private final Object lock = new Object();
+    private volatile boolean running = true;
+    //Settings
+    private volatile int delay = 300;
+    private volatile int maxDelay = 2000;
+    //Pending events, guarded by lock
+    private int pendingChanges;
+    private long firstEventTime;
+    private long lastEventTime;
 
     public FilterAutoRefreshor(FilterModelImpl filterModel, GraphModel graphModel) {
         super("Filter Auto-Refresh");
@@ -70,10 +87,30 @@ public class FilterAutoRefreshor extends Thread implements GraphListener {
     public void run() {
         while (running) {
             try {
-                if (refresh.compareAndSet(true, false)) {
+                int changes;
+                synchronized (lock) {
+                    while (running && pendingChanges == 0) {
+                        lock.wait();
+                    }
+                    //Debounce
+                    long now = System.currentTimeMillis();
+                    long wait = Math.min(lastEventTime + delay, firstEventTime + maxDelay) - now;
+                    while (running && pendingChanges != 0 && wait > 0) {
+                        lock.wait(wait);
+                        now = System.currentTimeMillis();
+                        wait = Math.min(lastEventTime + delay, firstEventTime + maxDelay) - now;
+                    }
+                    if (!running || pendingChanges == 0) {
+                        continue;
+                    }
+                    changes = pendingChanges;
+                    pendingChanges = 0;
+                }
+                //The query may have changed since the positions were collected
+                if ((changes & STRUCTURE_CHANGED) != 0
+                        || ((changes & POSITIONS_CHANGED) != 0 && isPositionDependent())) {
                     manualRefresh();
                 }
-                Thread.sleep(TIMER);
             } catch (InterruptedException ex) {
                 Exceptions.printStackTrace(ex);
             }
@@ -85,7 +122,7 @@ public class FilterAutoRefreshor extends Thread implements GraphListener {
             graphModel.addGraphListener(this);
         } else {
             graphModel.removeGraphListener(this);
-            refresh.set(false);
+            clearPendingChanges();
         }
         if (!isAlive()) {
             start();
@@ -93,11 +130,26 @@ public class FilterAutoRefreshor extends Thread implements GraphListener {
     }
 
     public void graphChanged(GraphEvent event) {
-        if (event.getSource().isMainView() && event.is(GraphEvent.EventType.ADD_NODES_AND_EDGES,
-                GraphEvent.EventType.REMOVE_NODES_AND_EDGES,
-                GraphEvent.EventType.MOVE_NODES)) {
-            refresh.set(true);
-            //System.out.println("set refresh true");
+        if (!event.getSource().isMainView()) {
+            return;
+        }
+        int changes = 0;
+        if (event.is(GraphEvent.EventType.ADD_NODES_AND_EDGES, GraphEvent.EventType.REMOVE_NODES_AND_EDGES)) {
+            changes |= STRUCTURE_CHANGED;
+        }
+        if (event.is(GraphEvent.EventType.MOVE_NODES) && isPositionDependent()) {
+            changes |= POSITIONS_CHANGED;
+        }
+        if (changes != 0) {
+            synchronized (lock) {
+                long now = System.currentTimeMillis();
+                if (pendingChanges == 0) {
+                    firstEventTime = now;
+                    lock.notify();
+                }
+                lastEventTime = now;
+                pendingChanges |= changes;
+            }
         }
     }
 
@@ -105,8 +157,31 @@ public class FilterAutoRefreshor extends Thread implements GraphListener {
         this.running = running;
         if (!running) {
             graphModel.removeGraphListener(this);
-            refresh.set(false);
+            clearPendingChanges();
+        }
+    }
+
+    private void clearPendingChanges() {
+        synchronized (lock) {
+            pendingChanges = 0;
+            lock.notify();
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the current query contains a filter
+     * depending on node positions.
+     */
+    private boolean isPositionDependent() {
+        Query query = filterModel.getCurrentQuery();
+        if (query != null) {
+            for (Query q : query.getDescendantsAndSelf()) {
+                if (q.getFilter() instanceof PositionFilter) {
+                    return true;
+                }
+            }
         }
+        return false;
     }
 
     public void manualRefresh() {
@@ -114,4 +189,28 @@ public class FilterAutoRefreshor extends Thread implements GraphListener {
             filterModel.getFilterThread().setRootQuery((AbstractQueryImpl) filterModel.getCurrentQuery());
         }
     }
+
+    public int getDelay() {
+        return delay;
+    }
+
+    /**
+     * Sets how long, in milliseconds, the graph has to stay unchanged before
+     * the query is refreshed.
+     */
+    public void setDelay(int delay) {
+        this.delay = Math.max(0, delay);
+    }
+
+    public int getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Sets the maximum time, in milliseconds, between the first pending event
+     * and the refresh, so a continuous stream of events still refreshes.
+     */
+    public void setMaxDelay(int maxDelay) {
+        this.maxDelay = Math.max(0, maxDelay);
+    }
 }
@@ -218,6 +218,7 @@ public class FilterControllerImpl implements FilterController, PropertyExecutor
             model.setFilterThread(null);
         }
         if (query != null) {
+            clearCache((AbstractQueryImpl) query);
             FilterThread filterThread = new FilterThread(model);
             model.setFilterThread(filterThread);
             filterThread.setRootQuery((AbstractQueryImpl) query);
@@ -231,7 +232,18 @@ public class FilterControllerImpl implements FilterController, PropertyExecutor
         }
     }
 
+    private void clearCache(AbstractQueryImpl query) {
+        //Filters may depend on state outside of the cache key, start from fresh results when the query is applied
+        for (Query q : query.getDescendantsAndSelf()) {
+            ((AbstractQueryImpl) q).clearCache();
+        }
+        if (model != null) {
+            model.resetCacheStatistics();
+        }
+    }
+
     public GraphView filter(Query query) {
+        clearCache((AbstractQueryImpl) query);
         FilterProcessor processor = new FilterProcessor();
         GraphModel graphModel = Lookup.getDefault().lookup(GraphController.class).getModel();
         Graph result = processor.process((AbstractQueryImpl) query, graphModel);
@@ -257,6 +269,7 @@ public class FilterControllerImpl implements FilterController, PropertyExecutor
         }
 
         if (query != null) {
+            clearCache((AbstractQueryImpl) query);
             FilterThread filterThread = new FilterThread(model);
             model.setFilterThread(filterThread);
             filterThread.setRootQuery((AbstractQueryImpl) query);
@@ -369,6 +382,12 @@ public class FilterControllerImpl implements FilterController, PropertyExecutor
         }
     }
 
+    public void setAutoRefreshDelay(int delay, int maxDelay) {
+        if (model != null) {
+            model.setAutoRefreshDelay(delay, maxDelay);
+        }
+    }
+
     public void setCurrentQuery(Query query) {
         if (model != null) {
             model.setCurrentQuery(query);
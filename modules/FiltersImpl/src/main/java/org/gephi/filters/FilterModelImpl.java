@@ -44,6 +44,7 @@ package org.gephi.filters;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import org.gephi.filters.api.FilterLibrary;
@@ -73,6 +74,8 @@ public class FilterModelImpl implements FilterModel {
     private GraphView currentResult;
     private boolean autoRefresh;
     private FilterAutoRefreshor autoRefreshor;
+    private final AtomicInteger cacheHitCount = new AtomicInteger();
+    private final AtomicInteger cacheMissCount = new AtomicInteger();
     //Listeners
     private List<ChangeListener> listeners;
 
@@ -209,6 +212,20 @@ public class FilterModelImpl implements FilterModel {
         }
     }
 
+    public int getAutoRefreshDelay() {
+        return autoRefreshor.getDelay();
+    }
+
+    public int getAutoRefreshMaxDelay() {
+        return autoRefreshor.getMaxDelay();
+    }
+
+    public void setAutoRefreshDelay(int delay, int maxDelay) {
+        autoRefreshor.setDelay(delay);
+        autoRefreshor.setMaxDelay(maxDelay);
+        fireChangeEvent();
+    }
+
     public Query getCurrentQuery() {
         return currentQuery;
     }
@@ -278,6 +295,24 @@ public class FilterModelImpl implements FilterModel {
         return currentResult;
     }
 
+    public int getCacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    public int getCacheMissCount() {
+        return cacheMissCount.get();
+    }
+
+    public void addCacheStatistics(int hits, int misses) {
+        cacheHitCount.addAndGet(hits);
+        cacheMissCount.addAndGet(misses);
+    }
+
+    public void resetCacheStatistics() {
+        cacheHitCount.set(0);
+        cacheMissCount.set(0);
+    }
+
     public GraphModel getGraphModel() {
         return graphModel;
     }
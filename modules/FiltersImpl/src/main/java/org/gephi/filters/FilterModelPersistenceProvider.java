@@ -107,6 +107,8 @@ public class FilterModelPersistenceProvider implements WorkspacePersistenceProvi
     public void writeXML(XMLStreamWriter writer) throws XMLStreamException {
         writer.writeStartElement("filtermodel");
         writer.writeAttribute("autorefresh", String.valueOf(model.isAutoRefresh()));
+        writer.writeAttribute("autorefreshdelay", String.valueOf(model.getAutoRefreshDelay()));
+        writer.writeAttribute("autorefreshmaxdelay", String.valueOf(model.getAutoRefreshMaxDelay()));
 
         //Queries
         writer.writeStartElement("queries");
@@ -169,6 +171,15 @@ public class FilterModelPersistenceProvider implements WorkspacePersistenceProvi
         if (autofresh != null && !autofresh.isEmpty()) {
             model.setAutoRefresh(Boolean.parseBoolean(autofresh));
         }
+        String delay = reader.getAttributeValue(null, "autorefreshdelay");
+        String maxDelay = reader.getAttributeValue(null, "autorefreshmaxdelay");
+        if (delay != null && !delay.isEmpty() && maxDelay != null && !maxDelay.isEmpty()) {
+            try {
+                model.setAutoRefreshDelay(Integer.parseInt(delay), Integer.parseInt(maxDelay));
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
 
         Map<Integer, Query> idMap = new HashMap<Integer, Query>();
         boolean end = false;
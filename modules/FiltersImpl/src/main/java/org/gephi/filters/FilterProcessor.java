@@ -44,9 +44,12 @@ package org.gephi.filters;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.gephi.data.attributes.api.AttributeModel;
 import org.gephi.filters.api.Range;
 import org.gephi.filters.spi.*;
 import org.gephi.graph.api.*;
+import org.gephi.project.api.Workspace;
 
 /**
  *
@@ -54,8 +57,18 @@ import org.gephi.graph.api.*;
  */
 public class FilterProcessor {
 
+    private static final AtomicLong CACHE_STAMPS = new AtomicLong();
+    private final ParallelPredicateEvaluator evaluator = new ParallelPredicateEvaluator();
+    private boolean bitsetMode = true;
+    private int cacheHits;
+    private int cacheMisses;
+
     public Graph process(AbstractQueryImpl query, GraphModel graphModel) {
         List<GraphView> views = new ArrayList<GraphView>();
+        if (bitsetMode && isBitsetCompatible(query)) {
+            //Evaluated on the query itself, so results are cached on its nodes
+            return processBitsets(query, graphModel);
+        }
         query = simplifyQuery(query);
         AbstractQueryImpl[] tree = getTree(query, true);
         for (int i = 0; i < tree.length; i++) {
@@ -127,44 +140,270 @@ public class FilterProcessor {
         return finalResult;
     }
 
+    /**
+     * Evaluates the query on bitsets of the main graph and creates a single
+     * view with the result, instead of one view per leaf. Sub-queries whose
+     * parameters, graph versions and attribute value versions didn't change
+     * reuse their cached result.
+     */
+    private Graph processBitsets(AbstractQueryImpl query, GraphModel graphModel) {
+        HierarchicalGraph mainHGraph = graphModel.getHierarchicalGraph();
+        ElementBitset set = evaluate(query, mainHGraph, getVersions(mainHGraph, graphModel));
+
+        GraphView newView = graphModel.newView();
+        HierarchicalGraph result = graphModel.getHierarchicalGraph(newView);
+        List<Node> nodesToRemove = new ArrayList<Node>();
+        for (Node n : result.getNodes()) {
+            if (!set.getNodes().get(n.getId())) {
+                nodesToRemove.add(n);
+            }
+        }
+        for (Node n : nodesToRemove) {
+            result.removeNode(n);
+        }
+
+        List<Edge> edgesToRemove = new ArrayList<Edge>();
+        for (Edge e : result.getEdges()) {
+            if (!set.getEdges().get(e.getId())) {
+                edgesToRemove.add(e);
+            }
+        }
+        for (Edge e : edgesToRemove) {
+            result.removeEdge(e);
+        }
+        edgesToRemove.clear();
+
+        for (Edge e : result.getMetaEdges()) {
+            if (!set.getEdges().get(e.getId())) {
+                edgesToRemove.add(e);
+            }
+        }
+        for (Edge e : edgesToRemove) {
+            result.removeMetaEdge(e);
+        }
+        return result;
+    }
+
+    private ElementBitset evaluate(AbstractQueryImpl query, HierarchicalGraph mainHGraph, int[] versions) {
+        //Children first, their stamps are part of the key
+        ElementBitset[] sets = new ElementBitset[query.getChildrenCount()];
+        for (int i = 0; i < sets.length; i++) {
+            sets[i] = evaluate(query.getChildAt(i), mainHGraph, versions);
+        }
+        ElementBitset result = query.getCachedResult(getCacheKey(query, versions));
+        if (result != null) {
+            cacheHits++;
+            return result;
+        }
+        cacheMisses++;
+
+        if (query instanceof OperatorQueryImpl) {
+            BitsetOperator op = (BitsetOperator) query.getFilter();
+            if (sets.length == 0) {
+                sets = new ElementBitset[]{ElementBitset.full(mainHGraph)};
+                sets[0].setFiltered(true, true);
+            } else if (!isSimple(query)) {
+                //Inputs are graphs in the view pipeline when an operator has subqueries
+                for (ElementBitset set : sets) {
+                    set.removeDanglingEdges();
+                    set.setFiltered(true, true);
+                }
+            }
+            result = op.filter(sets);
+            result.removeDanglingEdges();
+            result.setFiltered(true, true);
+        } else {
+            //Not pruned, so that simple operators see what each filter selected
+            Filter filter = query.getFilter();
+            result = ElementBitset.full(mainHGraph);
+            boolean nodeFiltered = false;
+            boolean edgeFiltered = false;
+            if (filter instanceof NodeFilter) {
+                nodeFiltered = evaluateNodeFilter((NodeFilter) filter, result);
+            }
+            if (filter instanceof EdgeFilter) {
+                edgeFiltered = evaluateEdgeFilter((EdgeFilter) filter, result);
+            }
+            if (filter instanceof AttributableFilter && !(filter instanceof NodeFilter || filter instanceof EdgeFilter)) {
+                boolean nodeType = ((AttributableFilter) filter).getType().equals(AttributableFilter.Type.NODE);
+                boolean applied = evaluateAttributableFilter((AttributableFilter) filter, result);
+                nodeFiltered = applied && nodeType;
+                edgeFiltered = applied && !nodeType;
+            }
+            result.setFiltered(nodeFiltered, edgeFiltered);
+        }
+
+        //Range filters may update their range in init(), so the key is read afterwards
+        query.setCachedResult(result, getCacheKey(query, versions), CACHE_STAMPS.incrementAndGet());
+        return result;
+    }
+
+    /**
+     * Returns the node and edge versions of the graph and the value versions
+     * of the node and edge tables, so results are computed again when a
+     * statistic or an edit changes an attribute value.
+     */
+    private int[] getVersions(HierarchicalGraph mainHGraph, GraphModel graphModel) {
+        int nodeValueVersion = -1;
+        int edgeValueVersion = -1;
+        Workspace workspace = graphModel.getWorkspace();
+        AttributeModel attributeModel = workspace != null ? workspace.getLookup().lookup(AttributeModel.class) : null;
+        if (attributeModel != null) {
+            nodeValueVersion = attributeModel.getNodeTable().getValueVersion();
+            edgeValueVersion = attributeModel.getEdgeTable().getValueVersion();
+        }
+        return new int[]{mainHGraph.getNodeVersion(), mainHGraph.getEdgeVersion(), nodeValueVersion, edgeValueVersion};
+    }
+
+    private Object[] getCacheKey(AbstractQueryImpl query, int[] versions) {
+        List<Object> key = new ArrayList<Object>();
+        for (int version : versions) {
+            key.add(version);
+        }
+        FilterProperty[] properties = query.getFilter().getProperties();
+        if (properties != null) {
+            for (FilterProperty property : properties) {
+                key.add(property.getValue());
+            }
+        }
+        for (int i = 0; i < query.getChildrenCount(); i++) {
+            key.add(query.getChildAt(i).getCachedStamp());
+        }
+        return key.toArray();
+    }
+
+    private boolean evaluateNodeFilter(NodeFilter nodeFilter, ElementBitset set) {
+        HierarchicalGraph hgraph = set.getGraph();
+        if (init(nodeFilter, hgraph)) {
+            Node[] nodes = hgraph.getNodes().toArray();
+            clearNodes(set, nodes, evaluator.evaluate(nodeFilter, hgraph, nodes));
+            nodeFilter.finish();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean evaluateEdgeFilter(EdgeFilter edgeFilter, ElementBitset set) {
+        HierarchicalGraph hgraph = set.getGraph();
+        if (init(edgeFilter, hgraph)) {
+            Edge[] edges = hgraph.getEdgesAndMetaEdges().toArray();
+            clearEdges(set, edges, evaluator.evaluate(edgeFilter, hgraph, edges));
+            edgeFilter.finish();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean evaluateAttributableFilter(AttributableFilter attributableFilter, ElementBitset set) {
+        HierarchicalGraph hgraph = set.getGraph();
+        if (init(attributableFilter, hgraph)) {
+            if (attributableFilter.getType().equals(AttributableFilter.Type.NODE)) {
+                Node[] nodes = hgraph.getNodes().toArray();
+                clearNodes(set, nodes, evaluator.evaluate(attributableFilter, hgraph, nodes));
+            } else {
+                Edge[] edges = hgraph.getEdgesAndMetaEdges().toArray();
+                clearEdges(set, edges, evaluator.evaluate(attributableFilter, hgraph, edges));
+            }
+            attributableFilter.finish();
+            return true;
+        }
+        return false;
+    }
+
+    private void clearNodes(ElementBitset set, Node[] nodes, boolean[] keep) {
+        for (int i = 0; i < nodes.length; i++) {
+            if (!keep[i]) {
+                set.getNodes().clear(nodes[i].getId());
+            }
+        }
+    }
+
+    private void clearEdges(ElementBitset set, Edge[] edges, boolean[] keep) {
+        for (int i = 0; i < edges.length; i++) {
+            if (!keep[i]) {
+                set.getEdges().clear(edges[i].getId());
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the query only combines node, edge and
+     * attributable filters with {@link BitsetOperator} operators. Filters
+     * with subqueries and complex filters depend on their filtered input
+     * graph and need the view pipeline.
+     */
+    private boolean isSimple(AbstractQueryImpl query) {
+        for (int i = 0; i < query.getChildrenCount(); i++) {
+            if (query.getChildAt(i).getChildrenCount() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isBitsetCompatible(AbstractQueryImpl query) {
+        if (query instanceof OperatorQueryImpl) {
+            if (!(query.getFilter() instanceof BitsetOperator)) {
+                return false;
+            }
+            for (int i = 0; i < query.getChildrenCount(); i++) {
+                if (!isBitsetCompatible(query.getChildAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Filter filter = query.getFilter();
+        return query.getChildrenCount() == 0
+                && (filter instanceof NodeFilter || filter instanceof EdgeFilter || filter instanceof AttributableFilter);
+    }
+
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    public int getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public boolean isBitsetMode() {
+        return bitsetMode;
+    }
+
+    public void setBitsetMode(boolean bitsetMode) {
+        this.bitsetMode = bitsetMode;
+    }
+
     private void processAttributableFilter(AttributableFilter attributableFilter, Graph graph) {
         if (((AttributableFilter) attributableFilter).getType().equals(AttributableFilter.Type.NODE)) {
             if (init(attributableFilter, graph)) {
-                List<Node> nodesToRemove = new ArrayList<Node>();
-                for (Node n : graph.getNodes()) {
-                    if (!attributableFilter.evaluate(graph, n)) {
-                        nodesToRemove.add(n);
+                Node[] nodes = graph.getNodes().toArray();
+                boolean[] keep = evaluator.evaluate(attributableFilter, graph, nodes);
+                for (int i = 0; i < nodes.length; i++) {
+                    if (!keep[i]) {
+                        graph.removeNode(nodes[i]);
                     }
                 }
-
-                for (Node n : nodesToRemove) {
-                    graph.removeNode(n);
-                }
                 attributableFilter.finish();
             }
         } else {
             HierarchicalGraph hgraph = (HierarchicalGraph) graph;
             if (init(attributableFilter, graph)) {
-                List<Edge> edgesToRemove = new ArrayList<Edge>();
-                for (Edge e : hgraph.getEdges()) {
-                    if (!attributableFilter.evaluate(hgraph, e)) {
-                        edgesToRemove.add(e);
+                Edge[] edges = hgraph.getEdges().toArray();
+                boolean[] keep = evaluator.evaluate(attributableFilter, hgraph, edges);
+                for (int i = 0; i < edges.length; i++) {
+                    if (!keep[i]) {
+                        hgraph.removeEdge(edges[i]);
                     }
                 }
 
-                for (Edge e : edgesToRemove) {
-                    hgraph.removeEdge(e);
-                }
-                edgesToRemove.clear();
-
-                for (Edge e : hgraph.getMetaEdges()) {
-                    if (!attributableFilter.evaluate(hgraph, e)) {
-                        edgesToRemove.add(e);
+                Edge[] metaEdges = hgraph.getMetaEdges().toArray();
+                keep = evaluator.evaluate(attributableFilter, hgraph, metaEdges);
+                for (int i = 0; i < metaEdges.length; i++) {
+                    if (!keep[i]) {
+                        hgraph.removeMetaEdge(metaEdges[i]);
                     }
                 }
-                for (Edge e : edgesToRemove) {
-                    hgraph.removeMetaEdge(e);
-                }
 
                 attributableFilter.finish();
             }
@@ -173,16 +412,13 @@ public class FilterProcessor {
 
     private void processNodeFilter(NodeFilter nodeFilter, Graph graph) {
         if (init(nodeFilter, graph)) {
-            List<Node> nodesToRemove = new ArrayList<Node>();
-            for (Node n : graph.getNodes()) {
-                if (!nodeFilter.evaluate(graph, n)) {
-                    nodesToRemove.add(n);
+            Node[] nodes = graph.getNodes().toArray();
+            boolean[] keep = evaluator.evaluate(nodeFilter, graph, nodes);
+            for (int i = 0; i < nodes.length; i++) {
+                if (!keep[i]) {
+                    graph.removeNode(nodes[i]);
                 }
             }
-
-            for (Node n : nodesToRemove) {
-                graph.removeNode(n);
-            }
             nodeFilter.finish();
         }
     }
@@ -190,26 +426,21 @@ public class FilterProcessor {
     private void processEdgeFilter(EdgeFilter edgeFilter, Graph graph) {
         HierarchicalGraph hgraph = (HierarchicalGraph) graph;
         if (init(edgeFilter, graph)) {
-            List<Edge> edgesToRemove = new ArrayList<Edge>();
-            for (Edge e : hgraph.getEdges()) {
-                if (!edgeFilter.evaluate(hgraph, e)) {
-                    edgesToRemove.add(e);
+            Edge[] edges = hgraph.getEdges().toArray();
+            boolean[] keep = evaluator.evaluate(edgeFilter, hgraph, edges);
+            for (int i = 0; i < edges.length; i++) {
+                if (!keep[i]) {
+                    hgraph.removeEdge(edges[i]);
                 }
             }
 
-            for (Edge e : edgesToRemove) {
-                hgraph.removeEdge(e);
-            }
-            edgesToRemove.clear();
-
-            for (Edge e : hgraph.getMetaEdges()) {
-                if (!edgeFilter.evaluate(hgraph, e)) {
-                    edgesToRemove.add(e);
+            Edge[] metaEdges = hgraph.getMetaEdges().toArray();
+            keep = evaluator.evaluate(edgeFilter, hgraph, metaEdges);
+            for (int i = 0; i < metaEdges.length; i++) {
+                if (!keep[i]) {
+                    hgraph.removeMetaEdge(metaEdges[i]);
                 }
             }
-            for (Edge e : edgesToRemove) {
-                hgraph.removeMetaEdge(e);
-            }
 
             edgeFilter.finish();
         }
@@ -147,6 +147,7 @@ public class FilterThread extends Thread {
         FilterProcessor processor = new FilterProcessor();
         GraphModel graphModel = Lookup.getDefault().lookup(GraphController.class).getModel();
         Graph result = processor.process((AbstractQueryImpl) query, graphModel);
+        model.addCacheStatistics(processor.getCacheHits(), processor.getCacheMisses());
 //        System.out.println("#Nodes: " + result.getNodeCount());
 //        System.out.println("#Edges: " + result.getEdgeCount());
         if (running) {
@@ -166,6 +167,7 @@ public class FilterThread extends Thread {
         FilterProcessor processor = new FilterProcessor();
         GraphModel graphModel = Lookup.getDefault().lookup(GraphController.class).getModel();
         Graph result = processor.process((AbstractQueryImpl) query, graphModel);
+        model.addCacheStatistics(processor.getCacheHits(), processor.getCacheMisses());
 //        System.out.println("#Nodes: " + result.getNodeCount());
 //        System.out.println("#Edges: " + result.getEdgeCount());
         if (running) {
@@ -0,0 +1,177 @@
+/*
+ Copyright 2008-2010 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.filters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.gephi.filters.spi.AttributableFilter;
+import org.gephi.filters.spi.EdgeFilter;
+import org.gephi.filters.spi.Filter;
+import org.gephi.filters.spi.NodeFilter;
+import org.gephi.filters.spi.ThreadSafeFilter;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+
+/**
+ * Evaluates node and edge predicates of a filter on an array of elements.
+ * Filters implementing {@link ThreadSafeFilter} are evaluated by chunks on a
+ * pool of threads when there are enough elements, the others sequentially.
+ *
+ * @author Gephi Consortium
+ */
+class ParallelPredicateEvaluator {
+
+    static final int PARALLEL_THRESHOLD = 10000;
+    private static final int CHUNK_SIZE = 2048;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
+    public boolean isParallel(Filter filter, int count) {
+        return threadCount > 1 && count >= PARALLEL_THRESHOLD && filter instanceof ThreadSafeFilter;
+    }
+
+    /**
+     * Returns for each node whether it is kept by <code>filter</code>, which
+     * must be initialized.
+     */
+    public boolean[] evaluate(final Filter filter, final Graph graph, final Node[] nodes) {
+        final boolean[] result = new boolean[nodes.length];
+        Predicate predicate = new Predicate() {
+
+            public void evaluate(int from, int to) {
+                if (filter instanceof NodeFilter) {
+                    NodeFilter nodeFilter = (NodeFilter) filter;
+                    for (int i = from; i < to; i++) {
+                        result[i] = nodeFilter.evaluate(graph, nodes[i]);
+                    }
+                } else {
+                    AttributableFilter attributableFilter = (AttributableFilter) filter;
+                    for (int i = from; i < to; i++) {
+                        result[i] = attributableFilter.evaluate(graph, nodes[i]);
+                    }
+                }
+            }
+        };
+        run(filter, predicate, nodes.length);
+        return result;
+    }
+
+    /**
+     * Returns for each edge whether it is kept by <code>filter</code>, which
+     * must be initialized.
+     */
+    public boolean[] evaluate(final Filter filter, final Graph graph, final Edge[] edges) {
+        final boolean[] result = new boolean[edges.length];
+        Predicate predicate = new Predicate() {
+
+            public void evaluate(int from, int to) {
+                if (filter instanceof EdgeFilter) {
+                    EdgeFilter edgeFilter = (EdgeFilter) filter;
+                    for (int i = from; i < to; i++) {
+                        result[i] = edgeFilter.evaluate(graph, edges[i]);
+                    }
+                } else {
+                    AttributableFilter attributableFilter = (AttributableFilter) filter;
+                    for (int i = from; i < to; i++) {
+                        result[i] = attributableFilter.evaluate(graph, edges[i]);
+                    }
+                }
+            }
+        };
+        run(filter, predicate, edges.length);
+        return result;
+    }
+
+    private void run(Filter filter, final Predicate predicate, int count) {
+        if (!isParallel(filter, count)) {
+            predicate.evaluate(0, count);
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>();
+            for (int from = 0; from < count; from += CHUNK_SIZE) {
+                final int chunkFrom = from;
+                final int chunkTo = Math.min(count, from + CHUNK_SIZE);
+                futures.add(pool.submit(new Callable<Object>() {
+
+                    public Object call() throws Exception {
+                        predicate.evaluate(chunkFrom, chunkTo);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    private interface Predicate {
+
+        public void evaluate(int from, int to);
+    }
+}
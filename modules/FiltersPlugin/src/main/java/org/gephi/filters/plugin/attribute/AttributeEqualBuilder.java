@@ -117,7 +117,7 @@ public class AttributeEqualBuilder implements CategoryBuilder {
         }
     }
 
-    public static class EqualStringFilter extends AbstractAttributeFilter {
+    public static class EqualStringFilter extends AbstractAttributeFilter implements ThreadSafeFilter {
 
         private String pattern;
         private boolean useRegex;
@@ -197,7 +197,7 @@ public class AttributeEqualBuilder implements CategoryBuilder {
         }
     }
 
-    public static class EqualNumberFilter extends AbstractAttributeFilter implements RangeFilter {
+    public static class EqualNumberFilter extends AbstractAttributeFilter implements RangeFilter, ThreadSafeFilter {
 
         private Number match;
         private Range range;
@@ -307,7 +307,7 @@ public class AttributeEqualBuilder implements CategoryBuilder {
         }
     }
 
-    public static class EqualBooleanFilter extends AbstractAttributeFilter {
+    public static class EqualBooleanFilter extends AbstractAttributeFilter implements ThreadSafeFilter {
 
         private boolean match = false;
         private DynamicAttributesHelper dynamicHelper = new DynamicAttributesHelper(this, null);
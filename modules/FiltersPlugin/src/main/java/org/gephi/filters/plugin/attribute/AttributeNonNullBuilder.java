@@ -56,6 +56,7 @@ import org.gephi.filters.spi.Category;
 import org.gephi.filters.spi.CategoryBuilder;
 import org.gephi.filters.spi.Filter;
 import org.gephi.filters.spi.FilterBuilder;
+import org.gephi.filters.spi.ThreadSafeFilter;
 import org.gephi.graph.api.Attributable;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.HierarchicalGraph;
@@ -111,7 +112,7 @@ public class AttributeNonNullBuilder implements CategoryBuilder {
         }
     }
 
-    public static class AttributeNonNullFilter extends AbstractAttributeFilter {
+    public static class AttributeNonNullFilter extends AbstractAttributeFilter implements ThreadSafeFilter {
 
         public AttributeNonNullFilter(AttributeColumn column) {
             super(NbBundle.getMessage(AttributeEqualBuilder.class, "AttributeNonNullBuilder.name"),
@@ -114,7 +114,7 @@ public class AttributeRangeBuilder implements CategoryBuilder {
         }
     }
 
-    public static class AttributeRangeFilter extends AbstractAttributeFilter implements RangeFilter {
+    public static class AttributeRangeFilter extends AbstractAttributeFilter implements RangeFilter, ThreadSafeFilter {
 
         private Range range;
         private DynamicAttributesHelper dynamicHelper = new DynamicAttributesHelper(this, null);
@@ -0,0 +1,176 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Gephi Consortium
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.filters.plugin.graph;
+
+import java.util.Arrays;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+
+/**
+ * Bounded-depth breadth-first search shared by the neighborhood filters.
+ * <p>
+ * Visited nodes are marked in an array indexed by node id with a stamp which
+ * changes at each search, so the marks never need to be cleared. The queue is
+ * a plain array which, once the search is done, holds the visited nodes in
+ * the order they were reached. Several sources can be given, they are all at
+ * depth zero.
+ * <p>
+ * An instance can be reused for many searches but is not thread-safe.
+ *
+ * @author Gephi Consortium
+ */
+public class BreadthFirstSearch {
+
+    private int[] stamps = new int[0];
+    private int[] depths = new int[0];
+    private int stamp;
+    private Node[] queue = new Node[16];
+    private int size;
+
+    /**
+     * Visits the nodes of <code>graph</code> at a distance of at most
+     * <code>maxDepth</code> from any of the sources.
+     *
+     * @param graph the graph to search the neighbors in
+     * @param sources the nodes to start from, in <code>graph</code>
+     * @param maxDepth the maximum depth, <code>Integer.MAX_VALUE</code> for no
+     * limit
+     * @return the number of visited nodes, sources included
+     */
+    public int search(HierarchicalGraph graph, Node[] sources, int maxDepth) {
+        nextStamp();
+        size = 0;
+        for (Node source : sources) {
+            if (source != null && mark(source, 0)) {
+                push(source);
+            }
+        }
+        int head = 0;
+        while (head < size) {
+            Node node = queue[head++];
+            int depth = depths[node.getId()];
+            if (depth >= maxDepth) {
+                //Nodes are queued by increasing depth
+                break;
+            }
+            for (Node neighbor : graph.getNeighbors(node)) {
+                if (mark(neighbor, depth + 1)) {
+                    push(neighbor);
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the visited node at <code>index</code>, in the order of the last
+     * search.
+     *
+     * @param index the index, between zero and the count returned by
+     * {@link #search(HierarchicalGraph, Node[], int)}
+     * @return the visited node
+     */
+    public Node getVisitedNode(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size + " visited nodes");
+        }
+        return queue[index];
+    }
+
+    /**
+     * Returns the depth at which <code>node</code> has been reached in the last
+     * search, or <code>-1</code> if it hasn't been visited.
+     *
+     * @param node the node to test
+     * @return the depth of <code>node</code> or <code>-1</code>
+     */
+    public int getDepth(Node node) {
+        int id = node.getId();
+        if (id < stamps.length && stamps[id] == stamp) {
+            return depths[id];
+        }
+        return -1;
+    }
+
+    public boolean isVisited(Node node) {
+        return getDepth(node) != -1;
+    }
+
+    /**
+     * Releases the visited nodes references. Marks are kept, so
+     * {@link #getDepth(Node)} still answers for the last search.
+     */
+    public void release() {
+        Arrays.fill(queue, 0, size, null);
+        size = 0;
+    }
+
+    private void nextStamp() {
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 0;
+        }
+        stamp++;
+    }
+
+    private boolean mark(Node node, int depth) {
+        int id = node.getId();
+        if (id >= stamps.length) {
+            int length = Math.max(id + 1, stamps.length + (stamps.length >> 1));
+            stamps = Arrays.copyOf(stamps, length);
+            depths = Arrays.copyOf(depths, length);
+        }
+        if (stamps[id] == stamp) {
+            return false;
+        }
+        stamps[id] = stamp;
+        depths[id] = depth;
+        return true;
+    }
+
+    private void push(Node node) {
+        if (size == queue.length) {
+            queue = Arrays.copyOf(queue, size * 2);
+        }
+        queue[size++] = node;
+    }
+}
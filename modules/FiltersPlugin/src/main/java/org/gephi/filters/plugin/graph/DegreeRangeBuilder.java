@@ -94,7 +94,7 @@ public class DegreeRangeBuilder implements FilterBuilder {
     public void destroy(Filter filter) {
     }
 
-    public static class DegreeRangeFilter extends AbstractFilter implements RangeFilter, NodeFilter {
+    public static class DegreeRangeFilter extends AbstractFilter implements RangeFilter, NodeFilter, ThreadSafeFilter {
 
         private Range range;
 
@@ -42,9 +42,7 @@ Portions Copyrighted 2011 Gephi Consortium.
 package org.gephi.filters.plugin.graph;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import javax.swing.Icon;
 import javax.swing.JPanel;
 import org.gephi.filters.api.FilterLibrary;
@@ -103,6 +101,7 @@ public class EgoBuilder implements FilterBuilder {
         private String pattern = "";
         private boolean self = true;
         private int depth = 1;
+        private final BreadthFirstSearch bfs = new BreadthFirstSearch();
 
         public Graph filter(Graph graph) {
             HierarchicalGraph hgraph = (HierarchicalGraph) graph;
@@ -118,37 +117,16 @@ public class EgoBuilder implements FilterBuilder {
                 }
             }
 
-            Set<Node> result = new HashSet<Node>();
-
-            Set<Node> neighbours = new HashSet<Node>();
-            neighbours.addAll(nodes);
-
-            for (int i = 0; i < depth; i++) {
-                Node[] nei = neighbours.toArray(new Node[0]);
-                neighbours.clear();
-                for (Node n : nei) {
-                    for (Node neighbor : hgraph.getNeighbors(n)) {
-                        if (!result.contains(neighbor)) {
-                            neighbours.add(neighbor);
-                            result.add(neighbor);
-                        }
+            bfs.search(hgraph, nodes.toArray(new Node[0]), depth);
+            try {
+                for (Node node : hgraph.getNodes().toArray()) {
+                    int d = bfs.getDepth(node);
+                    if (d == -1 || (d == 0 && !self)) {
+                        hgraph.removeNode(node);
                     }
                 }
-                if (neighbours.isEmpty()) {
-                    break;
-                }
-            }
-
-            if (self) {
-                result.addAll(nodes);
-            } else {
-                result.removeAll(nodes);
-            }
-
-            for (Node node : hgraph.getNodes().toArray()) {
-                if (!result.contains(node)) {
-                    hgraph.removeNode(node);
-                }
+            } finally {
+                bfs.release();
             }
 
             return hgraph;
@@ -92,7 +92,7 @@ public class InDegreeRangeBuilder implements FilterBuilder {
     public void destroy(Filter filter) {
     }
 
-    public static class InDegreeRangeFilter extends AbstractFilter implements RangeFilter, NodeFilter {
+    public static class InDegreeRangeFilter extends AbstractFilter implements RangeFilter, NodeFilter, ThreadSafeFilter {
 
         private Range range;
 
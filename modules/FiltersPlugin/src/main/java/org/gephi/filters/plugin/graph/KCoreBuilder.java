@@ -45,12 +45,16 @@ import javax.swing.Icon;
 import javax.swing.JPanel;
 import org.gephi.filters.api.FilterLibrary;
 import org.gephi.filters.spi.Category;
-import org.gephi.filters.spi.ComplexFilter;
 import org.gephi.filters.spi.Filter;
 import org.gephi.filters.spi.FilterBuilder;
 import org.gephi.filters.spi.FilterProperty;
+import org.gephi.filters.spi.NodeFilter;
+import org.gephi.filters.spi.ThreadSafeFilter;
 import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.HierarchicalGraph;
 import org.gephi.graph.api.Node;
+import org.gephi.statistics.plugin.Coreness;
+import org.gephi.statistics.plugin.GraphSnapshot;
 import org.openide.util.Exceptions;
 import org.openide.util.Lookup;
 import org.openide.util.NbBundle;
@@ -94,23 +98,46 @@ public class KCoreBuilder implements FilterBuilder {
     public void destroy(Filter filter) {
     }
 
-    public static class KCoreFilter implements ComplexFilter {
+    /**
+     * Keeps the nodes of the k-core, looked up from the coreness computed once
+     * per graph version, so changing <code>k</code> doesn't decompose again.
+     */
+    public static class KCoreFilter implements NodeFilter, ThreadSafeFilter {
 
         private FilterProperty[] filterProperties;
         private Integer k = 1;
-
-        public Graph filter(Graph graph) {
-            int removed = 0;
-            do {
-                removed = 0;
-                for (Node n : graph.getNodes().toArray()) {
-                    if (graph.getDegree(n) < k) {
-                        graph.removeNode(n);
-                        removed++;
-                    }
+        private GraphSnapshot snapshot;
+        private int[] coreness;
+        private boolean mainView;
+
+        public boolean init(Graph graph) {
+            HierarchicalGraph hgraph = (HierarchicalGraph) graph;
+            hgraph.readLock();
+            try {
+                //Snapshots of the main view are cached until the graph changes
+                mainView = hgraph.getView().isMainView();
+                GraphSnapshot newSnapshot = mainView ? GraphSnapshot.get(hgraph, false) : GraphSnapshot.build(hgraph, false);
+                if (newSnapshot != snapshot || coreness == null) {
+                    snapshot = newSnapshot;
+                    coreness = Coreness.computeCoreness(snapshot);
                 }
-            } while (removed > 0);
-            return graph;
+            } finally {
+                hgraph.readUnlock();
+            }
+            return true;
+        }
+
+        public boolean evaluate(Graph graph, Node node) {
+            int index = snapshot.indexOf(node);
+            return index != -1 && coreness[index] >= k;
+        }
+
+        public void finish() {
+            if (!mainView) {
+                //Filtered views are not reused
+                snapshot = null;
+                coreness = null;
+            }
         }
 
         public String getName() {
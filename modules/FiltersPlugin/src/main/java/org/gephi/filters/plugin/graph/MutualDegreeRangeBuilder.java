@@ -92,7 +92,7 @@ public class MutualDegreeRangeBuilder implements FilterBuilder {
     public void destroy(Filter filter) {
     }
 
-    public static class MutualDegreeRangeFilter extends AbstractFilter implements RangeFilter, NodeFilter {
+    public static class MutualDegreeRangeFilter extends AbstractFilter implements RangeFilter, NodeFilter, ThreadSafeFilter {
 
         private Range range;
 
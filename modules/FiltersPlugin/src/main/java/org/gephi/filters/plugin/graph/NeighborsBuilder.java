@@ -41,10 +41,6 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.filters.plugin.graph;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
 import javax.swing.Icon;
 import javax.swing.JPanel;
 import org.gephi.filters.api.FilterLibrary;
@@ -104,58 +100,41 @@ public class NeighborsBuilder implements FilterBuilder {
 
         private boolean self = true;
         private int depth = 1;
+        private final BreadthFirstSearch bfs = new BreadthFirstSearch();
 
         public Graph filter(Graph graph) {
 
             GraphView graphView = graph.getView();
             HierarchicalGraph mainGraph = graphView.getGraphModel().getHierarchicalGraph();
 
-            List<Node> nodes = new ArrayList<Node>();
-            for (Node n : graph.getNodes()) {
-                nodes.add(n.getNodeData().getNode(mainGraph.getView().getViewId()));
+            int mainViewId = mainGraph.getView().getViewId();
+            Node[] nodes = graph.getNodes().toArray();
+            Node[] sources = new Node[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                sources[i] = nodes[i].getNodeData().getNode(mainViewId);
             }
 
-            Set<Node> result = new HashSet<Node>();
-
-            Set<Node> neighbours = new HashSet<Node>();
-            neighbours.addAll(nodes);
-
-            //Put all neighbors into result
-            for (int i = 0; i < depth; i++) {
-                Node[] nei = neighbours.toArray(new Node[0]);
-                neighbours.clear();
-                for (Node n : nei) {
-                    //Extract all neighbors of n
-                    for (Node neighbor : mainGraph.getNeighbors(n)) {
-                        if (!result.contains(neighbor)) {
-                            neighbours.add(neighbor);
-                            result.add(neighbor);
-                        }
+            int count = bfs.search(mainGraph, sources, depth);
+            try {
+                //Update nodes, sources are the nodes of the graph
+                if (!self) {
+                    for (Node node : nodes) {
+                        graph.removeNode(node);
                     }
                 }
-                if (neighbours.isEmpty()) {
-                    break;
-                }
-            }
-
-            if (self) {
-                result.addAll(nodes);
-            } else {
-                result.removeAll(nodes);
-            }
-
-            //Update nodes
-            for (Node node : mainGraph.getNodes().toArray()) {
-                if (result.contains(node)) {
-                    graph.addNode(node);
-                } else if(graph.contains(node)) {
-                    graph.removeNode(node);
+                for (int i = 0; i < count; i++) {
+                    Node node = bfs.getVisitedNode(i);
+                    if (bfs.getDepth(node) > 0) {
+                        graph.addNode(node);
+                    }
                 }
+            } finally {
+                bfs.release();
             }
 
             //Update edges
             for (Node n : graph.getNodes().toArray()) {
-                Node mainNode = n.getNodeData().getNode(mainGraph.getView().getViewId());
+                Node mainNode = n.getNodeData().getNode(mainViewId);
                 Edge[] edges = mainGraph.getEdges(mainNode).toArray();
                 for (Edge e : edges) {
                     if (e.getSource().getNodeData().getNode(graphView.getViewId()) != null
@@ -92,7 +92,7 @@ public class OutDegreeRangeBuilder implements FilterBuilder {
     public void destroy(Filter filter) {
     }
 
-    public static class OutDegreeRangeFilter extends AbstractFilter implements RangeFilter, NodeFilter {
+    public static class OutDegreeRangeFilter extends AbstractFilter implements RangeFilter, NodeFilter, ThreadSafeFilter {
 
         private Range range;
 
@@ -46,13 +46,14 @@ import java.util.Iterator;
 import java.util.List;
 import javax.swing.Icon;
 import javax.swing.JPanel;
+import org.gephi.filters.spi.BitsetOperator;
 import org.gephi.filters.spi.Category;
 import org.gephi.filters.spi.EdgeFilter;
+import org.gephi.filters.spi.ElementBitset;
 import org.gephi.filters.spi.Filter;
 import org.gephi.filters.spi.FilterBuilder;
 import org.gephi.filters.spi.FilterProperty;
 import org.gephi.filters.spi.NodeFilter;
-import org.gephi.filters.spi.Operator;
 import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.HierarchicalGraph;
@@ -94,7 +95,7 @@ public class INTERSECTIONBuilder implements FilterBuilder {
     public void destroy(Filter filter) {
     }
 
-    public static class IntersectionOperator implements Operator {
+    public static class IntersectionOperator implements BitsetOperator {
 
         public int getInputCount() {
             return Integer.MAX_VALUE;
@@ -141,6 +142,15 @@ public class INTERSECTIONBuilder implements FilterBuilder {
             return minHGraph;
         }
 
+        public ElementBitset filter(ElementBitset[] sets) {
+            ElementBitset result = sets[0].copy();
+            for (int i = 1; i < sets.length; i++) {
+                result.getNodes().and(sets[i].getNodes());
+                result.getEdges().and(sets[i].getEdges());
+            }
+            return result;
+        }
+
         public Graph filter(Graph graph, Filter[] filters) {
             HierarchicalGraph hgraph = (HierarchicalGraph) graph;
             List<NodeFilter> nodeFilters = new ArrayList<NodeFilter>();
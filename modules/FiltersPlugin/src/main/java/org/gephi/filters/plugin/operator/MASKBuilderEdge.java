@@ -45,12 +45,13 @@ import java.util.ArrayList;
 import java.util.List;
 import javax.swing.Icon;
 import javax.swing.JPanel;
+import org.gephi.filters.spi.BitsetOperator;
 import org.gephi.filters.spi.Category;
+import org.gephi.filters.spi.ElementBitset;
 import org.gephi.filters.spi.Filter;
 import org.gephi.filters.spi.FilterBuilder;
 import org.gephi.filters.spi.FilterProperty;
 import org.gephi.filters.spi.NodeFilter;
-import org.gephi.filters.spi.Operator;
 import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphView;
@@ -99,7 +100,7 @@ public class MASKBuilderEdge implements FilterBuilder {
     public void destroy(Filter filter) {
     }
 
-    public static class MaskEdgeOperator implements Operator {
+    public static class MaskEdgeOperator implements BitsetOperator {
 
         public enum EdgesOptions {
 
@@ -178,6 +179,52 @@ public class MASKBuilderEdge implements FilterBuilder {
             return hgraph;
         }
 
+        public ElementBitset filter(ElementBitset[] sets) {
+            if (sets.length > 1) {
+                throw new IllegalArgumentException("Filter accepts a single graph in parameter");
+            }
+            ElementBitset set = sets[0];
+            HierarchicalGraph mainHGraph = set.getGraph();
+            boolean leaf = !set.isNodeFiltered() || !set.isEdgeFiltered();
+            if (leaf && !set.isNodeFiltered()) {
+                //Nothing to mask, like filter(Graph, Filter[]) without a node filter
+                return ElementBitset.full(mainHGraph);
+            }
+            ElementBitset result = new ElementBitset(mainHGraph);
+            for (Node n : mainHGraph.getNodes()) {
+                result.getNodes().set(n.getId());
+            }
+            if (leaf) {
+                //filter(Graph, Filter[]) only masks edges, meta edges are kept
+                for (Edge e : mainHGraph.getMetaEdges()) {
+                    result.getEdges().set(e.getId());
+                }
+            }
+            for (Edge e : mainHGraph.getEdges()) {
+                boolean source = set.contains(e.getSource());
+                boolean target = set.contains(e.getTarget());
+                boolean keep = false;
+                switch (option) {
+                    case SOURCE:
+                        keep = source;
+                        break;
+                    case TARGET:
+                        keep = target;
+                        break;
+                    case BOTH:
+                        keep = source && target;
+                        break;
+                    case ANY:
+                        keep = source || target;
+                        break;
+                }
+                if (keep) {
+                    result.getEdges().set(e.getId());
+                }
+            }
+            return result;
+        }
+
         public Graph filter(Graph graph, Filter[] filters) {
             if (filters.length > 1) {
                 throw new IllegalArgumentException("Filter accepts a single filter in parameter");
@@ -45,13 +45,15 @@ import java.util.ArrayList;
 import java.util.List;
 import javax.swing.Icon;
 import javax.swing.JPanel;
+import org.gephi.filters.spi.BitsetOperator;
 import org.gephi.filters.spi.Category;
 import org.gephi.filters.spi.EdgeFilter;
+import org.gephi.filters.spi.ElementBitset;
 import org.gephi.filters.spi.Filter;
 import org.gephi.filters.spi.FilterBuilder;
 import org.gephi.filters.spi.FilterProperty;
-import org.gephi.filters.spi.Operator;
 import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeIterable;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphView;
 import org.gephi.graph.api.HierarchicalGraph;
@@ -93,7 +95,7 @@ public class NOTBuilderEdge implements FilterBuilder {
     public void destroy(Filter filter) {
     }
 
-    public static class NotOperatorEdge implements Operator {
+    public static class NotOperatorEdge implements BitsetOperator {
 
         public int getInputCount() {
             return 1;
@@ -132,6 +134,27 @@ public class NOTBuilderEdge implements FilterBuilder {
             return hgraph;
         }
 
+        public ElementBitset filter(ElementBitset[] sets) {
+            if (sets.length > 1) {
+                throw new IllegalArgumentException("Not Filter accepts a single graph in parameter");
+            }
+            if (!sets[0].isEdgeFiltered()) {
+                //Nothing to inverse, like filter(Graph, Filter[]) with a node filter
+                return ElementBitset.full(sets[0].getGraph());
+            }
+            ElementBitset result = sets[0].copy();
+            //A leaf edge filter was evaluated on meta edges too, and filter(Graph, Filter[])
+            //removes the matching ones, whereas filter(Graph[]) only flips edges
+            HierarchicalGraph mainHGraph = result.getGraph();
+            EdgeIterable edges = result.isNodeFiltered() ? mainHGraph.getEdges() : mainHGraph.getEdgesAndMetaEdges();
+            for (Edge e : edges) {
+                if (result.contains(e.getSource()) && result.contains(e.getTarget())) {
+                    result.getEdges().flip(e.getId());
+                }
+            }
+            return result;
+        }
+
         public Graph filter(Graph graph, Filter[] filters) {
             if (filters.length > 1) {
                 throw new IllegalArgumentException("Not Filter accepts a single filter in parameter");
@@ -46,12 +46,13 @@ import java.util.List;
 import javax.swing.Icon;
 import javax.swing.JPanel;
 import org.gephi.filters.spi.AttributableFilter;
+import org.gephi.filters.spi.BitsetOperator;
 import org.gephi.filters.spi.Category;
+import org.gephi.filters.spi.ElementBitset;
 import org.gephi.filters.spi.Filter;
 import org.gephi.filters.spi.FilterBuilder;
 import org.gephi.filters.spi.FilterProperty;
 import org.gephi.filters.spi.NodeFilter;
-import org.gephi.filters.spi.Operator;
 import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphView;
@@ -94,7 +95,7 @@ public class NOTBuilderNode implements FilterBuilder {
     public void destroy(Filter filter) {
     }
 
-    public static class NOTOperatorNode implements Operator {
+    public static class NOTOperatorNode implements BitsetOperator {
 
         public int getInputCount() {
             return 1;
@@ -139,6 +140,30 @@ public class NOTBuilderNode implements FilterBuilder {
             return hgraph;
         }
 
+        public ElementBitset filter(ElementBitset[] sets) {
+            if (sets.length > 1) {
+                throw new IllegalArgumentException("Not Filter accepts a single graph in parameter");
+            }
+            ElementBitset set = sets[0];
+            HierarchicalGraph mainHGraph = set.getGraph();
+            if (!set.isNodeFiltered()) {
+                //Nothing to inverse, like filter(Graph, Filter[]) with an edge filter
+                return ElementBitset.full(mainHGraph);
+            }
+            ElementBitset result = new ElementBitset(mainHGraph);
+            for (Node n : mainHGraph.getNodes()) {
+                if (!set.contains(n)) {
+                    result.getNodes().set(n.getId());
+                }
+            }
+            for (Edge e : mainHGraph.getEdgesAndMetaEdges()) {
+                if (result.contains(e.getSource()) && result.contains(e.getTarget())) {
+                    result.getEdges().set(e.getId());
+                }
+            }
+            return result;
+        }
+
         public Graph filter(Graph graph, Filter[] filters) {
             if (filters.length > 1) {
                 throw new IllegalArgumentException("Not Filter accepts a single filter in parameter");
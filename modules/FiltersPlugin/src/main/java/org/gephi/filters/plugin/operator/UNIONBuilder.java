@@ -46,13 +46,14 @@ import java.util.Iterator;
 import java.util.List;
 import javax.swing.Icon;
 import javax.swing.JPanel;
+import org.gephi.filters.spi.BitsetOperator;
 import org.gephi.filters.spi.Category;
 import org.gephi.filters.spi.EdgeFilter;
+import org.gephi.filters.spi.ElementBitset;
 import org.gephi.filters.spi.Filter;
 import org.gephi.filters.spi.FilterBuilder;
 import org.gephi.filters.spi.FilterProperty;
 import org.gephi.filters.spi.NodeFilter;
-import org.gephi.filters.spi.Operator;
 import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.HierarchicalGraph;
@@ -94,7 +95,7 @@ public class UNIONBuilder implements FilterBuilder {
     public void destroy(Filter filter) {
     }
 
-    public static class UnionOperator implements Operator {
+    public static class UnionOperator implements BitsetOperator {
 
         public int getInputCount() {
             return Integer.MAX_VALUE;
@@ -132,6 +133,27 @@ public class UNIONBuilder implements FilterBuilder {
             return maxHGraph;
         }
 
+        public ElementBitset filter(ElementBitset[] sets) {
+            //Like filter(Graph, Filter[]), nodes are the union of the node
+            //filters and edges the union of the edge filters
+            boolean nodeFiltered = false;
+            boolean edgeFiltered = false;
+            for (ElementBitset set : sets) {
+                nodeFiltered |= set.isNodeFiltered();
+                edgeFiltered |= set.isEdgeFiltered();
+            }
+            ElementBitset result = new ElementBitset(sets[0].getGraph());
+            for (ElementBitset set : sets) {
+                if (set.isNodeFiltered() || !nodeFiltered) {
+                    result.getNodes().or(set.getNodes());
+                }
+                if (set.isEdgeFiltered() || !edgeFiltered) {
+                    result.getEdges().or(set.getEdges());
+                }
+            }
+            return result;
+        }
+
         public Graph filter(Graph graph, Filter[] filters) {
             HierarchicalGraph hgraph = (HierarchicalGraph) graph;
             List<NodeFilter> nodeFilters = new ArrayList<NodeFilter>();
@@ -0,0 +1,372 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.filters.plugin.operator;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.gephi.filters.spi.ElementBitset;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeIterable;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.GraphView;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+import org.gephi.graph.api.NodeIterable;
+
+/**
+ * Small in-memory graph with views, made of dynamic proxies, so that the
+ * bitset path of operators can be compared with the view path. Only the
+ * methods used by the operators are supported. Edge ids follow the order of
+ * the edges, then of the meta edges.
+ *
+ * @author Gephi Consortium
+ */
+class GraphStub {
+
+    private final List<Node> nodes = new ArrayList<Node>();
+    private final List<Edge> edges = new ArrayList<Edge>();
+    private final Set<Edge> metaEdges = new LinkedHashSet<Edge>();
+    private final List<View> views = new ArrayList<View>();
+    private final GraphModel graphModel;
+
+    /**
+     * Creates a graph with <code>nodeCount</code> nodes and the given
+     * <code>{source, target}</code> edges and meta edges.
+     */
+    GraphStub(int nodeCount, int[][] edgeEnds, int[][] metaEdgeEnds) {
+        for (int i = 0; i < nodeCount; i++) {
+            nodes.add(createNode(i));
+        }
+        for (int[] ends : edgeEnds) {
+            edges.add(createEdge(edges.size(), nodes.get(ends[0]), nodes.get(ends[1])));
+        }
+        for (int[] ends : metaEdgeEnds) {
+            Edge metaEdge = createEdge(edges.size(), nodes.get(ends[0]), nodes.get(ends[1]));
+            edges.add(metaEdge);
+            metaEdges.add(metaEdge);
+        }
+        graphModel = proxy(GraphModel.class, new Handler() {
+
+            @Override
+            Object invoke(String name, Object[] args) {
+                if (name.equals("getHierarchicalGraph") && args == null) {
+                    return getMainGraph();
+                }
+                return unsupported(name);
+            }
+        });
+        View main = new View(0);
+        main.nodes.addAll(nodes);
+        main.edges.addAll(edges);
+        views.add(main);
+    }
+
+    HierarchicalGraph getMainGraph() {
+        return views.get(0).graph;
+    }
+
+    /**
+     * Returns a new view with the given nodes and edges, like the graph a
+     * filter or a sub-query gives to an operator.
+     */
+    HierarchicalGraph newView(int[] nodeIds, int[] edgeIds) {
+        View view = new View(views.size());
+        for (int id : nodeIds) {
+            view.nodes.add(nodes.get(id));
+        }
+        for (int id : edgeIds) {
+            view.edges.add(edges.get(id));
+        }
+        views.add(view);
+        return view.graph;
+    }
+
+    /**
+     * Returns a view with all the nodes and edges.
+     */
+    HierarchicalGraph newFullView() {
+        View view = new View(views.size());
+        view.nodes.addAll(nodes);
+        view.edges.addAll(edges);
+        views.add(view);
+        return view.graph;
+    }
+
+    /**
+     * Returns a set over the main graph with the given nodes and edges.
+     */
+    ElementBitset set(int[] nodeIds, int[] edgeIds, boolean nodeFiltered, boolean edgeFiltered) {
+        return bitset(getMainGraph(), nodeIds, edgeIds, nodeFiltered, edgeFiltered);
+    }
+
+    static ElementBitset bitset(HierarchicalGraph graph, int[] nodeIds, int[] edgeIds, boolean nodeFiltered, boolean edgeFiltered) {
+        ElementBitset set = new ElementBitset(graph);
+        for (int n : nodeIds) {
+            set.getNodes().set(n);
+        }
+        for (int e : edgeIds) {
+            set.getEdges().set(e);
+        }
+        set.setFiltered(nodeFiltered, edgeFiltered);
+        return set;
+    }
+
+    static BitSet bits(int... ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids) {
+            bits.set(id);
+        }
+        return bits;
+    }
+
+    static BitSet nodeIds(HierarchicalGraph graph) {
+        BitSet ids = new BitSet();
+        for (Node n : graph.getNodes()) {
+            ids.set(n.getId());
+        }
+        return ids;
+    }
+
+    static BitSet edgeIds(HierarchicalGraph graph) {
+        BitSet ids = new BitSet();
+        for (Edge e : graph.getEdgesAndMetaEdges()) {
+            ids.set(e.getId());
+        }
+        return ids;
+    }
+
+    private Node createNode(final int id) {
+        final Node[] node = new Node[1];
+        final NodeData nodeData = proxy(NodeData.class, new Handler() {
+
+            @Override
+            Object invoke(String name, Object[] args) {
+                if (name.equals("getNode")) {
+                    View view = views.get((Integer) args[0]);
+                    return view.nodes.contains(node[0]) ? node[0] : null;
+                }
+                return unsupported(name);
+            }
+        });
+        node[0] = proxy(Node.class, new Handler() {
+
+            @Override
+            Object invoke(String name, Object[] args) {
+                if (name.equals("getId")) {
+                    return id;
+                } else if (name.equals("getNodeData")) {
+                    return nodeData;
+                } else if (name.equals("toString")) {
+                    return "n" + id;
+                }
+                return unsupported(name);
+            }
+        });
+        return node[0];
+    }
+
+    private Edge createEdge(final int id, final Node source, final Node target) {
+        return proxy(Edge.class, new Handler() {
+
+            @Override
+            Object invoke(String name, Object[] args) {
+                if (name.equals("getId")) {
+                    return id;
+                } else if (name.equals("getSource")) {
+                    return source;
+                } else if (name.equals("getTarget")) {
+                    return target;
+                } else if (name.equals("isDirected")) {
+                    return true;
+                } else if (name.equals("toString")) {
+                    return "e" + id;
+                }
+                return unsupported(name);
+            }
+        });
+    }
+
+    private class View {
+
+        private final int id;
+        private final Set<Node> nodes = new LinkedHashSet<Node>();
+        private final Set<Edge> edges = new LinkedHashSet<Edge>();
+        private final HierarchicalGraph graph;
+        private final GraphView graphView;
+
+        View(final int id) {
+            this.id = id;
+            graphView = proxy(GraphView.class, new Handler() {
+
+                @Override
+                Object invoke(String name, Object[] args) {
+                    if (name.equals("getViewId")) {
+                        return id;
+                    } else if (name.equals("getGraphModel")) {
+                        return graphModel;
+                    } else if (name.equals("isMainView")) {
+                        return id == 0;
+                    }
+                    return unsupported(name);
+                }
+            });
+            graph = proxy(HierarchicalGraph.class, new Handler() {
+
+                @Override
+                Object invoke(String name, Object[] args) {
+                    return invokeGraph(name, args);
+                }
+            });
+        }
+
+        private Object invokeGraph(String name, Object[] args) {
+            if (name.equals("getView")) {
+                return graphView;
+            } else if (name.equals("getNodes")) {
+                return nodeIterable(new ArrayList<Node>(nodes));
+            } else if (name.equals("getEdges") && args == null) {
+                return edgeIterable(select(false));
+            } else if (name.equals("getMetaEdges") && args == null) {
+                return edgeIterable(select(true));
+            } else if (name.equals("getEdgesAndMetaEdges") && args == null) {
+                return edgeIterable(new ArrayList<Edge>(edges));
+            } else if (name.equals("getNodeCount")) {
+                return nodes.size();
+            } else if (name.equals("getEdge")) {
+                for (Edge e : select(false)) {
+                    if (e.getSource() == args[0] && e.getTarget() == args[1]) {
+                        return e;
+                    }
+                }
+                return null;
+            } else if (name.equals("contains")) {
+                return args[0] instanceof Node ? nodes.contains((Node) args[0]) : edges.contains((Edge) args[0]);
+            } else if (name.equals("addNode")) {
+                return nodes.add((Node) args[0]);
+            } else if (name.equals("addEdge") && args.length == 1) {
+                Edge e = (Edge) args[0];
+                return nodes.contains(e.getSource()) && nodes.contains(e.getTarget()) && edges.add(e);
+            } else if (name.equals("removeEdge") || name.equals("removeMetaEdge")) {
+                return edges.remove((Edge) args[0]);
+            } else if (name.equals("clearEdges") && args == null) {
+                edges.removeAll(select(false));
+                return null;
+            } else if (name.equals("toString")) {
+                return "view" + id;
+            }
+            return unsupported(name);
+        }
+
+        private List<Edge> select(boolean meta) {
+            List<Edge> list = new ArrayList<Edge>();
+            for (Edge e : edges) {
+                if (metaEdges.contains(e) == meta) {
+                    list.add(e);
+                }
+            }
+            return list;
+        }
+    }
+
+    private static NodeIterable nodeIterable(final List<Node> list) {
+        return proxy(NodeIterable.class, new Handler() {
+
+            @Override
+            Object invoke(String name, Object[] args) {
+                if (name.equals("iterator")) {
+                    return list.iterator();
+                } else if (name.equals("toArray")) {
+                    return list.toArray(new Node[list.size()]);
+                }
+                return unsupported(name);
+            }
+        });
+    }
+
+    private static EdgeIterable edgeIterable(final List<Edge> list) {
+        return proxy(EdgeIterable.class, new Handler() {
+
+            @Override
+            Object invoke(String name, Object[] args) {
+                if (name.equals("iterator")) {
+                    return list.iterator();
+                } else if (name.equals("toArray")) {
+                    return list.toArray(new Edge[list.size()]);
+                }
+                return unsupported(name);
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(GraphStub.class.getClassLoader(), new Class[]{type}, handler));
+    }
+
+    /**
+     * Dispatches calls by method name. Proxies are compared by identity.
+     */
+    private abstract static class Handler implements InvocationHandler {
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("equals") && args != null && args.length == 1) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode") && args == null) {
+                return System.identityHashCode(proxy);
+            }
+            return invoke(name, args);
+        }
+
+        abstract Object invoke(String name, Object[] args);
+    }
+
+    private static Object unsupported(String name) {
+        throw new UnsupportedOperationException(name);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.filters.plugin.operator;
+
+import org.gephi.filters.plugin.operator.INTERSECTIONBuilder.IntersectionOperator;
+import org.gephi.filters.spi.ElementBitset;
+import static org.gephi.filters.plugin.operator.GraphStub.bits;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Checks that the bitset intersection gives the same result as
+ * <code>filter(Graph, Filter[])</code> on sets of single filters. The graph
+ * has the nodes 0, 1 and 2 and the edges 0 (0-1), 1 (1-2) and 2 (0-2).
+ *
+ * @author Gephi Consortium
+ */
+public class INTERSECTIONBuilderTest {
+
+    @Test
+    public void testIntersectionOfNodeAndEdgeFilters() {
+        ElementBitset nodeSet = set(new int[]{0, 1}, new int[]{0, 1, 2}, true, false);
+        ElementBitset edgeSet = set(new int[]{0, 1, 2}, new int[]{0, 1}, false, true);
+        ElementBitset result = new IntersectionOperator().filter(new ElementBitset[]{nodeSet, edgeSet});
+        assertEquals(bits(0, 1), result.getNodes());
+        //Edge 1 is dangling and removed by the processor
+        assertEquals(bits(0, 1), result.getEdges());
+    }
+
+    @Test
+    public void testIntersectionOfNodeFilters() {
+        ElementBitset first = set(new int[]{0, 1}, new int[]{0, 1, 2}, true, false);
+        ElementBitset second = set(new int[]{1, 2}, new int[]{0, 1, 2}, true, false);
+        ElementBitset result = new IntersectionOperator().filter(new ElementBitset[]{first, second});
+        assertEquals(bits(1), result.getNodes());
+    }
+
+    private static ElementBitset set(int[] nodes, int[] edges, boolean nodeFiltered, boolean edgeFiltered) {
+        return GraphStub.bitset(null, nodes, edges, nodeFiltered, edgeFiltered);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.filters.plugin.operator;
+
+import java.util.BitSet;
+import org.gephi.filters.plugin.operator.MASKBuilderEdge.MaskEdgeOperator;
+import org.gephi.filters.plugin.operator.MASKBuilderEdge.MaskEdgeOperator.EdgesOptions;
+import org.gephi.filters.spi.ElementBitset;
+import org.gephi.filters.spi.Filter;
+import org.gephi.filters.spi.FilterProperty;
+import org.gephi.filters.spi.NodeFilter;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+import static org.gephi.filters.plugin.operator.GraphStub.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Checks that the bitset edge MASK gives the same result as the view path
+ * for every option. The graph has the nodes 0, 1, 2 and 3 and the edges
+ * 0 (0-1), 1 (1-2), 2 (2-3) and 3 (3-0).
+ *
+ * @author Gephi Consortium
+ */
+public class MASKBuilderEdgeTest {
+
+    private static final int[][] EDGES = {{0, 1}, {1, 2}, {2, 3}, {3, 0}};
+
+    @Test
+    public void testNodeFilter() {
+        //The meta edge 4 (1-3) is kept by the view path
+        GraphStub stub = new GraphStub(4, EDGES, new int[][]{{1, 3}});
+        for (EdgesOptions option : EdgesOptions.values()) {
+            MaskEdgeOperator operator = operator(option);
+            HierarchicalGraph graph = stub.newFullView();
+            operator.filter(graph, new Filter[]{nodeFilter(bits(0, 1))});
+
+            ElementBitset leaf = stub.set(new int[]{0, 1}, new int[]{0, 1, 2, 3, 4}, true, false);
+            ElementBitset result = evaluate(operator, leaf);
+            assertEquals(option.toString(), edgeIds(graph), result.getEdges());
+            assertEquals(option.toString(), nodeIds(graph), result.getNodes());
+        }
+    }
+
+    @Test
+    public void testNodeFilterEdges() {
+        GraphStub stub = new GraphStub(4, EDGES, new int[0][]);
+        assertEquals(bits(0, 2), evaluate(operator(EdgesOptions.SOURCE), leaf(stub)).getEdges());
+        assertEquals(bits(1, 3), evaluate(operator(EdgesOptions.TARGET), leaf(stub)).getEdges());
+        assertEquals(bits(0, 1, 2, 3), evaluate(operator(EdgesOptions.ANY), leaf(stub)).getEdges());
+        assertTrue(evaluate(operator(EdgesOptions.BOTH), leaf(stub)).getEdges().isEmpty());
+    }
+
+    @Test
+    public void testEdgeFilter() {
+        //Nothing to mask, the filter isn't a node filter
+        GraphStub stub = new GraphStub(4, EDGES, new int[][]{{1, 3}});
+        ElementBitset leaf = stub.set(new int[]{0, 1, 2, 3}, new int[]{0}, false, true);
+        ElementBitset result = evaluate(operator(EdgesOptions.BOTH), leaf);
+        assertEquals(bits(0, 1, 2, 3, 4), result.getEdges());
+        assertEquals(bits(0, 1, 2, 3), result.getNodes());
+    }
+
+    @Test
+    public void testSubQueryGraph() {
+        GraphStub stub = new GraphStub(4, EDGES, new int[0][]);
+        for (EdgesOptions option : EdgesOptions.values()) {
+            MaskEdgeOperator operator = operator(option);
+            HierarchicalGraph input = stub.newView(new int[]{0, 1, 2}, new int[]{1});
+            Graph graph = operator.filter(new Graph[]{input});
+
+            ElementBitset set = stub.set(new int[]{0, 1, 2}, new int[]{1}, true, true);
+            ElementBitset result = evaluate(operator, set);
+            assertEquals(option.toString(), edgeIds((HierarchicalGraph) graph), result.getEdges());
+            assertEquals(option.toString(), nodeIds((HierarchicalGraph) graph), result.getNodes());
+        }
+    }
+
+    //Nodes 0 and 2 pass the filter
+    private static ElementBitset leaf(GraphStub stub) {
+        return stub.set(new int[]{0, 2}, new int[]{0, 1, 2, 3}, true, false);
+    }
+
+    //Same as FilterProcessor with the operator's result
+    private static ElementBitset evaluate(MaskEdgeOperator operator, ElementBitset set) {
+        ElementBitset result = operator.filter(new ElementBitset[]{set});
+        result.removeDanglingEdges();
+        return result;
+    }
+
+    private static MaskEdgeOperator operator(EdgesOptions option) {
+        MaskEdgeOperator operator = new MaskEdgeOperator();
+        operator.setOption(option.toString());
+        return operator;
+    }
+
+    private static NodeFilter nodeFilter(final BitSet selected) {
+        return new NodeFilter() {
+
+            public boolean init(Graph graph) {
+                return true;
+            }
+
+            public boolean evaluate(Graph graph, Node node) {
+                return selected.get(node.getId());
+            }
+
+            public void finish() {
+            }
+
+            public String getName() {
+                return "Nodes";
+            }
+
+            public FilterProperty[] getProperties() {
+                return null;
+            }
+        };
+    }
+}
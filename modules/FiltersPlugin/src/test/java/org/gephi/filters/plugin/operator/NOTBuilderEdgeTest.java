@@ -0,0 +1,175 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.filters.plugin.operator;
+
+import java.util.BitSet;
+import org.gephi.filters.plugin.operator.NOTBuilderEdge.NotOperatorEdge;
+import org.gephi.filters.spi.EdgeFilter;
+import org.gephi.filters.spi.ElementBitset;
+import org.gephi.filters.spi.Filter;
+import org.gephi.filters.spi.FilterProperty;
+import org.gephi.filters.spi.NodeFilter;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+import static org.gephi.filters.plugin.operator.GraphStub.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Checks that the bitset edge NOT gives the same result as the view path. The
+ * graph has the nodes 0, 1 and 2, the edges 0 (0-1), 1 (1-2) and 2 (0-2) and
+ * the meta edge 3 (2-0).
+ *
+ * @author Gephi Consortium
+ */
+public class NOTBuilderEdgeTest {
+
+    private final GraphStub stub = new GraphStub(3, new int[][]{{0, 1}, {1, 2}, {0, 2}}, new int[][]{{2, 0}});
+
+    @Test
+    public void testEdgeFilter() {
+        //The filter selects the edge 0 and the meta edge 3, which both go away
+        EdgeFilter filter = edgeFilter(bits(0, 3));
+        HierarchicalGraph graph = stub.newFullView();
+        new NotOperatorEdge().filter(graph, new Filter[]{filter});
+
+        ElementBitset leaf = stub.set(new int[]{0, 1, 2}, new int[]{0, 3}, false, true);
+        ElementBitset result = evaluate(leaf);
+        assertEquals(bits(1, 2), edgeIds(graph));
+        assertEquals(edgeIds(graph), result.getEdges());
+        assertEquals(nodeIds(graph), result.getNodes());
+    }
+
+    @Test
+    public void testNodeFilter() {
+        //Nothing to inverse, the filter isn't an edge filter
+        HierarchicalGraph graph = stub.newFullView();
+        new NotOperatorEdge().filter(graph, new Filter[]{nodeFilter(bits(0))});
+
+        ElementBitset leaf = stub.set(new int[]{0}, new int[]{0, 1, 2, 3}, true, false);
+        ElementBitset result = evaluate(leaf);
+        assertEquals(edgeIds(graph), result.getEdges());
+        assertEquals(nodeIds(graph), result.getNodes());
+    }
+
+    @Test
+    public void testSubQueryGraph() {
+        //Edges are flipped between the nodes of the input graph, meta edges are kept
+        HierarchicalGraph input = stub.newView(new int[]{0, 1, 2}, new int[]{0, 3});
+        Graph graph = new NotOperatorEdge().filter(new Graph[]{input});
+
+        ElementBitset set = stub.set(new int[]{0, 1, 2}, new int[]{0, 3}, true, true);
+        ElementBitset result = evaluate(set);
+        assertEquals(bits(1, 2, 3), result.getEdges());
+        assertEquals(edgeIds((HierarchicalGraph) graph), result.getEdges());
+        assertEquals(nodeIds((HierarchicalGraph) graph), result.getNodes());
+    }
+
+    @Test
+    public void testSubQueryGraphWithoutNode() {
+        HierarchicalGraph input = stub.newView(new int[]{0, 1}, new int[]{0});
+        Graph graph = new NotOperatorEdge().filter(new Graph[]{input});
+
+        ElementBitset set = stub.set(new int[]{0, 1}, new int[]{0}, true, true);
+        ElementBitset result = evaluate(set);
+        assertTrue(result.getEdges().isEmpty());
+        assertEquals(edgeIds((HierarchicalGraph) graph), result.getEdges());
+        assertEquals(nodeIds((HierarchicalGraph) graph), result.getNodes());
+    }
+
+    //Same as FilterProcessor with the operator's result
+    private static ElementBitset evaluate(ElementBitset set) {
+        ElementBitset result = new NotOperatorEdge().filter(new ElementBitset[]{set});
+        result.removeDanglingEdges();
+        return result;
+    }
+
+    private static EdgeFilter edgeFilter(final BitSet selected) {
+        return new EdgeFilter() {
+
+            public boolean init(Graph graph) {
+                return true;
+            }
+
+            public boolean evaluate(Graph graph, Edge edge) {
+                return selected.get(edge.getId());
+            }
+
+            public void finish() {
+            }
+
+            public String getName() {
+                return "Edges";
+            }
+
+            public FilterProperty[] getProperties() {
+                return null;
+            }
+        };
+    }
+
+    private static NodeFilter nodeFilter(final BitSet selected) {
+        return new NodeFilter() {
+
+            public boolean init(Graph graph) {
+                return true;
+            }
+
+            public boolean evaluate(Graph graph, Node node) {
+                return selected.get(node.getId());
+            }
+
+            public void finish() {
+            }
+
+            public String getName() {
+                return "Nodes";
+            }
+
+            public FilterProperty[] getProperties() {
+                return null;
+            }
+        };
+    }
+}
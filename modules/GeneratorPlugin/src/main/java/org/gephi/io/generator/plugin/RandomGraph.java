@@ -62,6 +62,7 @@ public class RandomGraph implements Generator {
 
     protected int numberOfNodes = 50;
     protected double wiringProbability = 0.05;
+    protected Long seed;
     protected ProgressTicket progress;
     protected boolean cancel = false;
 
@@ -74,7 +75,7 @@ public class RandomGraph implements Generator {
         }
         Progress.start(progress, max);
         int progressUnit = 0;
-        Random random = new Random();
+        Random random = seed != null ? new Random(seed) : new Random();
 
         NodeDraft[] nodeArray = new NodeDraft[numberOfNodes];
         for (int i = 0; i < numberOfNodes && !cancel; i++) {
@@ -85,18 +86,29 @@ public class RandomGraph implements Generator {
         }
 
         if (wiringProbability > 0) {
-            for (int i = 0; i < numberOfNodes - 1 && !cancel; i++) {
-                NodeDraft node1 = nodeArray[i];
-                for (int j = i + 1; j < numberOfNodes && !cancel; j++) {
-                    NodeDraft node2 = nodeArray[j];
-                    if (random.nextDouble() < wiringProbability) {
-                        EdgeDraft edgeDraft = container.factory().newEdgeDraft();
-                        edgeDraft.setSource(node1);
-                        edgeDraft.setTarget(node2);
-                        container.addEdge(edgeDraft);
-                    }
+            //Pairs (w, v) with w < v are visited in order, jumping directly to
+            //the next edge: the number of skipped pairs follows a geometric
+            //distribution, so the time is linear in nodes + edges
+            double logQ = Math.log(1.0 - wiringProbability);
+            int v = 1;
+            long w = -1;
+            while (v < numberOfNodes && !cancel) {
+                if (wiringProbability < 1.0) {
+                    w += 1 + (long) Math.floor(Math.log(1.0 - random.nextDouble()) / logQ);
+                } else {
+                    w++;
+                }
+                while (w >= v && v < numberOfNodes) {
+                    w -= v;
+                    v++;
+                    Progress.progress(progress, ++progressUnit);
+                }
+                if (v < numberOfNodes) {
+                    EdgeDraft edgeDraft = container.factory().newEdgeDraft();
+                    edgeDraft.setSource(nodeArray[(int) w]);
+                    edgeDraft.setTarget(nodeArray[v]);
+                    container.addEdge(edgeDraft);
                 }
-                Progress.progress(progress, ++progressUnit);
             }
         }
 
@@ -128,6 +140,21 @@ public class RandomGraph implements Generator {
         this.wiringProbability = wiringProbability;
     }
 
+    /**
+     * Sets the seed of the random generator, so the same graph is generated
+     * each time. The default <code>null</code> uses a different seed for each
+     * graph.
+     *
+     * @param seed the seed, or <code>null</code>
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
     public int getNumberOfNodes() {
         return numberOfNodes;
     }
@@ -85,10 +85,14 @@ public class ForceAtlas2 implements Layout {
     private Region rootRegion;
     double outboundAttCompensation = 1;
     private ExecutorService pool;
+    private boolean arrayEngine;
+    private int writeBackInterval;
+    private ForceAtlas2Engine engine;
+    private int iteration;
 
     public ForceAtlas2(ForceAtlas2Builder layoutBuilder) {
         this.layoutBuilder = layoutBuilder;
-        this.threadCount = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        this.threadCount = Runtime.getRuntime().availableProcessors();
     }
 
     @Override
@@ -98,20 +102,26 @@ public class ForceAtlas2 implements Layout {
         graph = graphModel.getGraphVisible();
 
         graph.readLock();
-        Node[] nodes = graph.getNodes().toArray();
+        iteration = 0;
+        if (isArrayEngine()) {
+            // Arrays are loaded by the first iteration
+            engine = new ForceAtlas2Engine();
+        } else {
+            Node[] nodes = graph.getNodes().toArray();
 
-        // Initialise layout data
-        for (Node n : nodes) {
-            if (n.getLayoutData() == null || !(n.getLayoutData() instanceof ForceAtlas2LayoutData)) {
-                ForceAtlas2LayoutData nLayout = new ForceAtlas2LayoutData();
-                n.setLayoutData(nLayout);
+            // Initialise layout data
+            for (Node n : nodes) {
+                if (n.getLayoutData() == null || !(n.getLayoutData() instanceof ForceAtlas2LayoutData)) {
+                    ForceAtlas2LayoutData nLayout = new ForceAtlas2LayoutData();
+                    n.setLayoutData(nLayout);
+                }
+                ForceAtlas2LayoutData nLayout = n.getLayoutData();
+                nLayout.mass = 1 + graph.getDegree(n);
+                nLayout.old_dx = 0;
+                nLayout.old_dy = 0;
+                nLayout.dx = 0;
+                nLayout.dy = 0;
             }
-            ForceAtlas2LayoutData nLayout = n.getLayoutData();
-            nLayout.mass = 1 + graph.getDegree(n);
-            nLayout.old_dx = 0;
-            nLayout.old_dy = 0;
-            nLayout.dx = 0;
-            nLayout.dy = 0;
         }
 
         pool = Executors.newFixedThreadPool(threadCount);
@@ -127,6 +137,16 @@ public class ForceAtlas2 implements Layout {
         graph = graphModel.getGraphVisible();
 
         graph.readLock();
+        if (isArrayEngine()) {
+            goEngine();
+            graph.readUnlockAll();
+            return;
+        } else if (engine != null) {
+            // Switched back from the arrays engine
+            engine.writeBack();
+            engine.clear();
+            engine = null;
+        }
         Node[] nodes = graph.getNodes().toArray();
         Edge[] edges = graph.getEdges().toArray();
 
@@ -261,6 +281,24 @@ public class ForceAtlas2 implements Layout {
         graph.readUnlockAll();
     }
 
+    private void goEngine() {
+        if (engine == null) {
+            engine = new ForceAtlas2Engine();
+        }
+        if (!engine.isUpToDate(graph)) {
+            if (iteration > 0) {
+                // Keep the positions computed since the last write
+                engine.writeBack();
+            }
+            engine.load(graphModel, graph);
+        }
+        speed = engine.iterate(this, pool, currentThreadCount, speed);
+        iteration++;
+        if (iteration % writeBackInterval == 0) {
+            engine.writeBack();
+        }
+    }
+
     @Override
     public boolean canAlgo() {
         return graphModel != null;
@@ -268,6 +306,13 @@ public class ForceAtlas2 implements Layout {
 
     @Override
     public void endAlgo() {
+        if (engine != null) {
+            graph.readLock();
+            engine.writeBack();
+            graph.readUnlock();
+            engine.clear();
+            engine = null;
+        }
         for (Node n : graph.getNodes()) {
             n.setLayoutData(null);
         }
@@ -364,6 +409,22 @@ public class ForceAtlas2 implements Layout {
                     NbBundle.getMessage(getClass(), "ForceAtlas2.barnesHutTheta.desc"),
                     "getBarnesHutTheta", "setBarnesHutTheta"));
 
+            properties.add(LayoutProperty.createProperty(
+                    this, Boolean.class,
+                    NbBundle.getMessage(getClass(), "ForceAtlas2.arrayEngine.name"),
+                    FORCEATLAS2_PERFORMANCE,
+                    "ForceAtlas2.arrayEngine.name",
+                    NbBundle.getMessage(getClass(), "ForceAtlas2.arrayEngine.desc"),
+                    "isArrayEngine", "setArrayEngine"));
+
+            properties.add(LayoutProperty.createProperty(
+                    this, Integer.class,
+                    NbBundle.getMessage(getClass(), "ForceAtlas2.writeBackInterval.name"),
+                    FORCEATLAS2_PERFORMANCE,
+                    "ForceAtlas2.writeBackInterval.name",
+                    NbBundle.getMessage(getClass(), "ForceAtlas2.writeBackInterval.desc"),
+                    "getWriteBackInterval", "setWriteBackInterval"));
+
             properties.add(LayoutProperty.createProperty(
                     this, Integer.class,
                     NbBundle.getMessage(getClass(), "ForceAtlas2.threads.name"),
@@ -416,7 +477,13 @@ public class ForceAtlas2 implements Layout {
             setBarnesHutOptimize(false);
         }
         setBarnesHutTheta(1.2);
-        setThreadsCount(2);
+        if (nodesCount >= 100000) {
+            setArrayEngine(true);
+        } else {
+            setArrayEngine(false);
+        }
+        setWriteBackInterval(1);
+        setThreadsCount(Runtime.getRuntime().availableProcessors());
     }
 
     @Override
@@ -499,6 +566,26 @@ public class ForceAtlas2 implements Layout {
         }
     }
 
+    public Boolean isArrayEngine() {
+        return arrayEngine;
+    }
+
+    public void setArrayEngine(Boolean arrayEngine) {
+        this.arrayEngine = arrayEngine;
+    }
+
+    public Integer getWriteBackInterval() {
+        return writeBackInterval;
+    }
+
+    public void setWriteBackInterval(Integer writeBackInterval) {
+        if (writeBackInterval < 1) {
+            setWriteBackInterval(1);
+        } else {
+            this.writeBackInterval = writeBackInterval;
+        }
+    }
+
     public Boolean isOutboundAttractionDistribution() {
         return outboundAttractionDistribution;
     }
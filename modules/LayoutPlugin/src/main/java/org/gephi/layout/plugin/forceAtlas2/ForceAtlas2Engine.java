@@ -0,0 +1,724 @@
+/*
+ Copyright 2008-2011 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.layout.plugin.forceAtlas2;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.GraphObserver;
+import org.gephi.graph.api.GraphView;
+import org.gephi.graph.api.Node;
+import org.openide.util.Exceptions;
+
+/**
+ * Structure-of-arrays implementation of the ForceAtlas 2 step. Positions,
+ * masses and forces are copied into flat arrays when the graph topology
+ * changes, iterations then run on those arrays without touching the nodes and
+ * positions are only written back to the nodes on demand.
+ * <p>
+ * The forces are the same as in {@link ForceFactory}, except that each task
+ * only ever writes the forces of its own nodes: repulsion is applied to the
+ * node being processed and attraction is computed from each endpoint of the
+ * edge, using an incidence list. All the steps of an iteration, including the
+ * Barnes Hut tree build, are thus run in parallel without locking. The tree is
+ * stored in arrays as well and rebuilt in place at each iteration.
+ *
+ * @author Gephi Consortium
+ */
+class ForceAtlas2Engine {
+
+    //Graph
+    private Graph graph;
+    private GraphView view;
+    private GraphObserver observer;
+    private Node[] nodes = new Node[0];
+    private final Map<Node, Integer> indexes = new HashMap<Node, Integer>();
+    private int nodeCount;
+    private int edgeCount;
+    //Nodes
+    private float[] x = new float[0];
+    private float[] y = new float[0];
+    private float[] size = new float[0];
+    private float[] mass = new float[0];
+    private float[] dx = new float[0];
+    private float[] dy = new float[0];
+    private float[] oldDx = new float[0];
+    private float[] oldDy = new float[0];
+    private boolean[] fixed = new boolean[0];
+    //Positions last written to the nodes, to detect moves made by the user
+    private float[] writtenX = new float[0];
+    private float[] writtenY = new float[0];
+    //Edges, seen from both endpoints: node i has the incident edges
+    //incOffsets[i]..incOffsets[i+1] to incNeighbors[], with the edge source
+    //in incSources[] for degree distributed attraction
+    private int[] incOffsets = new int[1];
+    private int[] incNeighbors = new int[0];
+    private int[] incSources = new int[0];
+    private float[] incWeights = new float[0];
+    //Barnes Hut regions, region r holds nodes order[regionFrom[r]..regionTo[r])
+    private int[] order = new int[0];
+    //Regions built sequentially are [0, treeHead), the remaining ones until
+    //treeNext are built by the tasks, in the range starting at regionBase[r]
+    private int treeHead;
+    private int treeNext;
+    private int[] regionFrom = new int[0];
+    private int[] regionTo = new int[0];
+    private int[] regionChild = new int[0];
+    private int[] regionChildCount = new int[0];
+    private float[] regionMass = new float[0];
+    private float[] regionX = new float[0];
+    private float[] regionY = new float[0];
+    private float[] regionSize = new float[0];
+    private int[] regionBase = new int[0];
+    //Settings of the current iteration
+    private boolean adjustSizes;
+    private boolean barnesHut;
+    private float theta;
+    private float scalingRatio;
+    private float gravity;
+    private boolean strongGravity;
+    private boolean linLog;
+    private boolean distributed;
+    private double edgeWeightInfluence;
+    private double attractionCoefficient;
+    private double speed;
+    //Tasks
+    private static final int TREE = 0;
+    private static final int FORCES = 1;
+    private static final int SWINGING = 2;
+    private static final int APPLY = 3;
+    private EngineTask[] tasks = new EngineTask[0];
+    private Future[] futures = new Future[0];
+
+    /**
+     * Returns <code>true</code> if the arrays match the topology of
+     * <code>graph</code>. Graphs are compared by view, as the layout fetches
+     * a new graph instance of the same view at each step.
+     */
+    public boolean isUpToDate(Graph graph) {
+        return view == graph.getView() && observer != null && !observer.isDestroyed() && !observer.hasGraphChanged();
+    }
+
+    /**
+     * Copies the graph into the arrays, buffers are reused when large enough.
+     * Must be called with the graph read lock held.
+     */
+    public void load(GraphModel graphModel, Graph graph) {
+        if (observer == null || observer.isDestroyed() || view != graph.getView()) {
+            if (observer != null && !observer.isDestroyed()) {
+                observer.destroy();
+            }
+            observer = graphModel.getGraphObserver(graph, false);
+        } else {
+            //Consume the change
+            observer.hasGraphChanged();
+        }
+        this.graph = graph;
+        this.view = graph.getView();
+
+        nodes = graph.getNodes().toArray();
+        nodeCount = nodes.length;
+        ensureNodeCapacity(nodeCount);
+        indexes.clear();
+        for (int i = 0; i < nodeCount; i++) {
+            Node n = nodes[i];
+            indexes.put(n, i);
+            x[i] = writtenX[i] = n.x();
+            y[i] = writtenY[i] = n.y();
+            size[i] = n.size();
+            fixed[i] = n.isFixed();
+            mass[i] = 1 + graph.getDegree(n);
+        }
+        Arrays.fill(dx, 0, nodeCount, 0f);
+        Arrays.fill(dy, 0, nodeCount, 0f);
+
+        Edge[] edges = graph.getEdges().toArray();
+        edgeCount = edges.length;
+        if (incOffsets.length < nodeCount + 1) {
+            incOffsets = new int[nodeCount + 1];
+        }
+        if (incNeighbors.length < 2 * edgeCount) {
+            incNeighbors = new int[2 * edgeCount];
+            incSources = new int[2 * edgeCount];
+            incWeights = new float[2 * edgeCount];
+        }
+        Arrays.fill(incOffsets, 0, nodeCount + 1, 0);
+        for (Edge e : edges) {
+            int source = indexes.get(e.getSource());
+            int target = indexes.get(e.getTarget());
+            if (source != target) {
+                incOffsets[source + 1]++;
+                incOffsets[target + 1]++;
+            }
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            incOffsets[i + 1] += incOffsets[i];
+        }
+        //Fill using incOffsets[i] as cursor, then shift back
+        for (Edge e : edges) {
+            int source = indexes.get(e.getSource());
+            int target = indexes.get(e.getTarget());
+            if (source != target) {
+                float weight = (float) e.getWeight();
+                int k = incOffsets[source]++;
+                incNeighbors[k] = target;
+                incSources[k] = source;
+                incWeights[k] = weight;
+                k = incOffsets[target]++;
+                incNeighbors[k] = source;
+                incSources[k] = source;
+                incWeights[k] = weight;
+            }
+        }
+        for (int i = nodeCount; i > 0; i--) {
+            incOffsets[i] = incOffsets[i - 1];
+        }
+        incOffsets[0] = 0;
+    }
+
+    private void ensureNodeCapacity(int n) {
+        if (x.length >= n) {
+            return;
+        }
+        x = new float[n];
+        y = new float[n];
+        size = new float[n];
+        mass = new float[n];
+        dx = new float[n];
+        dy = new float[n];
+        oldDx = new float[n];
+        oldDy = new float[n];
+        fixed = new boolean[n];
+        writtenX = new float[n];
+        writtenY = new float[n];
+        order = new int[n];
+        //A region has either no or at least two subregions
+        int maxRegions = Math.max(1, 2 * n - 1);
+        regionFrom = new int[maxRegions];
+        regionTo = new int[maxRegions];
+        regionChild = new int[maxRegions];
+        regionChildCount = new int[maxRegions];
+        regionMass = new float[maxRegions];
+        regionX = new float[maxRegions];
+        regionY = new float[maxRegions];
+        regionSize = new float[maxRegions];
+        regionBase = new int[maxRegions];
+    }
+
+    /**
+     * Writes the positions back to the nodes. Nodes moved by the user since
+     * the last write keep their new position, which is copied into the arrays.
+     * Must be called with the graph read lock held.
+     */
+    public void writeBack() {
+        for (int i = 0; i < nodeCount; i++) {
+            Node n = nodes[i];
+            if (n.x() != writtenX[i] || n.y() != writtenY[i]) {
+                x[i] = n.x();
+                y[i] = n.y();
+            } else {
+                n.setX(x[i]);
+                n.setY(y[i]);
+            }
+            writtenX[i] = x[i];
+            writtenY[i] = y[i];
+            fixed[i] = n.isFixed();
+            size[i] = n.size();
+        }
+    }
+
+    /**
+     * Releases the graph observer and the references to the nodes.
+     */
+    public void clear() {
+        if (observer != null && !observer.isDestroyed()) {
+            observer.destroy();
+        }
+        observer = null;
+        graph = null;
+        view = null;
+        nodes = new Node[0];
+        indexes.clear();
+        nodeCount = 0;
+        edgeCount = 0;
+    }
+
+    /**
+     * Runs one iteration and returns the new speed.
+     */
+    public double iterate(ForceAtlas2 layout, ExecutorService pool, int threadCount, double speed) {
+        adjustSizes = layout.isAdjustSizes();
+        barnesHut = layout.isBarnesHutOptimize();
+        theta = layout.getBarnesHutTheta().floatValue();
+        scalingRatio = layout.getScalingRatio().floatValue();
+        gravity = layout.getGravity().floatValue();
+        strongGravity = layout.isStrongGravityMode();
+        linLog = layout.isLinLogMode();
+        distributed = layout.isOutboundAttractionDistribution();
+        edgeWeightInfluence = layout.getEdgeWeightInfluence();
+
+        int taskCount = 8 * threadCount;  // More tasks than threads because some tasks may need more time to compute.
+        if (tasks.length != taskCount) {
+            tasks = new EngineTask[taskCount];
+            futures = new Future[taskCount];
+            for (int t = 0; t < taskCount; t++) {
+                tasks[t] = new EngineTask(t);
+            }
+        }
+        for (int t = 0; t < taskCount; t++) {
+            tasks[t].from = (int) ((long) nodeCount * t / taskCount);
+            tasks[t].to = (int) ((long) nodeCount * (t + 1) / taskCount);
+        }
+
+        // Keep the previous forces, reset the current ones
+        float[] tmp = oldDx;
+        oldDx = dx;
+        dx = tmp;
+        tmp = oldDy;
+        oldDy = dy;
+        dy = tmp;
+        Arrays.fill(dx, 0, nodeCount, 0f);
+        Arrays.fill(dy, 0, nodeCount, 0f);
+
+        // If Barnes Hut active, initialize root region
+        if (barnesHut && nodeCount > 0) {
+            buildTree(pool, taskCount);
+        }
+
+        // If outboundAttractionDistribution active, compensate.
+        attractionCoefficient = 1;
+        if (distributed) {
+            double outboundAttCompensation = 0;
+            for (int i = 0; i < nodeCount; i++) {
+                outboundAttCompensation += mass[i];
+            }
+            attractionCoefficient = outboundAttCompensation / nodeCount;
+            layout.outboundAttCompensation = attractionCoefficient;
+        }
+
+        // Repulsion, gravity and attraction
+        runTasks(pool, FORCES);
+
+        // Auto adjust speed
+        runTasks(pool, SWINGING);
+        double totalSwinging = 0d;  // How much irregular movement
+        double totalEffectiveTraction = 0d;  // Hom much useful movement
+        for (EngineTask task : tasks) {
+            totalSwinging += task.swinging;
+            totalEffectiveTraction += task.traction;
+        }
+        double jitterTolerance = layout.getJitterTolerance();
+        double targetSpeed = jitterTolerance * jitterTolerance * totalEffectiveTraction / totalSwinging;
+        double maxRise = 0.5;   // Max rise: 50%
+        this.speed = speed + Math.min(targetSpeed - speed, maxRise * speed);
+
+        // Apply forces
+        runTasks(pool, APPLY);
+        return this.speed;
+    }
+
+    private void runTasks(ExecutorService pool, int phase) {
+        for (int t = 0; t < tasks.length; t++) {
+            tasks[t].phase = phase;
+            futures[t] = pool.submit(tasks[t]);
+        }
+        for (int t = 0; t < tasks.length; t++) {
+            try {
+                futures[t].get();
+            } catch (InterruptedException ex) {
+                Exceptions.printStackTrace(ex);
+            } catch (ExecutionException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+            futures[t] = null;
+        }
+    }
+
+    /**
+     * Splits the top of the tree breadth-first until there are enough
+     * regions left to keep all tasks busy, then builds the remaining
+     * subtrees in parallel. A subtree of <code>k</code> nodes has at most
+     * <code>2k - 2</code> descendants, so each gets its own range of regions.
+     */
+    private void buildTree(ExecutorService pool, int taskCount) {
+        for (int i = 0; i < nodeCount; i++) {
+            order[i] = i;
+        }
+        regionFrom[0] = 0;
+        regionTo[0] = nodeCount;
+        int head = 0;
+        int next = 1;
+        while (head < next && next - head < taskCount) {
+            next = splitRegion(head++, next);
+        }
+        int base = next;
+        for (int r = head; r < next; r++) {
+            regionBase[r] = base;
+            base += Math.max(0, 2 * (regionTo[r] - regionFrom[r]) - 2);
+        }
+        treeHead = head;
+        treeNext = next;
+        if (head < next) {
+            runTasks(pool, TREE);
+        }
+    }
+
+    /**
+     * Builds the subregions of region <code>r</code>, allocating them from
+     * <code>next</code>. Returns the next free region.
+     */
+    private int buildRegion(int r, int next) {
+        int first = next;
+        next = splitRegion(r, next);
+        for (int c = first, end = first + regionChildCount[r]; c < end; c++) {
+            next = buildRegion(c, next);
+        }
+        return next;
+    }
+
+    /**
+     * Computes the mass of region <code>r</code> and creates its direct
+     * subregions from <code>next</code>. Returns the next free region.
+     */
+    private int splitRegion(int r, int next) {
+        int from = regionFrom[r];
+        int to = regionTo[r];
+        regionChild[r] = next;
+        regionChildCount[r] = 0;
+        if (to - from < 2) {
+            return next;
+        }
+
+        // Compute mass and mass center
+        double m = 0;
+        double massSumX = 0;
+        double massSumY = 0;
+        for (int k = from; k < to; k++) {
+            int i = order[k];
+            m += mass[i];
+            massSumX += x[i] * mass[i];
+            massSumY += y[i] * mass[i];
+        }
+        float cx = (float) (massSumX / m);
+        float cy = (float) (massSumY / m);
+
+        // Compute size
+        double s = Double.MIN_VALUE;
+        for (int k = from; k < to; k++) {
+            int i = order[k];
+            double ddx = x[i] - cx;
+            double ddy = y[i] - cy;
+            s = Math.max(s, 2 * Math.sqrt(ddx * ddx + ddy * ddy));
+        }
+        regionMass[r] = (float) m;
+        regionX[r] = cx;
+        regionY[r] = cy;
+        regionSize[r] = (float) s;
+
+        // Split in four, left/right then top/bottom
+        int middle = partition(from, to, true, cx);
+        int leftMiddle = partition(from, middle, false, cy);
+        int rightMiddle = partition(middle, to, false, cy);
+
+        int total = to - from;
+        if (leftMiddle - from == total || middle - leftMiddle == total
+                || rightMiddle - middle == total || to - rightMiddle == total) {
+            // All nodes in the same quadrant, one subregion per node
+            for (int k = from; k < to; k++) {
+                next = addRegion(next, k, k + 1);
+            }
+        } else {
+            next = addRegion(next, from, leftMiddle);
+            next = addRegion(next, leftMiddle, middle);
+            next = addRegion(next, middle, rightMiddle);
+            next = addRegion(next, rightMiddle, to);
+        }
+        regionChildCount[r] = next - regionChild[r];
+        return next;
+    }
+
+    private int addRegion(int r, int from, int to) {
+        if (to <= from) {
+            return r;
+        }
+        regionFrom[r] = from;
+        regionTo[r] = to;
+        regionChildCount[r] = 0;
+        return r + 1;
+    }
+
+    /**
+     * Moves the nodes below <code>pivot</code> on the given axis to the front
+     * of <code>order[from..to)</code> and returns the split index.
+     */
+    private int partition(int from, int to, boolean horizontal, float pivot) {
+        float[] coord = horizontal ? x : y;
+        int i = from;
+        int j = to - 1;
+        while (i <= j) {
+            if (coord[order[i]] < pivot) {
+                i++;
+            } else {
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+                j--;
+            }
+        }
+        return i;
+    }
+
+    private void applyRegionRepulsion(int n, int r) {
+        if (regionTo[r] - regionFrom[r] < 2) {
+            applyNodeRepulsion(n, order[regionFrom[r]]);
+        } else {
+            double xDist = x[n] - regionX[r];
+            double yDist = y[n] - regionY[r];
+            double distance = Math.sqrt(xDist * xDist + yDist * yDist);
+            if (distance * theta > regionSize[r]) {
+                distance = (float) distance;
+                if (distance > 0) {
+                    // NB: factor = force / distance
+                    double factor = scalingRatio * mass[n] * regionMass[r] / distance / distance;
+                    dx[n] += xDist * factor;
+                    dy[n] += yDist * factor;
+                }
+            } else {
+                int end = regionChild[r] + regionChildCount[r];
+                for (int c = regionChild[r]; c < end; c++) {
+                    applyRegionRepulsion(n, c);
+                }
+            }
+        }
+    }
+
+    private void applyNodeRepulsion(int n1, int n2) {
+        double xDist = x[n1] - x[n2];
+        double yDist = y[n1] - y[n2];
+        if (adjustSizes) {
+            double distance = Math.sqrt(xDist * xDist + yDist * yDist) - size[n1] - size[n2];
+            if (distance > 0) {
+                double factor = scalingRatio * mass[n1] * mass[n2] / distance / distance;
+                dx[n1] += xDist * factor;
+                dy[n1] += yDist * factor;
+            } else if (distance < 0) {
+                double factor = 100 * scalingRatio * mass[n1] * mass[n2];
+                dx[n1] += xDist * factor;
+                dy[n1] += yDist * factor;
+            }
+        } else {
+            double distance = (float) Math.sqrt(xDist * xDist + yDist * yDist);
+            if (distance > 0) {
+                // NB: factor = force / distance
+                double factor = scalingRatio * mass[n1] * mass[n2] / distance / distance;
+                dx[n1] += xDist * factor;
+                dy[n1] += yDist * factor;
+            }
+        }
+    }
+
+    private void applyGravity(int n) {
+        double g = gravity / scalingRatio;
+        double distance = (float) Math.sqrt(x[n] * x[n] + y[n] * y[n]);
+        if (distance > 0) {
+            // NB: factor = force / distance
+            double factor = strongGravity ? scalingRatio * mass[n] * g : scalingRatio * mass[n] * g / distance;
+            dx[n] -= x[n] * factor;
+            dy[n] -= y[n] * factor;
+        }
+    }
+
+    /**
+     * Attraction of the edges incident to <code>n</code>, on <code>n</code>
+     * only.
+     */
+    private void applyAttraction(int n) {
+        for (int k = incOffsets[n]; k < incOffsets[n + 1]; k++) {
+            int m = incNeighbors[k];
+            double e;
+            if (edgeWeightInfluence == 0) {
+                e = 1;
+            } else if (edgeWeightInfluence == 1) {
+                e = incWeights[k];
+            } else {
+                e = Math.pow(incWeights[k], edgeWeightInfluence);
+            }
+
+            // Get the distance
+            double xDist = x[n] - x[m];
+            double yDist = y[n] - y[m];
+            double distance;
+            if (adjustSizes) {
+                distance = Math.sqrt(xDist * xDist + yDist * yDist) - size[n] - size[m];
+            } else if (linLog) {
+                distance = (float) Math.sqrt(xDist * xDist + yDist * yDist);
+            } else {
+                distance = 1;
+            }
+            if (!(distance > 0)) {
+                continue;
+            }
+
+            // NB: factor = force / distance
+            double factor = -attractionCoefficient * e;
+            if (linLog) {
+                factor *= Math.log(1 + distance) / distance;
+            }
+            if (distributed) {
+                factor /= mass[incSources[k]];
+            }
+
+            dx[n] += xDist * factor;
+            dy[n] += yDist * factor;
+        }
+    }
+
+    private class EngineTask implements Runnable {
+
+        private final int index;
+        private int phase;
+        private int from;
+        private int to;
+        private double swinging;
+        private double traction;
+
+        public EngineTask(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            switch (phase) {
+                case TREE:
+                    buildSubtrees();
+                    break;
+                case FORCES:
+                    applyForces();
+                    break;
+                case SWINGING:
+                    computeSwinging();
+                    break;
+                case APPLY:
+                    move();
+                    break;
+            }
+        }
+
+        private void buildSubtrees() {
+            // Pending regions are dealt out to tasks in turn
+            for (int r = treeHead + index; r < treeNext; r += tasks.length) {
+                buildRegion(r, regionBase[r]);
+            }
+        }
+
+        private void applyForces() {
+            // Repulsion
+            if (barnesHut) {
+                for (int n = from; n < to; n++) {
+                    applyRegionRepulsion(n, 0);
+                }
+            } else {
+                for (int n1 = from; n1 < to; n1++) {
+                    for (int n2 = 0; n2 < nodeCount; n2++) {
+                        if (n2 != n1) {
+                            applyNodeRepulsion(n1, n2);
+                        }
+                    }
+                }
+            }
+
+            // Gravity
+            for (int n = from; n < to; n++) {
+                applyGravity(n);
+            }
+
+            // Attraction
+            for (int n = from; n < to; n++) {
+                applyAttraction(n);
+            }
+        }
+
+        private void computeSwinging() {
+            swinging = 0;
+            traction = 0;
+            for (int i = from; i < to; i++) {
+                if (!fixed[i]) {
+                    double sx = oldDx[i] - dx[i];
+                    double sy = oldDy[i] - dy[i];
+                    double tx = oldDx[i] + dx[i];
+                    double ty = oldDy[i] + dy[i];
+                    swinging += mass[i] * Math.sqrt(sx * sx + sy * sy);   // If the node has a burst change of direction, then it's not converging.
+                    traction += mass[i] * 0.5 * Math.sqrt(tx * tx + ty * ty);
+                }
+            }
+        }
+
+        private void move() {
+            for (int i = from; i < to; i++) {
+                if (!fixed[i]) {
+                    // Adaptive auto-speed: the speed of each node is lowered
+                    // when the node swings.
+                    double sx = oldDx[i] - dx[i];
+                    double sy = oldDy[i] - dy[i];
+                    double swinging = Math.sqrt(sx * sx + sy * sy);
+                    double factor;
+                    if (adjustSizes) {
+                        // If nodes overlap prevention is active, it's not possible to trust the swinging mesure.
+                        factor = 0.1 * speed / (1f + speed * Math.sqrt(swinging));
+                        double df = Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i]);
+                        factor = Math.min(factor * df, 10.) / df;
+                    } else {
+                        factor = speed / (1f + speed * Math.sqrt(swinging));
+                    }
+                    x[i] = (float) (x[i] + dx[i] * factor);
+                    y[i] = (float) (y[i] + dy[i] * factor);
+                }
+            }
+        }
+    }
+}
@@ -42,6 +42,18 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.statistics;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.gephi.statistics.spi.StatisticsBuilder;
 import org.gephi.statistics.spi.Statistics;
 import org.gephi.statistics.api.*;
@@ -55,6 +67,7 @@ import org.gephi.dynamic.api.DynamicModel;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphController;
 import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.GraphView;
 import org.gephi.graph.api.HierarchicalGraph;
 import org.gephi.project.api.ProjectController;
 import org.gephi.utils.longtask.spi.LongTask;
@@ -63,6 +76,7 @@ import org.gephi.utils.longtask.api.LongTaskListener;
 import org.gephi.project.api.Workspace;
 import org.gephi.project.api.WorkspaceListener;
 import org.gephi.statistics.spi.DynamicStatistics;
+import org.gephi.statistics.spi.WindowIndependentStatistics;
 import org.gephi.utils.progress.Progress;
 import org.gephi.utils.progress.ProgressTicket;
 import org.openide.util.Lookup;
@@ -76,6 +90,8 @@ import org.openide.util.lookup.ServiceProvider;
 @ServiceProvider(service = StatisticsController.class)
 public class StatisticsControllerImpl implements StatisticsController {
 
+    //Windows submitted ahead of the merge, per worker thread
+    private static final int PENDING_WINDOWS_PER_THREAD = 4;
     private final StatisticsBuilder[] statisticsBuilders;
     private StatisticsModelImpl model;
 
@@ -192,30 +208,124 @@ public class StatisticsControllerImpl implements StatisticsController {
         }
 
         HierarchicalGraph graph = graphModel.getHierarchicalGraphVisible();
-        DynamicGraph dynamicGraph = dynamicModel.createDynamicGraph(graph, bounds);
 
         //Init
         statistics.execute(graphModel, attributeModel);
 
-        //Loop
-        for (double low = bounds.getLow(); low <= bounds.getHigh() - window; low += tick) {
-            double high = low + window;
+        if (statistics instanceof WindowIndependentStatistics) {
+            if (!executeParallel((WindowIndependentStatistics<?>) statistics, dynamicLongTask, graphModel, dynamicModel, graph, bounds, window, tick)) {
+                return;
+            }
+        } else {
+            DynamicGraph dynamicGraph = dynamicModel.createDynamicGraph(graph, bounds);
 
-            Graph g = dynamicGraph.getSnapshotGraph(low, high);
+            //Loop
+            for (double low = bounds.getLow(); low <= bounds.getHigh() - window; low += tick) {
+                double high = low + window;
 
-            statistics.loop(g.getView(), new Interval(low, high));
+                Graph g = dynamicGraph.getSnapshotGraph(low, high);
 
-            //Cancelled?
-            if (dynamicLongTask != null && dynamicLongTask.isCancelled()) {
-                return;
-            } else if (dynamicLongTask != null) {
-                dynamicLongTask.progress();
+                statistics.loop(g.getView(), new Interval(low, high));
+
+                //Cancelled?
+                if (dynamicLongTask != null && dynamicLongTask.isCancelled()) {
+                    return;
+                } else if (dynamicLongTask != null) {
+                    dynamicLongTask.progress();
+                }
             }
         }
         statistics.end();
         model.addReport(statistics);
     }
 
+    /**
+     * Evaluates the windows on a pool of worker threads, each with its own
+     * dynamic graph. Windows are handed out in time order, so the successive
+     * snapshots of a worker are close and cheap to update, and results are
+     * merged in time order as they complete. Returns <code>false</code> if
+     * the task was cancelled.
+     */
+    private <T> boolean executeParallel(final WindowIndependentStatistics<T> statistics, DynamicLongTask dynamicLongTask,
+            GraphModel graphModel, final DynamicModel dynamicModel, final HierarchicalGraph graph,
+            final Interval bounds, double window, double tick) {
+        List<Interval> intervals = new ArrayList<Interval>();
+        for (double low = bounds.getLow(); low <= bounds.getHigh() - window; low += tick) {
+            intervals.add(new Interval(low, low + window));
+        }
+        if (intervals.isEmpty()) {
+            return true;
+        }
+
+        final Set<GraphView> views = Collections.synchronizedSet(new HashSet<GraphView>());
+        final ThreadLocal<DynamicGraph> dynamicGraphs = new ThreadLocal<DynamicGraph>() {
+
+            @Override
+            protected DynamicGraph initialValue() {
+                return dynamicModel.createDynamicGraph(graph, bounds);
+            }
+        };
+
+        int threadCount = Math.min(Runtime.getRuntime().availableProcessors(), intervals.size());
+        int maxPending = threadCount * PENDING_WINDOWS_PER_THREAD;
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        LinkedList<Future<T>> pending = new LinkedList<Future<T>>();
+        int submitted = 0;
+        try {
+            for (int i = 0; i < intervals.size(); i++) {
+                while (submitted < intervals.size() && submitted < i + maxPending) {
+                    final Interval interval = intervals.get(submitted++);
+                    pending.add(pool.submit(new Callable<T>() {
+
+                        public T call() throws Exception {
+                            Graph g = dynamicGraphs.get().getSnapshotGraph(interval.getLow(), interval.getHigh());
+                            views.add(g.getView());
+                            return statistics.evaluate(g.getView(), interval);
+                        }
+                    }));
+                }
+
+                T result = pending.removeFirst().get();
+                statistics.merge(intervals.get(i), result);
+
+                //Cancelled?
+                if (dynamicLongTask != null && dynamicLongTask.isCancelled()) {
+                    return false;
+                } else if (dynamicLongTask != null) {
+                    dynamicLongTask.progress();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            for (Future<T> future : pending) {
+                future.cancel(false);
+            }
+            pool.shutdown();
+            boolean terminated = false;
+            try {
+                terminated = pool.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (terminated) {
+                synchronized (views) {
+                    for (GraphView view : views) {
+                        graphModel.destroyView(view);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
     public StatisticsBuilder getBuilder(Class<? extends Statistics> statisticsClass) {
         for (StatisticsBuilder b : statisticsBuilders) {
             if (b.getStatisticsClass().equals(statisticsClass)) {
@@ -58,6 +58,8 @@ import org.gephi.graph.api.GraphView;
  * network at this interval as parameter.</li>
  * <li>The <code>end()</code> method is finally called.</li></ol>
  * <p>
+ * Statistics whose windows can be computed independently should implement
+ * {@link WindowIndependentStatistics} to have them evaluated in parallel.
  * 
  * @author Mathieu Bastian
  */
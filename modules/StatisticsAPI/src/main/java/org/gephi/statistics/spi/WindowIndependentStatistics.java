@@ -0,0 +1,84 @@
+/*
+Copyright 2008-2010 Gephi
+Authors : Gephi Consortium
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.statistics.spi;
+
+import org.gephi.data.attributes.type.Interval;
+import org.gephi.graph.api.GraphView;
+
+/**
+ * Dynamic statistics whose result for a window doesn't depend on the other
+ * windows, and which can therefore be evaluated in parallel.
+ * <p>
+ * Implementing this interface replaces the <code>loop()</code> step by two
+ * steps:
+ * <ol><li>The <code>evaluate()</code> method is called concurrently on
+ * worker threads, each window with its own snapshot view. It computes the
+ * window result and must not modify the statistics, the graph or the
+ * attributes.</li>
+ * <li>The <code>merge()</code> method is called with each result, on a single
+ * thread and in increasing time order. It stores the result, for instance by
+ * appending it to a <code>DynamicType</code> value.</li></ol>
+ * <code>execute()</code> and <code>end()</code> are called as for any
+ * {@link DynamicStatistics}.
+ *
+ * @param <T> the type of the window results
+ * @author Gephi Consortium
+ */
+public interface WindowIndependentStatistics<T> extends DynamicStatistics {
+
+    /**
+     * Computes the result of the statistics on a snapshot of the graph. This
+     * method is called concurrently and has no side effect.
+     * @param window a snapshot of the graph at the current interval
+     * @param interval the interval of the current snapshot
+     * @return the window result
+     */
+    public T evaluate(GraphView window, Interval interval);
+
+    /**
+     * Stores the result of <code>interval</code>. Results are merged one at a
+     * time, in increasing time order.
+     * @param interval the interval of the result
+     * @param result the result returned by <code>evaluate()</code>
+     */
+    public void merge(Interval interval, T result);
+}
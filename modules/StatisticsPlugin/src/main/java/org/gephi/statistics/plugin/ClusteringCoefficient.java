@@ -43,8 +43,6 @@ package org.gephi.statistics.plugin;
 
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import org.gephi.statistics.spi.Statistics;
@@ -55,7 +53,6 @@ import org.gephi.data.attributes.api.AttributeModel;
 import org.gephi.data.attributes.api.AttributeOrigin;
 import org.gephi.data.attributes.api.AttributeRow;
 import org.gephi.data.attributes.api.AttributeType;
-import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.GraphController;
 import org.gephi.graph.api.GraphModel;
 import org.gephi.graph.api.HierarchicalDirectedGraph;
@@ -73,129 +70,6 @@ import org.gephi.graph.api.NodeIterable;
 /**
  * Ref: Matthieu Latapy, Main-memory Triangle Computations for Very Large (Sparse (Power-Law)) Graphs,
  * in Theoretical Computer Science (TCS) 407 (1-3), pages 458-473, 2008
- *
- * @author pjmcswee
- */
-class Renumbering implements Comparator<EdgeWrapper> {
-
-    public int compare(EdgeWrapper o1, EdgeWrapper o2) {
-        if (o1.wrapper.getID() < o2.wrapper.getID()) {
-            return -1;
-        } else if (o1.wrapper.getID() > o2.wrapper.getID()) {
-            return 1;
-        } else {
-            return 0;
-        }
-    }
-}
-
-/**
- *
- * @author pjmcswee
- */
-class EdgeWrapper {
-
-    public int count;
-    public ArrayWrapper wrapper;
-
-    public EdgeWrapper(int count, ArrayWrapper wrapper) {
-        this.count = count;
-        this.wrapper = wrapper;
-    }
-}
-
-/**
- *
- * @author pjmcswee
- */
-class ArrayWrapper implements Comparable {
-
-    private EdgeWrapper[] array;
-    private int ID;
-    public Node node;
-
-    /** Empty Constructor/ */
-    ArrayWrapper() {
-    }
-
-    /**
-     *
-     * @return The ID of this array wrapper
-     */
-    public int getID() {
-        return ID;
-    }
-
-    /**
-     *
-     * @return The adjacency array
-     */
-    public EdgeWrapper[] getArray() {
-        return array;
-    }
-
-    public void setArray(EdgeWrapper[] array) {
-        this.array = array;
-    }
-
-    /**
-     *
-     * @param pArray
-     */
-    ArrayWrapper(int ID, EdgeWrapper[] array) {
-        this.array = array;
-        this.ID = ID;
-    }
-
-    public void setID(int ID) {
-        this.ID = ID;
-    }
-
-    /**
-     *
-     * @param pIndex
-     * @return
-     */
-    public int get(int index) {
-        if (index >= array.length) {
-            return -1;
-        }
-        return array[index].wrapper.ID;
-    }
-
-    public int getCount(int index) {
-        if (index >= array.length) {
-            return -1;
-        }
-        return array[index].count;
-    }
-
-    /**
-     *
-     * @return
-     */
-    public int length() {
-        return array.length;
-    }
-
-    /**
-     *
-     * @param o
-     * @return
-     */
-    public int compareTo(Object o) {
-        ArrayWrapper aw = (ArrayWrapper) o;
-        if (aw.length() < length()) {
-            return -1;
-        }
-        if (aw.length() > length()) {
-            return 1;
-        }
-        return 0;
-    }
-}
-
-/**
  *
  * @author Patrick J. McSweeney
  */
@@ -207,12 +81,15 @@ public class ClusteringCoefficient implements Statistics, LongTask {
     /**Indicates should treat graph as undirected.*/
     private boolean isDirected;
     /** Indicates statistics should stop processing/*/
-    private boolean isCanceled;
+    private volatile boolean isCanceled;
     /** Keeps track of Progress made. */
     private ProgressTicket progress;
     private int[] triangles;
-    private ArrayWrapper[] network;
-    private int K;
+    /** Distinct neighbours count of each node, self excluded */
+    private int[] degrees;
+    private GraphSnapshot snapshot;
+    private volatile TriangleCounter counter;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
     private int N;
     private double[] nodeClustering;
     private int totalTriangles;
@@ -263,220 +140,52 @@ public class ClusteringCoefficient implements Statistics, LongTask {
             }
         }
 
+        if (isDirected || isCanceled) {
+            return;
+        }
         for (int v = 0; v < N; v++) {
-            if (network[v].length() > 1) {
-                AttributeRow row = (AttributeRow) network[v].node.getNodeData().getAttributes();
+            if (degrees[v] > 1) {
+                AttributeRow row = (AttributeRow) snapshot.getNode(v).getNodeData().getAttributes();
                 row.setValue(clusteringCol, nodeClustering[v]);
-                if(!isDirected)
-                    row.setValue(triCount, triangles[v]);
-            }
-        }
-    }
-
-    private int closest_in_array(int v) {
-        int right = network[v].length() - 1;
-
-        /* optimization for extreme cases */
-        if (right < 0) {
-            return (-1);
-        }
-        if (network[v].get(0) >= v) {
-            return (-1);
-        }
-        if (network[v].get(right) < v) {
-            return (right);
-        }
-        if (network[v].get(right) == v) {
-            return (right - 1);
-        }
-
-        int left = 0, mid;
-        while (right > left) {
-            mid = (left + right) / 2;
-            if (v < network[v].get(mid)) {
-                right = mid - 1;
-            } else if (v > network[v].get(mid)) {
-                left = mid + 1;
-            } else {
-                return (mid - 1);
-            }
-        }
-
-
-        if (v > network[v].get(right)) {
-            return (right);
-        } else {
-
-            return right - 1;
-        }
-    }
-
-    /**
-     *
-     * @param v - The specific node to count the triangles on.
-     */
-    private void newVertex(int v) {
-        int[] A = new int[N];
-
-        for (int i = network[v].length() - 1; (i >= 0) && (network[v].get(i) > v); i--) {
-            int neighbor = network[v].get(i);
-            A[neighbor] = network[v].getCount(i);
-        }
-        for (int i = network[v].length() - 1; i >= 0; i--) {
-            int neighbor = network[v].get(i);
-            for (int j = closest_in_array(neighbor); j >= 0; j--) {
-                int next = network[neighbor].get(j);
-                if (A[next] > 0) {
-                    triangles[next] += network[v].getCount(i);
-                    triangles[v] += network[v].getCount(i);
-                    triangles[neighbor] += A[next];
-                }
-            }
-        }
-    }
-
-    private void tr_link_nohigh(int u, int v, int count) {
-        int iu = 0, iv = 0, w;
-        while ((iu < network[u].length()) && (iv < network[v].length())) {
-            if (network[u].get(iu) < network[v].get(iv)) {
-                iu++;
-            } else if (network[u].get(iu) > network[v].get(iv)) {
-                iv++;
-            } else { /* neighbor in common */
-                w = network[u].get(iu);
-                if (w >= K) {
-                    triangles[w] += count;
-                }
-                iu++;
-                iv++;
+                row.setValue(triCount, triangles[v]);
             }
         }
     }
 
     public void triangles(HierarchicalGraph hgraph) {
-
-        int ProgressCount = 0;
-        Progress.start(progress, 7 * hgraph.getNodeCount());
-
         hgraph.readLock();
 
-        N = hgraph.getNodeCount();
+        snapshot = GraphSnapshot.get(hgraph, false);
+        N = snapshot.getNodeCount();
         nodeClustering = new double[N];
-
-        /** Create network for processing */
-        network = new ArrayWrapper[N];
-
-        /**  */
-        HashMap<Node, Integer> indicies = new HashMap<Node, Integer>();
-        int index = 0;
-        for (Node s : hgraph.getNodes()) {
-            indicies.put(s, index);
-            network[index] = new ArrayWrapper();
-            index++;
-            Progress.progress(progress, ++ProgressCount);
-        }
-
-        index = 0;
-        for (Node node : hgraph.getNodes()) {
-            HashMap<Node, EdgeWrapper> neighborTable = new HashMap<Node, EdgeWrapper>();
-
-            if (!isDirected) {
-                for (Edge edge : hgraph.getEdgesAndMetaEdges(node)) {
-                    Node neighbor = hgraph.getOpposite(node, edge);
-                    neighborTable.put(neighbor, new EdgeWrapper(1, network[indicies.get(neighbor)]));
-                }
-            } else {
-                for (Edge in : ((HierarchicalDirectedGraph) hgraph).getInEdgesAndMetaInEdges(node)) {
-                    Node neighbor = in.getSource().getNodeData().getNode(hgraph.getView().getViewId());
-                    neighborTable.put(neighbor, new EdgeWrapper(1, network[indicies.get(neighbor)]));
-                }
-
-                for (Edge out : ((HierarchicalDirectedGraph) hgraph).getOutEdgesAndMetaOutEdges(node)) {
-                    Node neighbor = out.getTarget().getNodeData().getNode(hgraph.getView().getViewId());
-                    EdgeWrapper ew = neighborTable.get(neighbor);
-                    if (ew == null) {
-                        neighborTable.put(neighbor, new EdgeWrapper(1, network[indicies.get(neighbor)]));
-                    } else {
-                        ew.count++;
-                    }
-                }
-            }
-
-            EdgeWrapper[] edges = new EdgeWrapper[neighborTable.size()];
-            int i = 0;
-            for (EdgeWrapper e : neighborTable.values()) {
-                edges[i] = e;
-                i++;
-            }
-            network[index].node = node;
-            network[index].setArray(edges);
-            index++;
-            Progress.progress(progress, ++ProgressCount);
-
-            if (isCanceled) {
-                hgraph.readUnlockAll();
-                return;
-            }
-        }
-
-        Arrays.sort(network);
-        for (int j = 0; j < N; j++) {
-            network[j].setID(j);
-            Progress.progress(progress, ++ProgressCount);
-        }
-
-        for (int j = 0; j < N; j++) {
-            Arrays.sort(network[j].getArray(), new Renumbering());
-            Progress.progress(progress, ++ProgressCount);
-        }
-
+        degrees = new int[N];
         triangles = new int[N];
-        K = (int) Math.sqrt(N);
 
+        Progress.start(progress);
 
-        for (int v = 0; v < K && v < N; v++) {
-            newVertex(v);
-            Progress.progress(progress, ++ProgressCount);
-        }
-
-        /* remaining links */
-        for (int v = N - 1; (v >= 0) && (v >= K); v--) {
-            for (int i = closest_in_array(v); i >= 0; i--) {
-                int u = network[v].get(i);
-                if (u >= K) {
-                    tr_link_nohigh(u, v, network[v].getCount(i));
-                }
-            }
-            Progress.progress(progress, ++ProgressCount);
-
-            if (isCanceled) {
-                hgraph.readUnlockAll();
-                return;
-            }
+        counter = new TriangleCounter(snapshot, threadCount);
+        int[] counts = isCanceled ? null : counter.count();
+        if (counts == null) {
+            hgraph.readUnlockAll();
+            return;
         }
+        triangles = counts;
+        degrees = counter.getDegrees();
 
         //Results and average
         avgClusteringCoeff = 0;
         totalTriangles = 0;
         int numNodesDegreeGreaterThanOne = 0;
         for (int v = 0; v < N; v++) {
-            if (network[v].length() > 1) {
+            if (degrees[v] > 1) {
                 numNodesDegreeGreaterThanOne++;
                 double cc = triangles[v];
                 totalTriangles += triangles[v];
-                cc /= (network[v].length() * (network[v].length() - 1));
-                if (!isDirected) {
-                    cc *= 2.0f;
-                }
+                cc /= (degrees[v] * (degrees[v] - 1));
+                cc *= 2.0f;
                 nodeClustering[v] = cc;
                 avgClusteringCoeff += cc;
             }
-            Progress.progress(progress, ++ProgressCount);
-
-            if (isCanceled) {
-                hgraph.readUnlockAll();
-                return;
-            }
         }
         totalTriangles /= 3;
         avgClusteringCoeff /= numNodesDegreeGreaterThanOne;
@@ -621,8 +330,20 @@ public class ClusteringCoefficient implements Statistics, LongTask {
         return isDirected;
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
     public boolean cancel() {
         isCanceled = true;
+        TriangleCounter c = counter;
+        if (c != null) {
+            c.cancel();
+        }
         return true;
     }
 
@@ -633,7 +354,7 @@ public class ClusteringCoefficient implements Statistics, LongTask {
     public double[] getCoefficientReuslts() {
         double[] res = new double[N];
         for (int v = 0; v < N; v++) {
-            if (network[v].length() > 1) {
+            if (degrees[v] > 1) {
                 res[v] = nodeClustering[v];
             }
         }
@@ -643,7 +364,7 @@ public class ClusteringCoefficient implements Statistics, LongTask {
     public double[] getTriangesReuslts() {
         double[] res = new double[N];
         for (int v = 0; v < N; v++) {
-            if (network[v].length() > 1) {
+            if (degrees[v] > 1) {
                 res[v] = triangles[v];
             }
         }
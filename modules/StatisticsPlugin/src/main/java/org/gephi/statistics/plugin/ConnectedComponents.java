@@ -44,24 +44,25 @@ package org.gephi.statistics.plugin;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.gephi.data.attributes.api.AttributeColumn;
 import org.gephi.data.attributes.api.AttributeModel;
 import org.gephi.data.attributes.api.AttributeOrigin;
 import org.gephi.data.attributes.api.AttributeRow;
 import org.gephi.data.attributes.api.AttributeTable;
 import org.gephi.data.attributes.api.AttributeType;
-import org.gephi.graph.api.Edge;
-import org.gephi.graph.api.EdgeIterable;
 import org.gephi.graph.api.GraphController;
 import org.gephi.graph.api.GraphModel;
 import org.gephi.graph.api.HierarchicalDirectedGraph;
 import org.gephi.graph.api.HierarchicalUndirectedGraph;
-import org.gephi.graph.api.Node;
-import org.gephi.graph.api.NodeIterable;
 import org.gephi.statistics.spi.Statistics;
 import org.gephi.utils.longtask.spi.LongTask;
 import org.gephi.utils.progress.Progress;
@@ -83,10 +84,15 @@ public class ConnectedComponents implements Statistics, LongTask {
     public static final String STRONG = "strongcompnum";
     private boolean isDirected;
     private ProgressTicket progress;
-    private boolean isCanceled;
+    private volatile boolean isCanceled;
     private int componentCount;
     private int stronglyCount;
     private int[] componentsSize;
+    /** Use parallel label propagation instead of union-find for weak components */
+    private boolean isParallel;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    /** Graphs smaller than this always use union-find */
+    private static final int PARALLEL_THRESHOLD = 10000;
     int count;
 
     public ConnectedComponents() {
@@ -115,84 +121,150 @@ public class ConnectedComponents implements Statistics, LongTask {
             componentCol = nodeTable.addColumn(WEAKLY, "Component ID", AttributeType.INT, AttributeOrigin.COMPUTED, new Integer(0));
         }
 
-        List<Integer> sizeList = new ArrayList<Integer>();
-
         hgraph.readLock();
 
-        HashMap<Node, Integer> indicies = new HashMap<Node, Integer>();
-        int index = 0;
-        for (Node s : hgraph.getNodes()) {
-            indicies.put(s, index);
-            index++;
-        }
-
+        GraphSnapshot snapshot = GraphSnapshot.get(hgraph, false);
+        int N = snapshot.getNodeCount();
 
-        int N = hgraph.getNodeCount();
+        Progress.start(progress, N);
 
-        //Keep track of which nodes have been seen
-        int[] color = new int[N];
-
-        Progress.start(progress, hgraph.getNodeCount());
-        int seenCount = 0;
-        while (seenCount < N) {
-            //The search Q
-            LinkedList<Node> Q = new LinkedList<Node>();
-            //The component-list
-            LinkedList<Node> component = new LinkedList<Node>();
+        int[] roots;
+        if (isParallel && threadCount > 1 && N >= PARALLEL_THRESHOLD) {
+            roots = labelPropagation(snapshot);
+        } else {
+            roots = unionFind(snapshot);
+        }
+        if (roots == null || isCanceled) {
+            hgraph.readUnlockAll();
+            return;
+        }
 
-            //Seed the seach Q
-            NodeIterable iter = hgraph.getNodes();
-            for (Node first : iter) {
-                if (color[indicies.get(first)] == 0) {
-                    Q.add(first);
-                    iter.doBreak();
-                    break;
-                }
+        //Number components by order of first appearance
+        int[] componentIds = new int[N];
+        int[] sizes = new int[N];
+        Arrays.fill(componentIds, -1);
+        for (int i = 0; i < N; i++) {
+            int root = roots[i];
+            if (componentIds[root] == -1) {
+                componentIds[root] = componentCount++;
             }
+            int id = componentIds[root];
+            sizes[id]++;
+            AttributeRow row = (AttributeRow) snapshot.getNode(i).getNodeData().getAttributes();
+            row.setValue(componentCol, id);
+            Progress.progress(progress, i);
+        }
+        hgraph.readUnlock();
 
-            //While there are more nodes to search
-            while (!Q.isEmpty()) {
-                if (isCanceled) {
-                    hgraph.readUnlock();
-                    return;
+        componentsSize = Arrays.copyOf(sizes, componentCount);
+    }
+
+    /**
+     * Union-find with union by size and path halving. Returns the root of
+     * each node.
+     */
+    private int[] unionFind(GraphSnapshot snapshot) {
+        int N = snapshot.getNodeCount();
+        int[] offsets = snapshot.getOutOffsets();
+        int[] targets = snapshot.getOutTargets();
+        int[] parent = new int[N];
+        int[] size = new int[N];
+        for (int i = 0; i < N; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+        for (int u = 0; u < N; u++) {
+            for (int j = offsets[u]; j < offsets[u + 1]; j++) {
+                int v = targets[j];
+                if (v < u) {
+                    //Each undirected edge is seen from both ends
+                    continue;
                 }
-                //Get the next Node and add it to the component list
-                Node u = Q.removeFirst();
-                component.add(u);
-
-                //Iterate over all of u's neighbors
-                EdgeIterable edgeIter = hgraph.getEdgesAndMetaEdges(u);
-
-                //For each neighbor
-                for (Edge edge : edgeIter) {
-                    Node reachable = hgraph.getOpposite(u, edge);
-                    int id = indicies.get(reachable);
-                    //If this neighbor is unvisited
-                    if (color[id] == 0) {
-                        color[id] = 1;
-                        //Add it to the search Q
-                        Q.addLast(reachable);
-                        //Mark it as used 
-
-                        Progress.progress(progress, seenCount);
+                int ru = find(parent, u);
+                int rv = find(parent, v);
+                if (ru != rv) {
+                    if (size[ru] < size[rv]) {
+                        int tmp = ru;
+                        ru = rv;
+                        rv = tmp;
                     }
+                    parent[rv] = ru;
+                    size[ru] += size[rv];
                 }
-                color[indicies.get(u)] = 2;
-                seenCount++;
             }
-            for (Node s : component) {
-                AttributeRow row = (AttributeRow) s.getNodeData().getAttributes();
-                row.setValue(componentCol, componentCount);
+            if (isCanceled) {
+                return null;
             }
-            sizeList.add(component.size());
-            componentCount++;
         }
-        hgraph.readUnlock();
+        for (int i = 0; i < N; i++) {
+            parent[i] = find(parent, i);
+        }
+        return parent;
+    }
 
-        componentsSize = new int[sizeList.size()];
-        for (int i = 0; i < sizeList.size(); i++) {
-            componentsSize[i] = sizeList.get(i);
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
         }
+        return i;
+    }
+
+    /**
+     * Parallel minimum label propagation, each node ends up labelled with the
+     * smallest node index of its component. Labels only decrease and each node
+     * is written by a single thread, so stale reads only delay convergence.
+     */
+    private int[] labelPropagation(GraphSnapshot snapshot) {
+        final int N = snapshot.getNodeCount();
+        final int[] offsets = snapshot.getOutOffsets();
+        final int[] targets = snapshot.getOutTargets();
+        final int[] labels = new int[N];
+        for (int i = 0; i < N; i++) {
+            labels[i] = i;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        try {
+            boolean changed = true;
+            while (changed && !isCanceled) {
+                List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(threadCount);
+                for (int t = 0; t < threadCount; t++) {
+                    final int from = (int) ((long) N * t / threadCount);
+                    final int to = (int) ((long) N * (t + 1) / threadCount);
+                    futures.add(pool.submit(new Callable<Boolean>() {
+
+                        public Boolean call() {
+                            boolean changed = false;
+                            for (int i = from; i < to; i++) {
+                                int label = labels[i];
+                                for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                                    label = Math.min(label, labels[targets[j]]);
+                                }
+                                //Pointer jumping, labels[k] <= k always holds
+                                label = labels[label];
+                                if (label < labels[i]) {
+                                    labels[i] = label;
+                                    changed = true;
+                                }
+                            }
+                            return changed;
+                        }
+                    }));
+                }
+                changed = false;
+                for (Future<Boolean> future : futures) {
+                    changed |= future.get();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return labels;
     }
 
     public void top_tarjans(HierarchicalDirectedGraph hgraph, AttributeModel attributeModel) {
@@ -206,65 +278,86 @@ public class ConnectedComponents implements Statistics, LongTask {
 
         hgraph.readLock();
 
-        HashMap<Node, Integer> indicies = new HashMap<Node, Integer>();
-        int v = 0;
-        for (Node s : hgraph.getNodes()) {
-            indicies.put(s, v);
-            v++;
+        GraphSnapshot snapshot = GraphSnapshot.get(hgraph, true);
+        int N = snapshot.getNodeCount();
+        int[] components = tarjans(snapshot);
+        if (components == null) {
+            hgraph.readUnlockAll();
+            return;
         }
-        int N = hgraph.getNodeCount();
-        int[] index = new int[N];
-        int[] low_index = new int[N];
-
-        while (true) {
-            //The search Q
-            LinkedList<Node> S = new LinkedList<Node>();
-            //The component-list
-            //LinkedList<Node> component = new LinkedList<Node>();
-            //Seed the seach Q
-            Node first = null;
-            NodeIterable iter = hgraph.getNodes();
-            for (Node u : iter) {
-                if (index[indicies.get(u)] == 0) {
-                    first = u;
-                    iter.doBreak();
-                    break;
-                }
-            }
-            if (first == null) {
-                hgraph.readUnlockAll();
-                return;
-            }
-            tarjans(componentCol, S, hgraph, first, index, low_index, indicies);
+        for (int v = 0; v < N; v++) {
+            AttributeRow row = (AttributeRow) snapshot.getNode(v).getNodeData().getAttributes();
+            row.setValue(componentCol, components[v]);
         }
+        hgraph.readUnlockAll();
     }
 
-    private void tarjans(AttributeColumn col, LinkedList<Node> S, HierarchicalDirectedGraph hgraph, Node f, int[] index, int[] low_index, HashMap<Node, Integer> indicies) {
-        int id = indicies.get(f);
-        index[id] = count;
-        low_index[id] = count;
-        count++;
-        S.addFirst(f);
-        EdgeIterable edgeIter = hgraph.getOutEdgesAndMetaOutEdges(f);
-        for (Edge e : edgeIter) {
-            Node u = hgraph.getOpposite(f, e);
-            int x = indicies.get(u);
-            if (index[x] == 0) {
-                tarjans(col, S, hgraph, u, index, low_index, indicies);
-                low_index[id] = Math.min(low_index[x], low_index[id]);
-            } else if (S.contains(u)) {
-                low_index[id] = Math.min(low_index[id], index[x]);
+    /**
+     * Tarjan's algorithm with an explicit call stack, so that long chains
+     * don't overflow the thread stack. Returns the strongly connected
+     * component of each node.
+     */
+    private int[] tarjans(GraphSnapshot snapshot) {
+        int N = snapshot.getNodeCount();
+        int[] offsets = snapshot.getOutOffsets();
+        int[] targets = snapshot.getOutTargets();
+        int[] index = new int[N];
+        int[] low_index = new int[N];
+        boolean[] onStack = new boolean[N];
+        int[] components = new int[N];
+        //Tarjan's stack
+        int[] S = new int[N];
+        int sTop = 0;
+        //Call stack, with the next edge to visit of each node
+        int[] callStack = new int[N];
+        int[] edgePos = new int[N];
+        int callTop = 0;
+
+        for (int root = 0; root < N; root++) {
+            if (index[root] != 0) {
+                continue;
             }
-        }
-        if (low_index[id] == index[id]) {
-            Node v = null;
-            while (v != f) {
-                v = S.removeFirst();
-                AttributeRow row = (AttributeRow) v.getNodeData().getAttributes();
-                row.setValue(col, stronglyCount);
+            index[root] = low_index[root] = count++;
+            S[sTop++] = root;
+            onStack[root] = true;
+            edgePos[root] = offsets[root];
+            callStack[callTop++] = root;
+
+            while (callTop > 0) {
+                int id = callStack[callTop - 1];
+                if (edgePos[id] < offsets[id + 1]) {
+                    int x = targets[edgePos[id]++];
+                    if (index[x] == 0) {
+                        index[x] = low_index[x] = count++;
+                        S[sTop++] = x;
+                        onStack[x] = true;
+                        edgePos[x] = offsets[x];
+                        callStack[callTop++] = x;
+                    } else if (onStack[x]) {
+                        low_index[id] = Math.min(low_index[id], index[x]);
+                    }
+                } else {
+                    callTop--;
+                    if (callTop > 0) {
+                        int parent = callStack[callTop - 1];
+                        low_index[parent] = Math.min(low_index[parent], low_index[id]);
+                    }
+                    if (low_index[id] == index[id]) {
+                        int v;
+                        do {
+                            v = S[--sTop];
+                            onStack[v] = false;
+                            components[v] = stronglyCount;
+                        } while (v != id);
+                        stronglyCount++;
+                    }
+                }
+            }
+            if (isCanceled) {
+                return null;
             }
-            stronglyCount++;
         }
+        return components;
     }
 
     public int getConnectedComponentsCount() {
@@ -279,6 +372,33 @@ public class ConnectedComponents implements Statistics, LongTask {
         return isDirected;
     }
 
+    public int getStronglyConnectedComponentsCount() {
+        return stronglyCount;
+    }
+
+    public boolean isParallel() {
+        return isParallel;
+    }
+
+    /**
+     * Computes weakly connected components with parallel label propagation
+     * instead of union-find. Only worth it on large graphs with a small
+     * diameter, as the number of passes grows with the diameter.
+     *
+     * @param isParallel <code>true</code> to use label propagation
+     */
+    public void setParallel(boolean isParallel) {
+        this.isParallel = isParallel;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
     public int[] getComponentsSize() {
         return componentsSize;
     }
@@ -0,0 +1,253 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.statistics.plugin;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.data.attributes.api.AttributeOrigin;
+import org.gephi.data.attributes.api.AttributeRow;
+import org.gephi.data.attributes.api.AttributeTable;
+import org.gephi.data.attributes.api.AttributeType;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.statistics.spi.Statistics;
+import org.gephi.utils.longtask.spi.LongTask;
+import org.gephi.utils.progress.Progress;
+import org.gephi.utils.progress.ProgressTicket;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import org.openide.util.NbBundle;
+
+/**
+ * Computes the coreness of each node, the largest <code>k</code> such that the
+ * node belongs to the k-core of the graph. The k-core is the maximal subgraph
+ * where all nodes have a degree of at least <code>k</code>.
+ * <p>
+ * Uses the bucket algorithm from V. Batagelj and M. Zaversnik, <i>An O(m)
+ * Algorithm for Cores Decomposition of Networks</i>, which runs in
+ * <code>O(N + E)</code>. Edges are considered undirected and self-loops are
+ * ignored.
+ *
+ * @author Gephi Consortium
+ */
+public class Coreness implements Statistics, LongTask {
+
+    public static final String CORENESS = "coreness";
+    private ProgressTicket progress;
+    private volatile boolean isCanceled;
+    private int maxCoreness;
+    private Map<Integer, Integer> corenessDist;
+
+    public void execute(GraphModel graphModel, AttributeModel attributeModel) {
+        HierarchicalGraph graph = graphModel.getHierarchicalGraphVisible();
+        execute(graph, attributeModel);
+    }
+
+    public void execute(HierarchicalGraph graph, AttributeModel attributeModel) {
+        isCanceled = false;
+        corenessDist = new HashMap<Integer, Integer>();
+        maxCoreness = 0;
+
+        AttributeTable nodeTable = attributeModel.getNodeTable();
+        AttributeColumn corenessCol = nodeTable.getColumn(CORENESS);
+        if (corenessCol == null) {
+            corenessCol = nodeTable.addColumn(CORENESS, NbBundle.getMessage(Coreness.class, "Coreness.nodecolumn.Coreness"), AttributeType.INT, AttributeOrigin.COMPUTED, 0);
+        }
+
+        graph.readLock();
+
+        GraphSnapshot snapshot = GraphSnapshot.get(graph, false);
+        int nodeCount = snapshot.getNodeCount();
+        Progress.start(progress, nodeCount);
+
+        int[] coreness = computeCoreness(snapshot);
+        for (int i = 0; i < nodeCount && !isCanceled; i++) {
+            AttributeRow row = (AttributeRow) snapshot.getNode(i).getNodeData().getAttributes();
+            row.setValue(corenessCol, coreness[i]);
+            maxCoreness = Math.max(maxCoreness, coreness[i]);
+            Integer count = corenessDist.get(coreness[i]);
+            corenessDist.put(coreness[i], count == null ? 1 : count + 1);
+            Progress.progress(progress, i + 1);
+        }
+
+        graph.readUnlockAll();
+    }
+
+    /**
+     * Returns the coreness of each node of <code>snapshot</code>, indexed like
+     * the snapshot's nodes. The snapshot's adjacency is used as undirected.
+     *
+     * @param snapshot the graph
+     * @return the coreness of each node
+     */
+    public static int[] computeCoreness(GraphSnapshot snapshot) {
+        int n = snapshot.getNodeCount();
+        int[] offsets = snapshot.getOutOffsets();
+        int[] targets = snapshot.getOutTargets();
+        int[] inOffsets = snapshot.getInOffsets();
+        int[] inTargets = snapshot.getInTargets();
+        boolean directed = snapshot.isDirected();
+
+        //Degrees, without self-loops
+        int[] degree = new int[n];
+        int maxDegree = 0;
+        for (int v = 0; v < n; v++) {
+            int d = 0;
+            for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+                if (targets[j] != v) {
+                    d++;
+                }
+            }
+            if (directed) {
+                for (int j = inOffsets[v]; j < inOffsets[v + 1]; j++) {
+                    if (inTargets[j] != v) {
+                        d++;
+                    }
+                }
+            }
+            degree[v] = d;
+            maxDegree = Math.max(maxDegree, d);
+        }
+
+        //Bucket sort of nodes by degree
+        int[] bin = new int[maxDegree + 1];
+        for (int v = 0; v < n; v++) {
+            bin[degree[v]]++;
+        }
+        int start = 0;
+        for (int d = 0; d <= maxDegree; d++) {
+            int count = bin[d];
+            bin[d] = start;
+            start += count;
+        }
+        int[] pos = new int[n];
+        int[] vert = new int[n];
+        for (int v = 0; v < n; v++) {
+            pos[v] = bin[degree[v]]++;
+            vert[pos[v]] = v;
+        }
+        for (int d = maxDegree; d > 0; d--) {
+            bin[d] = bin[d - 1];
+        }
+        bin[0] = 0;
+
+        //Peel nodes by increasing degree, the degree left is the coreness
+        for (int i = 0; i < n; i++) {
+            int v = vert[i];
+            decrement(v, offsets, targets, degree, bin, pos, vert);
+            if (directed) {
+                decrement(v, inOffsets, inTargets, degree, bin, pos, vert);
+            }
+        }
+        return degree;
+    }
+
+    private static void decrement(int v, int[] offsets, int[] targets, int[] degree, int[] bin, int[] pos, int[] vert) {
+        for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+            int u = targets[j];
+            if (degree[u] > degree[v]) {
+                //Move u to the start of its bucket and shrink the bucket
+                int du = degree[u];
+                int pu = pos[u];
+                int pw = bin[du];
+                int w = vert[pw];
+                if (u != w) {
+                    pos[u] = pw;
+                    vert[pu] = w;
+                    pos[w] = pu;
+                    vert[pw] = u;
+                }
+                bin[du]++;
+                degree[u]--;
+            }
+        }
+    }
+
+    public int getMaxCoreness() {
+        return maxCoreness;
+    }
+
+    public String getReport() {
+        XYSeries dSeries = ChartUtils.createXYSeries(corenessDist, "Coreness Distribution");
+
+        XYSeriesCollection dataset = new XYSeriesCollection();
+        dataset.addSeries(dSeries);
+
+        JFreeChart chart = ChartFactory.createXYLineChart(
+                "Coreness Distribution",
+                "Value",
+                "Count",
+                dataset,
+                PlotOrientation.VERTICAL,
+                true,
+                false,
+                false);
+        chart.removeLegend();
+        ChartUtils.decorateChart(chart);
+        ChartUtils.scaleChart(chart, dSeries, false);
+        String imageFile = ChartUtils.renderChart(chart, "coreness-distribution.png");
+
+        String report = "<HTML> <BODY> <h1>Coreness Report </h1> "
+                + "<hr>"
+                + "<br> <h2> Results: </h2>"
+                + "Max Coreness: " + maxCoreness
+                + "<br /><br />" + imageFile
+                + "<br /><br />" + "<h2> Algorithm: </h2>"
+                + "Vladimir Batagelj, Matjaz Zaversnik, <i>An O(m) Algorithm for Cores Decomposition of Networks</i>, 2003"
+                + "</BODY></HTML>";
+        return report;
+    }
+
+    public boolean cancel() {
+        isCanceled = true;
+        return true;
+    }
+
+    public void setProgressTicket(ProgressTicket progressTicket) {
+        this.progress = progressTicket;
+    }
+}
@@ -44,6 +44,7 @@ package org.gephi.statistics.plugin;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.gephi.data.attributes.api.AttributeTable;
 import org.gephi.data.attributes.api.AttributeColumn;
@@ -83,6 +84,7 @@ public class Degree implements Statistics, LongTask {
     private Map<Integer, Integer> inDegreeDist;
     private Map<Integer, Integer> outDegreeDist;
     private Map<Integer, Integer> degreeDist;
+    private boolean incremental;
 
     /**
      *
@@ -130,22 +132,58 @@ public class Degree implements Statistics, LongTask {
             avgDegreeCol = graphTable.addColumn(AVERAGE_DEGREE, NbBundle.getMessage(Degree.class, "Degree.graphcolumn.AverageDegree"), AttributeType.DOUBLE, AttributeOrigin.COMPUTED, 0.0);
         }
 
-        int i = 0;
-
         graph.readLock();
 
+        //Only the nodes touched since the previous execution are recomputed when possible
+        DegreeUpdater updater = null;
+        DegreeUpdater.Tracker<Integer> tracker = null;
+        if (incremental && graph.getView().isMainView() && graph.getHeight() == 0) {
+            updater = DegreeUpdater.get(graph.getGraphModel(), attributeModel);
+            if (updater != null) {
+                tracker = updater.getTracker(isDirected ? DEGREE + "." + OUTDEGREE : DEGREE, false);
+            }
+        }
+
+        if (tracker == null) {
+            fullPass(graph, null, degCol, inCol, outCol);
+        } else {
+            synchronized (tracker) {
+                List<Node> dirty = updater.getDirtyNodes(tracker, graph, degCol, inCol, outCol);
+                if (dirty == null || !update(graph, tracker, dirty, degCol, inCol, outCol)) {
+                    updater.reset(tracker);
+                    fullPass(graph, tracker, degCol, inCol, outCol);
+                }
+                if (isCanceled) {
+                    updater.invalidate(tracker);
+                } else {
+                    updater.synced(tracker, graph, degCol, inCol, outCol);
+                }
+            }
+        }
+
+        graph.getAttributes().setValue(avgDegreeCol.getIndex(), avgDegree);
+
+        graph.readUnlockAll();
+    }
+
+    private void fullPass(HierarchicalGraph graph, DegreeUpdater.Tracker<Integer> tracker, AttributeColumn degCol, AttributeColumn inCol, AttributeColumn outCol) {
+        int i = 0;
+
         Progress.start(progress, graph.getNodeCount());
-        
+
         HierarchicalDirectedGraph directedGraph = null;
         if(isDirected) {
             directedGraph = graph.getGraphModel().getHierarchicalDirectedGraphVisible();
         }
 
+        avgDegree = 0;
         for (Node n : graph.getNodes()) {
             AttributeRow row = (AttributeRow) n.getNodeData().getAttributes();
+            Integer inDegree = null;
+            Integer outDegree = null;
             if (isDirected) {
-                int inDegree = directedGraph.getTotalInDegree(n);
-                int outDegree = directedGraph.getTotalOutDegree(n);
+                inDegree = directedGraph.getTotalInDegree(n);
+                outDegree = directedGraph.getTotalOutDegree(n);
                 row.setValue(inCol, inDegree);
                 row.setValue(outCol, outDegree);
                 if (!inDegreeDist.containsKey(inDegree)) {
@@ -164,6 +202,9 @@ public class Degree implements Statistics, LongTask {
                 degreeDist.put(degree, 0);
             }
             degreeDist.put(degree, degreeDist.get(degree) + 1);
+            if (tracker != null) {
+                tracker.add(n, degree, inDegree, outDegree);
+            }
 
             if (isCanceled) {
                 break;
@@ -173,9 +214,89 @@ public class Degree implements Statistics, LongTask {
         }
 
         avgDegree /= graph.getNodeCount();
-        graph.getAttributes().setValue(avgDegreeCol.getIndex(), avgDegree);
+    }
 
-        graph.readUnlockAll();
+    /*
+     * Recomputes the dirty nodes and applies the differences to the tracked
+     * results. Returns false if the results don't match the graph, when
+     * events have been missed.
+     */
+    private boolean update(HierarchicalGraph graph, DegreeUpdater.Tracker<Integer> tracker, List<Node> dirty, AttributeColumn degCol, AttributeColumn inCol, AttributeColumn outCol) {
+        int i = 0;
+
+        Progress.start(progress, dirty.size());
+
+        HierarchicalDirectedGraph directedGraph = null;
+        if(isDirected) {
+            directedGraph = graph.getGraphModel().getHierarchicalDirectedGraphVisible();
+        }
+
+        for (Node n : dirty) {
+            AttributeRow row = (AttributeRow) n.getNodeData().getAttributes();
+            if (tracker.isCounted(n)) {
+                tracker.remove(n, getInt(row, degCol), isDirected ? getInt(row, inCol) : null, isDirected ? getInt(row, outCol) : null);
+            }
+            if (graph.contains(n)) {
+                Integer inDegree = null;
+                Integer outDegree = null;
+                if (isDirected) {
+                    inDegree = directedGraph.getTotalInDegree(n);
+                    outDegree = directedGraph.getTotalOutDegree(n);
+                    row.setValue(inCol, inDegree);
+                    row.setValue(outCol, outDegree);
+                }
+                int degree = graph.getTotalDegree(n);
+                row.setValue(degCol, degree);
+                tracker.add(n, degree, inDegree, outDegree);
+            }
+            i++;
+            Progress.progress(progress, i);
+        }
+
+        //Nodes or edges whose events were missed show up in the counts
+        if (tracker.getNodeCount() != graph.getNodeCount()) {
+            return false;
+        }
+        if (isDirected && (tracker.getInDegreeSum() != graph.getEdgeCount()
+                || tracker.getOutDegreeSum() != graph.getEdgeCount())) {
+            return false;
+        }
+
+        avgDegree = tracker.getDegreeSum() / tracker.getNodeCount();
+        degreeDist = tracker.getDegreeDistribution();
+        if (isDirected) {
+            inDegreeDist = tracker.getInDegreeDistribution();
+            outDegreeDist = tracker.getOutDegreeDistribution();
+        }
+        return true;
+    }
+
+    private static Integer getInt(AttributeRow row, AttributeColumn column) {
+        Object value = row.getValue(column);
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+
+    /**
+     * Returns <code>true</code> if executions on the main view only recompute
+     * the nodes touched since the previous execution.
+     *
+     * @return <code>true</code> if incremental mode is enabled
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Enables the incremental mode. After a full pass on the main view,
+     * following executions recompute only the endpoints of the edges added or
+     * removed since, and the nodes added or removed, and update the columns,
+     * the average and the distributions from them. Hierarchy changes, graphs
+     * with a hierarchy and edits of the degree columns lead to a full pass.
+     *
+     * @param incremental <code>true</code> to enable incremental mode
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
     }
 
     /**
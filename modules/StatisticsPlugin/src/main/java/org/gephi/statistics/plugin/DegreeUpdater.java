@@ -0,0 +1,459 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.statistics.plugin;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeEvent;
+import org.gephi.data.attributes.api.AttributeListener;
+import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.data.attributes.api.AttributeValue;
+import org.gephi.data.properties.PropertiesColumn;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeData;
+import org.gephi.graph.api.GraphEvent;
+import org.gephi.graph.api.GraphEventData;
+import org.gephi.graph.api.GraphListener;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.project.api.Workspace;
+
+/**
+ * Keeps the results of {@link Degree} and {@link WeightedDegree} on the main
+ * view up to date as nodes and edges are added or removed, so that an
+ * execution only recomputes the nodes touched since the previous one.
+ * <p>
+ * The updater listens to graph events, and to edge weight changes for the
+ * weighted degree. Events only mark the nodes they touch as dirty. The
+ * statistic recomputes the degrees of dirty nodes from the graph and applies
+ * the difference to its columns, distributions and sums, kept in a
+ * {@link Tracker}. An event delivered late or twice only leads to an extra
+ * recomputation of the same nodes.
+ * <p>
+ * Events are dispatched asynchronously. Before using the dirty nodes, an
+ * execution waits until the updater has seen events up to the current node,
+ * edge and weight versions, for at most {@link #CATCH_UP_TIMEOUT}
+ * milliseconds. A full pass is done instead when events don't arrive in time,
+ * on the first execution, after a hierarchy change, when the degree columns
+ * were edited elsewhere and when the tracked counts don't match the graph.
+ * <p>
+ * One instance exists per workspace, obtained with
+ * {@link #get(GraphModel, AttributeModel)}.
+ *
+ * @author Gephi Consortium
+ */
+class DegreeUpdater implements GraphListener, AttributeListener {
+
+    /** Longest wait for pending events, in milliseconds. */
+    static final long CATCH_UP_TIMEOUT = 500;
+    private final GraphModel graphModel;
+    private final AttributeModel attributeModel;
+    private final Map<String, Tracker> trackers = new HashMap<String, Tracker>();
+    //Versions of the main view and of the edge weights when the last events were seen
+    private int seenNodeVersion;
+    private int seenEdgeVersion;
+    private int seenWeightVersion;
+
+    private DegreeUpdater(GraphModel graphModel, AttributeModel attributeModel) {
+        this.graphModel = graphModel;
+        this.attributeModel = attributeModel;
+        HierarchicalGraph graph = graphModel.getHierarchicalGraph();
+        seenNodeVersion = graph.getNodeVersion();
+        seenEdgeVersion = graph.getEdgeVersion();
+        seenWeightVersion = getWeightVersion();
+        graphModel.addGraphListener(this);
+        attributeModel.addAttributeListener(this);
+    }
+
+    /**
+     * Returns the updater of the workspace <code>graphModel</code> belongs to,
+     * creating it if needed. Must be called with the graph's read lock held.
+     *
+     * @param graphModel the graph model
+     * @param attributeModel the attribute model of the same workspace
+     * @return the workspace's updater, or <code>null</code> if the graph model
+     * has no workspace
+     */
+    static DegreeUpdater get(GraphModel graphModel, AttributeModel attributeModel) {
+        Workspace workspace = graphModel.getWorkspace();
+        if (workspace == null) {
+            return null;
+        }
+        synchronized (workspace) {
+            DegreeUpdater updater = workspace.getLookup().lookup(DegreeUpdater.class);
+            if (updater != null && (updater.graphModel != graphModel || updater.attributeModel != attributeModel)) {
+                updater.graphModel.removeGraphListener(updater);
+                updater.attributeModel.removeAttributeListener(updater);
+                workspace.remove(updater);
+                updater = null;
+            }
+            if (updater == null) {
+                updater = new DegreeUpdater(graphModel, attributeModel);
+                workspace.add(updater);
+            }
+            return updater;
+        }
+    }
+
+    /**
+     * Returns the tracker of the statistic results stored under
+     * <code>key</code>, creating it if needed.
+     *
+     * @param key the key of the statistic, which includes its directedness
+     * @param weighted <code>true</code> if the tracked degrees depend on edge
+     * weights
+     * @return the tracker
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <T extends Number> Tracker<T> getTracker(String key, boolean weighted) {
+        Tracker<T> tracker = trackers.get(key);
+        if (tracker == null) {
+            tracker = new Tracker<T>(weighted);
+            trackers.put(key, tracker);
+        }
+        return tracker;
+    }
+
+    /**
+     * Returns the nodes to recompute since <code>tracker</code> was last
+     * synchronized, or <code>null</code> if a full pass is needed. Waits for
+     * pending events if needed. Must be called with the graph's read lock
+     * held.
+     *
+     * @param tracker the tracker
+     * @param graph the main view
+     * @param columns the degree columns, may contain <code>null</code>
+     * @return the dirty nodes or <code>null</code>
+     */
+    synchronized List<Node> getDirtyNodes(Tracker tracker, HierarchicalGraph graph, AttributeColumn... columns) {
+        if (tracker.versions == null || tracker.invalid) {
+            return null;
+        }
+        int[] versions = versions(graph, columns);
+        //Columns edited by someone else
+        for (int i = 3; i < versions.length; i++) {
+            if (versions[i] != tracker.versions[i]) {
+                return null;
+            }
+        }
+        long deadline = System.currentTimeMillis() + CATCH_UP_TIMEOUT;
+        while (!isCaughtUp(tracker, versions)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return null;
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        if (tracker.invalid) {
+            return null;
+        }
+        List<Node> dirty = new ArrayList<Node>(tracker.dirty);
+        tracker.dirty.clear();
+        return dirty;
+    }
+
+    private boolean isCaughtUp(Tracker tracker, int[] versions) {
+        if (versions[0] == tracker.versions[0] && versions[1] == tracker.versions[1]
+                && versions[2] == tracker.versions[2]) {
+            return true;
+        }
+        return seenNodeVersion == versions[0] && seenEdgeVersion == versions[1]
+                && (!tracker.weighted || seenWeightVersion == versions[2]);
+    }
+
+    /**
+     * Clears <code>tracker</code> before a full pass. Changes whose events are
+     * pending are already seen by the pass. Must be called with the graph's
+     * read lock held.
+     */
+    synchronized void reset(Tracker tracker) {
+        tracker.dirty.clear();
+        tracker.invalid = false;
+        tracker.versions = null;
+        tracker.clearResults();
+    }
+
+    /**
+     * Records the versions <code>tracker</code> is now up to date with, after
+     * its columns have been written. Must be called with the graph's read lock
+     * held.
+     */
+    synchronized void synced(Tracker tracker, HierarchicalGraph graph, AttributeColumn... columns) {
+        tracker.versions = versions(graph, columns);
+    }
+
+    /**
+     * Forces a full pass on the next execution, for instance after a canceled
+     * one.
+     */
+    synchronized void invalidate(Tracker tracker) {
+        tracker.invalid = true;
+    }
+
+    private int[] versions(HierarchicalGraph graph, AttributeColumn... columns) {
+        int[] versions = new int[columns.length + 3];
+        versions[0] = graph.getNodeVersion();
+        versions[1] = graph.getEdgeVersion();
+        versions[2] = getWeightVersion();
+        for (int i = 0; i < columns.length; i++) {
+            versions[i + 3] = columns[i] != null ? columns[i].getValueVersion() : -1;
+        }
+        return versions;
+    }
+
+    private AttributeColumn getWeightColumn() {
+        return attributeModel.getEdgeTable().getColumn(PropertiesColumn.EDGE_WEIGHT.getIndex());
+    }
+
+    private int getWeightVersion() {
+        AttributeColumn column = getWeightColumn();
+        return column != null ? column.getValueVersion() : -1;
+    }
+
+    public void graphChanged(GraphEvent event) {
+        if (!event.getSource().isMainView()) {
+            return;
+        }
+        synchronized (this) {
+            if (event.is(GraphEvent.EventType.ADD_NODES_AND_EDGES, GraphEvent.EventType.REMOVE_NODES_AND_EDGES)) {
+                GraphEventData data = event.getData();
+                markNodes(data.addedNodes());
+                markNodes(data.removedNodes());
+                markEdges(data.addedEdges(), false);
+                markEdges(data.removedEdges(), false);
+            } else {
+                //Hierarchy changes can't be followed node by node
+                for (Tracker tracker : trackers.values()) {
+                    tracker.invalid = true;
+                }
+            }
+            HierarchicalGraph graph = graphModel.getHierarchicalGraph();
+            seenNodeVersion = graph.getNodeVersion();
+            seenEdgeVersion = graph.getEdgeVersion();
+            notifyAll();
+        }
+    }
+
+    public void attributesChanged(AttributeEvent event) {
+        if (event.getSource() != attributeModel.getEdgeTable()
+                || !event.is(AttributeEvent.EventType.SET_VALUE, AttributeEvent.EventType.UNSET_VALUE)) {
+            return;
+        }
+        AttributeColumn weightColumn = getWeightColumn();
+        Object[] objects = event.getData().getTouchedObjects();
+        AttributeValue[] values = event.getData().getTouchedValues();
+        List<Edge> edges = new ArrayList<Edge>();
+        for (int i = 0; i < objects.length; i++) {
+            if (values[i].getColumn() == weightColumn && objects[i] instanceof EdgeData) {
+                edges.add(((EdgeData) objects[i]).getEdge());
+            }
+        }
+        synchronized (this) {
+            markEdges(edges.toArray(new Edge[edges.size()]), true);
+            seenWeightVersion = getWeightVersion();
+            notifyAll();
+        }
+    }
+
+    private void markNodes(Node[] nodes) {
+        if (nodes != null) {
+            for (Tracker tracker : trackers.values()) {
+                for (Node n : nodes) {
+                    tracker.dirty.add(n);
+                }
+            }
+        }
+    }
+
+    private void markEdges(Edge[] edges, boolean weightsOnly) {
+        if (edges != null) {
+            for (Tracker tracker : trackers.values()) {
+                if (weightsOnly && !tracker.weighted) {
+                    continue;
+                }
+                for (Edge e : edges) {
+                    tracker.dirty.add(e.getSource());
+                    tracker.dirty.add(e.getTarget());
+                }
+            }
+        }
+    }
+
+    /**
+     * Degree results of one statistic: the nodes counted, the distributions
+     * and the sums of the degree, in-degree and out-degree columns. Dirty
+     * nodes and versions are guarded by the updater, results by the tracker
+     * itself, which executions lock while they use it.
+     *
+     * @param <T> the type of the degree values
+     */
+    static final class Tracker<T extends Number> {
+
+        private final boolean weighted;
+        private final Set<Node> dirty = new LinkedHashSet<Node>();
+        private boolean invalid;
+        private int[] versions;
+        //Results, by node id
+        private final BitSet counted = new BitSet();
+        private final Map<T, Integer> degreeDist = new HashMap<T, Integer>();
+        private final Map<T, Integer> inDegreeDist = new HashMap<T, Integer>();
+        private final Map<T, Integer> outDegreeDist = new HashMap<T, Integer>();
+        private double degreeSum;
+        private double inDegreeSum;
+        private double outDegreeSum;
+        private int nodeCount;
+
+        private Tracker(boolean weighted) {
+            this.weighted = weighted;
+        }
+
+        private void clearResults() {
+            counted.clear();
+            degreeDist.clear();
+            inDegreeDist.clear();
+            outDegreeDist.clear();
+            degreeSum = 0;
+            inDegreeSum = 0;
+            outDegreeSum = 0;
+            nodeCount = 0;
+        }
+
+        /**
+         * Returns <code>true</code> if the values of <code>node</code> are
+         * part of the results.
+         */
+        boolean isCounted(Node node) {
+            return counted.get(node.getId());
+        }
+
+        /**
+         * Adds the values of <code>node</code> to the results.
+         *
+         * @param node the node
+         * @param degree the degree
+         * @param inDegree the in-degree, or <code>null</code> if undirected
+         * @param outDegree the out-degree, or <code>null</code> if undirected
+         */
+        void add(Node node, T degree, T inDegree, T outDegree) {
+            counted.set(node.getId());
+            nodeCount++;
+            degreeSum += degree.doubleValue();
+            increment(degreeDist, degree, 1);
+            if (inDegree != null) {
+                inDegreeSum += inDegree.doubleValue();
+                increment(inDegreeDist, inDegree, 1);
+            }
+            if (outDegree != null) {
+                outDegreeSum += outDegree.doubleValue();
+                increment(outDegreeDist, outDegree, 1);
+            }
+        }
+
+        /**
+         * Removes the values previously added for <code>node</code>.
+         */
+        void remove(Node node, T degree, T inDegree, T outDegree) {
+            counted.clear(node.getId());
+            nodeCount--;
+            degreeSum -= degree.doubleValue();
+            increment(degreeDist, degree, -1);
+            if (inDegree != null) {
+                inDegreeSum -= inDegree.doubleValue();
+                increment(inDegreeDist, inDegree, -1);
+            }
+            if (outDegree != null) {
+                outDegreeSum -= outDegree.doubleValue();
+                increment(outDegreeDist, outDegree, -1);
+            }
+        }
+
+        private void increment(Map<T, Integer> dist, T value, int delta) {
+            Integer count = dist.get(value);
+            int newCount = (count != null ? count : 0) + delta;
+            if (newCount == 0) {
+                dist.remove(value);
+            } else {
+                dist.put(value, newCount);
+            }
+        }
+
+        int getNodeCount() {
+            return nodeCount;
+        }
+
+        double getDegreeSum() {
+            return degreeSum;
+        }
+
+        double getInDegreeSum() {
+            return inDegreeSum;
+        }
+
+        double getOutDegreeSum() {
+            return outDegreeSum;
+        }
+
+        Map<T, Integer> getDegreeDistribution() {
+            return new HashMap<T, Integer>(degreeDist);
+        }
+
+        Map<T, Integer> getInDegreeDistribution() {
+            return new HashMap<T, Integer>(inDegreeDist);
+        }
+
+        Map<T, Integer> getOutDegreeDistribution() {
+            return new HashMap<T, Integer>(outDegreeDist);
+        }
+    }
+}
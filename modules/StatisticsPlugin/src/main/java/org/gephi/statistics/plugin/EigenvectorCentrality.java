@@ -49,14 +49,9 @@ import org.gephi.data.attributes.api.AttributeOrigin;
 import org.gephi.data.attributes.api.AttributeRow;
 import org.gephi.data.attributes.api.AttributeTable;
 import org.gephi.data.attributes.api.AttributeType;
-import org.gephi.graph.api.Edge;
-import org.gephi.graph.api.EdgeIterable;
 import org.gephi.graph.api.GraphController;
 import org.gephi.graph.api.GraphModel;
-import org.gephi.graph.api.HierarchicalDirectedGraph;
 import org.gephi.graph.api.HierarchicalGraph;
-import org.gephi.graph.api.HierarchicalUndirectedGraph;
-import org.gephi.graph.api.Node;
 import org.gephi.statistics.spi.Statistics;
 import org.gephi.utils.longtask.spi.LongTask;
 import org.gephi.utils.progress.Progress;
@@ -141,41 +136,30 @@ public class EigenvectorCentrality implements Statistics, LongTask {
             eigenCol = nodeTable.addColumn(EIGENVECTOR, "Eigenvector Centrality", AttributeType.DOUBLE, AttributeOrigin.COMPUTED, new Double(0));
         }
 
-        int N = hgraph.getNodeCount();
         hgraph.readLock();
 
+        GraphSnapshot snapshot = GraphSnapshot.get(hgraph, isDirected);
+        int N = snapshot.getNodeCount();
+        int[] inOffsets = snapshot.getInOffsets();
+        int[] inTargets = snapshot.getInTargets();
+
         double[] tmp = new double[N];
         centralities = new double[N];
 
         Progress.start(progress, numRuns);
 
-        HashMap<Integer, Node> indicies = new HashMap<Integer, Node>();
-        HashMap<Node, Integer> invIndicies = new HashMap<Node, Integer>();
-        int count = 0;
-        for (Node u : hgraph.getNodes()) {
-            indicies.put(count, u);
-            invIndicies.put(u, count);
-            centralities[count] = 1;
-            count++;
+        for (int i = 0; i < N; i++) {
+            centralities[i] = 1;
         }
         for (int s = 0; s < numRuns; s++) {
             double max = 0;
             for (int i = 0; i < N; i++) {
-                Node u = indicies.get(i);
-                EdgeIterable iter = null;
-                if (isDirected) {
-                    iter = ((HierarchicalDirectedGraph) hgraph).getInEdgesAndMetaInEdges(u);
-                } else {
-                    iter = ((HierarchicalUndirectedGraph) hgraph).getEdgesAndMetaEdges(u);
-                }
-
-                for (Edge e : iter) {
-                    Node v = hgraph.getOpposite(u, e);
-                    Integer id = invIndicies.get(v);
-                    tmp[i] += centralities[id];
+                for (int j = inOffsets[i]; j < inOffsets[i + 1]; j++) {
+                    tmp[i] += centralities[inTargets[j]];
                 }
                 max = Math.max(max, tmp[i]);
                 if (isCanceled) {
+                    hgraph.readUnlockAll();
                     return;
                 }
             }
@@ -187,10 +171,12 @@ public class EigenvectorCentrality implements Statistics, LongTask {
                     //tmp[k] = 0;
                 }
                 if (isCanceled) {
+                    hgraph.readUnlockAll();
                     return;
                 }
             }
             if (isCanceled) {
+                hgraph.readUnlockAll();
                 return;
             }
 
@@ -198,10 +184,10 @@ public class EigenvectorCentrality implements Statistics, LongTask {
         }
 
         for (int i = 0; i < N; i++) {
-            Node s = indicies.get(i);
-            AttributeRow row = (AttributeRow) s.getNodeData().getAttributes();
+            AttributeRow row = (AttributeRow) snapshot.getNode(i).getNodeData().getAttributes();
             row.setValue(eigenCol, centralities[i]);
             if (isCanceled) {
+                hgraph.readUnlockAll();
                 return;
             }
         }
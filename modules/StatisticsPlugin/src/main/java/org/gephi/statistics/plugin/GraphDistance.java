@@ -42,13 +42,19 @@ Portions Copyrighted 2011 Gephi Consortium.
 package org.gephi.statistics.plugin;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import org.gephi.statistics.spi.Statistics;
 import org.gephi.graph.api.*;
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.gephi.data.attributes.api.AttributeTable;
 import org.gephi.data.attributes.api.AttributeColumn;
 import org.gephi.data.attributes.api.AttributeModel;
@@ -97,9 +103,16 @@ public class GraphDistance implements Statistics, LongTask {
     /** */
     private ProgressTicket progress;
     /** */
-    private boolean isCanceled;
+    private volatile boolean isCanceled;
     private int shortestPaths;
     private boolean isNormalized;
+    /** Number of worker threads the sources are spread across */
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    /** Number of sampled sources, 0 for exact computation over all nodes */
+    private int sampleSize = 0;
+    /** Seed of the source sampling, so that runs can be reproduced */
+    private long seed = 42;
+    private int sampledSources;
 
     public GraphDistance() {
         GraphController graphController = Lookup.getDefault().lookup(GraphController.class);
@@ -152,7 +165,8 @@ public class GraphDistance implements Statistics, LongTask {
 
         hgraph.readLock();
 
-        N = hgraph.getNodeCount();
+        GraphSnapshot snapshot = GraphSnapshot.get(hgraph, isDirected);
+        N = snapshot.getNodeCount();
 
         betweenness = new double[N];
         eccentricity = new double[N];
@@ -161,106 +175,89 @@ public class GraphDistance implements Statistics, LongTask {
         avgDist = 0;
         shortestPaths = 0;
         radius = Integer.MAX_VALUE;
-        HashMap<Node, Integer> indicies = new HashMap<Node, Integer>();
-        int index = 0;
-        for (Node s : hgraph.getNodes()) {
-            indicies.put(s, index);
-            index++;
-        }
 
-        Progress.start(progress, hgraph.getNodeCount());
-        int count = 0;
-        for (Node s : hgraph.getNodes()) {
-            Stack<Node> S = new Stack<Node>();
-
-            LinkedList<Node>[] P = new LinkedList[N];
-            double[] theta = new double[N];
-            int[] d = new int[N];
-            for (int j = 0; j < N; j++) {
-                P[j] = new LinkedList<Node>();
-                theta[j] = 0;
-                d[j] = -1;
+        //Sources, all nodes or a uniform sample of them
+        int[] sources;
+        if (sampleSize > 0 && sampleSize < N) {
+            sources = sampleSources(N, sampleSize, new Random(seed));
+        } else {
+            sources = new int[N];
+            for (int i = 0; i < N; i++) {
+                sources[i] = i;
             }
-
-            int s_index = indicies.get(s);
-
-            theta[s_index] = 1;
-            d[s_index] = 0;
-
-            LinkedList<Node> Q = new LinkedList<Node>();
-            Q.addLast(s);
-            while (!Q.isEmpty()) {
-                Node v = Q.removeFirst();
-                S.push(v);
-                int v_index = indicies.get(v);
-
-                EdgeIterable edgeIter = null;
-                if (isDirected) {
-                    edgeIter = ((HierarchicalDirectedGraph) hgraph).getOutEdgesAndMetaOutEdges(v);
-                } else {
-                    edgeIter = hgraph.getEdgesAndMetaEdges(v);
+        }
+        sampledSources = sources.length;
+
+        Progress.start(progress, sources.length);
+        int workerCount = Math.max(1, Math.min(threadCount, sources.length));
+        AtomicInteger nextSource = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        BrandesWorker[] workers = new BrandesWorker[workerCount];
+        for (int w = 0; w < workerCount; w++) {
+            workers[w] = new BrandesWorker(snapshot, sources, nextSource, done);
+        }
+        if (workerCount == 1) {
+            workers[0].run();
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(workerCount);
+            try {
+                List<Future<?>> futures = new ArrayList<Future<?>>(workerCount);
+                for (BrandesWorker worker : workers) {
+                    futures.add(pool.submit(worker));
                 }
-
-                for (Edge edge : edgeIter) {
-                    Node reachable = hgraph.getOpposite(v, edge);
-
-                    int r_index = indicies.get(reachable);
-                    if (d[r_index] < 0) {
-                        Q.addLast(reachable);
-                        d[r_index] = d[v_index] + 1;
-                    }
-                    if (d[r_index] == (d[v_index] + 1)) {
-                        theta[r_index] = theta[r_index] + theta[v_index];
-                        P[r_index].addLast(v);
-                    }
+                for (Future<?> future : futures) {
+                    future.get();
                 }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                isCanceled = true;
+            } catch (ExecutionException ex) {
+                hgraph.readUnlockAll();
+                throw new RuntimeException(ex.getCause());
+            } finally {
+                pool.shutdown();
             }
-            double reachable = 0;
+        }
+        if (isCanceled) {
+            hgraph.readUnlockAll();
+            return;
+        }
+
+        //Reduce
+        for (BrandesWorker worker : workers) {
             for (int i = 0; i < N; i++) {
-                if (d[i] > 0) {
-                    avgDist += d[i];
-                    eccentricity[s_index] = (int) Math.max(eccentricity[s_index], d[i]);
-                    closeness[s_index] += d[i];
-                    diameter = Math.max(diameter, d[i]);
-                    reachable++;
-                }
+                betweenness[i] += worker.betweenness[i];
             }
+            avgDist += worker.distSum;
+            shortestPaths += worker.reachableSum;
+            diameter = Math.max(diameter, worker.diameter);
+            radius = Math.min(radius, worker.radius);
+        }
 
-            radius = (int) Math.min(eccentricity[s_index], radius);
-
-            if (reachable != 0) {
-                closeness[s_index] /= reachable;
+        //Brandes-Pich estimator, extrapolate the sampled dependencies
+        boolean[] sampled = null;
+        if (sources.length < N) {
+            double scale = (double) N / sources.length;
+            for (int i = 0; i < N; i++) {
+                betweenness[i] *= scale;
             }
-
-            shortestPaths += reachable;
-
-            double[] delta = new double[N];
-            while (!S.empty()) {
-                Node w = S.pop();
-                int w_index = indicies.get(w);
-                ListIterator<Node> iter1 = P[w_index].listIterator();
-                while (iter1.hasNext()) {
-                    Node u = iter1.next();
-                    int u_index = indicies.get(u);
-                    delta[u_index] += (theta[u_index] / theta[w_index]) * (1 + delta[w_index]);
-                }
-                if (w != s) {
-                    betweenness[w_index] += delta[w_index];
-                }
+            //Closeness and eccentricity are unknown for nodes that aren't sources
+            sampled = new boolean[N];
+            for (int s : sources) {
+                sampled[s] = true;
             }
-            count++;
-            if (isCanceled) {
-                hgraph.readUnlockAll();
-                return;
+            for (int i = 0; i < N; i++) {
+                if (!sampled[i]) {
+                    eccentricity[i] = Double.NaN;
+                    closeness[i] = Double.NaN;
+                }
             }
-            Progress.progress(progress, count);
         }
 
         avgDist /= shortestPaths;//mN * (mN - 1.0f);
 
-        for (Node s : hgraph.getNodes()) {
-            AttributeRow row = (AttributeRow) s.getNodeData().getAttributes();
-            int s_index = indicies.get(s);
+        for (int s_index = 0; s_index < N; s_index++) {
+            AttributeRow row = (AttributeRow) snapshot.getNode(s_index).getNodeData().getAttributes();
 
             if (!isDirected) {
                 betweenness[s_index] /= 2;
@@ -269,13 +266,159 @@ public class GraphDistance implements Statistics, LongTask {
                 closeness[s_index] = (closeness[s_index] == 0) ? 0 : 1.0 / closeness[s_index];
                 betweenness[s_index] /= isDirected ? (N - 1) * (N - 2) : (N - 1) * (N - 2) / 2;
             }
-            row.setValue(eccentricityCol, eccentricity[s_index]);
-            row.setValue(closenessCol, closeness[s_index]);
+            if (sampled == null || sampled[s_index]) {
+                row.setValue(eccentricityCol, eccentricity[s_index]);
+                row.setValue(closenessCol, closeness[s_index]);
+            } else {
+                row.setValue(eccentricityCol, null);
+                row.setValue(closenessCol, null);
+            }
             row.setValue(betweenessCol, betweenness[s_index]);
         }
         hgraph.readUnlock();
     }
 
+    private static int[] sampleSources(int n, int k, Random random) {
+        //Partial Fisher-Yates shuffle
+        int[] all = new int[n];
+        for (int i = 0; i < n; i++) {
+            all[i] = i;
+        }
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(n - i);
+            int tmp = all[i];
+            all[i] = all[j];
+            all[j] = tmp;
+        }
+        int[] sample = Arrays.copyOf(all, k);
+        Arrays.sort(sample);
+        return sample;
+    }
+
+    /**
+     * Runs one Brandes BFS per source taken from a shared counter, with
+     * primitive buffers reused across sources. Closeness and eccentricity are
+     * written directly since each source is processed by exactly one worker,
+     * betweenness is accumulated locally and reduced once all workers are done.
+     * Predecessors are not stored, they are found again during the dependency
+     * accumulation by scanning in-neighbours one level closer to the source.
+     */
+    private class BrandesWorker implements Runnable {
+
+        private final int[] outOffsets;
+        private final int[] outTargets;
+        private final int[] inOffsets;
+        private final int[] inTargets;
+        private final int[] sources;
+        private final AtomicInteger nextSource;
+        private final AtomicInteger done;
+        //Buffers
+        private final int[] d;
+        private final double[] theta;
+        private final double[] delta;
+        private final int[] order;
+        //Results
+        private final double[] betweenness;
+        private double distSum;
+        private int reachableSum;
+        private int diameter;
+        private int radius = Integer.MAX_VALUE;
+
+        BrandesWorker(GraphSnapshot snapshot, int[] sources, AtomicInteger nextSource, AtomicInteger done) {
+            this.outOffsets = snapshot.getOutOffsets();
+            this.outTargets = snapshot.getOutTargets();
+            this.inOffsets = snapshot.getInOffsets();
+            this.inTargets = snapshot.getInTargets();
+            this.sources = sources;
+            this.nextSource = nextSource;
+            this.done = done;
+            int n = snapshot.getNodeCount();
+            d = new int[n];
+            theta = new double[n];
+            delta = new double[n];
+            order = new int[n];
+            betweenness = new double[n];
+            Arrays.fill(d, -1);
+        }
+
+        public void run() {
+            int next;
+            while (!isCanceled && (next = nextSource.getAndIncrement()) < sources.length) {
+                int s_index = sources[next];
+                int visited = bfs(s_index);
+
+                double reachable = 0;
+                int ecc = 0;
+                double distances = 0;
+                for (int k = 1; k < visited; k++) {
+                    int dist = d[order[k]];
+                    distances += dist;
+                    ecc = Math.max(ecc, dist);
+                    reachable++;
+                }
+                distSum += distances;
+                diameter = Math.max(diameter, ecc);
+                radius = Math.min(radius, ecc);
+                eccentricity[s_index] = ecc;
+                closeness[s_index] = reachable != 0 ? distances / reachable : 0;
+                reachableSum += reachable;
+
+                accumulate(s_index, visited);
+
+                //Reset buffers for the visited nodes only
+                for (int k = 0; k < visited; k++) {
+                    int v = order[k];
+                    d[v] = -1;
+                    theta[v] = 0;
+                    delta[v] = 0;
+                }
+                Progress.progress(progress, done.incrementAndGet());
+            }
+        }
+
+        /**
+         * Returns the number of nodes reached, <code>order</code> holds them
+         * by non-decreasing distance and doubles as the BFS queue.
+         */
+        private int bfs(int s_index) {
+            theta[s_index] = 1;
+            d[s_index] = 0;
+            order[0] = s_index;
+            int head = 0;
+            int tail = 1;
+            while (head < tail) {
+                int v_index = order[head++];
+                for (int j = outOffsets[v_index]; j < outOffsets[v_index + 1]; j++) {
+                    int r_index = outTargets[j];
+                    if (d[r_index] < 0) {
+                        order[tail++] = r_index;
+                        d[r_index] = d[v_index] + 1;
+                    }
+                    if (d[r_index] == (d[v_index] + 1)) {
+                        theta[r_index] = theta[r_index] + theta[v_index];
+                    }
+                }
+            }
+            return tail;
+        }
+
+        private void accumulate(int s_index, int visited) {
+            for (int k = visited - 1; k >= 0; k--) {
+                int w_index = order[k];
+                int dw = d[w_index];
+                for (int j = inOffsets[w_index]; j < inOffsets[w_index + 1]; j++) {
+                    int u_index = inTargets[j];
+                    if (d[u_index] == dw - 1 && d[u_index] >= 0) {
+                        delta[u_index] += (theta[u_index] / theta[w_index]) * (1 + delta[w_index]);
+                    }
+                }
+                if (w_index != s_index) {
+                    betweenness[w_index] += delta[w_index];
+                }
+            }
+        }
+    }
+
     public void setNormalized(boolean isNormalized) {
         this.isNormalized = isNormalized;
     }
@@ -284,6 +427,39 @@ public class GraphDistance implements Statistics, LongTask {
         return isNormalized;
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Estimates betweenness from <code>sampleSize</code> uniformly sampled
+     * sources instead of all nodes (Brandes and Pich, 2007). Closeness and
+     * eccentricity are then only computed for the sampled sources, other
+     * nodes get a <code>null</code> value in these columns.
+     *
+     * @param sampleSize the number of sources, or <code>0</code> to compute
+     * exact values
+     */
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = Math.max(0, sampleSize);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
     public void setDirected(boolean isDirected) {
         this.isDirected = isDirected;
     }
@@ -296,6 +472,10 @@ public class GraphDistance implements Statistics, LongTask {
         //distribution of values
         Map<Double, Integer> dist = new HashMap<Double, Integer>();
         for (int i = 0; i < N; i++) {
+            if (Double.isNaN(pVals[i])) {
+                //Not computed for this node
+                continue;
+            }
             Double d = pVals[i];
             if (dist.containsKey(d)) {
                 Integer v = dist.get(d);
@@ -348,6 +528,7 @@ public class GraphDistance implements Statistics, LongTask {
                 + "<br>"
                 + "<h2> Parameters: </h2>"
                 + "Network Interpretation:  " + (isDirected ? "directed" : "undirected") + "<br />"
+                + (sampledSources < N ? "Sampled sources:  " + sampledSources + " of " + N + " (estimated values)<br />" : "")
                 + "<br /> <h2> Results: </h2>"
                 + "Diameter: " + diameter + "<br />"
                 + "Radius: " + radius + "<br />"
@@ -358,6 +539,7 @@ public class GraphDistance implements Statistics, LongTask {
                 + htmlIMG3
                 + "<br /><br />" + "<h2> Algorithm: </h2>"
                 + "Ulrik Brandes, <i>A Faster Algorithm for Betweenness Centrality</i>, in Journal of Mathematical Sociology 25(2):163-177, (2001)<br />"
+                + (sampledSources < N ? "Ulrik Brandes and Christian Pich, <i>Centrality Estimation in Large Networks</i>, in International Journal of Bifurcation and Chaos 17(7):2303-2318, (2007)<br />" : "")
                 + "</BODY> </HTML>";
 
         return report;
@@ -0,0 +1,344 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.statistics.plugin;
+
+import java.util.Arrays;
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeModel;
+import org.gephi.data.properties.PropertiesColumn;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.EdgeIterable;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.HierarchicalDirectedGraph;
+import org.gephi.graph.api.HierarchicalGraph;
+import org.gephi.graph.api.Node;
+import org.gephi.project.api.Workspace;
+
+/**
+ * Read-only compressed sparse row (CSR) copy of a hierarchical graph, shared
+ * by the statistics in this package.
+ * <p>
+ * Nodes are numbered from <code>0</code> to <code>getNodeCount() - 1</code> in
+ * the graph's iteration order. Neighbours of node <code>i</code> are stored in
+ * <code>getOutTargets()</code> between <code>getOutOffsets()[i]</code>
+ * (inclusive) and <code>getOutOffsets()[i + 1]</code> (exclusive), with the
+ * matching edge weights at the same positions in <code>getOutWeights()</code>.
+ * The in-adjacency is stored the same way. For undirected snapshots in and out
+ * arrays are the same instances.
+ * <p>
+ * Meta-edges are included, self-loops are kept and opposite nodes are resolved
+ * with <code>HierarchicalGraph.getOpposite()</code>, so that iterating a
+ * snapshot visits exactly what iterating <code>getOutEdgesAndMetaOutEdges()</code>
+ * (directed) or <code>getEdgesAndMetaEdges()</code> (undirected) would visit.
+ * <p>
+ * Snapshots are immutable once built and can be shared between threads. Use
+ * {@link #get(HierarchicalGraph, boolean)} to obtain a snapshot that is cached
+ * in the workspace's lookup until the graph or the edge weights change.
+ *
+ * @author Gephi Consortium
+ */
+public final class GraphSnapshot {
+
+    private final boolean directed;
+    private final int nodeCount;
+    private final Node[] nodes;
+    //Node id to index, -1 if not in the snapshot
+    private final int[] indexById;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final float[] outWeights;
+    private final int[] inOffsets;
+    private final int[] inTargets;
+    private final float[] inWeights;
+    private final double[] outWeightSums;
+    //Versions the snapshot has been built from
+    private final int nodeVersion;
+    private final int edgeVersion;
+    private final int weightVersion;
+
+    private GraphSnapshot(HierarchicalGraph hgraph, boolean directed) {
+        this.directed = directed;
+        this.nodeVersion = hgraph.getNodeVersion();
+        this.edgeVersion = hgraph.getEdgeVersion();
+        this.weightVersion = getWeightVersion(hgraph);
+        this.nodeCount = hgraph.getNodeCount();
+
+        //Index
+        nodes = new Node[nodeCount];
+        int maxId = -1;
+        int index = 0;
+        for (Node n : hgraph.getNodes()) {
+            nodes[index++] = n;
+            maxId = Math.max(maxId, n.getId());
+        }
+        indexById = new int[maxId + 1];
+        Arrays.fill(indexById, -1);
+        for (int i = 0; i < nodeCount; i++) {
+            indexById[nodes[i].getId()] = i;
+        }
+
+        //Out adjacency
+        outOffsets = new int[nodeCount + 1];
+        int[] targets = new int[Math.max(16, nodeCount)];
+        float[] weights = new float[targets.length];
+        outWeightSums = new double[nodeCount];
+        int edgeCount = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            Node n = nodes[i];
+            outOffsets[i] = edgeCount;
+            EdgeIterable iterable;
+            if (directed) {
+                iterable = ((HierarchicalDirectedGraph) hgraph).getOutEdgesAndMetaOutEdges(n);
+            } else {
+                iterable = hgraph.getEdgesAndMetaEdges(n);
+            }
+            double sum = 0;
+            for (Edge e : iterable) {
+                int target = indexById[hgraph.getOpposite(n, e).getId()];
+                if (edgeCount == targets.length) {
+                    int newLength = targets.length + (targets.length >> 1) + 1;
+                    targets = Arrays.copyOf(targets, newLength);
+                    weights = Arrays.copyOf(weights, newLength);
+                }
+                targets[edgeCount] = target;
+                weights[edgeCount] = e.getWeight();
+                sum += e.getWeight();
+                edgeCount++;
+            }
+            outWeightSums[i] = sum;
+        }
+        outOffsets[nodeCount] = edgeCount;
+        outTargets = targets.length == edgeCount ? targets : Arrays.copyOf(targets, edgeCount);
+        outWeights = weights.length == edgeCount ? weights : Arrays.copyOf(weights, edgeCount);
+
+        //In adjacency, transposed from the out adjacency
+        if (directed) {
+            inOffsets = new int[nodeCount + 1];
+            inTargets = new int[edgeCount];
+            inWeights = new float[edgeCount];
+            for (int j = 0; j < edgeCount; j++) {
+                inOffsets[outTargets[j] + 1]++;
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                inOffsets[i + 1] += inOffsets[i];
+            }
+            int[] cursor = Arrays.copyOf(inOffsets, nodeCount);
+            for (int i = 0; i < nodeCount; i++) {
+                for (int j = outOffsets[i]; j < outOffsets[i + 1]; j++) {
+                    int pos = cursor[outTargets[j]]++;
+                    inTargets[pos] = i;
+                    inWeights[pos] = outWeights[j];
+                }
+            }
+        } else {
+            inOffsets = outOffsets;
+            inTargets = outTargets;
+            inWeights = outWeights;
+        }
+    }
+
+    /**
+     * Builds a new snapshot of <code>hgraph</code>, without looking at the
+     * cache. The caller must hold the graph's read lock.
+     *
+     * @param hgraph the graph to copy
+     * @param directed <code>true</code> to follow out-edges only, in which
+     * case <code>hgraph</code> must be a <code>HierarchicalDirectedGraph</code>
+     * @return a new snapshot
+     */
+    public static GraphSnapshot build(HierarchicalGraph hgraph, boolean directed) {
+        return new GraphSnapshot(hgraph, directed);
+    }
+
+    /**
+     * Returns a snapshot of <code>hgraph</code>, reusing the one cached in the
+     * graph's workspace if the graph hasn't changed since it was built. The
+     * caller must hold the graph's read lock.
+     *
+     * @param hgraph the graph to copy
+     * @param directed <code>true</code> to follow out-edges only, in which
+     * case <code>hgraph</code> must be a <code>HierarchicalDirectedGraph</code>
+     * @return a snapshot that reflects the current state of <code>hgraph</code>
+     */
+    public static GraphSnapshot get(HierarchicalGraph hgraph, boolean directed) {
+        GraphModel graphModel = hgraph.getGraphModel();
+        Workspace workspace = graphModel != null ? graphModel.getWorkspace() : null;
+        if (workspace == null) {
+            return build(hgraph, directed);
+        }
+        GraphSnapshotCache cache;
+        synchronized (workspace) {
+            cache = workspace.getLookup().lookup(GraphSnapshotCache.class);
+            if (cache == null) {
+                cache = new GraphSnapshotCache(graphModel);
+                workspace.add(cache);
+            }
+        }
+        return cache.get(hgraph, directed);
+    }
+
+    boolean isUpToDate(HierarchicalGraph hgraph) {
+        return hgraph.getNodeVersion() == nodeVersion
+                && hgraph.getEdgeVersion() == edgeVersion
+                && hgraph.getNodeCount() == nodeCount
+                && getWeightVersion(hgraph) == weightVersion;
+    }
+
+    /**
+     * Returns the value version of the edge weight column, which changes when
+     * any edge weight is set, or <code>-1</code> if the graph has no attribute
+     * model.
+     */
+    private static int getWeightVersion(HierarchicalGraph hgraph) {
+        GraphModel graphModel = hgraph.getGraphModel();
+        Workspace workspace = graphModel != null ? graphModel.getWorkspace() : null;
+        if (workspace != null) {
+            AttributeModel attributeModel = workspace.getLookup().lookup(AttributeModel.class);
+            if (attributeModel != null) {
+                AttributeColumn column = attributeModel.getEdgeTable().getColumn(PropertiesColumn.EDGE_WEIGHT.getIndex());
+                if (column != null) {
+                    return column.getValueVersion();
+                }
+            }
+        }
+        return -1;
+    }
+
+    public boolean isDirected() {
+        return directed;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the number of entries in the out adjacency, that is the number
+     * of edges for directed snapshots and twice the number of non self-loop
+     * edges plus the number of self-loops for undirected snapshots.
+     *
+     * @return the adjacency size
+     */
+    public int getAdjacencyCount() {
+        return outTargets.length;
+    }
+
+    public Node getNode(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Returns the index of <code>node</code> in this snapshot.
+     *
+     * @param node the node to look for
+     * @return the node's index, or <code>-1</code> if not in the snapshot
+     */
+    public int indexOf(Node node) {
+        int id = node.getId();
+        if (id < 0 || id >= indexById.length) {
+            return -1;
+        }
+        int index = indexById[id];
+        return index != -1 && nodes[index] == node ? index : -1;
+    }
+
+    public int getOutDegree(int index) {
+        return outOffsets[index + 1] - outOffsets[index];
+    }
+
+    public int getInDegree(int index) {
+        return inOffsets[index + 1] - inOffsets[index];
+    }
+
+    /**
+     * Returns the sum of the out-edge weights of the node at
+     * <code>index</code>, precomputed when the snapshot was built.
+     *
+     * @param index the node's index
+     * @return the node's weighted out-degree
+     */
+    public double getOutWeightSum(int index) {
+        return outWeightSums[index];
+    }
+
+    /**
+     * Shared array, must not be modified.
+     */
+    public int[] getOutOffsets() {
+        return outOffsets;
+    }
+
+    /**
+     * Shared array, must not be modified.
+     */
+    public int[] getOutTargets() {
+        return outTargets;
+    }
+
+    /**
+     * Shared array, must not be modified.
+     */
+    public float[] getOutWeights() {
+        return outWeights;
+    }
+
+    /**
+     * Shared array, must not be modified.
+     */
+    public int[] getInOffsets() {
+        return inOffsets;
+    }
+
+    /**
+     * Shared array, must not be modified.
+     */
+    public int[] getInTargets() {
+        return inTargets;
+    }
+
+    /**
+     * Shared array, must not be modified.
+     */
+    public float[] getInWeights() {
+        return inWeights;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.statistics.plugin;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.gephi.graph.api.GraphEvent;
+import org.gephi.graph.api.GraphListener;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.HierarchicalGraph;
+
+/**
+ * Workspace-scoped cache of {@link GraphSnapshot}, stored in the workspace's
+ * lookup. Entries are keyed by view and interpretation (directed or not) and
+ * rebuilt as soon as the graph's node or edge version, or the edge weights,
+ * change. Entries of a view are dropped when the view is destroyed.
+ * <p>
+ * Snapshots are built outside of the cache's lock, so that statistics running
+ * in parallel on different views don't wait for each other.
+ *
+ * @author Gephi Consortium
+ */
+public class GraphSnapshotCache implements GraphListener {
+
+    private final Map<Long, GraphSnapshot> snapshots = new HashMap<Long, GraphSnapshot>();
+
+    public GraphSnapshotCache(GraphModel graphModel) {
+        graphModel.addGraphListener(this);
+    }
+
+    public GraphSnapshot get(HierarchicalGraph hgraph, boolean directed) {
+        Long key = getKey(hgraph.getView().getViewId(), directed);
+        GraphSnapshot snapshot;
+        synchronized (this) {
+            snapshot = snapshots.get(key);
+        }
+        if (snapshot == null || !snapshot.isUpToDate(hgraph)) {
+            snapshot = GraphSnapshot.build(hgraph, directed);
+            synchronized (this) {
+                snapshots.put(key, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    public void graphChanged(GraphEvent event) {
+        if (event.is(GraphEvent.EventType.DESTROY_VIEW)) {
+            remove(event.getSource().getViewId());
+        }
+    }
+
+    /**
+     * Drops the cached snapshots of the view <code>viewId</code>.
+     *
+     * @param viewId the id of the view
+     */
+    public synchronized void remove(int viewId) {
+        for (Iterator<Long> itr = snapshots.keySet().iterator(); itr.hasNext();) {
+            if ((itr.next() >> 1) == viewId) {
+                itr.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops all cached snapshots.
+     */
+    public synchronized void clear() {
+        snapshots.clear();
+    }
+
+    private static Long getKey(int viewId, boolean directed) {
+        return ((long) viewId << 1) | (directed ? 1L : 0L);
+    }
+}
@@ -41,8 +41,8 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.statistics.plugin;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
 import org.gephi.data.attributes.api.AttributeTable;
 import org.gephi.data.attributes.api.AttributeColumn;
@@ -50,14 +50,9 @@ import org.gephi.data.attributes.api.AttributeModel;
 import org.gephi.data.attributes.api.AttributeOrigin;
 import org.gephi.data.attributes.api.AttributeRow;
 import org.gephi.data.attributes.api.AttributeType;
-import org.gephi.graph.api.Edge;
-import org.gephi.graph.api.EdgeIterable;
 import org.gephi.graph.api.GraphController;
 import org.gephi.graph.api.GraphModel;
-import org.gephi.graph.api.HierarchicalDirectedGraph;
 import org.gephi.graph.api.HierarchicalGraph;
-import org.gephi.graph.api.HierarchicalUndirectedGraph;
-import org.gephi.graph.api.Node;
 import org.gephi.statistics.spi.Statistics;
 import org.gephi.utils.longtask.spi.LongTask;
 import org.gephi.utils.progress.Progress;
@@ -85,9 +80,8 @@ public class Hits implements Statistics, LongTask {
     private double[] hubs;
     private boolean useUndirected;
     private double epsilon = 0.0001;
-    private LinkedList<Node> hub_list;
-    private LinkedList<Node> auth_list;
-    private HashMap<Node, Integer> indicies;
+    private int[] hub_list;
+    private int[] auth_list;
 
     public Hits() {
         GraphController graphController = Lookup.getDefault().lookup(GraphController.class);
@@ -121,45 +115,37 @@ public class Hits implements Statistics, LongTask {
     public void execute(HierarchicalGraph hgraph, AttributeModel attributeModel) {
         hgraph.readLock();
 
-        int N = hgraph.getNodeCount();
+        GraphSnapshot snapshot = GraphSnapshot.get(hgraph, !useUndirected);
+        int N = snapshot.getNodeCount();
+        int[] inOffsets = snapshot.getInOffsets();
+        int[] inTargets = snapshot.getInTargets();
         authority = new double[N];
         hubs = new double[N];
         double[] temp_authority = new double[N];
         double[] temp_hubs = new double[N];
 
-        hub_list = new LinkedList<Node>();
-        auth_list = new LinkedList<Node>();
+        int hubCount = 0;
+        int authCount = 0;
+        hub_list = new int[N];
+        auth_list = new int[N];
 
         Progress.start(progress);
 
-        indicies = new HashMap<Node, Integer>();
-        int index = 0;
-        for (Node node : hgraph.getNodes()) {
-            indicies.put(node, new Integer(index));
-            index++;
-
-            if (!useUndirected) {
-                if (((HierarchicalDirectedGraph) hgraph).getTotalOutDegree(node) > 0) {
-                    hub_list.add(node);
-                }
-                if (((HierarchicalDirectedGraph) hgraph).getTotalInDegree(node) > 0) {
-                    auth_list.add(node);
-                }
-            } else {
-                if (((HierarchicalUndirectedGraph) hgraph).getTotalDegree(node) > 0) {
-                    hub_list.add(node);
-                    auth_list.add(node);
-                }
+        for (int index = 0; index < N; index++) {
+            if (snapshot.getOutDegree(index) > 0) {
+                hub_list[hubCount++] = index;
+            }
+            if (snapshot.getInDegree(index) > 0) {
+                auth_list[authCount++] = index;
             }
         }
+        hub_list = Arrays.copyOf(hub_list, hubCount);
+        auth_list = Arrays.copyOf(auth_list, authCount);
 
-
-        for (Node node : hub_list) {
-            int n_index = indicies.get(node);
+        for (int n_index : hub_list) {
             hubs[n_index] = 1.0f;
         }
-        for (Node node : auth_list) {
-            int n_index = indicies.get(node);
+        for (int n_index : auth_list) {
             authority[n_index] = 1.0f;
         }
 
@@ -167,19 +153,11 @@ public class Hits implements Statistics, LongTask {
 
             boolean done = true;
             double auth_sum = 0;
-            for (Node node : auth_list) {
+            for (int n_index : auth_list) {
 
-                int n_index = indicies.get(node);
                 temp_authority[n_index] = authority[n_index];
-                EdgeIterable edge_iter;
-                if (!useUndirected) {
-                    edge_iter = ((HierarchicalDirectedGraph) hgraph).getInEdgesAndMetaInEdges(node);
-                } else {
-                    edge_iter = ((HierarchicalUndirectedGraph) hgraph).getEdgesAndMetaEdges(node);
-                }
-                for (Edge edge : edge_iter) {
-                    Node target = hgraph.getOpposite(node, edge);
-                    int target_index = indicies.get(target);
+                for (int j = inOffsets[n_index]; j < inOffsets[n_index + 1]; j++) {
+                    int target_index = inTargets[j];
                     temp_authority[n_index] += hubs[target_index];
                 }
 
@@ -191,19 +169,11 @@ public class Hits implements Statistics, LongTask {
             }
 
             double hub_sum = 0;
-            for (Node node : hub_list) {
+            for (int n_index : hub_list) {
 
-                int n_index = indicies.get(node);
                 temp_hubs[n_index] = hubs[n_index];
-                EdgeIterable edge_iter;
-                if (!useUndirected) {
-                    edge_iter = ((HierarchicalDirectedGraph) hgraph).getInEdgesAndMetaInEdges(node);
-                } else {
-                    edge_iter = ((HierarchicalUndirectedGraph) hgraph).getEdgesAndMetaEdges(node);
-                }
-                for (Edge edge : edge_iter) {
-                    Node target = hgraph.getOpposite(node, edge);
-                    int target_index = indicies.get(target);
+                for (int j = inOffsets[n_index]; j < inOffsets[n_index + 1]; j++) {
+                    int target_index = inTargets[j];
                     temp_hubs[n_index] += authority[target_index];
                 }
                 hub_sum += temp_hubs[n_index];
@@ -212,15 +182,13 @@ public class Hits implements Statistics, LongTask {
                 }
             }
 
-            for (Node node : auth_list) {
-                int n_index = indicies.get(node);
+            for (int n_index : auth_list) {
                 temp_authority[n_index] /= auth_sum;
                 if (((temp_authority[n_index] - authority[n_index]) / authority[n_index]) >= epsilon) {
                     done = false;
                 }
             }
-            for (Node node : hub_list) {
-                int n_index = indicies.get(node);
+            for (int n_index : hub_list) {
                 temp_hubs[n_index] /= hub_sum;
                 if (((temp_hubs[n_index] - hubs[n_index]) / hubs[n_index]) >= epsilon) {
                     done = false;
@@ -248,9 +216,8 @@ public class Hits implements Statistics, LongTask {
             hubsCol = nodeTable.addColumn(HUB, "Hub", AttributeType.FLOAT, AttributeOrigin.COMPUTED, new Float(0));
         }
 
-        for (Node s : hgraph.getNodes()) {
-            int s_index = indicies.get(s);
-            AttributeRow row = (AttributeRow) s.getNodeData().getAttributes();
+        for (int s_index = 0; s_index < N; s_index++) {
+            AttributeRow row = (AttributeRow) snapshot.getNode(s_index).getNodeData().getAttributes();
             row.setValue(authorityCol, (float) authority[s_index]);
             row.setValue(hubsCol, (float) hubs[s_index]);
         }
@@ -265,8 +232,7 @@ public class Hits implements Statistics, LongTask {
     public String getReport() {
         //distribution of hub values
         Map<Double, Integer> distHubs = new HashMap<Double, Integer>();
-        for (Node node : hub_list) {
-            int n_index = indicies.get(node);
+        for (int n_index : hub_list) {
             Double d = hubs[n_index];
             if (distHubs.containsKey(d)) {
                 Integer v = distHubs.get(d);
@@ -278,8 +244,7 @@ public class Hits implements Statistics, LongTask {
 
         //distribution of authority values
         Map<Double, Integer> distAuthorities = new HashMap<Double, Integer>();
-        for (Node node : auth_list) {
-            int n_index = indicies.get(node);
+        for (int n_index : auth_list) {
             Double d = authority[n_index];
             if (distAuthorities.containsKey(d)) {
                 Integer v = distAuthorities.get(d);
@@ -66,13 +66,17 @@ public class Modularity implements Statistics, LongTask {
 
     public static final String MODULARITY_CLASS = "modularity_class";
     private ProgressTicket progress;
-    private boolean isCanceled;
-    private CommunityStructure structure;
+    private volatile boolean isCanceled;
+    private volatile ModularityEngine engine;
+    private HierarchicalUndirectedGraph graph;
+    private int communityCount;
     private double modularity;
     private double modularityResolution;
     private boolean isRandomized = false;
     private boolean useWeight = true;
     private double resolution = 1.;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private long seed = 42;
     
     public void setRandom(boolean isRandomized) {
         this.isRandomized = isRandomized;
@@ -98,355 +102,40 @@ public class Modularity implements Statistics, LongTask {
         return resolution;
     }
 
-    public boolean cancel() {
-        this.isCanceled = true;
-        return true;
+    public int getThreadCount() {
+        return threadCount;
     }
 
-    public void setProgressTicket(ProgressTicket progressTicket) {
-        this.progress = progressTicket;
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
     }
 
-    class ModEdge {
-
-        int source;
-        int target;
-        float weight;
-
-        public ModEdge(int s, int t, float w) {
-            source = s;
-            target = t;
-            weight = w;
-        }
+    public long getSeed() {
+        return seed;
     }
 
-    class CommunityStructure {
-
-        HashMap<Modularity.Community, Float>[] nodeConnectionsWeight;
-        HashMap<Modularity.Community, Integer>[] nodeConnectionsCount;
-        HashMap<Node, Integer> map;
-        Community[] nodeCommunities;
-        HierarchicalUndirectedGraph graph;
-        double[] weights;
-        double graphWeightSum;
-        LinkedList<ModEdge>[] topology;
-        LinkedList<Community> communities;
-        int N;
-        HashMap<Integer, Community> invMap;
-
-        CommunityStructure(HierarchicalUndirectedGraph hgraph) {
-            this.graph = hgraph;
-            N = hgraph.getNodeCount();
-            invMap = new HashMap<Integer, Community>();
-            nodeConnectionsWeight = new HashMap[N];
-            nodeConnectionsCount = new HashMap[N];
-            nodeCommunities = new Community[N];
-            map = new HashMap<Node, Integer>();
-            topology = new LinkedList[N];
-            communities = new LinkedList<Community>();
-            int index = 0;
-            weights = new double[N];
-            for (Node node : hgraph.getNodes()) {
-                map.put(node, index);
-                nodeCommunities[index] = new Community(this);
-                nodeConnectionsWeight[index] = new HashMap<Community, Float>();
-                nodeConnectionsCount[index] = new HashMap<Community, Integer>();
-                weights[index] = 0;
-                nodeCommunities[index].seed(index);
-                Community hidden = new Community(structure);
-                hidden.nodes.add(index);
-                invMap.put(index, hidden);
-                communities.add(nodeCommunities[index]);               
-                index++;
-                if (isCanceled) {
-                    return;
-                }
-            } 
-
-            for (Node node : hgraph.getNodes()) {
-                int node_index = map.get(node);
-                topology[node_index] = new LinkedList<ModEdge>();
-
-                for (Node neighbor : hgraph.getNeighbors(node)) {
-                    if (node == neighbor) {
-                        continue;
-                    }
-                    int neighbor_index = map.get(neighbor);
-                    float weight = 1;
-                    if(useWeight) {
-                        weight = hgraph.getEdge(node, neighbor).getWeight();
-                    } 
-                      
-                    weights[node_index] += weight;
-                    Modularity.ModEdge me = new ModEdge(node_index, neighbor_index, weight);
-                    topology[node_index].add(me);
-                    Community adjCom = nodeCommunities[neighbor_index];
-                    nodeConnectionsWeight[node_index].put(adjCom, weight);
-                    nodeConnectionsCount[node_index].put(adjCom, 1);
-                    nodeCommunities[node_index].connectionsWeight.put(adjCom, weight);
-                    nodeCommunities[node_index].connectionsCount.put(adjCom, 1);
-                    nodeConnectionsWeight[neighbor_index].put(nodeCommunities[node_index], weight);
-                    nodeConnectionsCount[neighbor_index].put(nodeCommunities[node_index], 1);
-                    nodeCommunities[neighbor_index].connectionsWeight.put(nodeCommunities[node_index], weight);
-                    nodeCommunities[neighbor_index].connectionsCount.put(nodeCommunities[node_index], 1);
-                    graphWeightSum += weight;
-                }
-
-                if (isCanceled) {
-                    return;
-                }
-            }
-            graphWeightSum /= 2.0;
-        }
-
-        private void addNodeTo(int node, Community to) {
-            to.add(new Integer(node));
-            nodeCommunities[node] = to;
-
-            for (ModEdge e : topology[node]) {
-                int neighbor = e.target;
-
-                ////////
-                //Remove Node Connection to this community
-                Float neighEdgesTo = nodeConnectionsWeight[neighbor].get(to);
-                if (neighEdgesTo == null) {
-                    nodeConnectionsWeight[neighbor].put(to, e.weight);
-                } else {
-                    nodeConnectionsWeight[neighbor].put(to, neighEdgesTo + e.weight);
-                }
-                Integer neighCountEdgesTo = nodeConnectionsCount[neighbor].get(to);
-                if (neighCountEdgesTo == null) {
-                    nodeConnectionsCount[neighbor].put(to, 1);
-                } else {
-                    nodeConnectionsCount[neighbor].put(to, neighCountEdgesTo + 1);
-                }
-
-
-
-
-                ///////////////////
-                Modularity.Community adjCom = nodeCommunities[neighbor];
-                Float wEdgesto = adjCom.connectionsWeight.get(to);
-                if (wEdgesto == null) {
-                    adjCom.connectionsWeight.put(to, e.weight);
-                } else {
-                    adjCom.connectionsWeight.put(to, wEdgesto + e.weight);
-                }
-                
-                Integer cEdgesto = adjCom.connectionsCount.get(to);
-                if (cEdgesto == null) {
-                    adjCom.connectionsCount.put(to, 1);
-                } else {
-                    adjCom.connectionsCount.put(to, cEdgesto + 1);
-                }
-
-                Float nodeEdgesTo = nodeConnectionsWeight[node].get(adjCom);
-                if (nodeEdgesTo == null) {
-                    nodeConnectionsWeight[node].put(adjCom, e.weight);
-                } else {
-                    nodeConnectionsWeight[node].put(adjCom, nodeEdgesTo + e.weight);
-                }
-                
-                Integer nodeCountEdgesTo = nodeConnectionsCount[node].get(adjCom);
-                if (nodeCountEdgesTo == null) {
-                    nodeConnectionsCount[node].put(adjCom, 1);
-                } else {
-                    nodeConnectionsCount[node].put(adjCom, nodeCountEdgesTo + 1);
-                }
-
-                if (to != adjCom) {
-                    Float comEdgesto = to.connectionsWeight.get(adjCom);
-                    if (comEdgesto == null) {
-                        to.connectionsWeight.put(adjCom, e.weight);
-                    } else {
-                        to.connectionsWeight.put(adjCom, comEdgesto + e.weight);
-                    }
-                    
-                    Integer comCountEdgesto = to.connectionsCount.get(adjCom);
-                    if (comCountEdgesto == null) {
-                        to.connectionsCount.put(adjCom, 1);
-                    } else {
-                        to.connectionsCount.put(adjCom, comCountEdgesto + 1);
-                    }
-                    
-                    
-                }
-            }
-        }
-
-        private void removeNodeFrom(int node, Community from) {
-                       
-            Community community = nodeCommunities[node];
-            for (ModEdge e : topology[node]) {
-                int neighbor = e.target;
-
-                ////////
-                //Remove Node Connection to this community
-                Float edgesTo = nodeConnectionsWeight[neighbor].get(community);
-                Integer countEdgesTo = nodeConnectionsCount[neighbor].get(community);
-                if (countEdgesTo - 1 == 0) {
-                    nodeConnectionsWeight[neighbor].remove(community);
-                    nodeConnectionsCount[neighbor].remove(community);
-                } else {
-                    nodeConnectionsWeight[neighbor].put(community, edgesTo - e.weight);
-                    nodeConnectionsCount[neighbor].put(community, countEdgesTo - 1);
-                }
-
-                ///////////////////
-                //Remove Adjacency Community's connection to this community
-                Modularity.Community adjCom = nodeCommunities[neighbor];
-                Float oEdgesto = adjCom.connectionsWeight.get(community);
-                Integer oCountEdgesto = adjCom.connectionsCount.get(community);
-                if (oCountEdgesto - 1 == 0) {
-                    adjCom.connectionsWeight.remove(community);
-                    adjCom.connectionsCount.remove(community);
-                } else {
-                    adjCom.connectionsWeight.put(community, oEdgesto - e.weight);
-                    adjCom.connectionsCount.put(community, oCountEdgesto - 1);
-                }
-                
-
-                
-                if (node == neighbor) {
-                    continue;
-                }
-
-                if (adjCom != community) {
-                    Float comEdgesto = community.connectionsWeight.get(adjCom);
-                    Integer comCountEdgesto = community.connectionsCount.get(adjCom);
-                    if (comCountEdgesto - 1 == 0) {
-                        community.connectionsWeight.remove(adjCom);
-                        community.connectionsCount.remove(adjCom);
-                    } else {
-                        community.connectionsWeight.put(adjCom, comEdgesto - e.weight);
-                        community.connectionsCount.put(adjCom, comCountEdgesto - 1);
-                    }
-                }
-
-                Float nodeEgesTo = nodeConnectionsWeight[node].get(adjCom);
-                Integer nodeCountEgesTo = nodeConnectionsCount[node].get(adjCom);
-                if (nodeCountEgesTo - 1 == 0) {
-                    nodeConnectionsWeight[node].remove(adjCom);
-                    nodeConnectionsCount[node].remove(adjCom);
-                } else {
-                    nodeConnectionsWeight[node].put(adjCom, nodeEgesTo - e.weight);
-                    nodeConnectionsCount[node].put(adjCom, nodeCountEgesTo - 1);
-                }
-
-
-            }
-            from.remove(new Integer(node));
-        }
-
-        private void moveNodeTo(int node, Community to) {
-            Community from = nodeCommunities[node];
-            removeNodeFrom(node, from);
-            addNodeTo(node, to);
-        }
-
-        private void zoomOut() {
-            int M = communities.size();
-            LinkedList<ModEdge>[] newTopology = new LinkedList[M];
-            int index = 0;
-            nodeCommunities = new Community[M];
-            nodeConnectionsWeight = new HashMap[M];
-            nodeConnectionsCount = new HashMap[M];
-            HashMap<Integer, Community> newInvMap = new HashMap<Integer, Community>();
-            for (int i = 0; i < communities.size(); i++) {//Community com : mCommunities) {
-                Community com = communities.get(i);
-                nodeConnectionsWeight[index] = new HashMap<Community, Float>();
-                nodeConnectionsCount[index] = new HashMap<Community, Integer>();
-                newTopology[index] = new LinkedList<ModEdge>();
-                nodeCommunities[index] = new Community(com);
-                Set<Community> iter = com.connectionsWeight.keySet();
-                double weightSum = 0;
-
-                Community hidden = new Community(structure);
-                for (Integer nodeInt : com.nodes) {
-                    Community oldHidden = invMap.get(nodeInt);
-                    hidden.nodes.addAll(oldHidden.nodes);
-                }
-                newInvMap.put(index, hidden);
-                for(Modularity.Community adjCom : iter) {
-                    int target = communities.indexOf(adjCom);
-                    float weight = com.connectionsWeight.get(adjCom);
-                    if(target == index)
-                        weightSum += 2.*weight;
-                    else
-                        weightSum += weight;
-                    ModEdge e = new ModEdge(index, target, weight);
-                    newTopology[index].add(e);
-                }
-                weights[index] = weightSum;
-                nodeCommunities[index].seed(index);
-
-                index++;
-            }
-            communities.clear();
-
-            for (int i = 0; i < M; i++) {
-                Community com = nodeCommunities[i];
-                communities.add(com);
-                for (ModEdge e : newTopology[i]) {
-                    nodeConnectionsWeight[i].put(nodeCommunities[e.target], e.weight);
-                    nodeConnectionsCount[i].put(nodeCommunities[e.target], 1);
-                    com.connectionsWeight.put(nodeCommunities[e.target], e.weight);
-                    com.connectionsCount.put(nodeCommunities[e.target], 1);
-                }
-
-            }
-
-            N = M;
-            topology = newTopology;
-            invMap = newInvMap;
-        }
+    /**
+     * Sets the seed of the node order shuffling done when randomized, so that
+     * randomized runs can be reproduced. Runs with one thread and runs with
+     * several threads may still find different partitions on large graphs.
+     *
+     * @param seed the random seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
     }
 
-    class Community {
-        double weightSum;
-        CommunityStructure structure;
-        LinkedList<Integer> nodes;
-        HashMap<Modularity.Community, Float> connectionsWeight;
-        HashMap<Modularity.Community, Integer> connectionsCount;
-
-        public int size() {
-            return nodes.size();
-        }
-
-        public Community(Modularity.Community com) {
-            structure = com.structure;
-            connectionsWeight = new HashMap<Modularity.Community, Float>();
-            connectionsCount = new HashMap<Modularity.Community, Integer>();
-            nodes = new LinkedList<Integer>();
-            //mHidden = pCom.mHidden;
-        }
-
-        public Community(CommunityStructure structure) {
-            this.structure = structure;
-            connectionsWeight = new HashMap<Modularity.Community, Float>();
-            connectionsCount = new HashMap<Modularity.Community, Integer>();
-            nodes = new LinkedList<Integer>();
-        }
-
-        public void seed(int node) {
-            nodes.add(node);
-            weightSum += structure.weights[node];
-        }
-
-        public boolean add(int node) {
-            nodes.addLast(new Integer(node));
-            weightSum += structure.weights[node];
-            return true;
+    public boolean cancel() {
+        this.isCanceled = true;
+        ModularityEngine e = engine;
+        if (e != null) {
+            e.cancel();
         }
+        return true;
+    }
 
-        public boolean remove(int node) {
-            boolean result = nodes.remove(new Integer(node));
-            weightSum -= structure.weights[node];
-            if (nodes.size() == 0) {
-                structure.communities.remove(this);
-            }
-            return result;
-        }
+    public void setProgressTicket(ProgressTicket progressTicket) {
+        this.progress = progressTicket;
     }
 
     public void execute(GraphModel graphModel, AttributeModel attributeModel) {
@@ -457,89 +146,36 @@ public class Modularity implements Statistics, LongTask {
     public void execute(HierarchicalUndirectedGraph hgraph, AttributeModel attributeModel) {
         isCanceled = false;
         Progress.start(progress);
-        Random rand = new Random();
         hgraph.readLock();
-        structure = new Modularity.CommunityStructure(hgraph);
-        double totalWeight = structure.graphWeightSum;
-        double[] nodeDegrees = structure.weights.clone();
+        this.graph = hgraph;
+        GraphSnapshot snapshot = GraphSnapshot.get(hgraph, false);
+        engine = new ModularityEngine(snapshot, useWeight, resolution, threadCount, isRandomized ? new Random(seed) : null);
         if (isCanceled) {
             hgraph.readUnlockAll();
             return;
         }
-        boolean someChange = true;
-        while (someChange) {
-            someChange = false;
-            boolean localChange = true;
-            while (localChange) {
-                localChange = false;
-                int start = 0;
-                if (isRandomized) {
-                    start = Math.abs(rand.nextInt()) % structure.N;
-                }
-                int step = 0;
-                for (int i = start; step < structure.N; i = (i + 1) % structure.N) {
-                    step++;
-                    double best = 0.;
-                    Community bestCommunity = null;
-                    Community nodecom = structure.nodeCommunities[i];
-                    Set<Community> iter = structure.nodeConnectionsWeight[i].keySet();
-                    for(Community com : iter) {
-                        double qValue = q(i, com);
-                        if (qValue > best) {
-                            best = qValue;
-                            bestCommunity = com;
-                        } 
-                    }
-                    if ((structure.nodeCommunities[i] != bestCommunity) && (bestCommunity != null)) {
-                        structure.moveNodeTo(i, bestCommunity);
-                        localChange = true;
-                    }
-                    if (isCanceled) {
-                        hgraph.readUnlockAll();
-                        return;
-                    }
-                }
-                someChange = localChange || someChange;
-                if (isCanceled) {
-                    hgraph.readUnlockAll();
-                    return;
-                }
-            }
-
-            if (someChange) {
-                structure.zoomOut();
-            }
-        }
-
-        int[] comStructure = new int[hgraph.getNodeCount()];
-        int count = 0;
-        double[] degreeCount = new double[structure.communities.size()];
-        for (Community com : structure.communities) {
-            for (Integer node : com.nodes) {
-                Community hidden = structure.invMap.get(node);
-                for (Integer nodeInt : hidden.nodes) {
-                    comStructure[nodeInt] = count;
-                }
-            }
-            count++;
+        int[] comStructure = engine.run();
+        if (comStructure == null || isCanceled) {
+            hgraph.readUnlockAll();
+            return;
         }
-        for (Node node : hgraph.getNodes()) {
-            int index = structure.map.get(node);
-            if(useWeight) {
-                degreeCount[comStructure[index]] += nodeDegrees[index];
-            } else {                
-                degreeCount[comStructure[index]] += hgraph.getTotalDegree(node);
-            }
-            
+        communityCount = engine.getCommunityCount();
+        double totalWeight = engine.getTotalWeight();
+        double[] nodeDegrees = engine.getDegrees();
+
+        //Same degrees as the engine, self-loops excluded and unit weights if not weighted
+        double[] degreeCount = new double[communityCount];
+        for (int index = 0; index < comStructure.length; index++) {
+            degreeCount[comStructure[index]] += nodeDegrees[index];
         }
         
-        modularity = finalQ(comStructure, degreeCount, hgraph, attributeModel, totalWeight, 1.);
-        modularityResolution = finalQ(comStructure, degreeCount, hgraph, attributeModel, totalWeight, resolution);
+        modularity = finalQ(comStructure, degreeCount, snapshot, attributeModel, totalWeight, 1.);
+        modularityResolution = finalQ(comStructure, degreeCount, snapshot, attributeModel, totalWeight, resolution);
         
         hgraph.readUnlock();
     }
 
-    private double finalQ(int[] struct, double[] degrees, HierarchicalUndirectedGraph hgraph, AttributeModel attributeModel, double totalWeight, double usedResolution) {
+    private double finalQ(int[] struct, double[] degrees, GraphSnapshot snapshot, AttributeModel attributeModel, double totalWeight, double usedResolution) {
         AttributeTable nodeTable = attributeModel.getNodeTable();
         AttributeColumn modCol = nodeTable.getColumn(MODULARITY_CLASS);
         if (modCol == null) {
@@ -548,18 +184,20 @@ public class Modularity implements Statistics, LongTask {
 
         double res = 0;
         double[] internal = new double[degrees.length];
-        for (Node n : hgraph.getNodes()) {
-            int n_index = structure.map.get(n);
-            AttributeRow row = (AttributeRow) n.getNodeData().getAttributes();
+        int[] offsets = snapshot.getOutOffsets();
+        int[] targets = snapshot.getOutTargets();
+        float[] weights = snapshot.getOutWeights();
+        for (int n_index = 0; n_index < struct.length; n_index++) {
+            AttributeRow row = (AttributeRow) snapshot.getNode(n_index).getNodeData().getAttributes();
             row.setValue(modCol, struct[n_index]);
-            for (Node neighbor : hgraph.getNeighbors(n)) {
-                if (n == neighbor) {
+            for (int j = offsets[n_index]; j < offsets[n_index + 1]; j++) {
+                int neigh_index = targets[j];
+                if (n_index == neigh_index) {
                     continue;
                 }
-                int neigh_index = structure.map.get(neighbor);
                 if (struct[neigh_index] == struct[n_index]) {
                     if(useWeight) {
-                        internal[struct[neigh_index]] += hgraph.getEdge(n, neighbor).getWeight();
+                        internal[struct[neigh_index]] += weights[j];
                     } else {
                         internal[struct[neigh_index]]++;
                     }
@@ -580,7 +218,7 @@ public class Modularity implements Statistics, LongTask {
     public String getReport() {
         //Distribution series
         Map<Integer, Integer> sizeDist = new HashMap<Integer, Integer>();
-        for(Node n : structure.graph.getNodes()) {
+        for(Node n : graph.getNodes()) {
             Integer v = (Integer) n.getNodeData().getAttributes().getValue(MODULARITY_CLASS);
             if(!sizeDist.containsKey(v)) {
                 sizeDist.put(v, 0);
@@ -619,7 +257,7 @@ public class Modularity implements Statistics, LongTask {
                 + "<br> <h2> Results: </h2>"
                 + "Modularity: " + f.format(modularity) + "<br>"
                 + "Modularity with resolution: " + f.format(modularityResolution) + "<br>"
-                + "Number of Communities: " + structure.communities.size()
+                + "Number of Communities: " + communityCount
                 + "<br /><br />"+imageFile
                 + "<br /><br />" + "<h2> Algorithm: </h2>"
                 + "Vincent D Blondel, Jean-Loup Guillaume, Renaud Lambiotte, Etienne Lefebvre, <i>Fast unfolding of communities in large networks</i>, in Journal of Statistical Mechanics: Theory and Experiment 2008 (10), P1000<br />"
@@ -629,22 +267,4 @@ public class Modularity implements Statistics, LongTask {
 
         return report;
     }
-
-    private double q(int node, Community community) {
-        Float edgesToFloat = structure.nodeConnectionsWeight[node].get(community);
-        double edgesTo = 0;
-        if (edgesToFloat != null) {
-            edgesTo = edgesToFloat.doubleValue();
-        }
-        double weightSum = community.weightSum;
-        double nodeWeight = structure.weights[node];
-        double qValue = resolution * edgesTo - (nodeWeight * weightSum) / (2.0 * structure.graphWeightSum);
-        if ((structure.nodeCommunities[node] == community) && (structure.nodeCommunities[node].size() > 1)) {
-            qValue = resolution * edgesTo - (nodeWeight * (weightSum - nodeWeight)) / (2.0 * structure.graphWeightSum);
-        }
-        if ((structure.nodeCommunities[node] == community) && (structure.nodeCommunities[node].size() == 1)) {
-            qValue = 0.;
-        }
-        return qValue;
-    }
 }
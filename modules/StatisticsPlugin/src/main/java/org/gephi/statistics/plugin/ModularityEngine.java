@@ -0,0 +1,460 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.statistics.plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Multi-level Louvain community detection on primitive adjacency arrays, used
+ * by {@link Modularity}.
+ * <p>
+ * Each level runs a local moving phase followed by a coarsening phase where
+ * communities become the nodes of the next level. The local moving phase
+ * processes nodes in batches of a fixed size: moves of a batch are decided in
+ * parallel against the state at the start of the batch and applied
+ * sequentially, in the node order. Parallel results are therefore the same for
+ * a given seed whatever the number of threads, as long as there is more than
+ * one. With a single thread, or on graphs smaller than a batch, each move is
+ * applied immediately, which is the classic sequential algorithm and may give
+ * a different partition.
+ * <p>
+ * Adjacency buffers are allocated once at the size of the first level and
+ * swapped between levels.
+ *
+ * @author Gephi Consortium
+ */
+class ModularityEngine {
+
+    private static final int BATCH_SIZE = 16384;
+    private static final int MAX_PASSES = 100;
+    private final double resolution;
+    private final int threadCount;
+    private final Random random;
+    private volatile boolean canceled;
+    //Current level
+    private int n;
+    private int[] offsets;
+    private int[] targets;
+    private double[] weights;
+    private double[] selfWeights;
+    private double[] nodeWeights;
+    //Next level, swapped with the current one after coarsening
+    private int[] nextOffsets;
+    private int[] nextTargets;
+    private double[] nextWeights;
+    private double[] nextSelfWeights;
+    private double[] nextNodeWeights;
+    //Local moving state
+    private final int[] community;
+    private final int[] sizes;
+    private final double[] totals;
+    private final int[] order;
+    private final int[] decisions;
+    private final int[] remap;
+    private final int[] memberOffsets;
+    private final int[] members;
+    private final Scratch[] scratches;
+    //Results
+    private final int nodeCount;
+    private final double[] degrees;
+    private final double m2;
+    private final int[] membership;
+    private int communityCount;
+    private int levels;
+
+    ModularityEngine(GraphSnapshot snapshot, boolean useWeight, double resolution, int threadCount, Random random) {
+        this.resolution = resolution;
+        this.threadCount = Math.max(1, threadCount);
+        this.random = random;
+        nodeCount = snapshot.getNodeCount();
+        n = nodeCount;
+
+        //First level, without self-loops
+        int[] snapshotOffsets = snapshot.getOutOffsets();
+        int[] snapshotTargets = snapshot.getOutTargets();
+        float[] snapshotWeights = snapshot.getOutWeights();
+        int entries = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = snapshotOffsets[i]; j < snapshotOffsets[i + 1]; j++) {
+                if (snapshotTargets[j] != i) {
+                    entries++;
+                }
+            }
+        }
+        offsets = new int[n + 1];
+        targets = new int[entries];
+        weights = new double[entries];
+        selfWeights = new double[n];
+        nodeWeights = new double[n];
+        double sum = 0;
+        int e = 0;
+        for (int i = 0; i < n; i++) {
+            offsets[i] = e;
+            for (int j = snapshotOffsets[i]; j < snapshotOffsets[i + 1]; j++) {
+                if (snapshotTargets[j] != i) {
+                    double w = useWeight ? snapshotWeights[j] : 1.0;
+                    targets[e] = snapshotTargets[j];
+                    weights[e] = w;
+                    nodeWeights[i] += w;
+                    e++;
+                }
+            }
+            sum += nodeWeights[i];
+        }
+        offsets[n] = e;
+        m2 = sum;
+        degrees = nodeWeights.clone();
+
+        nextOffsets = new int[n + 1];
+        nextTargets = new int[entries];
+        nextWeights = new double[entries];
+        nextSelfWeights = new double[n];
+        nextNodeWeights = new double[n];
+
+        community = new int[n];
+        sizes = new int[n];
+        totals = new double[n];
+        order = new int[n];
+        decisions = new int[n];
+        remap = new int[n];
+        memberOffsets = new int[n + 1];
+        members = new int[n];
+        scratches = new Scratch[this.threadCount];
+        for (int t = 0; t < scratches.length; t++) {
+            scratches[t] = new Scratch(n);
+        }
+        membership = new int[n];
+        for (int i = 0; i < n; i++) {
+            membership[i] = i;
+        }
+    }
+
+    /**
+     * Runs all levels and returns the community of each node of the snapshot,
+     * numbered from <code>0</code> to <code>getCommunityCount() - 1</code>.
+     *
+     * @return the community of each node, or <code>null</code> if canceled
+     */
+    int[] run() {
+        ExecutorService pool = threadCount > 1 ? Executors.newFixedThreadPool(threadCount) : null;
+        try {
+            communityCount = n;
+            while (n > 0) {
+                boolean moved = localMoving(pool);
+                if (canceled) {
+                    return null;
+                }
+                int count = renumber();
+                for (int i = 0; i < nodeCount; i++) {
+                    membership[i] = community[membership[i]];
+                }
+                communityCount = count;
+                levels++;
+                if (!moved || count == n) {
+                    break;
+                }
+                coarsen(count);
+            }
+            return membership;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    void cancel() {
+        canceled = true;
+    }
+
+    int getCommunityCount() {
+        return communityCount;
+    }
+
+    int getLevels() {
+        return levels;
+    }
+
+    /**
+     * Returns the weighted degree of each node of the snapshot, self-loops
+     * excluded.
+     */
+    double[] getDegrees() {
+        return degrees;
+    }
+
+    /**
+     * Returns the total edge weight, self-loops excluded.
+     */
+    double getTotalWeight() {
+        return m2 / 2.0;
+    }
+
+    private boolean localMoving(ExecutorService pool) throws InterruptedException, ExecutionException {
+        for (int i = 0; i < n; i++) {
+            community[i] = i;
+            sizes[i] = 1;
+            totals[i] = nodeWeights[i];
+            order[i] = i;
+        }
+        if (m2 == 0) {
+            return false;
+        }
+        if (random != null) {
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+        }
+
+        final boolean parallel = pool != null && n > BATCH_SIZE;
+        int batchSize = parallel ? BATCH_SIZE : 1;
+        boolean moved = false;
+        int passes = 0;
+        int moves;
+        do {
+            moves = 0;
+            for (int start = 0; start < n && !canceled; start += batchSize) {
+                final int end = Math.min(n, start + batchSize);
+                if (parallel) {
+                    List<Future<?>> futures = new ArrayList<Future<?>>(threadCount);
+                    for (int t = 0; t < threadCount; t++) {
+                        final int from = start + (int) ((long) (end - start) * t / threadCount);
+                        final int to = start + (int) ((long) (end - start) * (t + 1) / threadCount);
+                        final Scratch scratch = scratches[t];
+                        futures.add(pool.submit(new Runnable() {
+
+                            public void run() {
+                                for (int k = from; k < to; k++) {
+                                    decisions[k] = bestCommunity(order[k], scratch, true);
+                                }
+                            }
+                        }));
+                    }
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                } else {
+                    for (int k = start; k < end; k++) {
+                        decisions[k] = bestCommunity(order[k], scratches[0], false);
+                    }
+                }
+                for (int k = start; k < end; k++) {
+                    int node = order[k];
+                    int from = community[node];
+                    int to = decisions[k];
+                    if (from != to) {
+                        totals[from] -= nodeWeights[node];
+                        totals[to] += nodeWeights[node];
+                        sizes[from]--;
+                        sizes[to]++;
+                        community[node] = to;
+                        moves++;
+                    }
+                }
+            }
+            moved |= moves > 0;
+            passes++;
+        } while (moves > 0 && passes < MAX_PASSES && !canceled);
+        return moved;
+    }
+
+    private int bestCommunity(int node, Scratch scratch, boolean parallel) {
+        int own = community[node];
+        double k = nodeWeights[node];
+        for (int j = offsets[node]; j < offsets[node + 1]; j++) {
+            scratch.add(community[targets[j]], weights[j]);
+        }
+        int best = own;
+        double bestGain = resolution * scratch.get(own) - (totals[own] - k) * k / m2;
+        for (int t = 0; t < scratch.size; t++) {
+            int c = scratch.touched[t];
+            if (c != own) {
+                double gain = resolution * scratch.weight[c] - totals[c] * k / m2;
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    best = c;
+                }
+            }
+        }
+        scratch.clear();
+        //Two singletons deciding at the same time would swap forever
+        if (parallel && best != own && sizes[own] == 1 && sizes[best] == 1 && best > own) {
+            best = own;
+        }
+        return best;
+    }
+
+    /**
+     * Renumbers communities from 0 by order of first appearance.
+     */
+    private int renumber() {
+        Arrays.fill(remap, 0, n, -1);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int c = community[i];
+            if (remap[c] == -1) {
+                remap[c] = count++;
+            }
+            community[i] = remap[c];
+        }
+        return count;
+    }
+
+    private void coarsen(int count) {
+        //Group nodes by community
+        Arrays.fill(memberOffsets, 0, count + 1, 0);
+        for (int i = 0; i < n; i++) {
+            memberOffsets[community[i] + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            memberOffsets[c + 1] += memberOffsets[c];
+        }
+        int[] cursor = remap;
+        System.arraycopy(memberOffsets, 0, cursor, 0, count);
+        for (int i = 0; i < n; i++) {
+            members[cursor[community[i]]++] = i;
+        }
+
+        //Aggregate edges between communities
+        Scratch scratch = scratches[0];
+        int e = 0;
+        for (int c = 0; c < count; c++) {
+            nextOffsets[c] = e;
+            double self = 0;
+            double weight = 0;
+            for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                int i = members[m];
+                self += selfWeights[i];
+                weight += nodeWeights[i];
+                for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                    int target = community[targets[j]];
+                    if (target == c) {
+                        self += weights[j];
+                    } else {
+                        scratch.add(target, weights[j]);
+                    }
+                }
+            }
+            for (int t = 0; t < scratch.size; t++) {
+                int target = scratch.touched[t];
+                nextTargets[e] = target;
+                nextWeights[e] = scratch.weight[target];
+                e++;
+            }
+            scratch.clear();
+            nextSelfWeights[c] = self;
+            nextNodeWeights[c] = weight;
+        }
+        nextOffsets[count] = e;
+
+        //Swap buffers
+        int[] swapInts = offsets;
+        offsets = nextOffsets;
+        nextOffsets = swapInts;
+        swapInts = targets;
+        targets = nextTargets;
+        nextTargets = swapInts;
+        double[] swapDoubles = weights;
+        weights = nextWeights;
+        nextWeights = swapDoubles;
+        swapDoubles = selfWeights;
+        selfWeights = nextSelfWeights;
+        nextSelfWeights = swapDoubles;
+        swapDoubles = nodeWeights;
+        nodeWeights = nextNodeWeights;
+        nextNodeWeights = swapDoubles;
+        n = count;
+    }
+
+    /**
+     * Sparse accumulator of weights per community, one per thread.
+     */
+    private static class Scratch {
+
+        private final double[] weight;
+        private final boolean[] seen;
+        private final int[] touched;
+        private int size;
+
+        Scratch(int capacity) {
+            weight = new double[capacity];
+            seen = new boolean[capacity];
+            touched = new int[capacity];
+        }
+
+        void add(int c, double w) {
+            if (!seen[c]) {
+                seen[c] = true;
+                touched[size++] = c;
+            }
+            weight[c] += w;
+        }
+
+        double get(int c) {
+            return seen[c] ? weight[c] : 0.0;
+        }
+
+        void clear() {
+            for (int t = 0; t < size; t++) {
+                int c = touched[t];
+                seen[c] = false;
+                weight[c] = 0.0;
+            }
+            size = 0;
+        }
+    }
+}
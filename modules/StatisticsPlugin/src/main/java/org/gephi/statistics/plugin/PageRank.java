@@ -41,22 +41,23 @@ Portions Copyrighted 2011 Gephi Consortium.
  */
 package org.gephi.statistics.plugin;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.gephi.data.attributes.api.AttributeTable;
 import org.gephi.data.attributes.api.AttributeColumn;
 import org.gephi.data.attributes.api.AttributeModel;
 import org.gephi.data.attributes.api.AttributeOrigin;
 import org.gephi.data.attributes.api.AttributeRow;
 import org.gephi.data.attributes.api.AttributeType;
-import org.gephi.graph.api.Edge;
-import org.gephi.graph.api.EdgeIterable;
 import org.gephi.graph.api.GraphController;
 import org.gephi.graph.api.GraphModel;
-import org.gephi.graph.api.HierarchicalDirectedGraph;
 import org.gephi.graph.api.HierarchicalGraph;
-import org.gephi.graph.api.HierarchicalUndirectedGraph;
-import org.gephi.graph.api.Node;
 import org.gephi.statistics.spi.Statistics;
 import org.gephi.utils.longtask.spi.LongTask;
 import org.gephi.utils.progress.Progress;
@@ -80,7 +81,7 @@ public class PageRank implements Statistics, LongTask {
     /** */
     private ProgressTicket progress;
     /** */
-    private boolean isCanceled;
+    private volatile boolean isCanceled;
     /** */
     private double epsilon = 0.001;
     /** */
@@ -90,6 +91,12 @@ public class PageRank implements Statistics, LongTask {
     private double[] pageranks;
     /** */
     private boolean isDirected;
+    /** Number of threads the power iteration is split across */
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    /** Largest relative rank change of each iteration */
+    private List<Double> residuals;
+    /** Graphs smaller than this are always computed on the calling thread */
+    private static final int PARALLEL_THRESHOLD = 10000;
 
     public PageRank() {
         GraphController graphController = Lookup.getDefault().lookup(GraphController.class);
@@ -125,91 +132,54 @@ public class PageRank implements Statistics, LongTask {
 
         hgraph.readLock();
 
-        int N = hgraph.getNodeCount();
+        GraphSnapshot snapshot = GraphSnapshot.get(hgraph, isDirected);
+        int N = snapshot.getNodeCount();
         pageranks = new double[N];
         double[] temp = new double[N];
-        HashMap<Node, Integer> indicies = new HashMap<Node, Integer>();
-        int index = 0;
+        residuals = new ArrayList<Double>();
 
         Progress.start(progress);
-        double[] weights = null;
-        if (useEdgeWeight) {
-            weights = new double[N];
-        }
 
-        for (Node s : hgraph.getNodes()) {
-            indicies.put(s, index);
-            pageranks[index] = 1.0f / N;
-            if (useEdgeWeight) {
-                double sum = 0;
-                EdgeIterable eIter;
-                if (isDirected) {
-                    eIter = ((HierarchicalDirectedGraph) hgraph).getOutEdgesAndMetaOutEdges(s);
-                } else {
-                    eIter = ((HierarchicalUndirectedGraph) hgraph).getEdgesAndMetaEdges(s);
-                }
-                for (Edge edge : eIter) {
-                    sum += edge.getWeight();
-                }
-                weights[index] = sum;
-            }
-            index++;
+        //Out-degree or weight normalisation, computed once
+        double[] normalize = new double[N];
+        boolean[] dangling = new boolean[N];
+        for (int i = 0; i < N; i++) {
+            pageranks[i] = 1.0f / N;
+            dangling[i] = snapshot.getOutDegree(i) == 0;
+            double sum = useEdgeWeight ? snapshot.getOutWeightSum(i) : snapshot.getOutDegree(i);
+            normalize[i] = sum != 0 ? 1.0 / sum : 0.0;
         }
 
-        while (true) {
-            double r = 0;
-            for (Node s : hgraph.getNodes()) {
-                int s_index = indicies.get(s);
-                boolean out;
-                if (isDirected) {
-                    out = ((HierarchicalDirectedGraph) hgraph).getTotalOutDegree(s) > 0;
-                } else {
-                    out = hgraph.getTotalDegree(s) > 0;
+        int taskCount = N < PARALLEL_THRESHOLD ? 1 : Math.max(1, threadCount) * 4;
+        PageRankTask[] tasks = new PageRankTask[taskCount];
+        for (int t = 0; t < taskCount; t++) {
+            tasks[t] = new PageRankTask(snapshot, normalize, (int) ((long) N * t / taskCount), (int) ((long) N * (t + 1) / taskCount));
+        }
+        ExecutorService pool = taskCount > 1 ? Executors.newFixedThreadPool(Math.max(1, threadCount)) : null;
+        try {
+            while (true) {
+                double r = 0;
+                for (int s_index = 0; s_index < N; s_index++) {
+                    if (!dangling[s_index]) {
+                        r += (1.0 - probability) * (pageranks[s_index] / N);
+                    } else {
+                        r += (pageranks[s_index] / N);
+                    }
                 }
 
-                if (out) {
-                    r += (1.0 - probability) * (pageranks[s_index] / N);
-                } else {
-                    r += (pageranks[s_index] / N);
-                }
-                if (isCanceled) {
-                    hgraph.readUnlockAll();
-                    return;
+                for (PageRankTask task : tasks) {
+                    task.setBuffers(pageranks, temp, r);
                 }
-            }
-
-            boolean done = true;
-            for (Node s : hgraph.getNodes()) {
-                int s_index = indicies.get(s);
-                temp[s_index] = r;
-
-                EdgeIterable eIter;
-                if (isDirected) {
-                    eIter = ((HierarchicalDirectedGraph) hgraph).getInEdgesAndMetaInEdges(s);
-                } else {
-                    eIter = ((HierarchicalUndirectedGraph) hgraph).getEdgesAndMetaEdges(s);
-                }
-
-                for (Edge edge : eIter) {
-                    Node neighbor = hgraph.getOpposite(s, edge);
-                    int neigh_index = indicies.get(neighbor);
-                    int normalize;
-                    if (isDirected) {
-                        normalize = ((HierarchicalDirectedGraph) hgraph).getTotalOutDegree(neighbor);
-                    } else {
-                        normalize = ((HierarchicalUndirectedGraph) hgraph).getTotalDegree(neighbor);
+                if (pool != null) {
+                    List<Future<?>> futures = new ArrayList<Future<?>>(taskCount);
+                    for (PageRankTask task : tasks) {
+                        futures.add(pool.submit(task));
                     }
-                    if (useEdgeWeight) {
-                        double weight = edge.getWeight() / weights[neigh_index];
-                        temp[s_index] += probability * pageranks[neigh_index] * weight;
-                    } else {
-                        temp[s_index] += probability * (pageranks[neigh_index] / normalize);
+                    for (Future<?> future : futures) {
+                        future.get();
                     }
-
-                }
-
-                if ((temp[s_index] - pageranks[s_index]) / pageranks[s_index] >= epsilon) {
-                    done = false;
+                } else {
+                    tasks[0].run();
                 }
 
                 if (isCanceled) {
@@ -217,13 +187,31 @@ public class PageRank implements Statistics, LongTask {
                     return;
                 }
 
+                double residual = 0;
+                for (PageRankTask task : tasks) {
+                    residual = Math.max(residual, task.residual);
+                }
+                residuals.add(residual);
+
+                //Swap buffers
+                double[] swap = pageranks;
+                pageranks = temp;
+                temp = swap;
+                if (residual < epsilon) {
+                    break;
+                }
             }
-            pageranks = temp;
-            temp = new double[N];
-            if ((done) || (isCanceled)) {
-                break;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            hgraph.readUnlockAll();
+            return;
+        } catch (ExecutionException ex) {
+            hgraph.readUnlockAll();
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
             }
-
         }
 
         AttributeTable nodeTable = attributeModel.getNodeTable();
@@ -232,15 +220,72 @@ public class PageRank implements Statistics, LongTask {
             pangeRanksCol = nodeTable.addColumn(PAGERANK, "PageRank", AttributeType.DOUBLE, AttributeOrigin.COMPUTED, new Double(0));
         }
 
-        for (Node s : hgraph.getNodes()) {
-            int s_index = indicies.get(s);
-            AttributeRow row = (AttributeRow) s.getNodeData().getAttributes();
+        for (int s_index = 0; s_index < N; s_index++) {
+            AttributeRow row = (AttributeRow) snapshot.getNode(s_index).getNodeData().getAttributes();
             row.setValue(pangeRanksCol, pageranks[s_index]);
         }
 
         hgraph.readUnlockAll();
     }
 
+    /**
+     * Computes one power iteration step for the node range <code>[from, to)</code>.
+     */
+    private class PageRankTask implements Runnable {
+
+        private final int[] inOffsets;
+        private final int[] inTargets;
+        private final float[] inWeights;
+        private final double[] normalize;
+        private final int from;
+        private final int to;
+        private double[] current;
+        private double[] next;
+        private double r;
+        private double residual;
+
+        PageRankTask(GraphSnapshot snapshot, double[] normalize, int from, int to) {
+            this.inOffsets = snapshot.getInOffsets();
+            this.inTargets = snapshot.getInTargets();
+            this.inWeights = snapshot.getInWeights();
+            this.normalize = normalize;
+            this.from = from;
+            this.to = to;
+        }
+
+        void setBuffers(double[] current, double[] next, double r) {
+            this.current = current;
+            this.next = next;
+            this.r = r;
+        }
+
+        public void run() {
+            double max = 0;
+            for (int s_index = from; s_index < to; s_index++) {
+                double sum = 0;
+                for (int j = inOffsets[s_index]; j < inOffsets[s_index + 1]; j++) {
+                    int neigh_index = inTargets[j];
+                    double contribution = current[neigh_index] * normalize[neigh_index];
+                    if (useEdgeWeight) {
+                        contribution *= inWeights[j];
+                    }
+                    sum += contribution;
+                }
+                double value = r + probability * sum;
+                next[s_index] = value;
+
+                double change = (value - current[s_index]) / current[s_index];
+                if (change > max) {
+                    max = change;
+                }
+                if (isCanceled) {
+                    break;
+                }
+            }
+            residual = max;
+        }
+    }
+
     /**
      *
      * @return
@@ -277,14 +322,39 @@ public class PageRank implements Statistics, LongTask {
         ChartUtils.decorateChart(chart);
         ChartUtils.scaleChart(chart, dSeries, true);
         String imageFile = ChartUtils.renderChart(chart, "pageranks.png");
+
+        //Convergence series
+        XYSeries rSeries = new XYSeries("Residual");
+        for (int i = 0; i < residuals.size(); i++) {
+            rSeries.add(i + 1, residuals.get(i));
+        }
+        XYSeriesCollection residualDataset = new XYSeriesCollection();
+        residualDataset.addSeries(rSeries);
+
+        JFreeChart residualChart = ChartFactory.createXYLineChart(
+                "Convergence",
+                "Iteration",
+                "Residual",
+                residualDataset,
+                PlotOrientation.VERTICAL,
+                true,
+                false,
+                false);
+        residualChart.removeLegend();
+        ChartUtils.decorateChart(residualChart);
+        String residualImageFile = ChartUtils.renderChart(residualChart, "pageranks-convergence.png");
         
         String report = "<HTML> <BODY> <h1>PageRank Report </h1> "
                 + "<hr> <br />"
                 + "<h2> Parameters: </h2>"
                 + "Epsilon = " + epsilon + "<br>"
-                + "Probability = " + probability
+                + "Probability = " + probability + "<br>"
+                + "Threads = " + threadCount
                 + "<br> <h2> Results: </h2>"
-                + imageFile
+                + "Iterations = " + residuals.size() + "<br>"
+                + "Final residual = " + (residuals.isEmpty() ? 0 : residuals.get(residuals.size() - 1)) + "<br /><br />"
+                + imageFile + "<br /><br />"
+                + residualImageFile
                 + "<br /><br />" + "<h2> Algorithm: </h2>"
                 + "Sergey Brin, Lawrence Page, <i>The Anatomy of a Large-Scale Hypertextual Web Search Engine</i>, in Proceedings of the seventh International Conference on the World Wide Web (WWW1998):107-117<br />"
                 + "</BODY> </HTML>";
@@ -342,6 +412,28 @@ public class PageRank implements Statistics, LongTask {
         return epsilon;
     }
 
+    /**
+     * Returns the largest relative rank change of each iteration of the last
+     * run, the run stopping at the first value below <code>epsilon</code>.
+     *
+     * @return the per-iteration residuals
+     */
+    public List<Double> getResiduals() {
+        return residuals;
+    }
+
+    public int getIterations() {
+        return residuals != null ? residuals.size() : 0;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
     public boolean isUseEdgeWeight() {
         return useEdgeWeight;
     }
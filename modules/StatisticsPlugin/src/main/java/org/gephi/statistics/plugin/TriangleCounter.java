@@ -0,0 +1,308 @@
+/*
+ Copyright 2008-2012 Gephi
+ Authors : Gephi Consortium
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+
+ Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.statistics.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts triangles per node on an undirected graph snapshot, used by
+ * {@link ClusteringCoefficient}.
+ * <p>
+ * Nodes are ranked by degree and each edge is oriented from the lower to the
+ * higher rank, so that every triangle is found exactly once from its lowest
+ * ranked node and high degree nodes have short forward lists. Forward lists
+ * are sorted by rank and intersected either by merging, or, when the first
+ * list is long, by marking its entries in a direct-address table and probing
+ * the second list against it.
+ * <p>
+ * Nodes are handed out in blocks to worker threads, each with its own
+ * counters, summed at the end. Parallel edges and self-loops are ignored.
+ *
+ * @author Gephi Consortium
+ */
+class TriangleCounter {
+
+    private static final int BLOCK_SIZE = 256;
+    //Forward lists longer than this are intersected with marks instead of merges
+    private static final int MARK_THRESHOLD = 64;
+    private final int n;
+    private final int threadCount;
+    private volatile boolean canceled;
+    //Distinct neighbours count, self excluded
+    private final int[] degrees;
+    //Node index of each rank
+    private final int[] order;
+    //Forward adjacency by rank, entries are ranks
+    private final int[] forwardOffsets;
+    private final int[] forward;
+    private int[] triangles;
+
+    TriangleCounter(GraphSnapshot snapshot, int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+        n = snapshot.getNodeCount();
+        int[] offsets = snapshot.getOutOffsets();
+        int[] targets = snapshot.getOutTargets();
+
+        //Distinct degrees
+        degrees = new int[n];
+        int[] mark = new int[n];
+        for (int i = 0; i < n; i++) {
+            mark[i] = -1;
+        }
+        int maxDegree = 0;
+        for (int i = 0; i < n; i++) {
+            int degree = 0;
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                int t = targets[j];
+                if (t != i && mark[t] != i) {
+                    mark[t] = i;
+                    degree++;
+                }
+            }
+            degrees[i] = degree;
+            maxDegree = Math.max(maxDegree, degree);
+        }
+
+        //Rank by degree, ties by index, with a counting sort
+        int[] buckets = new int[maxDegree + 2];
+        for (int i = 0; i < n; i++) {
+            buckets[degrees[i] + 1]++;
+        }
+        for (int d = 0; d <= maxDegree; d++) {
+            buckets[d + 1] += buckets[d];
+        }
+        order = new int[n];
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            int r = buckets[degrees[i]]++;
+            order[r] = i;
+            rank[i] = r;
+        }
+
+        //Forward lists, filled in increasing rank order so they come out sorted
+        forwardOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            mark[i] = -1;
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                int t = targets[j];
+                if (t != i && mark[t] != i) {
+                    mark[t] = i;
+                    if (rank[i] < rank[t]) {
+                        forwardOffsets[rank[i] + 1]++;
+                    }
+                }
+            }
+        }
+        for (int r = 0; r < n; r++) {
+            forwardOffsets[r + 1] += forwardOffsets[r];
+        }
+        forward = new int[forwardOffsets[n]];
+        int[] cursor = new int[n];
+        System.arraycopy(forwardOffsets, 0, cursor, 0, n);
+        for (int i = 0; i < n; i++) {
+            mark[i] = -1;
+        }
+        for (int r = 0; r < n; r++) {
+            int w = order[r];
+            for (int j = offsets[w]; j < offsets[w + 1]; j++) {
+                int u = targets[j];
+                if (u != w && mark[u] != w) {
+                    mark[u] = w;
+                    if (rank[u] < r) {
+                        forward[cursor[rank[u]]++] = r;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts triangles and returns the number of triangles each node belongs
+     * to.
+     *
+     * @return triangles per node, or <code>null</code> if canceled
+     */
+    int[] count() {
+        AtomicInteger nextBlock = new AtomicInteger();
+        int workerCount = n < BLOCK_SIZE ? 1 : threadCount;
+        Worker[] workers = new Worker[workerCount];
+        for (int t = 0; t < workerCount; t++) {
+            workers[t] = new Worker(nextBlock);
+        }
+        if (workerCount == 1) {
+            workers[0].run();
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(workerCount);
+            try {
+                List<Future<?>> futures = new ArrayList<Future<?>>(workerCount);
+                for (Worker worker : workers) {
+                    futures.add(pool.submit(worker));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException ex) {
+                throw new RuntimeException(ex.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+        if (canceled) {
+            return null;
+        }
+
+        //Reduce, from ranks to node indices
+        triangles = new int[n];
+        for (Worker worker : workers) {
+            for (int r = 0; r < n; r++) {
+                triangles[order[r]] += worker.counts[r];
+            }
+        }
+        return triangles;
+    }
+
+    void cancel() {
+        canceled = true;
+    }
+
+    int[] getDegrees() {
+        return degrees;
+    }
+
+    private class Worker implements Runnable {
+
+        private final AtomicInteger nextBlock;
+        private final int[] counts = new int[n];
+        private boolean[] marks;
+
+        Worker(AtomicInteger nextBlock) {
+            this.nextBlock = nextBlock;
+        }
+
+        public void run() {
+            int block;
+            while (!canceled && (block = nextBlock.getAndIncrement()) * BLOCK_SIZE < n) {
+                int end = Math.min(n, (block + 1) * BLOCK_SIZE);
+                for (int u = block * BLOCK_SIZE; u < end; u++) {
+                    countFrom(u);
+                }
+            }
+        }
+
+        private void countFrom(int u) {
+            int uStart = forwardOffsets[u];
+            int uEnd = forwardOffsets[u + 1];
+            if (uEnd - uStart < 2) {
+                return;
+            }
+            boolean useMarks = uEnd - uStart > MARK_THRESHOLD;
+            if (useMarks) {
+                if (marks == null) {
+                    marks = new boolean[n];
+                }
+                for (int j = uStart; j < uEnd; j++) {
+                    marks[forward[j]] = true;
+                }
+            }
+            for (int j = uStart; j < uEnd; j++) {
+                int v = forward[j];
+                int found;
+                if (useMarks) {
+                    found = intersectMarks(u, v);
+                } else {
+                    found = intersectMerge(u, j + 1, uEnd, v);
+                }
+                counts[u] += found;
+                counts[v] += found;
+            }
+            if (useMarks) {
+                for (int j = uStart; j < uEnd; j++) {
+                    marks[forward[j]] = false;
+                }
+            }
+        }
+
+        private int intersectMerge(int u, int i, int iEnd, int v) {
+            int k = forwardOffsets[v];
+            int kEnd = forwardOffsets[v + 1];
+            int found = 0;
+            while (i < iEnd && k < kEnd) {
+                int a = forward[i];
+                int b = forward[k];
+                if (a < b) {
+                    i++;
+                } else if (a > b) {
+                    k++;
+                } else {
+                    counts[a]++;
+                    found++;
+                    i++;
+                    k++;
+                }
+            }
+            return found;
+        }
+
+        private int intersectMarks(int u, int v) {
+            int found = 0;
+            for (int k = forwardOffsets[v]; k < forwardOffsets[v + 1]; k++) {
+                int w = forward[k];
+                if (marks[w]) {
+                    counts[w]++;
+                    found++;
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -45,6 +45,7 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import org.gephi.data.attributes.api.AttributeColumn;
 import org.gephi.data.attributes.api.AttributeModel;
@@ -55,7 +56,6 @@ import org.gephi.data.attributes.api.AttributeType;
 import org.gephi.graph.api.DirectedGraph;
 import org.gephi.graph.api.Edge;
 import org.gephi.graph.api.GraphModel;
-import org.gephi.graph.api.HierarchicalDirectedGraph;
 import org.gephi.graph.api.HierarchicalGraph;
 import org.gephi.graph.api.Node;
 import org.gephi.statistics.spi.Statistics;
@@ -84,6 +84,7 @@ public class WeightedDegree implements Statistics, LongTask {
     private Map<Double, Integer> degreeDist;
     private Map<Double, Integer> inDegreeDist;
     private Map<Double, Integer> outDegreeDist;
+    private boolean incremental;
 
     public double getAverageDegree() {
         return avgWDegree;
@@ -119,26 +120,50 @@ public class WeightedDegree implements Statistics, LongTask {
 
         graph.readLock();
 
+        //Only the nodes touched since the previous execution are recomputed when possible
+        DegreeUpdater updater = null;
+        DegreeUpdater.Tracker<Double> tracker = null;
+        if (incremental && graph.getView().isMainView() && graph.getHeight() == 0) {
+            updater = DegreeUpdater.get(graph.getGraphModel(), attributeModel);
+            if (updater != null) {
+                tracker = updater.getTracker(isDirected ? WDEGREE + "." + WOUTDEGREE : WDEGREE, true);
+            }
+        }
+
+        if (tracker == null) {
+            fullPass(graph, null, degCol, inCol, outCol);
+        } else {
+            synchronized (tracker) {
+                List<Node> dirty = updater.getDirtyNodes(tracker, graph, degCol, inCol, outCol);
+                if (dirty == null || !update(graph, tracker, dirty, degCol, inCol, outCol)) {
+                    updater.reset(tracker);
+                    fullPass(graph, tracker, degCol, inCol, outCol);
+                }
+                if (isCanceled) {
+                    updater.invalidate(tracker);
+                } else {
+                    updater.synced(tracker, graph, degCol, inCol, outCol);
+                }
+            }
+        }
+
+        graph.readUnlockAll();
+    }
+
+    private void fullPass(HierarchicalGraph graph, DegreeUpdater.Tracker<Double> tracker, AttributeColumn degCol, AttributeColumn inCol, AttributeColumn outCol) {
         Progress.start(progress, graph.getNodeCount());
         int i = 0;
 
+        avgWDegree = 0;
         for (Node n : graph.getNodes()) {
             AttributeRow row = (AttributeRow) n.getNodeData().getAttributes();
-            double totalWeight = 0;
+            double[] weights = computeWeights(graph, n);
+            double totalWeight = weights[0];
+            Double totalInWeight = null;
+            Double totalOutWeight = null;
             if (isDirected) {
-                HierarchicalDirectedGraph hdg = graph.getGraphModel().getHierarchicalDirectedGraph();
-                double totalInWeight = 0;
-                double totalOutWeight = 0;
-                for (Iterator it = graph.getEdgesAndMetaEdges(n).iterator(); it.hasNext();) {
-                    Edge e = (Edge) it.next();
-                    if (e.getSource().getNodeData().equals(n.getNodeData())) {
-                        totalOutWeight += e.getWeight();
-                    }
-                    if (e.getTarget().getNodeData().equals(n.getNodeData())) {
-                        totalInWeight += e.getWeight();
-                    }
-                }
-                totalWeight = totalInWeight + totalOutWeight;
+                totalInWeight = weights[1];
+                totalOutWeight = weights[2];
                 row.setValue(inCol, totalInWeight);
                 row.setValue(outCol, totalOutWeight);
                 if (!inDegreeDist.containsKey(totalInWeight)) {
@@ -149,11 +174,6 @@ public class WeightedDegree implements Statistics, LongTask {
                     outDegreeDist.put(totalOutWeight, 0);
                 }
                 outDegreeDist.put(totalOutWeight, outDegreeDist.get(totalOutWeight) + 1);
-            } else {
-                for (Iterator it = graph.getEdgesAndMetaEdges(n).iterator(); it.hasNext();) {
-                    Edge e = (Edge) it.next();
-                    totalWeight += e.getWeight();
-                }
             }
 
             row.setValue(degCol, totalWeight);
@@ -163,6 +183,9 @@ public class WeightedDegree implements Statistics, LongTask {
                 degreeDist.put(totalWeight, 0);
             }
             degreeDist.put(totalWeight, degreeDist.get(totalWeight) + 1);
+            if (tracker != null) {
+                tracker.add(n, totalWeight, totalInWeight, totalOutWeight);
+            }
 
             if (isCanceled) {
                 break;
@@ -172,8 +195,106 @@ public class WeightedDegree implements Statistics, LongTask {
         }
 
         avgWDegree /= (isDirected) ? 2 * graph.getNodeCount() : graph.getNodeCount();
+    }
 
-        graph.readUnlockAll();
+    /*
+     * Recomputes the dirty nodes and applies the differences to the tracked
+     * results. Returns false if the results don't match the graph, when
+     * events have been missed.
+     */
+    private boolean update(HierarchicalGraph graph, DegreeUpdater.Tracker<Double> tracker, List<Node> dirty, AttributeColumn degCol, AttributeColumn inCol, AttributeColumn outCol) {
+        Progress.start(progress, dirty.size());
+        int i = 0;
+
+        for (Node n : dirty) {
+            AttributeRow row = (AttributeRow) n.getNodeData().getAttributes();
+            if (tracker.isCounted(n)) {
+                tracker.remove(n, getDouble(row, degCol), isDirected ? getDouble(row, inCol) : null, isDirected ? getDouble(row, outCol) : null);
+            }
+            if (graph.contains(n)) {
+                double[] weights = computeWeights(graph, n);
+                Double totalInWeight = null;
+                Double totalOutWeight = null;
+                if (isDirected) {
+                    totalInWeight = weights[1];
+                    totalOutWeight = weights[2];
+                    row.setValue(inCol, totalInWeight);
+                    row.setValue(outCol, totalOutWeight);
+                }
+                row.setValue(degCol, weights[0]);
+                tracker.add(n, weights[0], totalInWeight, totalOutWeight);
+            }
+            i++;
+            Progress.progress(progress, i);
+        }
+
+        //Nodes whose events were missed show up in the count
+        if (tracker.getNodeCount() != graph.getNodeCount()) {
+            return false;
+        }
+
+        avgWDegree = tracker.getDegreeSum() / ((isDirected) ? 2 * tracker.getNodeCount() : tracker.getNodeCount());
+        degreeDist = tracker.getDegreeDistribution();
+        if (isDirected) {
+            inDegreeDist = tracker.getInDegreeDistribution();
+            outDegreeDist = tracker.getOutDegreeDistribution();
+        }
+        return true;
+    }
+
+    /*
+     * Returns the total, in and out weights of the edges of n.
+     */
+    private double[] computeWeights(HierarchicalGraph graph, Node n) {
+        double totalWeight = 0;
+        double totalInWeight = 0;
+        double totalOutWeight = 0;
+        for (Iterator it = graph.getEdgesAndMetaEdges(n).iterator(); it.hasNext();) {
+            Edge e = (Edge) it.next();
+            if (isDirected) {
+                if (e.getSource().getNodeData().equals(n.getNodeData())) {
+                    totalOutWeight += e.getWeight();
+                }
+                if (e.getTarget().getNodeData().equals(n.getNodeData())) {
+                    totalInWeight += e.getWeight();
+                }
+            } else {
+                totalWeight += e.getWeight();
+            }
+        }
+        if (isDirected) {
+            totalWeight = totalInWeight + totalOutWeight;
+        }
+        return new double[]{totalWeight, totalInWeight, totalOutWeight};
+    }
+
+    private static Double getDouble(AttributeRow row, AttributeColumn column) {
+        Object value = row.getValue(column);
+        return value != null ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    /**
+     * Returns <code>true</code> if executions on the main view only recompute
+     * the nodes touched since the previous execution.
+     *
+     * @return <code>true</code> if incremental mode is enabled
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Enables the incremental mode. After a full pass on the main view,
+     * following executions recompute only the endpoints of the edges added,
+     * removed or reweighted since, and the nodes added or removed, and update
+     * the columns, the average and the distributions from them. Hierarchy
+     * changes, graphs with a hierarchy and edits of the weighted degree
+     * columns lead to a full pass.
+     *
+     * @param incremental <code>true</code> to enable incremental mode
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
     }
 
     public String getReport() {
@@ -61,7 +61,7 @@ import org.gephi.graph.api.HierarchicalGraph;
 import org.gephi.graph.api.Node;
 import org.gephi.statistics.plugin.ChartUtils;
 import org.gephi.statistics.plugin.ClusteringCoefficient;
-import org.gephi.statistics.spi.DynamicStatistics;
+import org.gephi.statistics.spi.WindowIndependentStatistics;
 import org.gephi.utils.longtask.spi.LongTask;
 import org.gephi.utils.progress.ProgressTicket;
 import org.jfree.chart.ChartFactory;
@@ -76,7 +76,7 @@ import org.openide.util.NbBundle;
  *
  * @author Mathieu Bastian
  */
-public class DynamicClusteringCoefficient implements DynamicStatistics, LongTask {
+public class DynamicClusteringCoefficient implements WindowIndependentStatistics<DynamicClusteringCoefficient.WindowCoefficients>, LongTask {
 
     public static final String DYNAMIC_AVG_CLUSTERING_COEFFICIENT = "dynamic_avg_clustering";
     public static final String DYNAMIC_CLUSTERING_COEFFICIENT = "dynamic_clustering";
@@ -88,7 +88,6 @@ public class DynamicClusteringCoefficient implements DynamicStatistics, LongTask
     private boolean isDirected;
     private boolean averageOnly;
     private boolean cancel = false;
-    private ClusteringCoefficient clusteringCoefficientStat;
     //Cols
     private AttributeColumn dynamicCoefficientColumn;
     //Average
@@ -169,6 +168,15 @@ public class DynamicClusteringCoefficient implements DynamicStatistics, LongTask
     }
 
     public void loop(GraphView window, Interval interval) {
+        merge(interval, evaluate(window, interval, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public WindowCoefficients evaluate(GraphView window, Interval interval) {
+        //Windows are already evaluated in parallel
+        return evaluate(window, interval, 1);
+    }
+
+    private WindowCoefficients evaluate(GraphView window, Interval interval, int threadCount) {
         HierarchicalGraph graph = null;
         if (isDirected) {
             graph = graphModel.getHierarchicalDirectedGraph(window);
@@ -178,17 +186,29 @@ public class DynamicClusteringCoefficient implements DynamicStatistics, LongTask
 
         graph.readLock();
 
-        clusteringCoefficientStat = new ClusteringCoefficient();
+        ClusteringCoefficient clusteringCoefficientStat = new ClusteringCoefficient();
         clusteringCoefficientStat.setDirected(isDirected);
+        clusteringCoefficientStat.setThreadCount(threadCount);
         clusteringCoefficientStat.triangles(graph);
 
+        WindowCoefficients result = new WindowCoefficients();
+        if (!averageOnly) {
+            result.nodes = graph.getNodes().toArray();
+            result.coefficients = clusteringCoefficientStat.getCoefficientReuslts();
+        }
+        result.average = clusteringCoefficientStat.getAverageClusteringCoefficient();
+
+        graph.readUnlockAll();
+
+        return result;
+    }
+
+    public void merge(Interval interval, WindowCoefficients result) {
         //Columns
         if (!averageOnly) {
-            double[] coefficients = clusteringCoefficientStat.getCoefficientReuslts();
-            int i = 0;
-            for (Node n : graph.getNodes()) {
-                double coef = coefficients[i++];
-                Interval<Double> valInterval = new Interval<Double>(interval, coef);
+            for (int i = 0; i < result.nodes.length; i++) {
+                Node n = result.nodes[i];
+                Interval<Double> valInterval = new Interval<Double>(interval, result.coefficients[i]);
                 DynamicDouble val = (DynamicDouble) n.getAttributes().getValue(dynamicCoefficientColumn.getIndex());
                 if (val == null) {
                     val = new DynamicDouble(valInterval);
@@ -202,17 +222,11 @@ public class DynamicClusteringCoefficient implements DynamicStatistics, LongTask
             }
         }
 
-        graph.readUnlockAll();
-
         //Average
-        double avg = clusteringCoefficientStat.getAverageClusteringCoefficient();
-
-        averages = new DynamicDouble(averages, new Interval<Double>(interval.getLow(), interval.getHigh(), false, true, avg));
+        averages = new DynamicDouble(averages, new Interval<Double>(interval.getLow(), interval.getHigh(), false, true, result.average));
     }
 
     public void end() {
-        clusteringCoefficientStat = null;
-
         graphModel.getGraphVisible().getAttributes().setValue(dynamicAverageCoefficientColumn.getIndex(), averages);
     }
 
@@ -263,4 +277,14 @@ public class DynamicClusteringCoefficient implements DynamicStatistics, LongTask
 
     public void setProgressTicket(ProgressTicket progressTicket) {
     }
+
+    /**
+     * Clustering coefficients of a window, in the order of the window's nodes.
+     */
+    public static final class WindowCoefficients {
+
+        private Node[] nodes;
+        private double[] coefficients;
+        private double average;
+    }
 }
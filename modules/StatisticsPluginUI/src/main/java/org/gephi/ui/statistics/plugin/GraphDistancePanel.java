@@ -78,6 +78,42 @@ public class GraphDistancePanel extends javax.swing.JPanel {
         this.normalizeButton.setSelected(pNormalize);
     }
 
+    public int getSampleSize() {
+        try {
+            return Math.max(0, Integer.parseInt(sampleTextField.getText().trim()));
+        } catch (Exception e) {
+        }
+        return 0;
+    }
+
+    public void setSampleSize(int sampleSize) {
+        sampleTextField.setText(Integer.toString(sampleSize));
+    }
+
+    public long getSeed() {
+        try {
+            return Long.parseLong(seedTextField.getText().trim());
+        } catch (Exception e) {
+        }
+        return 42;
+    }
+
+    public void setSeed(long seed) {
+        seedTextField.setText(Long.toString(seed));
+    }
+
+    public int getThreadCount() {
+        try {
+            return Math.max(1, Integer.parseInt(threadsTextField.getText().trim()));
+        } catch (Exception e) {
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    public void setThreadCount(int threadCount) {
+        threadsTextField.setText(Integer.toString(threadCount));
+    }
+
 
     /** This method is called from within the constructor to
      * initialize the form.
@@ -100,6 +136,12 @@ public class GraphDistancePanel extends javax.swing.JPanel {
         jLabel2 = new javax.swing.JLabel();
         jLabel3 = new javax.swing.JLabel();
         normalizeButton = new javax.swing.JCheckBox();
+        sampleLabel = new javax.swing.JLabel();
+        sampleTextField = new javax.swing.JTextField();
+        seedLabel = new javax.swing.JLabel();
+        seedTextField = new javax.swing.JTextField();
+        threadsLabel = new javax.swing.JLabel();
+        threadsTextField = new javax.swing.JTextField();
 
         directedButtonGroup.add(directedRadioButton);
         directedRadioButton.setText(org.openide.util.NbBundle.getMessage(GraphDistancePanel.class, "GraphDistancePanel.directedRadioButton.text")); // NOI18N
@@ -142,6 +184,25 @@ public class GraphDistancePanel extends javax.swing.JPanel {
 
         normalizeButton.setText(org.openide.util.NbBundle.getMessage(GraphDistancePanel.class, "GraphDistancePanel.normalizeButton.text")); // NOI18N
 
+        sampleLabel.setText(org.openide.util.NbBundle.getMessage(GraphDistancePanel.class, "GraphDistancePanel.sampleLabel.text")); // NOI18N
+        sampleLabel.setToolTipText(org.openide.util.NbBundle.getMessage(GraphDistancePanel.class, "GraphDistancePanel.sampleLabel.toolTipText")); // NOI18N
+
+        sampleTextField.setText(org.openide.util.NbBundle.getMessage(GraphDistancePanel.class, "GraphDistancePanel.sampleTextField.text")); // NOI18N
+        sampleTextField.setMinimumSize(new java.awt.Dimension(59, 25));
+        sampleTextField.setPreferredSize(new java.awt.Dimension(59, 25));
+
+        seedLabel.setText(org.openide.util.NbBundle.getMessage(GraphDistancePanel.class, "GraphDistancePanel.seedLabel.text")); // NOI18N
+
+        seedTextField.setText(org.openide.util.NbBundle.getMessage(GraphDistancePanel.class, "GraphDistancePanel.seedTextField.text")); // NOI18N
+        seedTextField.setMinimumSize(new java.awt.Dimension(59, 25));
+        seedTextField.setPreferredSize(new java.awt.Dimension(59, 25));
+
+        threadsLabel.setText(org.openide.util.NbBundle.getMessage(GraphDistancePanel.class, "GraphDistancePanel.threadsLabel.text")); // NOI18N
+
+        threadsTextField.setText(org.openide.util.NbBundle.getMessage(GraphDistancePanel.class, "GraphDistancePanel.threadsTextField.text")); // NOI18N
+        threadsTextField.setMinimumSize(new java.awt.Dimension(59, 25));
+        threadsTextField.setPreferredSize(new java.awt.Dimension(59, 25));
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -163,6 +224,20 @@ public class GraphDistancePanel extends javax.swing.JPanel {
                 .addContainerGap()
                 .addComponent(undirectedRadioButton)
                 .addContainerGap(628, Short.MAX_VALUE))
+            .addGroup(layout.createSequentialGroup()
+                .addContainerGap()
+                .addComponent(sampleLabel)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(sampleTextField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                .addComponent(seedLabel)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(seedTextField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                .addComponent(threadsLabel)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(threadsTextField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
             .addGroup(layout.createSequentialGroup()
                 .addContainerGap()
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
@@ -187,6 +262,14 @@ public class GraphDistancePanel extends javax.swing.JPanel {
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
                 .addComponent(undirectedRadioButton)
                 .addGap(18, 18, 18)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(sampleLabel)
+                    .addComponent(sampleTextField, javax.swing.GroupLayout.PREFERRED_SIZE, 21, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(seedLabel)
+                    .addComponent(seedTextField, javax.swing.GroupLayout.PREFERRED_SIZE, 21, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(threadsLabel)
+                    .addComponent(threadsTextField, javax.swing.GroupLayout.PREFERRED_SIZE, 21, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addGap(18, 18, 18)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                     .addComponent(jLabel1)
                     .addComponent(jXLabel1, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
@@ -219,6 +302,12 @@ public class GraphDistancePanel extends javax.swing.JPanel {
     private org.jdesktop.swingx.JXLabel jXLabel2;
     private org.jdesktop.swingx.JXLabel jXLabel3;
     private javax.swing.JCheckBox normalizeButton;
+    private javax.swing.JLabel sampleLabel;
+    protected javax.swing.JTextField sampleTextField;
+    private javax.swing.JLabel seedLabel;
+    protected javax.swing.JTextField seedTextField;
+    private javax.swing.JLabel threadsLabel;
+    protected javax.swing.JTextField threadsTextField;
     protected javax.swing.JRadioButton undirectedRadioButton;
     // End of variables declaration//GEN-END:variables
 }
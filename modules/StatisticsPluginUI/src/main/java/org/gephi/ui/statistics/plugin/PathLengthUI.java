@@ -65,6 +65,9 @@ public class PathLengthUI implements StatisticsUI {
         if (panel != null) {
             panel.setDirected(graphDistance.isDirected());
             panel.doNormalize(graphDistance.isNormalized());
+            panel.setSampleSize(graphDistance.getSampleSize());
+            panel.setSeed(graphDistance.getSeed());
+            panel.setThreadCount(graphDistance.getThreadCount());
         }
     }
 
@@ -72,6 +75,9 @@ public class PathLengthUI implements StatisticsUI {
         if (panel != null) {
             graphDistance.setDirected(panel.isDirected());
             graphDistance.setNormalized(panel.normalize());
+            graphDistance.setSampleSize(panel.getSampleSize());
+            graphDistance.setSeed(panel.getSeed());
+            graphDistance.setThreadCount(panel.getThreadCount());
         }
         graphDistance = null;
         panel = null;
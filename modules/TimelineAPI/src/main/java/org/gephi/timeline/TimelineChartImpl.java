@@ -43,57 +43,185 @@ package org.gephi.timeline;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import org.gephi.data.attributes.api.AttributeColumn;
 import org.gephi.timeline.api.TimelineChart;
+import org.gephi.timeline.api.TimelineChartSeries;
 
 /**
+ * Chart values are kept in primitive arrays sorted by X. On top of them a
+ * pyramid of levels is built once, each level merging
+ * <code>FAN_OUT</code> consecutive buckets of the level below with their min,
+ * max and sum. Series are taken from the finest level that fits in the
+ * requested number of points.
  *
  * @author Mathieu Bastian
  */
 public class TimelineChartImpl implements TimelineChart {
 
+    private static final int FAN_OUT_SHIFT = 2;
+    private static final int FAN_OUT = 1 << FAN_OUT_SHIFT;
     private final AttributeColumn column;
-    private final Number[] x;
-    private final Number[] y;
+    private final double[] xs;
+    private final double[] ys;
+    private final Number type;
     private final Number minY;
     private final Number maxY;
     private final Number minX;
     private final Number maxX;
+    //Pyramid, level 0 is the chart values
+    private final double[][] levelX;
+    private final double[][] levelMin;
+    private final double[][] levelMax;
+    private final double[][] levelSum;
+    //Boxed values, created on demand
+    private volatile Number[] x;
+    private volatile Number[] y;
 
-    public TimelineChartImpl(AttributeColumn column, Number[] x, Number y[]) {
+    /**
+     * Creates a chart from <code>x</code> and <code>y</code> values.
+     *
+     * @param column the column the values are taken from
+     * @param x the X values, in ascending order
+     * @param y the Y values
+     * @param type a Y value, whose class is used for the boxed values
+     */
+    public TimelineChartImpl(AttributeColumn column, double[] x, double[] y, Number type) {
+        if (x.length == 0 || x.length != y.length) {
+            throw new IllegalArgumentException("X and Y values should have the same length, at least 1");
+        }
         this.column = column;
-        this.x = x;
-        this.y = y;
-        this.minY = calculateMin(y);
-        this.maxY = calculateMax(y);
-        this.minX = calculateMin(x);
-        this.maxX = calculateMax(x);
+        this.xs = x;
+        this.ys = y;
+        this.type = type;
+
+        List<double[]> xLevels = new ArrayList<double[]>();
+        List<double[]> minLevels = new ArrayList<double[]>();
+        List<double[]> maxLevels = new ArrayList<double[]>();
+        List<double[]> sumLevels = new ArrayList<double[]>();
+        xLevels.add(x);
+        minLevels.add(y);
+        maxLevels.add(y);
+        sumLevels.add(y);
+        double[] prevX = x;
+        double[] prevMin = y;
+        double[] prevMax = y;
+        double[] prevSum = y;
+        while (prevX.length > 2) {
+            int size = (prevX.length + FAN_OUT - 1) >>> FAN_OUT_SHIFT;
+            double[] lx = new double[size];
+            double[] lmin = new double[size];
+            double[] lmax = new double[size];
+            double[] lsum = new double[size];
+            for (int b = 0; b < size; b++) {
+                int start = b << FAN_OUT_SHIFT;
+                int end = Math.min(start + FAN_OUT, prevX.length);
+                double min = prevMin[start];
+                double max = prevMax[start];
+                double sum = 0.0;
+                for (int i = start; i < end; i++) {
+                    min = Math.min(min, prevMin[i]);
+                    max = Math.max(max, prevMax[i]);
+                    sum += prevSum[i];
+                }
+                lx[b] = prevX[start];
+                lmin[b] = min;
+                lmax[b] = max;
+                lsum[b] = sum;
+            }
+            xLevels.add(lx);
+            minLevels.add(lmin);
+            maxLevels.add(lmax);
+            sumLevels.add(lsum);
+            prevX = lx;
+            prevMin = lmin;
+            prevMax = lmax;
+            prevSum = lsum;
+        }
+        this.levelX = xLevels.toArray(new double[0][]);
+        this.levelMin = minLevels.toArray(new double[0][]);
+        this.levelMax = maxLevels.toArray(new double[0][]);
+        this.levelSum = sumLevels.toArray(new double[0][]);
+
+        //The top level has at most two buckets
+        double[] topMin = levelMin[levelMin.length - 1];
+        double[] topMax = levelMax[levelMax.length - 1];
+        double min = topMin[0];
+        double max = topMax[0];
+        for (int i = 1; i < topMin.length; i++) {
+            min = Math.min(min, topMin[i]);
+            max = Math.max(max, topMax[i]);
+        }
+        this.minY = toNumber(min, type);
+        this.maxY = toNumber(max, type);
+        this.minX = x[0];
+        this.maxX = x[x.length - 1];
     }
 
     @Override
     public Number[] getX() {
-        return x;
+        Number[] res = x;
+        if (res == null) {
+            res = new Number[xs.length];
+            for (int i = 0; i < xs.length; i++) {
+                res[i] = xs[i];
+            }
+            x = res;
+        }
+        return res;
     }
 
     @Override
     public Number[] getY() {
-        return y;
+        Number[] res = y;
+        if (res == null) {
+            res = new Number[ys.length];
+            for (int i = 0; i < ys.length; i++) {
+                res[i] = toNumber(ys[i], type);
+            }
+            y = res;
+        }
+        return res;
     }
 
     @Override
     public Number getY(Number posX) {
         double pos = posX.doubleValue();
-        Double value = null;
-        if (pos <= maxX.doubleValue()) {
-            for (int i = 0; i < x.length; i++) {
-                if (pos < x[i].doubleValue()) {
-                    return value;
-                }
-                value = y[i].doubleValue();
-            }
+        if (pos > xs[xs.length - 1]) {
+            return null;
+        }
+        int index = upperBound(pos) - 1;
+        if (index < 0) {
+            return null;
         }
+        return ys[index];
+    }
 
-        return value;
+    @Override
+    public TimelineChartSeries getSeries(double minX, double maxX, int maxPoints) {
+        if (maxPoints < 2) {
+            throw new IllegalArgumentException("At least 2 points are required");
+        }
+        int n = xs.length;
+        if (minX > maxX || maxX < xs[0] || minX > xs[n - 1]) {
+            return null;
+        }
+
+        //Last value at or before minX and first value at or after maxX
+        int from = Math.max(0, upperBound(minX) - 1);
+        int to = Math.min(n - 1, lowerBound(maxX));
+
+        int level = 0;
+        while (level < levelX.length - 1
+                && (to >>> (level * FAN_OUT_SHIFT)) - (from >>> (level * FAN_OUT_SHIFT)) + 1 > maxPoints) {
+            level++;
+        }
+        int shift = level * FAN_OUT_SHIFT;
+        int bucketFrom = from >>> shift;
+        int bucketTo = to >>> shift;
+        return new Series(level, bucketFrom, bucketTo - bucketFrom + 1,
+                Math.max(minX, xs[0]), Math.min(maxX, xs[n - 1]));
     }
 
     @Override
@@ -121,43 +249,105 @@ public class TimelineChartImpl implements TimelineChart {
         return column;
     }
 
-    private Number calculateMin(Number[] yValues) {
-        double min = yValues[0].doubleValue();
-        for (Number d : yValues) {
-            min = Math.min(min, d.doubleValue());
+    /**
+     * Returns the index of the first X value strictly greater than
+     * <code>pos</code>, or the number of values if there is none.
+     */
+    private int upperBound(double pos) {
+        int low = 0;
+        int high = xs.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid] <= pos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first X value greater or equal than
+     * <code>pos</code>, or the number of values if there is none.
+     */
+    private int lowerBound(double pos) {
+        int low = 0;
+        int high = xs.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid] < pos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
-        Number t = yValues[0];
+        return low;
+    }
+
+    private static Number toNumber(double value, Number t) {
         if (t instanceof Double) {
-            return new Double(min);
+            return new Double(value);
         } else if (t instanceof Float) {
-            return new Float(min);
+            return new Float(value);
         } else if (t instanceof Short) {
-            return new Short((short) min);
+            return new Short((short) value);
         } else if (t instanceof Long) {
-            return new Long((long) min);
+            return new Long((long) value);
         } else if (t instanceof BigInteger) {
-            return new BigDecimal(min);
+            return new BigDecimal(value);
         }
-        return min;
+        return value;
     }
 
-    private Number calculateMax(Number[] yValues) {
-        double max = yValues[0].doubleValue();
-        for (Number d : yValues) {
-            max = Math.max(max, d.doubleValue());
+    private class Series implements TimelineChartSeries {
+
+        private final int level;
+        private final int bucketFrom;
+        private final int size;
+        private final double lowX;
+        private final double highX;
+
+        public Series(int level, int bucketFrom, int size, double lowX, double highX) {
+            this.level = level;
+            this.bucketFrom = bucketFrom;
+            this.size = size;
+            this.lowX = lowX;
+            this.highX = highX;
         }
-        Number t = yValues[0];
-        if (t instanceof Double) {
-            return new Double(max);
-        } else if (t instanceof Float) {
-            return new Float(max);
-        } else if (t instanceof Short) {
-            return new Short((short) max);
-        } else if (t instanceof Long) {
-            return new Long((long) max);
-        } else if (t instanceof BigInteger) {
-            return new BigDecimal(max);
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public double getX(int index) {
+            double pos = levelX[level][bucketFrom + index];
+            return Math.min(Math.max(pos, lowX), highX);
+        }
+
+        @Override
+        public double getMinY(int index) {
+            return levelMin[level][bucketFrom + index];
+        }
+
+        @Override
+        public double getMaxY(int index) {
+            return levelMax[level][bucketFrom + index];
+        }
+
+        @Override
+        public double getAverageY(int index) {
+            int shift = level * FAN_OUT_SHIFT;
+            int start = (bucketFrom + index) << shift;
+            int count = Math.min(1 << shift, xs.length - start);
+            return levelSum[level][bucketFrom + index] / count;
+        }
+
+        @Override
+        public double getEndX() {
+            return highX;
         }
-        return max;
     }
 }
@@ -43,7 +43,9 @@ package org.gephi.timeline;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -79,9 +81,20 @@ public class TimelineControllerImpl implements TimelineController, DynamicModelL
     private final DynamicController dynamicController;
     private AttributeModel attributeModel;
     private ScheduledExecutorService playExecutor;
+    private final ExecutorService chartExecutor;
+    private Future<?> chartTask;
 
     public TimelineControllerImpl() {
         listeners = new ArrayList<TimelineModelListener>();
+        chartExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Timeline Chart");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
 
         //Workspace events
         ProjectController pc = Lookup.getDefault().lookup(ProjectController.class);
@@ -285,14 +298,19 @@ public class TimelineControllerImpl implements TimelineController, DynamicModelL
     }
 
     @Override
-    public void selectColumn(final AttributeColumn column) {
+    public synchronized void selectColumn(final AttributeColumn column) {
         if (model != null) {
             if (!(model.getChart() == null && column == null)
                     || (model.getChart() != null && !model.getChart().getColumn().equals(column))) {
                 if (column != null && !attributeModel.getGraphTable().hasColumn(column.getId())) {
                     throw new IllegalArgumentException("Not a graph column");
                 }
-                Thread thread = new Thread(new Runnable() {
+                //A newer selection replaces the chart being built
+                if (chartTask != null) {
+                    chartTask.cancel(true);
+                }
+                final TimelineModelImpl chartModel = model;
+                chartTask = chartExecutor.submit(new Runnable() {
 
                     @Override
                     public void run() {
@@ -301,37 +319,41 @@ public class TimelineControllerImpl implements TimelineController, DynamicModelL
                         if (column != null) {
                             DynamicType type = (DynamicType) graph.getAttributes().getValue(column.getIndex());
                             if (type != null) {
-                                List<Interval> intervals = type.getIntervals(model.getCustomMin(), model.getCustomMax());
-                                Number[] xs = new Number[intervals.size() * 2];
-                                Number[] ys = new Number[intervals.size() * 2];
-                                int i = 0;
-                                Interval interval;
-                                for (int j = 0; j < intervals.size(); j++) {
-                                    interval = intervals.get(j);
-                                    Number x = (Double) interval.getLow();
-                                    Number y = (Number) interval.getValue();
-                                    xs[i] = x;
-                                    ys[i] = y;
-                                    i++;
-                                    if (j != intervals.size() - 1 && intervals.get(j + 1).getLow() < interval.getHigh()) {
-                                        xs[i] = (Double) intervals.get(j + 1).getLow();
-                                    } else {
-                                        xs[i] = (Double) interval.getHigh();
+                                List<Interval> intervals = type.getIntervals(chartModel.getCustomMin(), chartModel.getCustomMax());
+                                if (!intervals.isEmpty()) {
+                                    double[] xs = new double[intervals.size() * 2];
+                                    double[] ys = new double[intervals.size() * 2];
+                                    int i = 0;
+                                    Interval interval;
+                                    for (int j = 0; j < intervals.size(); j++) {
+                                        interval = intervals.get(j);
+                                        double y = ((Number) interval.getValue()).doubleValue();
+                                        xs[i] = interval.getLow();
+                                        ys[i] = y;
+                                        i++;
+                                        if (j != intervals.size() - 1 && intervals.get(j + 1).getLow() < interval.getHigh()) {
+                                            xs[i] = intervals.get(j + 1).getLow();
+                                        } else {
+                                            xs[i] = interval.getHigh();
+                                        }
+                                        ys[i] = y;
+                                        i++;
                                     }
-                                    ys[i] = y;
-                                    i++;
-                                }
-                                if (xs.length > 0) {
-                                    chart = new TimelineChartImpl(column, xs, ys);
+                                    if (Thread.currentThread().isInterrupted()) {
+                                        return;
+                                    }
+                                    chart = new TimelineChartImpl(column, xs, ys, (Number) intervals.get(0).getValue());
                                 }
                             }
                         }
-                        model.setChart(chart);
+                        if (Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        chartModel.setChart(chart);
 
-                        fireTimelineModelEvent(new TimelineModelEvent(TimelineModelEvent.EventType.CHART, model, chart));
+                        fireTimelineModelEvent(new TimelineModelEvent(TimelineModelEvent.EventType.CHART, chartModel, chart));
                     }
-                }, "Timeline Chart");
-                thread.start();
+                });
             }
         }
     }
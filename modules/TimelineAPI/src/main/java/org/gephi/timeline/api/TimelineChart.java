@@ -107,4 +107,17 @@ public interface TimelineChart {
      * @return the max X value
      */
     public Number getMaxX();
+
+    /**
+     * Returns a series of at most <code>maxPoints</code> points covering the
+     * chart between <code>minX</code> and <code>maxX</code>. When the range
+     * contains more values, consecutive values are merged and each point
+     * gives their min, max and average.
+     * @param minX the lower bound of the range
+     * @param maxX the upper bound of the range
+     * @param maxPoints the maximum number of points, at least 2
+     * @return the series, or <code>null</code> if the range doesn't overlap
+     * the chart
+     */
+    public TimelineChartSeries getSeries(double minX, double maxX, int maxPoints);
 }
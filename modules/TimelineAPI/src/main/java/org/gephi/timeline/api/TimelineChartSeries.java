@@ -0,0 +1,98 @@
+/*
+Copyright 2008-2011 Gephi
+Authors : Gephi Consortium
+Website : http://www.gephi.org
+
+This file is part of Gephi.
+
+DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+Copyright 2011 Gephi Consortium. All rights reserved.
+
+The contents of this file are subject to the terms of either the GNU
+General Public License Version 3 only ("GPL") or the Common
+Development and Distribution License("CDDL") (collectively, the
+"License"). You may not use this file except in compliance with the
+License. You can obtain a copy of the License at
+http://gephi.org/about/legal/license-notice/
+or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+specific language governing permissions and limitations under the
+License.  When distributing the software, include this License Header
+Notice in each file and include the License files at
+/cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+License Header, with the fields enclosed by brackets [] replaced by
+your own identifying information:
+"Portions Copyrighted [year] [name of copyright owner]"
+
+If you wish your version of this file to be governed by only the CDDL
+or only the GPL Version 3, indicate your decision by adding
+"[Contributor] elects to include this software in this distribution
+under the [CDDL or GPL Version 3] license." If you do not indicate a
+single choice of license, a recipient has the option to distribute
+your version of this file under either the CDDL, the GPL Version 3 or
+to extend the choice of license to its licensees as provided above.
+However, if you add GPL Version 3 code and therefore, elected the GPL
+Version 3 license, then the option applies only if the new code is
+made subject to such option by the copyright holder.
+
+Contributor(s):
+
+Portions Copyrighted 2011 Gephi Consortium.
+ */
+package org.gephi.timeline.api;
+
+/**
+ * Reduced view of a {@link TimelineChart} over a range of X values, with at
+ * most a given number of points.
+ * <p>
+ * Each point summarizes a bucket of consecutive chart values with their min,
+ * max and average, so peaks remain visible when the range contains more
+ * values than can be drawn. The series gets more precise as the range gets
+ * narrower, down to the chart values themselves.
+ *
+ * @author Gephi Consortium
+ * @see TimelineChart#getSeries(double, double, int)
+ */
+public interface TimelineChartSeries {
+
+    /**
+     * Returns the number of points in this series.
+     * @return the number of points
+     */
+    public int size();
+
+    /**
+     * Returns the X position of the point at <code>index</code>. Positions
+     * are sorted in ascending order.
+     * @param index the point index
+     * @return the X position
+     */
+    public double getX(int index);
+
+    /**
+     * Returns the minimum Y value of the point at <code>index</code>.
+     * @param index the point index
+     * @return the min Y value
+     */
+    public double getMinY(int index);
+
+    /**
+     * Returns the maximum Y value of the point at <code>index</code>.
+     * @param index the point index
+     * @return the max Y value
+     */
+    public double getMaxY(int index);
+
+    /**
+     * Returns the average of the Y values of the point at <code>index</code>.
+     * @param index the point index
+     * @return the average Y value
+     */
+    public double getAverageY(int index);
+
+    /**
+     * Returns the X position where this series ends, after the last point.
+     * @return the end X position
+     */
+    public double getEndX();
+}
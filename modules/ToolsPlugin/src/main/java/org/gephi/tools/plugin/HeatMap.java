@@ -120,7 +120,8 @@ public class HeatMap implements Tool {
                     GraphController gc = Lookup.getDefault().lookup(GraphController.class);
 
                     AbstractShortestPathAlgorithm algorithm;
-                    if (gc.getGraphModel().isDirected()) {
+                    if (gc.getGraphModel().isDirected()
+                            && DijkstraShortestPathAlgorithm.hasNegativeWeight(gc.getGraphModel().getDirectedGraphVisible())) {
                         DirectedGraph graph = gc.getGraphModel().getDirectedGraphVisible();
                         algorithm = new BellmanFordShortestPathAlgorithm(graph, n);
                         algorithm.compute();
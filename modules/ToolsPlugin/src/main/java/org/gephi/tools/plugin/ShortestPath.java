@@ -118,16 +118,20 @@ public class ShortestPath implements Tool {
                     GraphController gc = Lookup.getDefault().lookup(GraphController.class);
                     GraphModel gm = gc.getGraphModel();
 
+                    //Dijkstra follows edge directions, Bellman-Ford is only needed for negative weights
                     AbstractShortestPathAlgorithm algorithm;
-                    if (gm.isDirected()) {
+                    if (gm.isDirected() && DijkstraShortestPathAlgorithm.hasNegativeWeight(gm.getDirectedGraphVisible())) {
                         algorithm = new BellmanFordShortestPathAlgorithm(gm.getDirectedGraphVisible(), sourceNode);
                     } else {
-                        algorithm = new DijkstraShortestPathAlgorithm(gm.getGraphVisible(), sourceNode);
+                        DijkstraShortestPathAlgorithm dijkstra = new DijkstraShortestPathAlgorithm(gm.getGraphVisible(), sourceNode);
+                        dijkstra.setTargetNode(targetNode);
+                        dijkstra.setBidirectional(true);
+                        algorithm = dijkstra;
                     }
                     algorithm.compute();
 
                     double distance;
-                    if ((distance = algorithm.getDistances().get(targetNode)) != Double.POSITIVE_INFINITY) {
+                    if ((distance = algorithm.getDistance(targetNode)) != Double.POSITIVE_INFINITY) {
                         targetNode.setColor(color);
                         VizController.getInstance().selectNode(targetNode);
                         Edge predecessorEdge = algorithm.getPredecessorIncoming(targetNode);